@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the tax calculation of a column of salaries one {@link Money}
+ * salary at a time like {@link PayslipProcessor}, with the scalar {@link
+ * TaxSchedule} loop and with the vectorized {@link ColumnarTaxes}.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaxScheduleBenchmark {
+
+    /**
+     * Largest random salary.
+     */
+    private static final int MAX_SALARY = 250_000;
+
+    /**
+     * Amount of salaries in the column.
+     */
+    @Param({"1024", "65536"})
+    private int size;
+
+    /**
+     * Annual salaries.
+     */
+    private int[] salaries;
+
+    /**
+     * Monthly taxes.
+     */
+    private int[] taxes;
+
+    /**
+     * Compiled schedule.
+     */
+    private TaxSchedule schedule;
+
+    /**
+     * Vectorized calculation, scalar without the Vector API.
+     */
+    private ColumnarTaxes columnar;
+
+    /**
+     * Creates random salaries.
+     */
+    @Setup
+    public void setup() {
+        final Random random = new Random(this.size);
+        this.salaries = new int[this.size];
+        for (int index = 0; index < this.size; ++index) {
+            this.salaries[index] =
+                random.nextInt(TaxScheduleBenchmark.MAX_SALARY);
+        }
+        this.taxes = new int[this.size];
+        this.schedule = TaxSchedule.compile(DefaultTaxRuleFactory.DEFAULT);
+        this.columnar = ColumnarTaxes.of(this.schedule);
+    }
+
+    /**
+     * Taxes with {@link TaxSchedule#tax(Money)}, as used by {@link
+     * PayslipProcessor}.
+     *
+     * @return Monthly taxes.
+     */
+    @Benchmark
+    public int[] processor() {
+        for (int index = 0; index < this.size; ++index) {
+            this.taxes[index] = this.schedule
+                .tax(Money.ofDollars(this.salaries[index]))
+                .toIntDollars();
+        }
+        return this.taxes;
+    }
+
+    /**
+     * Taxes with the scalar masked loop.
+     *
+     * @return Monthly taxes.
+     */
+    @Benchmark
+    public int[] scalar() {
+        this.schedule.taxes(this.salaries, this.taxes);
+        return this.taxes;
+    }
+
+    /**
+     * Taxes with the Vector API when available.
+     *
+     * @return Monthly taxes.
+     */
+    @Benchmark
+    public int[] vector() {
+        this.columnar.taxes(this.salaries, this.taxes);
+        return this.taxes;
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.concurrent.Flow;
+
+/**
+ * Adapters between the {@link PayslipFlow} interfaces and {@link
+ * java.util.concurrent.Flow}, so a {@link PayslipFlowProcessor} can be
+ * wired to JDK publishers and subscribers, like a {@link
+ * java.util.concurrent.SubmissionPublisher}. Every adapter only forwards
+ * its calls. Only compiled by the {@code flow} profile, on JDK 9 and newer.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class FlowAdapters {
+
+    /**
+     * Utility class.
+     */
+    private FlowAdapters() {
+    }
+
+    /**
+     * {@code Flow} view of a publisher.
+     *
+     * @param publisher Publisher.
+     * @param <T> Item type.
+     * @return Flow publisher.
+     */
+    public static <T> Flow.Publisher<T> toFlowPublisher(
+        final PayslipFlow.Publisher<T> publisher) {
+        return subscriber -> publisher.subscribe(
+            new FlowAdapters.PayslipSubscriber<>(subscriber)
+        );
+    }
+
+    /**
+     * {@code Flow} view of a subscriber.
+     *
+     * @param subscriber Subscriber.
+     * @param <T> Item type.
+     * @return Flow subscriber.
+     */
+    public static <T> Flow.Subscriber<T> toFlowSubscriber(
+        final PayslipFlow.Subscriber<T> subscriber) {
+        return new FlowAdapters.FlowSubscriber<>(subscriber);
+    }
+
+    /**
+     * {@code Flow} view of a processor.
+     *
+     * @param processor Processor.
+     * @param <T> Received item type.
+     * @param <R> Published item type.
+     * @return Flow processor.
+     */
+    public static <T, R> Flow.Processor<T, R> toFlowProcessor(
+        final PayslipFlow.Processor<T, R> processor) {
+        return new FlowAdapters.FlowProcessor<>(processor);
+    }
+
+    /**
+     * {@link PayslipFlow} view of a {@code Flow} publisher.
+     *
+     * @param publisher Flow publisher.
+     * @param <T> Item type.
+     * @return Publisher.
+     */
+    public static <T> PayslipFlow.Publisher<T> toPayslipPublisher(
+        final Flow.Publisher<T> publisher) {
+        return subscriber -> publisher.subscribe(
+            new FlowAdapters.FlowSubscriber<>(subscriber)
+        );
+    }
+
+    /**
+     * {@link PayslipFlow} view of a {@code Flow} subscriber.
+     *
+     * @param subscriber Flow subscriber.
+     * @param <T> Item type.
+     * @return Subscriber.
+     */
+    public static <T> PayslipFlow.Subscriber<T> toPayslipSubscriber(
+        final Flow.Subscriber<T> subscriber) {
+        return new FlowAdapters.PayslipSubscriber<>(subscriber);
+    }
+
+    /**
+     * {@link PayslipFlow} subscriber that forwards to a {@code Flow}
+     * subscriber.
+     *
+     * @param <T> Item type.
+     */
+    private static final class PayslipSubscriber<T>
+        implements PayslipFlow.Subscriber<T> {
+
+        /**
+         * Flow subscriber.
+         */
+        private final Flow.Subscriber<? super T> origin;
+
+        /**
+         * Adapter constructor.
+         *
+         * @param origin Flow subscriber.
+         */
+        PayslipSubscriber(final Flow.Subscriber<? super T> origin) {
+            this.origin = origin;
+        }
+
+        @Override
+        public void onSubscribe(final PayslipFlow.Subscription subscription) {
+            this.origin.onSubscribe(
+                new FlowAdapters.FlowSubscription(subscription)
+            );
+        }
+
+        @Override
+        public void onNext(final T item) {
+            this.origin.onNext(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.origin.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.origin.onComplete();
+        }
+    }
+
+    /**
+     * {@code Flow} subscriber that forwards to a {@link PayslipFlow}
+     * subscriber.
+     *
+     * @param <T> Item type.
+     */
+    private static class FlowSubscriber<T> implements Flow.Subscriber<T> {
+
+        /**
+         * Subscriber.
+         */
+        private final PayslipFlow.Subscriber<? super T> origin;
+
+        /**
+         * Adapter constructor.
+         *
+         * @param origin Subscriber.
+         */
+        FlowSubscriber(final PayslipFlow.Subscriber<? super T> origin) {
+            this.origin = origin;
+        }
+
+        @Override
+        public final void onSubscribe(final Flow.Subscription subscription) {
+            this.origin.onSubscribe(
+                new FlowAdapters.PayslipSubscription(subscription)
+            );
+        }
+
+        @Override
+        public final void onNext(final T item) {
+            this.origin.onNext(item);
+        }
+
+        @Override
+        public final void onError(final Throwable throwable) {
+            this.origin.onError(throwable);
+        }
+
+        @Override
+        public final void onComplete() {
+            this.origin.onComplete();
+        }
+    }
+
+    /**
+     * {@code Flow} processor that forwards to a {@link PayslipFlow}
+     * processor.
+     *
+     * @param <T> Received item type.
+     * @param <R> Published item type.
+     */
+    private static final class FlowProcessor<T, R>
+        extends FlowAdapters.FlowSubscriber<T>
+        implements Flow.Processor<T, R> {
+
+        /**
+         * Processor.
+         */
+        private final PayslipFlow.Processor<T, R> processor;
+
+        /**
+         * Adapter constructor.
+         *
+         * @param processor Processor.
+         */
+        FlowProcessor(final PayslipFlow.Processor<T, R> processor) {
+            super(processor);
+            this.processor = processor;
+        }
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super R> subscriber) {
+            this.processor.subscribe(
+                new FlowAdapters.PayslipSubscriber<>(subscriber)
+            );
+        }
+    }
+
+    /**
+     * {@code Flow} subscription that forwards to a {@link PayslipFlow}
+     * subscription.
+     */
+    private static final class FlowSubscription implements Flow.Subscription {
+
+        /**
+         * Subscription.
+         */
+        private final PayslipFlow.Subscription origin;
+
+        /**
+         * Adapter constructor.
+         *
+         * @param origin Subscription.
+         */
+        FlowSubscription(final PayslipFlow.Subscription origin) {
+            this.origin = origin;
+        }
+
+        @Override
+        public void request(final long amount) {
+            this.origin.request(amount);
+        }
+
+        @Override
+        public void cancel() {
+            this.origin.cancel();
+        }
+    }
+
+    /**
+     * {@link PayslipFlow} subscription that forwards to a {@code Flow}
+     * subscription.
+     */
+    private static final class PayslipSubscription
+        implements PayslipFlow.Subscription {
+
+        /**
+         * Flow subscription.
+         */
+        private final Flow.Subscription origin;
+
+        /**
+         * Adapter constructor.
+         *
+         * @param origin Flow subscription.
+         */
+        PayslipSubscription(final Flow.Subscription origin) {
+            this.origin = origin;
+        }
+
+        @Override
+        public void request(final long amount) {
+            this.origin.request(amount);
+        }
+
+        @Override
+        public void cancel() {
+            this.origin.cancel();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of {@link ColumnarTaxes} with the JDK Vector API.
+ * Salaries are loaded as a vector of ints and widened to longs, every
+ * bracket of the {@link TaxSchedule} is evaluated for the whole vector and
+ * selected with a mask per bracket, and the taxes are divided and narrowed
+ * back to ints lane-wise. Only compiled and loaded on JDKs that ship {@code
+ * jdk.incubator.vector}.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class VectorTaxes implements ColumnarTaxes {
+
+    /**
+     * Vector species of the scaled taxes.
+     */
+    private static final VectorSpecies<Long> LONGS =
+        LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Vector species of the salaries and taxes, with as many lanes as
+     * {@link #LONGS}.
+     */
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_MAX
+        .withShape(
+            VectorShape.forBitSize(VectorTaxes.LONGS.vectorBitSize() / 2)
+        );
+
+    /**
+     * Compiled tax schedule.
+     */
+    private final TaxSchedule schedule;
+
+    /**
+     * Vectorized tax calculation constructor.
+     *
+     * @param schedule Compiled tax schedule.
+     */
+    public VectorTaxes(final TaxSchedule schedule) {
+        this.schedule = schedule;
+    }
+
+    @Override
+    public void taxes(final int[] salaries, final int[] taxes) {
+        this.schedule.check(salaries, taxes);
+        if (this.schedule.isPositive() && VectorTaxes.positive(salaries)) {
+            final long divisor = this.schedule.divisor();
+            final int bound = VectorTaxes.LONGS.loopBound(salaries.length);
+            int index = 0;
+            while (index < bound) {
+                final LongVector salary = (LongVector) IntVector
+                    .fromArray(VectorTaxes.INTS, salaries, index)
+                    .convertShape(VectorOperators.I2L, VectorTaxes.LONGS, 0);
+                ((IntVector) this.scaled(salary)
+                    .lanewise(VectorOperators.DIV, divisor)
+                    .convertShape(VectorOperators.L2I, VectorTaxes.INTS, 0))
+                    .intoArray(taxes, index);
+                index += VectorTaxes.LONGS.length();
+            }
+            while (index < salaries.length) {
+                taxes[index] = this.schedule.tax(salaries[index]);
+                index += 1;
+            }
+        } else {
+            this.schedule.taxes(salaries, taxes);
+        }
+    }
+
+    /**
+     * Scaled annual tax of a vector of salaries plus half of the divisor, so
+     * an integer division gives the rounded monthly tax.
+     *
+     * @param salary Salaries.
+     * @return Scaled taxes.
+     */
+    private LongVector scaled(final LongVector salary) {
+        final long half = this.schedule.divisor() / 2L;
+        LongVector tax = LongVector.zero(VectorTaxes.LONGS);
+        for (int bracket = 0; bracket < this.schedule.size(); ++bracket) {
+            final VectorMask<Long> mask = salary
+                .compare(VectorOperators.GT, this.schedule.low(bracket))
+                .and(
+                    salary.compare(
+                        VectorOperators.LE, this.schedule.high(bracket)
+                    )
+                );
+            final LongVector value = salary
+                .sub(this.schedule.subtract(bracket))
+                .mul(this.schedule.rate(bracket))
+                .add(this.schedule.base(bracket) + half);
+            tax = tax.blend(value, mask);
+        }
+        return tax;
+    }
+
+    /**
+     * Checks that no salary is negative.
+     *
+     * @param salaries Annual salaries.
+     * @return True when all salaries are zero or positive.
+     */
+    private static boolean positive(final int[] salaries) {
+        boolean positive = true;
+        for (final int salary : salaries) {
+            positive &= salary >= 0;
+        }
+        return positive;
+    }
+}
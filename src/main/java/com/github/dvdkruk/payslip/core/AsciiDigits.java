@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+/**
+ * Encodes integers as decimal ASCII digits into a byte array, without the
+ * strings of {@link Integer#toString(int)}.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class AsciiDigits {
+
+    /**
+     * Largest amount of bytes of an encoded {@code int}, with its sign.
+     */
+    static final int MAX_LENGTH = 11;
+
+    /**
+     * Radix of the digits.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Utility class.
+     */
+    private AsciiDigits() {
+    }
+
+    /**
+     * Writes the digits of {@code value}, with a minus sign when negative.
+     *
+     * @param value Number.
+     * @param target Receives the digits, with at least {@link #MAX_LENGTH}
+     *  bytes after {@code offset}.
+     * @param offset Index of the first byte.
+     * @return Index after the last digit.
+     */
+    static int encode(final int value, final byte[] target, final int offset) {
+        long rest = value;
+        int position = offset;
+        if (rest < 0L) {
+            target[position] = '-';
+            position += 1;
+            rest = -rest;
+        }
+        for (long scale = AsciiDigits.RADIX; scale <= rest;
+            scale *= AsciiDigits.RADIX) {
+            position += 1;
+        }
+        final int end = position + 1;
+        do {
+            target[position] = (byte) ('0' + rest % AsciiDigits.RADIX);
+            position -= 1;
+            rest /= AsciiDigits.RADIX;
+        } while (rest > 0L);
+        return end;
+    }
+}
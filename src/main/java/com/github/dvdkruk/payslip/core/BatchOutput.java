@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Output of a batch run, which writes result lines directly or, when the
+ * output is sorted, through an {@link ExternalSorter}. Results are written
+ * as comma separated lines or, with a {@link JsonLineEncoder}, as JSON
+ * Lines.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class BatchOutput implements Closeable {
+
+    /**
+     * Output writer.
+     */
+    private final BatchWriter writer;
+
+    /**
+     * Sorter, {@code null} when the output is written in input order.
+     */
+    private final ExternalSorter sorter;
+
+    /**
+     * JSON encoder, {@code null} when the output is comma separated.
+     */
+    private final JsonLineEncoder json;
+
+    /**
+     * Comma separated output constructor.
+     *
+     * @param writer Output writer.
+     * @param sorter Sorter or {@code null} for output in input order.
+     */
+    BatchOutput(final BatchWriter writer, final ExternalSorter sorter) {
+        this(writer, sorter, null);
+    }
+
+    /**
+     * Output constructor.
+     *
+     * @param writer Output writer.
+     * @param sorter Sorter or {@code null} for output in input order.
+     * @param json JSON encoder or {@code null} for comma separated output,
+     *  JSON output cannot be sorted.
+     */
+    BatchOutput(
+        final BatchWriter writer,
+        final ExternalSorter sorter,
+        final JsonLineEncoder json) {
+        this.writer = writer;
+        this.sorter = sorter;
+        this.json = json;
+    }
+
+    /**
+     * Writes the output line of a result, which is {@code prefix} followed
+     * by the result.
+     *
+     * @param request The processed request.
+     * @param result The result of the request.
+     * @param prefix Prefix of the output line.
+     * @throws IOException When writing fails.
+     */
+    void write(
+        final PayslipRequest request,
+        final PayslipResult result,
+        final String prefix) throws IOException {
+        if (this.json != null) {
+            final int length = this.json.encode(prefix, result);
+            this.writer.writeRecord(this.json.bytes(), 0, length);
+        } else if (this.sorter == null) {
+            this.writer.writeLine(prefix.concat(result.toString()));
+        } else {
+            this.sorter.add(request, result, prefix);
+        }
+    }
+
+    /**
+     * Writes encoded output lines as they are, which is not possible for
+     * sorted output.
+     *
+     * @param lines Output lines with their separators.
+     * @throws IOException When writing fails.
+     */
+    void write(final ByteBuffer lines) throws IOException {
+        this.writer.write(lines);
+    }
+
+    /**
+     * Writes all sorted lines and forces the output to disk.
+     *
+     * @throws IOException When writing fails.
+     */
+    void finish() throws IOException {
+        if (this.sorter != null) {
+            this.sorter.writeTo(this.writer);
+        }
+        this.writer.sync();
+    }
+
+    /**
+     * Forces all written lines to disk.
+     *
+     * @throws IOException When writing fails.
+     */
+    void sync() throws IOException {
+        this.writer.sync();
+    }
+
+    /**
+     * Amount of bytes written to the output file.
+     *
+     * @return Output byte offset.
+     */
+    long offset() {
+        return this.writer.offset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.sorter != null) {
+                this.sorter.close();
+            }
+        } finally {
+            this.writer.close();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a batch run. Processing threads only add to striped {@link
+ * LongAdder} counters for the bytes read, the rows and the failed rows. A
+ * timer thread samples the counters once per period and prints the rows
+ * and megabytes per second of the last period, the error rate and the
+ * estimated remaining time. The run marks its stages, and closing the
+ * progress prints the totals with the wall time of every stage.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class BatchProgress implements Closeable {
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final double MEGABYTE = 1_000_000.0;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double SECOND = 1_000_000_000.0;
+
+    /**
+     * Percent.
+     */
+    private static final double PERCENT = 100.0;
+
+    /**
+     * Stream for progress lines, {@code null} without output.
+     */
+    private final PrintStream out;
+
+    /**
+     * Period between two progress lines in milliseconds.
+     */
+    private final long period;
+
+    /**
+     * Bytes read.
+     */
+    private final LongAdder bytes;
+
+    /**
+     * Rows read.
+     */
+    private final LongAdder rows;
+
+    /**
+     * Rows rejected.
+     */
+    private final LongAdder failed;
+
+    /**
+     * Wall time per finished stage in nanoseconds, in stage order.
+     */
+    private final Map<String, Long> stages;
+
+    /**
+     * Timer thread, {@code null} before the run starts or without output.
+     */
+    private ScheduledExecutorService timer;
+
+    /**
+     * Size of the input in bytes.
+     */
+    private volatile long total;
+
+    /**
+     * Input offset of the run start, non-zero when resumed.
+     */
+    private volatile long offset;
+
+    /**
+     * Start of the run in nanoseconds.
+     */
+    private volatile long began;
+
+    /**
+     * Whether the run started.
+     */
+    private volatile boolean started;
+
+    /**
+     * Current stage.
+     */
+    private String stage;
+
+    /**
+     * Start of the current stage in nanoseconds.
+     */
+    private long since;
+
+    /**
+     * Silent progress, which only counts.
+     */
+    public BatchProgress() {
+        this(null, 0L);
+    }
+
+    /**
+     * Progress constructor.
+     *
+     * @param out Stream for progress lines or {@code null} for none.
+     * @param period Period between two progress lines in milliseconds.
+     */
+    public BatchProgress(final PrintStream out, final long period) {
+        this.out = out;
+        this.period = period;
+        this.bytes = new LongAdder();
+        this.rows = new LongAdder();
+        this.failed = new LongAdder();
+        this.stages = new LinkedHashMap<>();
+    }
+
+    /**
+     * Starts the run and the timer thread.
+     *
+     * @param size Size of the input in bytes.
+     * @param start Input offset the run starts at.
+     */
+    void begin(final long size, final long start) {
+        this.total = size;
+        this.offset = start;
+        this.bytes.add(start);
+        this.began = System.nanoTime();
+        this.started = true;
+        if (this.out != null && this.period > 0L) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(
+                task -> {
+                    final Thread thread = new Thread(task, "payslip-progress");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+            final BatchProgress.Sample last = new BatchProgress.Sample();
+            this.timer.scheduleAtFixedRate(
+                () -> this.out.println(this.sample(last)),
+                this.period,
+                this.period,
+                TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    /**
+     * Ends the current stage and starts stage {@code name}.
+     *
+     * @param name Stage name.
+     */
+    void stage(final String name) {
+        final long now = System.nanoTime();
+        if (this.stage != null) {
+            this.stages.merge(this.stage, now - this.since, Long::sum);
+        }
+        this.stage = name;
+        this.since = now;
+    }
+
+    /**
+     * Counts bytes read.
+     *
+     * @param amount Amount of bytes.
+     */
+    void read(final long amount) {
+        this.bytes.add(amount);
+    }
+
+    /**
+     * Counts a row.
+     */
+    void row() {
+        this.rows.increment();
+    }
+
+    /**
+     * Counts a rejected row.
+     */
+    void fail() {
+        this.failed.increment();
+    }
+
+    /**
+     * Stops the timer thread, ends the current stage and prints the
+     * summary. A run that failed before it started prints no summary, as
+     * it has no wall time.
+     */
+    @Override
+    public void close() {
+        if (this.timer != null) {
+            this.timer.shutdownNow();
+            try {
+                this.timer.awaitTermination(1L, TimeUnit.MINUTES);
+            } catch (final InterruptedException iex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.stage(null);
+        if (this.out != null && this.started) {
+            this.out.println(this.summarize());
+        }
+    }
+
+    /**
+     * Summary with the totals, the wall time of the run and of every stage.
+     *
+     * @return Summary line.
+     */
+    String summarize() {
+        final double wall = (System.nanoTime() - this.began)
+            / BatchProgress.SECOND;
+        final long read = this.bytes.sum() - this.offset;
+        final StringBuilder summary = new StringBuilder(
+            String.format(
+                "finished: %d rows, %d failed, %.1f MB in %.1f s (%.0f rows/s)",
+                this.rows.sum(),
+                this.failed.sum(),
+                read / BatchProgress.MEGABYTE,
+                wall,
+                this.rows.sum() / Math.max(wall, 1.0 / BatchProgress.SECOND)
+            )
+        );
+        for (final Map.Entry<String, Long> entry : this.stages.entrySet()) {
+            summary.append(", ").append(entry.getKey()).append(' ').append(
+                String.format("%.1f s", entry.getValue() / BatchProgress.SECOND)
+            );
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Progress line with the rates since the previous sample.
+     *
+     * @param last Previous sample, updated to this sample.
+     * @return Progress line.
+     */
+    private String sample(final BatchProgress.Sample last) {
+        final long now = System.nanoTime();
+        final long read = this.bytes.sum();
+        final long count = this.rows.sum();
+        final long errors = this.failed.sum();
+        final long from;
+        if (last.time == 0L) {
+            from = this.began;
+            last.bytes = this.offset;
+        } else {
+            from = last.time;
+        }
+        final double seconds = Math.max(now - from, 1L)
+            / BatchProgress.SECOND;
+        final double rate = (double) (read - this.offset)
+            / Math.max(now - this.began, 1L);
+        final String eta;
+        if (rate > 0.0) {
+            eta = BatchProgress.clock(
+                (long) ((this.total - read) / rate / BatchProgress.SECOND)
+            );
+        } else {
+            eta = "unknown";
+        }
+        final String line = String.format(
+            "progress: %d rows, %.0f rows/s, %.1f MB/s, errors: %.2f%%, "
+                .concat("done: %.1f%%, eta: %s"),
+            count,
+            (count - last.rows) / seconds,
+            (read - last.bytes) / BatchProgress.MEGABYTE / seconds,
+            BatchProgress.PERCENT * errors / Math.max(count, 1L),
+            BatchProgress.PERCENT * read / Math.max(this.total, 1L),
+            eta
+        );
+        last.time = now;
+        last.bytes = read;
+        last.rows = count;
+        return line;
+    }
+
+    /**
+     * Formats an amount of seconds as hours, minutes and seconds.
+     *
+     * @param seconds Amount of seconds.
+     * @return Time like {@code 1:02:03}.
+     */
+    private static String clock(final long seconds) {
+        final long minute = TimeUnit.MINUTES.toSeconds(1L);
+        final long hour = TimeUnit.HOURS.toSeconds(1L);
+        return String.format(
+            "%d:%02d:%02d",
+            seconds / hour,
+            seconds % hour / minute,
+            seconds % minute
+        );
+    }
+
+    /**
+     * Counters of the previous progress line, only used by the timer
+     * thread.
+     */
+    private static final class Sample {
+
+        /**
+         * Time of the sample in nanoseconds, zero before the first sample.
+         */
+        private long time;
+
+        /**
+         * Bytes read at the sample.
+         */
+        private long bytes;
+
+        /**
+         * Rows at the sample.
+         */
+        private long rows;
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.nio.file.Path;
+
+/**
+ * Immutable settings of a {@link PayslipBatch} run, every {@code with}
+ * method returns a modified copy.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class BatchSettings {
+
+    /**
+     * Default amount of input lines between two checkpoints.
+     */
+    public static final int DEFAULT_INTERVAL = 100_000;
+
+    /**
+     * Input file.
+     */
+    private final Path input;
+
+    /**
+     * Output file.
+     */
+    private final Path output;
+
+    /**
+     * Amount of input lines between two checkpoints, zero disables them.
+     */
+    private int interval;
+
+    /**
+     * Resume from the last checkpoint.
+     */
+    private boolean resume;
+
+    /**
+     * Input and output lines are prefixed with their original line number.
+     */
+    private boolean sequenced;
+
+    /**
+     * Offset of the first line of the byte range of a shard worker.
+     */
+    private long start;
+
+    /**
+     * Offset after the last line of the byte range, negative for the whole
+     * input.
+     */
+    private long end;
+
+    /**
+     * Amount of input lines before the byte range.
+     */
+    private long before;
+
+    /**
+     * Sort key of the output, {@code null} keeps the input order.
+     */
+    private SortKey sort;
+
+    /**
+     * Handling of duplicate requests, {@code null} disables the detection.
+     */
+    private DuplicatePolicy duplicates;
+
+    /**
+     * Format of the result lines.
+     */
+    private OutputFormat format;
+
+    /**
+     * Whether request lines are staged off-heap.
+     */
+    private boolean offheap;
+
+    /**
+     * Employee file of pay-run lines, {@code null} for lines with names.
+     */
+    private Path employees;
+
+    /**
+     * Settings for processing {@code input} into {@code output}.
+     *
+     * @param input Input file with one request per line.
+     * @param output Output file with one result per line.
+     */
+    public BatchSettings(final Path input, final Path output) {
+        this.input = input;
+        this.output = output;
+        this.interval = BatchSettings.DEFAULT_INTERVAL;
+        this.end = -1L;
+        this.format = OutputFormat.CSV;
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param other Settings to copy.
+     */
+    private BatchSettings(final BatchSettings other) {
+        this.input = other.input;
+        this.output = other.output;
+        this.interval = other.interval;
+        this.resume = other.resume;
+        this.sequenced = other.sequenced;
+        this.start = other.start;
+        this.end = other.end;
+        this.before = other.before;
+        this.sort = other.sort;
+        this.duplicates = other.duplicates;
+        this.format = other.format;
+        this.offheap = other.offheap;
+        this.employees = other.employees;
+    }
+
+    /**
+     * Copy of these settings with another checkpoint interval.
+     *
+     * @param lines Amount of input lines between two checkpoints, zero
+     *  disables intermediate checkpoints.
+     * @return New settings.
+     */
+    public BatchSettings withInterval(final int lines) {
+        if (lines < 0) {
+            throw new PayslipException(
+                "checkpoint interval must not be negative"
+            );
+        }
+        final BatchSettings copy = new BatchSettings(this);
+        copy.interval = lines;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings that resumes from the last checkpoint.
+     *
+     * @param flag Resume from the last checkpoint.
+     * @return New settings.
+     */
+    public BatchSettings withResume(final boolean flag) {
+        final BatchSettings copy = new BatchSettings(this);
+        copy.resume = flag;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings for sequenced input and output, as used by
+     * shard workers. Every line is prefixed with its original line number and
+     * a tab, so results of several shards can be merged back into input order.
+     *
+     * @param flag Use sequenced lines.
+     * @return New settings.
+     */
+    public BatchSettings withSequenced(final boolean flag) {
+        final BatchSettings copy = new BatchSettings(this);
+        copy.sequenced = flag;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings that only reads the lines of a byte range of
+     * the input, as used by shard workers of byte ranges. The input is read
+     * as is and every output line is prefixed with its original line number
+     * and a tab.
+     *
+     * @param first Offset of the first line.
+     * @param last Offset after the last line.
+     * @param lines Amount of input lines before the range.
+     * @return New settings.
+     */
+    public BatchSettings withRange(
+        final long first,
+        final long last,
+        final long lines) {
+        if (first < 0L || last < first || lines < 0L) {
+            throw new PayslipException(
+                String.format(
+                    "%d,%d,%d is an invalid input range", first, last, lines
+                )
+            );
+        }
+        final BatchSettings copy = new BatchSettings(this);
+        copy.start = first;
+        copy.end = last;
+        copy.before = lines;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings that sorts the output by {@code key}. Sorted
+     * output is written at the end of the run, so it cannot be resumed.
+     *
+     * @param key Sort key, {@code null} keeps the input order.
+     * @return New settings.
+     */
+    public BatchSettings withSort(final SortKey key) {
+        final BatchSettings copy = new BatchSettings(this);
+        copy.sort = key;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings that detects requests for the same employee and
+     * month as an earlier line before the run, and handles them with {@code
+     * policy}.
+     *
+     * @param policy Duplicate policy, {@code null} disables the detection.
+     * @return New settings.
+     */
+    public BatchSettings withDuplicates(final DuplicatePolicy policy) {
+        final BatchSettings copy = new BatchSettings(this);
+        copy.duplicates = policy;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings that writes the result lines in {@code format}.
+     *
+     * @param type Output format.
+     * @return New settings.
+     */
+    public BatchSettings withFormat(final OutputFormat type) {
+        final BatchSettings copy = new BatchSettings(this);
+        copy.format = type;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings that reads pay-run lines, which reference their
+     * employee by ID, with the employees of an employee file.
+     *
+     * @param file Employee file, {@code null} for request lines with names.
+     * @return New settings.
+     */
+    public BatchSettings withEmployees(final Path file) {
+        final BatchSettings copy = new BatchSettings(this);
+        copy.employees = file;
+        return copy;
+    }
+
+    /**
+     * Copy of these settings that stages blocks of plain request lines in
+     * direct buffers instead of request and result objects, which keeps
+     * large runs free of garbage per row. Staged runs cannot be sorted or
+     * read sequenced input.
+     *
+     * @param flag True to stage request lines off-heap.
+     * @return New settings.
+     */
+    public BatchSettings withOffHeap(final boolean flag) {
+        final BatchSettings copy = new BatchSettings(this);
+        copy.offheap = flag;
+        return copy;
+    }
+
+    /**
+     * Input file.
+     *
+     * @return Input file.
+     */
+    public Path getInput() {
+        return this.input;
+    }
+
+    /**
+     * Output file.
+     *
+     * @return Output file.
+     */
+    public Path getOutput() {
+        return this.output;
+    }
+
+    /**
+     * Checkpoint file that belongs to the output file.
+     *
+     * @return Checkpoint file.
+     */
+    public Path getCheckpoint() {
+        return Checkpoint.fileOf(this.output);
+    }
+
+    /**
+     * Amount of input lines between two checkpoints.
+     *
+     * @return Checkpoint interval, zero when disabled.
+     */
+    public int getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Resume from the last checkpoint.
+     *
+     * @return True when the run resumes from its last checkpoint.
+     */
+    public boolean isResume() {
+        return this.resume;
+    }
+
+    /**
+     * Input and output lines are prefixed with their original line number.
+     *
+     * @return True for sequenced lines.
+     */
+    public boolean isSequenced() {
+        return this.sequenced;
+    }
+
+    /**
+     * Only a byte range of the input is read.
+     *
+     * @return True for a shard worker of a byte range.
+     */
+    public boolean isRanged() {
+        return this.end >= 0L;
+    }
+
+    /**
+     * Offset of the first line to read.
+     *
+     * @return Start of the byte range, zero for the whole input.
+     */
+    public long getStart() {
+        return this.start;
+    }
+
+    /**
+     * Offset after the last line to read.
+     *
+     * @return End of the byte range, negative for the whole input.
+     */
+    public long getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Amount of input lines before the first line to read.
+     *
+     * @return Amount of lines, zero for the whole input.
+     */
+    public long getBefore() {
+        return this.before;
+    }
+
+    /**
+     * Sort key of the output.
+     *
+     * @return Sort key or {@code null} when the input order is kept.
+     */
+    public SortKey getSort() {
+        return this.sort;
+    }
+
+    /**
+     * Handling of duplicate requests.
+     *
+     * @return Duplicate policy or {@code null} when duplicates are not
+     *  detected.
+     */
+    public DuplicatePolicy getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Format of the result lines.
+     *
+     * @return Output format.
+     */
+    public OutputFormat getFormat() {
+        return this.format;
+    }
+
+    /**
+     * Employee file of pay-run lines.
+     *
+     * @return Employee file or {@code null} for request lines with names.
+     */
+    public Path getEmployees() {
+        return this.employees;
+    }
+
+    /**
+     * Whether request lines are staged off-heap.
+     *
+     * @return True when staged off-heap.
+     */
+    public boolean isOffHeap() {
+        return this.offheap;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.Properties;
+
+/**
+ * Running aggregates of a batch run.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class BatchTotals {
+
+    /**
+     * Property key of the processed rows.
+     */
+    private static final String ROWS = "rows";
+
+    /**
+     * Property key of the failed rows.
+     */
+    private static final String FAILED = "failed";
+
+    /**
+     * Property key of the gross income sum.
+     */
+    private static final String SALARY = "salary";
+
+    /**
+     * Property key of the income tax sum.
+     */
+    private static final String TAX = "tax";
+
+    /**
+     * Property key of the superannuation sum.
+     */
+    private static final String SUPER = "super";
+
+    /**
+     * Amount of successfully processed rows.
+     */
+    private long rows;
+
+    /**
+     * Amount of rows that could not be processed.
+     */
+    private long failed;
+
+    /**
+     * Sum of the monthly salaries.
+     */
+    private long salary;
+
+    /**
+     * Sum of the monthly income taxes.
+     */
+    private long tax;
+
+    /**
+     * Sum of the monthly superannuation contributions.
+     */
+    private long superann;
+
+    /**
+     * Adds {@code result} to the totals.
+     *
+     * @param result A successfully processed result.
+     */
+    public void add(final PayslipResult result) {
+        this.add(
+            result.getSalary(), result.getTax(), result.getSuperannuation()
+        );
+    }
+
+    /**
+     * Adds the amounts of a result to the totals.
+     *
+     * @param income Monthly salary.
+     * @param withheld Monthly tax.
+     * @param contribution Monthly superannuation.
+     */
+    void add(final int income, final int withheld, final int contribution) {
+        this.rows += 1;
+        this.salary += income;
+        this.tax += withheld;
+        this.superann += contribution;
+    }
+
+    /**
+     * Counts a row that could not be processed.
+     */
+    public void fail() {
+        this.failed += 1;
+    }
+
+    /**
+     * Adds all totals of {@code other} to these totals.
+     *
+     * @param other Totals to combine with.
+     */
+    public void combine(final BatchTotals other) {
+        this.rows += other.rows;
+        this.failed += other.failed;
+        this.salary += other.salary;
+        this.tax += other.tax;
+        this.superann += other.superann;
+    }
+
+    /**
+     * Amount of successfully processed rows.
+     *
+     * @return Amount of successfully processed rows.
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Amount of rows that could not be processed.
+     *
+     * @return Amount of failed rows.
+     */
+    public long getFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Sum of the monthly salaries.
+     *
+     * @return Sum of the monthly salaries.
+     */
+    public long getSalary() {
+        return this.salary;
+    }
+
+    /**
+     * Sum of the monthly income taxes.
+     *
+     * @return Sum of the monthly income taxes.
+     */
+    public long getTax() {
+        return this.tax;
+    }
+
+    /**
+     * Sum of the monthly net incomes.
+     *
+     * @return Sum of the monthly net incomes.
+     */
+    public long getNetIncome() {
+        return this.salary - this.tax;
+    }
+
+    /**
+     * Sum of the monthly superannuation contributions.
+     *
+     * @return Sum of the monthly superannuation contributions.
+     */
+    public long getSuperannuation() {
+        return this.superann;
+    }
+
+    /**
+     * Writes these totals into {@code props}.
+     *
+     * @param props Properties to write into.
+     */
+    public void store(final Properties props) {
+        props.setProperty(BatchTotals.ROWS, Long.toString(this.rows));
+        props.setProperty(BatchTotals.FAILED, Long.toString(this.failed));
+        props.setProperty(BatchTotals.SALARY, Long.toString(this.salary));
+        props.setProperty(BatchTotals.TAX, Long.toString(this.tax));
+        props.setProperty(BatchTotals.SUPER, Long.toString(this.superann));
+    }
+
+    /**
+     * Reads totals from {@code props}, missing values count as zero.
+     *
+     * @param props Properties written by {@link BatchTotals#store}.
+     * @return Totals.
+     */
+    public static BatchTotals load(final Properties props) {
+        final BatchTotals totals = new BatchTotals();
+        totals.rows = value(props, BatchTotals.ROWS);
+        totals.failed = value(props, BatchTotals.FAILED);
+        totals.salary = value(props, BatchTotals.SALARY);
+        totals.tax = value(props, BatchTotals.TAX);
+        totals.superann = value(props, BatchTotals.SUPER);
+        return totals;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "rows: %d, failed: %d, salary: %d, tax: %d, net: %d, super: %d",
+            this.rows,
+            this.failed,
+            this.salary,
+            this.tax,
+            this.getNetIncome(),
+            this.superann
+        );
+    }
+
+    /**
+     * Reads a long value from {@code props}.
+     *
+     * @param props Properties.
+     * @param key Property key.
+     * @return Value of {@code key} or zero when absent.
+     */
+    private static long value(final Properties props, final String key) {
+        return Long.parseLong(props.getProperty(key, "0"));
+    }
+}
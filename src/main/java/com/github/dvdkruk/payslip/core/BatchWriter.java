@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered UTF-8 line writer for batch output, which keeps track of the
+ * amount of written bytes and can force its output to disk.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class BatchWriter implements Closeable {
+
+    /**
+     * Size of the write buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Line separator.
+     */
+    private static final byte[] NEWLINE = {'\n'};
+
+    /**
+     * Output channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Write buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Amount of bytes written, including buffered bytes.
+     */
+    private long offset;
+
+    /**
+     * Opens {@code file} and truncates it to {@code offset} bytes.
+     *
+     * @param file Output file.
+     * @param offset Amount of bytes to keep from an existing file.
+     * @throws IOException When the file cannot be opened.
+     */
+    BatchWriter(final Path file, final long offset) throws IOException {
+        this.channel = FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE
+        );
+        if (this.channel.size() < offset) {
+            this.channel.close();
+            throw new IOException(
+                String.format("%s is shorter than its checkpoint", file)
+            );
+        }
+        this.channel.truncate(offset);
+        this.channel.position(offset);
+        this.buffer = ByteBuffer.allocate(BatchWriter.BUFFER_SIZE);
+        this.offset = offset;
+    }
+
+    /**
+     * Writes {@code line} followed by a line separator.
+     *
+     * @param line Line to write.
+     * @throws IOException When writing fails.
+     */
+    void writeLine(final String line) throws IOException {
+        final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        this.writeRecord(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes the remaining bytes of {@code lines}, which are complete lines
+     * with their separators, directly to the file.
+     *
+     * @param lines Encoded lines, a direct buffer is written without a copy.
+     * @throws IOException When writing fails.
+     */
+    void write(final ByteBuffer lines) throws IOException {
+        final int length = lines.remaining();
+        this.flush();
+        this.drain(lines);
+        this.offset += length;
+    }
+
+    /**
+     * Writes the UTF-8 bytes of {@code record} from index {@code start} up
+     * to index {@code end} as a line.
+     *
+     * @param record Record bytes.
+     * @param start Index of the first byte of the line.
+     * @param end Index after the last byte of the line.
+     * @throws IOException When writing fails.
+     */
+    void writeRecord(final byte[] record, final int start, final int end)
+        throws IOException {
+        this.write(record, start, end - start);
+        this.write(BatchWriter.NEWLINE, 0, BatchWriter.NEWLINE.length);
+    }
+
+    /**
+     * Amount of bytes written, including buffered bytes.
+     *
+     * @return Output byte offset.
+     */
+    long offset() {
+        return this.offset;
+    }
+
+    /**
+     * Writes all buffered bytes and forces them to disk.
+     *
+     * @throws IOException When writing fails.
+     */
+    void sync() throws IOException {
+        this.flush();
+        this.channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.sync();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Buffers {@code bytes} from index {@code start}.
+     *
+     * @param bytes Bytes to write.
+     * @param start Index of the first byte to write.
+     * @param length Amount of bytes to write.
+     * @throws IOException When writing fails.
+     */
+    private void write(final byte[] bytes, final int start, final int length)
+        throws IOException {
+        if (length > this.buffer.remaining()) {
+            this.flush();
+        }
+        if (length > this.buffer.capacity()) {
+            this.drain(ByteBuffer.wrap(bytes, start, length));
+        } else {
+            this.buffer.put(bytes, start, length);
+        }
+        this.offset += length;
+    }
+
+    /**
+     * Writes all buffered bytes to the channel.
+     *
+     * @throws IOException When writing fails.
+     */
+    private void flush() throws IOException {
+        this.buffer.flip();
+        this.drain(this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * Writes all remaining bytes of {@code bytes} to the channel.
+     *
+     * @param bytes Bytes to write.
+     * @throws IOException When writing fails.
+     */
+    private void drain(final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            this.channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Position and running totals of a batch run at a point where its output
+ * was durably written. A run can be resumed from its last checkpoint.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class Checkpoint {
+
+    /**
+     * Property key of the input offset.
+     */
+    private static final String INPUT = "input.offset";
+
+    /**
+     * Property key of the output offset.
+     */
+    private static final String OUTPUT = "output.offset";
+
+    /**
+     * Property key of the line number.
+     */
+    private static final String LINE = "line";
+
+    /**
+     * Byte offset of the next unprocessed input line.
+     */
+    private final long input;
+
+    /**
+     * Byte length of the durable output.
+     */
+    private final long output;
+
+    /**
+     * Amount of input lines that were read.
+     */
+    private final long line;
+
+    /**
+     * Totals up to this checkpoint.
+     */
+    private final BatchTotals totals;
+
+    /**
+     * Checkpoint constructor.
+     *
+     * @param input Byte offset of the next unprocessed input line.
+     * @param output Byte length of the durable output.
+     * @param line Amount of input lines that were read.
+     * @param totals Totals up to this checkpoint.
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public Checkpoint(
+        final long input,
+        final long output,
+        final long line,
+        final BatchTotals totals) {
+        this.input = input;
+        this.output = output;
+        this.line = line;
+        this.totals = totals;
+    }
+
+    /**
+     * Byte offset of the next unprocessed input line.
+     *
+     * @return Input byte offset.
+     */
+    public long getInputOffset() {
+        return this.input;
+    }
+
+    /**
+     * Byte length of the output that belongs to this checkpoint.
+     *
+     * @return Output byte offset.
+     */
+    public long getOutputOffset() {
+        return this.output;
+    }
+
+    /**
+     * Amount of input lines that were read.
+     *
+     * @return Line number of the last read line.
+     */
+    public long getLine() {
+        return this.line;
+    }
+
+    /**
+     * Totals up to this checkpoint.
+     *
+     * @return Totals.
+     */
+    public BatchTotals getTotals() {
+        return this.totals;
+    }
+
+    /**
+     * Durably writes this checkpoint to {@code file}. The checkpoint is
+     * written to a temporary file first, which is synced and then atomically
+     * moved over {@code file}, so a crash never leaves a partial checkpoint.
+     *
+     * @param file Checkpoint file.
+     * @throws IOException When the checkpoint cannot be written.
+     */
+    public void store(final Path file) throws IOException {
+        final Properties props = new Properties();
+        this.totals.store(props);
+        props.setProperty(Checkpoint.INPUT, Long.toString(this.input));
+        props.setProperty(Checkpoint.OUTPUT, Long.toString(this.output));
+        props.setProperty(Checkpoint.LINE, Long.toString(this.line));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        props.store(bytes, null);
+        final Path temp = file.resolveSibling(
+            String.format("%s.tmp", file.getFileName())
+        );
+        try (FileChannel channel = FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(
+            temp,
+            file,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE
+        );
+    }
+
+    /**
+     * Checkpoint file of the batch output {@code output}.
+     *
+     * @param output Batch output file.
+     * @return Checkpoint file next to {@code output}.
+     */
+    public static Path fileOf(final Path output) {
+        return output.resolveSibling(
+            String.format("%s.checkpoint", output.getFileName())
+        );
+    }
+
+    /**
+     * Reads a checkpoint from {@code file}.
+     *
+     * @param file Checkpoint file written by {@link Checkpoint#store}.
+     * @return The checkpoint.
+     * @throws IOException When the checkpoint cannot be read.
+     */
+    public static Checkpoint load(final Path file) throws IOException {
+        final Properties props = new Properties();
+        try (InputStream stream = Files.newInputStream(file)) {
+            props.load(stream);
+        }
+        return new Checkpoint(
+            Long.parseLong(props.getProperty(Checkpoint.INPUT)),
+            Long.parseLong(props.getProperty(Checkpoint.OUTPUT)),
+            Long.parseLong(props.getProperty(Checkpoint.LINE)),
+            BatchTotals.load(props)
+        );
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Calculates monthly taxes for whole columns of annual salaries. On JDKs
+ * that ship {@code jdk.incubator.vector}, started with {@code --add-modules
+ * jdk.incubator.vector}, the optional SIMD implementation is used. Otherwise
+ * the masked scalar loop of {@link TaxSchedule#taxes(int[], int[])} is used.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public interface ColumnarTaxes {
+
+    /**
+     * Calculates the monthly tax of every salary.
+     *
+     * @param salaries Annual salaries in whole dollars.
+     * @param taxes Receives the monthly tax of every salary.
+     * @throws NoSuchElementException When no bracket covers a salary.
+     */
+    void taxes(int[] salaries, int[] taxes);
+
+    /**
+     * Columnar tax calculation for {@code schedule}, vectorized when the JDK
+     * supports it.
+     *
+     * @param schedule Compiled tax schedule.
+     * @return Columnar tax calculation.
+     */
+    static ColumnarTaxes of(final TaxSchedule schedule) {
+        ColumnarTaxes taxes;
+        try {
+            taxes = (ColumnarTaxes) Class
+                .forName("com.github.dvdkruk.payslip.core.VectorTaxes")
+                .getConstructor(TaxSchedule.class)
+                .newInstance(schedule);
+        } catch (final ReflectiveOperationException | LinkageError ex) {
+            taxes = scalar(schedule);
+        }
+        return taxes;
+    }
+
+    /**
+     * Scalar columnar tax calculation for {@code schedule}.
+     *
+     * @param schedule Compiled tax schedule.
+     * @return Columnar tax calculation without SIMD.
+     */
+    static ColumnarTaxes scalar(final TaxSchedule schedule) {
+        return schedule::taxes;
+    }
+}
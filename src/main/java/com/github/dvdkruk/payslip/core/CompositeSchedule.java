@@ -0,0 +1,359 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Several tax components, like the income tax, a levy and a loan
+ * repayment, each defined by its own {@link TaxRule}s and merged into one
+ * piecewise linear schedule over the union of their maxima. Within a merged
+ * bracket every component is linear in the salary, so one bracket lookup
+ * per row gives the monthly amount of every component. The rates of all
+ * components are scaled to one common scale and the bases are folded into
+ * an offset from the lower bound of the merged bracket.
+ *
+ * <p>Every component is rounded half up to whole dollars on its own, like
+ * the lines of a payslip, and the total is the sum of the components. The
+ * merged schedule covers salaries up to the smallest maximum of the
+ * components. It is immutable and can be shared by threads.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class CompositeSchedule {
+
+    /**
+     * Name of the income tax component.
+     */
+    public static final String INCOME = "income";
+
+    /**
+     * Amount of months.
+     */
+    private static final long MONTHS = 12L;
+
+    /**
+     * Names of the components.
+     */
+    private final List<String> names;
+
+    /**
+     * Upper bound of every merged bracket.
+     */
+    private final int[] upper;
+
+    /**
+     * Lower bound of every merged bracket, subtracted from the salary.
+     */
+    private final int[] lower;
+
+    /**
+     * Scaled rate of every component in every bracket, bracket major.
+     */
+    private final long[] rate;
+
+    /**
+     * Scaled tax of every component at the lower bound of every bracket in
+     * cents, bracket major.
+     */
+    private final long[] offset;
+
+    /**
+     * Divisor from scaled annual tax in cents to monthly tax in dollars.
+     */
+    private final long divisor;
+
+    /**
+     * Schedule constructor.
+     *
+     * @param names Names of the components.
+     * @param parts Compiled components.
+     */
+    private CompositeSchedule(
+        final List<String> names,
+        final TaxSchedule[] parts) {
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        long factor = 1L;
+        int limit = Integer.MAX_VALUE;
+        final SortedSet<Integer> maxima = new TreeSet<>();
+        for (final TaxSchedule part : parts) {
+            factor = Math.max(
+                factor, part.divisor() / CompositeSchedule.MONTHS
+            );
+            limit = Math.min(limit, part.high(part.size() - 1));
+            for (int bracket = 0; bracket < part.size(); ++bracket) {
+                maxima.add(part.high(bracket));
+            }
+        }
+        final SortedSet<Integer> covered = new TreeSet<>(
+            maxima.headSet(limit)
+        );
+        covered.add(limit);
+        this.upper = covered.stream().mapToInt(Integer::intValue).toArray();
+        this.lower = new int[this.upper.length];
+        this.rate = new long[this.upper.length * parts.length];
+        this.offset = new long[this.rate.length];
+        this.divisor = Math.multiplyExact(
+            CompositeSchedule.MONTHS * factor, Money.CENTS
+        );
+        final int[] brackets = new int[parts.length];
+        for (int merged = 0; merged < this.upper.length; ++merged) {
+            if (merged > 0) {
+                this.lower[merged] = this.upper[merged - 1];
+            }
+            for (int index = 0; index < parts.length; ++index) {
+                final TaxSchedule part = parts[index];
+                while (part.high(brackets[index]) < this.upper[merged]) {
+                    brackets[index] += 1;
+                }
+                this.fold(
+                    merged * parts.length + index, part, brackets[index],
+                    factor
+                );
+            }
+        }
+    }
+
+    /**
+     * Compiles and merges tax components.
+     *
+     * @param names Names of the components.
+     * @param components Tax rules of the components, in the order of {@code
+     *  names}, every list ordered by ascending maximum.
+     * @return Merged schedule.
+     * @throws PayslipException When the names and rules do not match or a
+     *  rule list cannot be compiled.
+     */
+    public static CompositeSchedule compile(
+        final List<String> names,
+        final List<List<TaxRule>> components) {
+        if (names.size() != components.size()) {
+            throw new PayslipException(
+                "every tax component needs exactly one name"
+            );
+        }
+        if (components.isEmpty()) {
+            throw new PayslipException(
+                "a composite schedule needs at least 1 component"
+            );
+        }
+        final TaxSchedule[] parts = new TaxSchedule[components.size()];
+        for (int index = 0; index < parts.length; ++index) {
+            parts[index] = TaxSchedule.compile(components.get(index));
+        }
+        return new CompositeSchedule(names, parts);
+    }
+
+    /**
+     * Names of the components.
+     *
+     * @return Names in the order of the breakdown.
+     */
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    /**
+     * Amount of merged brackets.
+     *
+     * @return Amount of brackets.
+     */
+    public int size() {
+        return this.upper.length;
+    }
+
+    /**
+     * Monthly amount of every component for an annual salary.
+     *
+     * @param salary Annual salary.
+     * @param amounts Receives the monthly amount in whole dollars of every
+     *  component, at least as long as the amount of components.
+     * @return Total monthly amount in whole dollars.
+     * @throws NoSuchElementException When no bracket covers the salary.
+     * @throws ArithmeticException When the scaled tax overflows a {@code
+     *  long}.
+     */
+    public long breakdown(final Money salary, final long[] amounts) {
+        if (salary.getCents() > this.limit()) {
+            throw new NoSuchElementException(
+                String.format(
+                    "No tax rule found for annual salary '%s'", salary
+                )
+            );
+        }
+        return this.monthly(salary.getCents(), amounts);
+    }
+
+    /**
+     * Takes the salary of every request of {@code reader} apart into its
+     * components, and writes a header and a line per row with the name, the
+     * total and every component. Rejected rows are reported to {@code sink}
+     * with their line number.
+     *
+     * @param reader Request lines.
+     * @param writer Receives the per-row breakdown.
+     * @param sink Sink for rejected rows.
+     * @return Total monthly amount of every component.
+     * @throws IOException When reading or writing fails.
+     */
+    public long[] run(
+        final BufferedReader reader,
+        final Writer writer,
+        final ErrorSink sink) throws IOException {
+        final long[] totals = new long[this.names.size()];
+        final long[] amounts = new long[this.names.size()];
+        final StringBuilder line = new StringBuilder();
+        line.append("name,total");
+        for (final String name : this.names) {
+            line.append(',').append(name);
+        }
+        writer.append(line).append('\n');
+        long number = 0L;
+        String request = reader.readLine();
+        while (request != null) {
+            number += 1L;
+            if (!request.trim().isEmpty()) {
+                try {
+                    final Employee employee = new PayslipRequestParser(request)
+                        .toPayslipRequest().getEmployee();
+                    final long total = this.monthly(
+                        TaxScenarios.salary(employee, this.limit()), amounts
+                    );
+                    line.setLength(0);
+                    line.append(employee.getFullName()).append(',')
+                        .append(total);
+                    for (int index = 0; index < amounts.length; ++index) {
+                        line.append(',').append(amounts[index]);
+                        totals[index] += amounts[index];
+                    }
+                    writer.append(line).append('\n');
+                } catch (final PayslipException pex) {
+                    sink.report(number, pex);
+                }
+            }
+            request = reader.readLine();
+        }
+        writer.flush();
+        return totals;
+    }
+
+    /**
+     * Summary of the totals of {@link #run}, a line with the total monthly
+     * amount and a line per component.
+     *
+     * @param totals Totals of {@link #run}.
+     * @return Summary lines.
+     */
+    public String summary(final long[] totals) {
+        long total = 0L;
+        final StringBuilder summary = new StringBuilder();
+        for (int index = 0; index < totals.length; ++index) {
+            total += totals[index];
+            summary.append(System.lineSeparator())
+                .append(this.names.get(index)).append(": ")
+                .append(totals[index]);
+        }
+        return String.format("total: %d%s", total, summary);
+    }
+
+    /**
+     * Monthly amount of every component for an annual salary in cents,
+     * without allocating. The salary must not exceed {@link #limit()}.
+     *
+     * @param cents Annual salary in cents.
+     * @param amounts Receives the monthly amount of every component.
+     * @return Total monthly amount in whole dollars.
+     * @throws ArithmeticException When the scaled tax overflows a {@code
+     *  long}.
+     */
+    long monthly(final long cents, final long[] amounts) {
+        final int bracket = this.find(cents);
+        final long taxable = cents - this.lower[bracket] * Money.CENTS;
+        final int parts = this.names.size();
+        long total = 0L;
+        for (int index = 0; index < parts; ++index) {
+            final int cell = bracket * parts + index;
+            amounts[index] = Money.halfUp(
+                Math.addExact(
+                    Math.multiplyExact(taxable, this.rate[cell]),
+                    this.offset[cell]
+                ),
+                this.divisor
+            );
+            total += amounts[index];
+        }
+        return total;
+    }
+
+    /**
+     * Largest annual salary in cents covered by all components.
+     *
+     * @return Upper bound of the last bracket in cents.
+     */
+    long limit() {
+        return this.upper[this.upper.length - 1] * Money.CENTS;
+    }
+
+    /**
+     * Rescales bracket {@code bracket} of {@code part} to the common scale
+     * and folds its base and lower bound into the offset of a cell.
+     *
+     * @param cell Index of the component in the merged bracket.
+     * @param part Compiled component.
+     * @param bracket Bracket of the component that covers the cell.
+     * @param factor Common scale factor.
+     */
+    private void fold(
+        final int cell,
+        final TaxSchedule part,
+        final int bracket,
+        final long factor) {
+        final long scale =
+            factor / (part.divisor() / CompositeSchedule.MONTHS);
+        this.rate[cell] = Math.multiplyExact(part.rate(bracket), scale);
+        final int merged = cell / this.names.size();
+        this.offset[cell] = Math.multiplyExact(
+            Math.addExact(
+                Math.multiplyExact(
+                    (long) this.lower[merged] - part.subtract(bracket),
+                    this.rate[cell]
+                ),
+                Math.multiplyExact(part.base(bracket), scale)
+            ),
+            Money.CENTS
+        );
+    }
+
+    /**
+     * Index of the merged bracket that covers an amount of cents, by binary
+     * search, as the union of maxima grows with every component.
+     *
+     * @param cents Annual salary in cents, at most {@link #limit()}.
+     * @return Bracket index.
+     */
+    private int find(final long cents) {
+        int low = 0;
+        int high = this.upper.length - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (cents > this.upper[middle] * Money.CENTS) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,561 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.OffsetLineReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+/**
+ * Finds the lines of an input file that request a month for an employee
+ * that an earlier line already requested, also when only the ranges of
+ * months of the lines overlap. Every request has a key per month it covers.
+ * The first pass adds the keys to a Bloom filter that is sized for the
+ * estimated amount of lines, and keeps the 64 bit hash of every key that
+ * the filter may have seen before. The second pass only looks at keys with
+ * such a suspect hash, which includes the first occurrences, and confirms
+ * them exactly. When the suspects do not fit the memory budget they are
+ * spilled to temporary partition files by hash, and every partition is
+ * checked on its own. A line is a duplicate of the earliest line that
+ * requested one of its months. Lines that the processor rejects have no key,
+ * so they are never duplicates and never the first occurrence of one.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class DuplicateDetector {
+
+    /**
+     * Default false positive probability of the Bloom filter.
+     */
+    static final double DEFAULT_FPP = 0.01;
+
+    /**
+     * Default memory budget for the exact check in bytes.
+     */
+    static final long DEFAULT_BUDGET = 64L << 20;
+
+    /**
+     * Bytes at the start of the input used to estimate the amount of lines.
+     */
+    private static final int SAMPLE = 1 << 20;
+
+    /**
+     * Estimated heap bytes of a suspect line in the exact check.
+     */
+    private static final long ENTRY = 128L;
+
+    /**
+     * Largest amount of hash functions of the Bloom filter.
+     */
+    private static final int MAX_HASHES = 16;
+
+    /**
+     * Largest amount of partitions of the exact check.
+     */
+    private static final int MAX_PARTS = 4096;
+
+    /**
+     * Multiplier of the FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100_0000_01b3L;
+
+    /**
+     * Offset basis of the FNV-1a hash.
+     */
+    private static final long FNV_BASIS = 0xcbf2_9ce4_8422_2325L;
+
+    /**
+     * First multiplier of the final mix of a hash.
+     */
+    private static final long MIX_ONE = 0xff51_afd7_ed55_8ccdL;
+
+    /**
+     * Second multiplier of the final mix of a hash.
+     */
+    private static final long MIX_TWO = 0xc4ce_b9fe_1a85_ec53L;
+
+    /**
+     * Seed of the second hash of the Bloom filter.
+     */
+    private static final long SEED = 0x9e37_79b9_7f4a_7c15L;
+
+    /**
+     * Shift of the final mix of a hash.
+     */
+    private static final int SHIFT = 33;
+
+    /**
+     * Bits per word of the Bloom filter.
+     */
+    private static final int WORD_BITS = 6;
+
+    /**
+     * Separator of the key fields.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Keys of a line that is not a request.
+     */
+    private static final String[] NO_KEYS = new String[0];
+
+    /**
+     * Directory for the partition files.
+     */
+    private final Path dir;
+
+    /**
+     * Memory budget for the exact check in bytes.
+     */
+    private final long budget;
+
+    /**
+     * False positive probability of the Bloom filter.
+     */
+    private final double fpp;
+
+    /**
+     * Checks the lines with the rules of the parser and the processor.
+     */
+    private final RequestValidator validator;
+
+    /**
+     * Detector constructor.
+     *
+     * @param dir Directory for the partition files.
+     * @param budget Memory budget for the exact check in bytes.
+     * @param fpp False positive probability of the Bloom filter.
+     */
+    DuplicateDetector(final Path dir, final long budget, final double fpp) {
+        this.dir = dir;
+        this.budget = budget;
+        this.fpp = fpp;
+        this.validator = new RequestValidator();
+    }
+
+    /**
+     * Finds the duplicate lines of an input file.
+     *
+     * @param input Input file with one request per line.
+     * @return Duplicate lines with the line of their first occurrence.
+     * @throws IOException When reading the input or the partitions fails.
+     */
+    DuplicateDetector.Duplicates scan(final Path input) throws IOException {
+        final double expected = DuplicateDetector.expected(input);
+        final double log = Math.log(2.0);
+        final long bits = Math.max(
+            Long.SIZE,
+            (long) Math.ceil(-expected * Math.log(this.fpp) / (log * log))
+        );
+        final int hashes = (int) Math.max(
+            1L,
+            Math.min(
+                DuplicateDetector.MAX_HASHES,
+                Math.round(bits / expected * log)
+            )
+        );
+        final long[] filter = new long[
+            Math.toIntExact((bits - 1L >> DuplicateDetector.WORD_BITS) + 1L)
+        ];
+        final LongStream.Builder suspects = LongStream.builder();
+        try (OffsetLineReader reader = new OffsetLineReader(input, 0L)) {
+            String line = reader.readLine();
+            while (line != null) {
+                for (final String key : this.keys(line)) {
+                    final long hash = DuplicateDetector.hash(key);
+                    if (!DuplicateDetector.add(filter, hashes, hash)) {
+                        suspects.add(hash);
+                    }
+                }
+                line = reader.readLine();
+            }
+        }
+        final long[] sorted = suspects.build().sorted().distinct().toArray();
+        DuplicateDetector.Duplicates found = DuplicateDetector.Duplicates.NONE;
+        if (sorted.length > 0) {
+            found = this.confirm(input, sorted);
+        }
+        return found;
+    }
+
+    /**
+     * Confirms the lines with a suspect hash by their key.
+     *
+     * @param input Input file.
+     * @param suspects Sorted suspect hashes.
+     * @return Duplicate lines.
+     * @throws IOException When reading the input or the partitions fails.
+     */
+    private DuplicateDetector.Duplicates confirm(
+        final Path input,
+        final long[] suspects) throws IOException {
+        final int parts = (int) Math.min(
+            DuplicateDetector.MAX_PARTS,
+            suspects.length * 2L * DuplicateDetector.ENTRY / this.budget + 1L
+        );
+        final LongStream.Builder lines = LongStream.builder();
+        final LongStream.Builder firsts = LongStream.builder();
+        if (parts == 1) {
+            final Map<String, Long> seen = new HashMap<>();
+            try (OffsetLineReader reader = new OffsetLineReader(input, 0L)) {
+                long number = 1L;
+                String line = reader.readLine();
+                while (line != null) {
+                    for (final String key : this.keys(line)) {
+                        if (Arrays.binarySearch(
+                            suspects, DuplicateDetector.hash(key)
+                        ) >= 0) {
+                            DuplicateDetector.check(
+                                seen, key, number, lines, firsts
+                            );
+                        }
+                    }
+                    number += 1L;
+                    line = reader.readLine();
+                }
+            }
+        } else {
+            this.partitioned(input, suspects, parts, lines, firsts);
+        }
+        return DuplicateDetector.Duplicates.of(
+            lines.build().toArray(), firsts.build().toArray()
+        );
+    }
+
+    /**
+     * Spills the lines with a suspect hash to partition files and checks
+     * every partition on its own.
+     *
+     * @param input Input file.
+     * @param suspects Sorted suspect hashes.
+     * @param parts Amount of partitions.
+     * @param lines Receives the duplicate lines.
+     * @param firsts Receives the first occurrences.
+     * @throws IOException When reading the input or the partitions fails.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    private void partitioned(
+        final Path input,
+        final long[] suspects,
+        final int parts,
+        final LongStream.Builder lines,
+        final LongStream.Builder firsts) throws IOException {
+        final Path[] files = new Path[parts];
+        final DataOutputStream[] outs = new DataOutputStream[parts];
+        try {
+            for (int part = 0; part < parts; ++part) {
+                files[part] = Files.createTempFile(
+                    this.dir, "duplicates", ".part"
+                );
+                outs[part] = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(files[part]))
+                );
+            }
+            try (OffsetLineReader reader = new OffsetLineReader(input, 0L)) {
+                long number = 1L;
+                String line = reader.readLine();
+                while (line != null) {
+                    for (final String key : this.keys(line)) {
+                        final long hash = DuplicateDetector.hash(key);
+                        if (Arrays.binarySearch(suspects, hash) >= 0) {
+                            final DataOutputStream out =
+                                outs[(int) Math.floorMod(hash, (long) parts)];
+                            out.writeUTF(key);
+                            out.writeLong(number);
+                        }
+                    }
+                    number += 1L;
+                    line = reader.readLine();
+                }
+            }
+            for (int part = 0; part < parts; ++part) {
+                outs[part].close();
+                DuplicateDetector.checkPartition(files[part], lines, firsts);
+            }
+        } finally {
+            for (int part = 0; part < parts; ++part) {
+                if (outs[part] != null) {
+                    outs[part].close();
+                }
+                if (files[part] != null) {
+                    Files.deleteIfExists(files[part]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the keys of a partition file, which are in line order.
+     *
+     * @param file Partition file.
+     * @param lines Receives the duplicate lines.
+     * @param firsts Receives the first occurrences.
+     * @throws IOException When reading fails.
+     */
+    private static void checkPartition(
+        final Path file,
+        final LongStream.Builder lines,
+        final LongStream.Builder firsts) throws IOException {
+        final Map<String, Long> seen = new HashMap<>();
+        try (
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file))
+            )
+        ) {
+            boolean more = true;
+            while (more) {
+                try {
+                    final String key = in.readUTF();
+                    DuplicateDetector.check(
+                        seen, key, in.readLong(), lines, firsts
+                    );
+                } catch (final EOFException eof) {
+                    more = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a line as duplicate when one of its keys was seen before. A
+     * line with several seen keys is recorded once per key.
+     *
+     * @param seen First line of every seen key.
+     * @param key Key of the line.
+     * @param number Line number.
+     * @param lines Receives the duplicate lines.
+     * @param firsts Receives the first occurrences.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    private static void check(
+        final Map<String, Long> seen,
+        final String key,
+        final long number,
+        final LongStream.Builder lines,
+        final LongStream.Builder firsts) {
+        final Long first = seen.putIfAbsent(key, number);
+        if (first != null) {
+            lines.add(number);
+            firsts.add(first);
+        }
+    }
+
+    /**
+     * Estimated amount of lines of an input file, from the average length
+     * of the lines at its start.
+     *
+     * @param input Input file.
+     * @return Estimated amount of lines, at least one.
+     * @throws IOException When reading fails.
+     */
+    private static double expected(final Path input) throws IOException {
+        final byte[] sample = new byte[DuplicateDetector.SAMPLE];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(input)) {
+            int read = 0;
+            while (read >= 0 && length < sample.length) {
+                length += read;
+                read = in.read(sample, length, sample.length - length);
+            }
+        }
+        long breaks = 1L;
+        for (int index = 0; index < length; ++index) {
+            if (sample[index] == '\n') {
+                breaks += 1L;
+            }
+        }
+        return Math.max(
+            1.0, (double) Files.size(input) * breaks / Math.max(1, length)
+        );
+    }
+
+    /**
+     * Keys of a request line, its employee with every month it covers.
+     *
+     * @param line Request line.
+     * @return Keys, none when the line is not a request that the processor
+     *  accepts.
+     */
+    private String[] keys(final String line) {
+        String[] keys = DuplicateDetector.NO_KEYS;
+        if (!line.trim().isEmpty() && this.validator.check(line) == null) {
+            try {
+                final PayslipRequest request =
+                    new PayslipRequestParser(line).toPayslipRequest();
+                final String employee = new StringBuilder()
+                    .append(request.getEmployee().getForename())
+                    .append(DuplicateDetector.SEPARATOR)
+                    .append(request.getEmployee().getSurname())
+                    .append(DuplicateDetector.SEPARATOR)
+                    .toString();
+                keys = new String[request.getMonths()];
+                for (int index = 0; index < keys.length; ++index) {
+                    keys[index] = employee.concat(
+                        String.valueOf(
+                            request.getMonth().plus(index).getValue()
+                        )
+                    );
+                }
+            } catch (final PayslipException pex) {
+                keys = DuplicateDetector.NO_KEYS;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 64 bit hash of a key.
+     *
+     * @param key Key.
+     * @return Hash.
+     */
+    private static long hash(final String key) {
+        long hash = DuplicateDetector.FNV_BASIS;
+        for (int index = 0; index < key.length(); ++index) {
+            hash = (hash ^ key.charAt(index)) * DuplicateDetector.FNV_PRIME;
+        }
+        return DuplicateDetector.mix(hash);
+    }
+
+    /**
+     * Final mix of a hash, so all bits depend on all input bits.
+     *
+     * @param value Hash.
+     * @return Mixed hash.
+     */
+    private static long mix(final long value) {
+        long hash = value;
+        hash = (hash ^ hash >>> DuplicateDetector.SHIFT)
+            * DuplicateDetector.MIX_ONE;
+        hash = (hash ^ hash >>> DuplicateDetector.SHIFT)
+            * DuplicateDetector.MIX_TWO;
+        return hash ^ hash >>> DuplicateDetector.SHIFT;
+    }
+
+    /**
+     * Adds a hash to a Bloom filter, with double hashing for the bit
+     * positions.
+     *
+     * @param filter Filter bits.
+     * @param hashes Amount of bit positions per hash.
+     * @param hash Hash of the key.
+     * @return True when a bit was set, false when the filter may already
+     *  contain the key.
+     */
+    private static boolean add(
+        final long[] filter,
+        final int hashes,
+        final long hash) {
+        final long size = (long) filter.length << DuplicateDetector.WORD_BITS;
+        final long step = DuplicateDetector.mix(hash ^ DuplicateDetector.SEED)
+            | 1L;
+        boolean added = false;
+        long position = hash;
+        for (int index = 0; index < hashes; ++index) {
+            final long bit = Long.remainderUnsigned(position, size);
+            final int word = (int) (bit >>> DuplicateDetector.WORD_BITS);
+            final long mask = 1L << bit;
+            if ((filter[word] & mask) == 0L) {
+                filter[word] |= mask;
+                added = true;
+            }
+            position += step;
+        }
+        return added;
+    }
+
+    /**
+     * Duplicate lines of an input with the line of their first occurrence.
+     */
+    static final class Duplicates {
+
+        /**
+         * No duplicates.
+         */
+        static final DuplicateDetector.Duplicates NONE =
+            new DuplicateDetector.Duplicates(new long[0], new long[0]);
+
+        /**
+         * Sorted duplicate line numbers.
+         */
+        private final long[] lines;
+
+        /**
+         * First occurrence of every duplicate line.
+         */
+        private final long[] firsts;
+
+        /**
+         * Duplicates constructor.
+         *
+         * @param lines Sorted duplicate line numbers.
+         * @param firsts First occurrence of every duplicate line.
+         */
+        private Duplicates(final long[] lines, final long[] firsts) {
+            this.lines = lines;
+            this.firsts = firsts;
+        }
+
+        /**
+         * Line of the first occurrence of a duplicate line.
+         *
+         * @param line Line number.
+         * @return First line or {@code -1} when the line is no duplicate.
+         */
+        long firstOf(final long line) {
+            final int index = Arrays.binarySearch(this.lines, line);
+            long first = -1L;
+            if (index >= 0) {
+                first = this.firsts[index];
+            }
+            return first;
+        }
+
+        /**
+         * Amount of duplicate lines.
+         *
+         * @return Amount of lines.
+         */
+        int size() {
+            return this.lines.length;
+        }
+
+        /**
+         * Duplicates in any line order. A line that is recorded more than
+         * once, for several of its months, keeps its earliest first
+         * occurrence.
+         *
+         * @param lines Duplicate line numbers.
+         * @param firsts First occurrence of every duplicate line.
+         * @return Duplicates.
+         */
+        private static DuplicateDetector.Duplicates of(
+            final long[] lines,
+            final long[] firsts) {
+            final long[] sorted = LongStream.of(lines).sorted().distinct()
+                .toArray();
+            final long[] ordered = new long[sorted.length];
+            Arrays.fill(ordered, Long.MAX_VALUE);
+            for (int index = 0; index < lines.length; ++index) {
+                final int position = Arrays.binarySearch(sorted, lines[index]);
+                ordered[position] = Math.min(ordered[position], firsts[index]);
+            }
+            return new DuplicateDetector.Duplicates(sorted, ordered);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.Locale;
+
+/**
+ * Handling of a request for an employee and month that an earlier line of
+ * the input already requested.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public enum DuplicatePolicy {
+
+    /**
+     * The duplicate is reported and processed.
+     */
+    REPORT,
+
+    /**
+     * The duplicate is reported and not processed.
+     */
+    SKIP;
+
+    /**
+     * Parses a policy name.
+     *
+     * @param name Policy name, {@code report} or {@code skip}.
+     * @return The policy.
+     * @throws PayslipException When the name is unknown.
+     */
+    public static DuplicatePolicy parse(final String name) {
+        try {
+            return DuplicatePolicy.valueOf(name.toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException iae) {
+            throw new PayslipException(
+                String.format("%s is an invalid duplicate policy", name),
+                iae
+            );
+        }
+    }
+}
@@ -4,7 +4,8 @@
 
 package com.github.dvdkruk.payslip.core;
 
-import java.math.BigDecimal;
+import com.github.dvdkruk.payslip.utils.CommaSeparatedStringBuilder;
+import java.util.Objects;
 
 /**
  * Contains employee data.
@@ -28,7 +29,7 @@ public final class Employee extends PayslipObject {
     /**
      * Employee's annual salary.
      */
-    private final BigDecimal salary;
+    private final Money salary;
 
     /**
      * Employee constructor.
@@ -40,8 +41,8 @@ public final class Employee extends PayslipObject {
     public Employee(
         final String forename,
         final String surname,
-        final BigDecimal salary) {
-        super(forename, surname, toDisplaySalary(salary));
+        final Money salary) {
+        super();
         this.forename = forename;
         this.surname = surname;
         this.salary = salary;
@@ -82,17 +83,39 @@ public final class Employee extends PayslipObject {
      *
      * @return Annual salary.
      */
-    public BigDecimal getAnnualSalary() {
+    public Money getAnnualSalary() {
         return this.salary;
     }
 
+    @Override
+    protected void display(final CommaSeparatedStringBuilder builder) {
+        builder.append(String.valueOf(this.forename))
+            .append(String.valueOf(this.surname))
+            .append(toDisplaySalary(this.salary));
+    }
+
+    @Override
+    protected boolean equalFields(final PayslipObject obj) {
+        final Employee that = (Employee) obj;
+        return Objects.equals(this.forename, that.forename)
+            && Objects.equals(this.surname, that.surname)
+            && Objects.equals(this.salary, that.salary);
+    }
+
+    @Override
+    protected int fieldHash() {
+        int hash = Objects.hashCode(this.forename);
+        hash = PayslipObject.PRIME * hash + Objects.hashCode(this.surname);
+        return PayslipObject.PRIME * hash + Objects.hashCode(this.salary);
+    }
+
     /**
      * Display annual salary without decimals/cents.
      * @param salary Annual salary.
      * @return Display annual salary without decimals/cents.
      */
-    private static String toDisplaySalary(final BigDecimal salary) {
-        return createDecimalFormat(0).format(salary);
+    private static String toDisplaySalary(final Money salary) {
+        return String.valueOf(salary.toDollars());
     }
 
 }
@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.NameArena;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Employee master data keyed by employee ID, so pay-run lines only carry an
+ * ID instead of the names and super rate of the employee. The index is an
+ * open addressing table of primitive arrays: the IDs, {@link NameArena}
+ * handles of the interned names and an index into the distinct super rates.
+ * Names are only decoded when a request is built.
+ *
+ * <p>The employee file has one employee per line, {@code
+ * <id>,<forename>,<surname>,<super_rate>%}, blank lines are ignored. The
+ * index is read-only after loading and can be shared by threads.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class EmployeeIndex {
+
+    /**
+     * Amount of elements of an employee line.
+     */
+    private static final int ELEMENTS = 4;
+
+    /**
+     * Element index of the forename.
+     */
+    private static final int FORENAME_I = 1;
+
+    /**
+     * Element index of the surname.
+     */
+    private static final int SURNAME_I = 2;
+
+    /**
+     * Element index of the super rate.
+     */
+    private static final int RATE_I = 3;
+
+    /**
+     * Initial amount of slots, a power of two.
+     */
+    private static final int SLOTS = 1 << 10;
+
+    /**
+     * Multiplier that spreads IDs over the slots.
+     */
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Shift that mixes the high bits of the hash into the low bits.
+     */
+    private static final int MIX = 32;
+
+    /**
+     * Names of the employees.
+     */
+    private final NameArena names;
+
+    /**
+     * Distinct super rates.
+     */
+    private final List<BigDecimal> rates;
+
+    /**
+     * Employee ID of every slot.
+     */
+    private long[] ids;
+
+    /**
+     * Whether a slot holds an employee.
+     */
+    private boolean[] used;
+
+    /**
+     * Forename handle of every slot.
+     */
+    private int[] forenames;
+
+    /**
+     * Surname handle of every slot.
+     */
+    private int[] surnames;
+
+    /**
+     * Super rate index of every slot.
+     */
+    private int[] indices;
+
+    /**
+     * Amount of employees.
+     */
+    private int count;
+
+    /**
+     * Empty index.
+     */
+    EmployeeIndex() {
+        this.names = new NameArena();
+        this.rates = new ArrayList<>();
+        this.allocate(EmployeeIndex.SLOTS);
+    }
+
+    /**
+     * Loads the employees of an employee file.
+     *
+     * @param file Employee file.
+     * @return Index of the employees.
+     * @throws IOException When reading fails.
+     * @throws PayslipException When a line is not an employee or repeats
+     *  an ID, with the error code of the line and the line number in the
+     *  message.
+     */
+    public static EmployeeIndex load(final Path file) throws IOException {
+        final EmployeeIndex index = new EmployeeIndex();
+        final Map<BigDecimal, Integer> known = new HashMap<>();
+        try (
+            BufferedReader reader =
+                Files.newBufferedReader(file, StandardCharsets.UTF_8)
+        ) {
+            long number = 0L;
+            String line = reader.readLine();
+            while (line != null) {
+                number += 1L;
+                if (!line.trim().isEmpty()) {
+                    try {
+                        index.add(line, known);
+                    } catch (final PayslipException pex) {
+                        throw new PayslipException(
+                            String.format(
+                                "line %d of %s", number, file.getFileName()
+                            ),
+                            pex
+                        );
+                    }
+                }
+                line = reader.readLine();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Amount of employees.
+     *
+     * @return Amount of employees.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Whether the index has an employee.
+     *
+     * @param id Employee ID.
+     * @return True when the employee is known.
+     */
+    public boolean contains(final long id) {
+        return this.find(id) >= 0;
+    }
+
+    /**
+     * Slot of an employee.
+     *
+     * @param id Employee ID.
+     * @return Slot or minus one for an unknown employee.
+     */
+    int find(final long id) {
+        final int mask = this.ids.length - 1;
+        int slot = EmployeeIndex.hash(id) & mask;
+        int found = -1;
+        while (found < 0 && this.used[slot]) {
+            if (this.ids[slot] == id) {
+                found = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return found;
+    }
+
+    /**
+     * Forename of the employee in a slot.
+     *
+     * @param slot Slot of {@link #find(long)}.
+     * @return Forename.
+     */
+    String forename(final int slot) {
+        return this.names.get(this.forenames[slot]);
+    }
+
+    /**
+     * Surname of the employee in a slot.
+     *
+     * @param slot Slot of {@link #find(long)}.
+     * @return Surname.
+     */
+    String surname(final int slot) {
+        return this.names.get(this.surnames[slot]);
+    }
+
+    /**
+     * Default super rate of the employee in a slot.
+     *
+     * @param slot Slot of {@link #find(long)}.
+     * @return Super rate.
+     */
+    BigDecimal rate(final int slot) {
+        return this.rates.get(this.indices[slot]);
+    }
+
+    /**
+     * Adds the employee of a line.
+     *
+     * @param line Employee line.
+     * @param known Index of every distinct super rate.
+     */
+    private void add(final String line, final Map<BigDecimal, Integer> known) {
+        final String[] elements = Arrays.stream(line.split(","))
+            .map(String::trim)
+            .filter(element -> !element.isEmpty())
+            .toArray(String[]::new);
+        if (elements.length != EmployeeIndex.ELEMENTS) {
+            throw new PayslipException(
+                String.format(
+                    "an employee must consist of %d (non empty) elements",
+                    EmployeeIndex.ELEMENTS
+                )
+            );
+        }
+        final long id;
+        try {
+            id = Long.parseLong(elements[0]);
+        } catch (final NumberFormatException nfe) {
+            throw new PayslipException(
+                ErrorCode.EMPLOYEE_ID, elements[0], nfe
+            );
+        }
+        if (this.find(id) >= 0) {
+            throw new PayslipException(
+                String.format("employee id %d is not unique", id)
+            );
+        }
+        final BigDecimal rate = PayslipRequestParser.parseSuperRate(
+            elements[EmployeeIndex.RATE_I]
+        );
+        Integer position = known.get(rate);
+        if (position == null) {
+            position = this.rates.size();
+            this.rates.add(rate);
+            known.put(rate, position);
+        }
+        if (2 * (this.count + 1) > this.ids.length) {
+            this.rehash();
+        }
+        final int mask = this.ids.length - 1;
+        int slot = EmployeeIndex.hash(id) & mask;
+        while (this.used[slot]) {
+            slot = (slot + 1) & mask;
+        }
+        this.used[slot] = true;
+        this.ids[slot] = id;
+        this.forenames[slot] =
+            this.names.intern(elements[EmployeeIndex.FORENAME_I]);
+        this.surnames[slot] =
+            this.names.intern(elements[EmployeeIndex.SURNAME_I]);
+        this.indices[slot] = position;
+        this.count += 1;
+    }
+
+    /**
+     * Doubles the slots.
+     */
+    private void rehash() {
+        final long[] keys = this.ids;
+        final boolean[] taken = this.used;
+        final int[] first = this.forenames;
+        final int[] last = this.surnames;
+        final int[] rate = this.indices;
+        this.allocate(2 * keys.length);
+        final int mask = this.ids.length - 1;
+        for (int old = 0; old < keys.length; ++old) {
+            if (taken[old]) {
+                int slot = EmployeeIndex.hash(keys[old]) & mask;
+                while (this.used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                this.used[slot] = true;
+                this.ids[slot] = keys[old];
+                this.forenames[slot] = first[old];
+                this.surnames[slot] = last[old];
+                this.indices[slot] = rate[old];
+            }
+        }
+    }
+
+    /**
+     * Replaces the slots with empty slots.
+     *
+     * @param slots Amount of slots, a power of two.
+     */
+    private void allocate(final int slots) {
+        this.ids = new long[slots];
+        this.used = new boolean[slots];
+        this.forenames = new int[slots];
+        this.surnames = new int[slots];
+        this.indices = new int[slots];
+    }
+
+    /**
+     * Hash of an employee ID.
+     *
+     * @param id Employee ID.
+     * @return Hash.
+     */
+    private static int hash(final long id) {
+        final long spread = id * EmployeeIndex.SPREAD;
+        return (int) (spread ^ spread >>> EmployeeIndex.MIX);
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+/**
+ * Codes of the reasons a request is rejected. A rejection is identified by
+ * its code and offending field, so its message only has to be formatted
+ * when it is reported.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public enum ErrorCode {
+
+    /**
+     * Any other error, the field is the complete message.
+     */
+    GENERAL("%s", true),
+
+    /**
+     * The request line does not have the expected amount of elements.
+     */
+    ELEMENT_AMOUNT(PayslipRequestParser.INVAL_ELMNT_AMNT, false),
+
+    /**
+     * The annual salary is not a number.
+     */
+    SALARY_NUMBER("cannot parse annual salary '%s' into a number", true),
+
+    /**
+     * The superannuation rate is too short.
+     */
+    SUPER_RATE_LENGTH(PayslipRequestParser.INVAL_SUPER_RATE, false),
+
+    /**
+     * The superannuation rate has no percent sign.
+     */
+    SUPER_RATE_SUFFIX(PayslipRequestParser.NO_PERCNT_SUFFX, false),
+
+    /**
+     * The superannuation rate is not a number.
+     */
+    SUPER_RATE_NUMBER("cannot parse super rate '%s' into a number", true),
+
+    /**
+     * The month is unknown.
+     */
+    MONTH(PayslipRequestParser.INVAL_MONTH, true),
+
+    /**
+     * A range of months is processed as one payslip.
+     */
+    MONTH_RANGE("request from %s covers a range of months", true),
+
+    /**
+     * The request or its employee is missing.
+     */
+    REQUEST_NULL(PayslipProcessor.REQUEST_NULL, false),
+
+    /**
+     * The forename is missing.
+     */
+    FORENAME(PayslipProcessor.INVAL_FORENAME, false),
+
+    /**
+     * The surname is missing.
+     */
+    SURNAME(PayslipProcessor.INVAL_SURNAME, false),
+
+    /**
+     * The annual salary is not positive.
+     */
+    SALARY(PayslipProcessor.INVAL_SALARY, false),
+
+    /**
+     * The annual salary is above the largest salary of the tax rules or
+     * above the whole dollars of an {@code int}.
+     */
+    SALARY_RANGE("No tax rule found for annual salary '%s'", true),
+
+    /**
+     * The superannuation rate is missing.
+     */
+    SUPER_RATE_NULL(PayslipProcessor.SUPER_RATE_NULL, false),
+
+    /**
+     * The superannuation rate is out of range.
+     */
+    SUPER_RATE_RANGE(PayslipProcessor.INVAL_SUPER_RATE, false),
+
+    /**
+     * No annual salary yields the target net monthly income.
+     */
+    NET_INCOME("no annual salary yields net monthly income '%s'", true),
+
+    /**
+     * An earlier line requests the same employee and month, the field is
+     * the number of that line.
+     */
+    DUPLICATE("duplicate of the request on line %s", true),
+
+    /**
+     * A pay-run line does not have 3 or 4 non-empty elements.
+     */
+    PAY_RUN_AMOUNT(PayslipRequestParser.INVAL_PAY_RUN_AMNT, false),
+
+    /**
+     * The employee ID of a pay-run line is not a number.
+     */
+    EMPLOYEE_ID("cannot parse employee id '%s' into a number", true),
+
+    /**
+     * The employee ID of a pay-run line is not in the employee file.
+     */
+    EMPLOYEE("%s is an unknown employee id", true);
+
+    /**
+     * Message or message format.
+     */
+    private final String text;
+
+    /**
+     * The text is a format with the offending field as argument.
+     */
+    private final boolean template;
+
+    /**
+     * Error code constructor.
+     *
+     * @param text Message or message format.
+     * @param template Whether {@code text} is a format.
+     */
+    ErrorCode(final String text, final boolean template) {
+        this.text = text;
+        this.template = template;
+    }
+
+    /**
+     * Message of this error for an offending field.
+     *
+     * @param field The offending field.
+     * @return Message.
+     */
+    public String message(final String field) {
+        final String message;
+        if (this.template) {
+            message = String.format(this.text, field);
+        } else {
+            message = this.text;
+        }
+        return message;
+    }
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous sink for rejected rows. Processing threads only enqueue a
+ * compact {@link ErrorSink.Failure} and never block: when the bounded queue
+ * is full the failure is dropped and counted. A background thread formats
+ * the failures and writes them in batches, and prints a summary of the
+ * rejected and dropped rows at most once per summary period while rows are
+ * rejected, and once more when the sink is closed. Without a summary stream
+ * the amount of dropped failures is written after the failures instead.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class ErrorSink implements Closeable {
+
+    /**
+     * Default capacity of the queue.
+     */
+    public static final int DEFAULT_CAPACITY = 65_536;
+
+    /**
+     * Default period between two summaries in milliseconds.
+     */
+    public static final long DEFAULT_PERIOD = 1_000L;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOG =
+        Logger.getLogger(ErrorSink.class.getName());
+
+    /**
+     * Maximum amount of failures written in one batch.
+     */
+    private static final int BATCH = 1_024;
+
+    /**
+     * Queued failures.
+     */
+    private final BlockingQueue<ErrorSink.Failure> queue;
+
+    /**
+     * Writer for the formatted failures.
+     */
+    private final PrintWriter details;
+
+    /**
+     * Stream for summaries, {@code null} without summaries.
+     */
+    private final PrintStream summary;
+
+    /**
+     * Minimum period between two summaries in nanoseconds.
+     */
+    private final long period;
+
+    /**
+     * Amount of reported failures.
+     */
+    private final AtomicLong rejected;
+
+    /**
+     * Amount of failures dropped because the queue was full.
+     */
+    private final AtomicLong dropped;
+
+    /**
+     * Background writer thread.
+     */
+    private final Thread writer;
+
+    /**
+     * Whether failures are still accepted.
+     */
+    private volatile boolean open;
+
+    /**
+     * Sink constructor without summaries.
+     *
+     * @param details Writer for the formatted failures.
+     */
+    public ErrorSink(final PrintWriter details) {
+        this(details, null, ErrorSink.DEFAULT_PERIOD);
+    }
+
+    /**
+     * Sink constructor, which starts the background writer.
+     *
+     * @param details Writer for the formatted failures.
+     * @param summary Stream for summaries or {@code null} for none.
+     * @param period Minimum period between two summaries in milliseconds.
+     */
+    public ErrorSink(
+        final PrintWriter details,
+        final PrintStream summary,
+        final long period) {
+        this.queue = new ArrayBlockingQueue<>(ErrorSink.DEFAULT_CAPACITY);
+        this.details = details;
+        this.summary = summary;
+        this.period = TimeUnit.MILLISECONDS.toNanos(period);
+        this.rejected = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.open = true;
+        this.writer = new Thread(this::drain, "payslip-errors");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Reports a rejected row without blocking.
+     *
+     * @param line Line number of the row.
+     * @param pex Reason of the rejection.
+     */
+    public void report(final long line, final PayslipException pex) {
+        this.report(line, pex.getCode(), pex.getField());
+    }
+
+    /**
+     * Reports a rejected row without blocking.
+     *
+     * @param line Line number of the row.
+     * @param code Error code.
+     * @param field The offending field.
+     */
+    public void report(
+        final long line,
+        final ErrorCode code,
+        final String field) {
+        this.rejected.incrementAndGet();
+        if (!this.queue.offer(new ErrorSink.Failure(line, code, field))) {
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Amount of reported failures.
+     *
+     * @return Rejected rows.
+     */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * Amount of failures that were not written because the queue was full.
+     *
+     * @return Dropped failures.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Writes all queued failures and the final summary, or the amount of
+     * dropped failures without summaries, and stops the background writer.
+     */
+    @Override
+    public void close() {
+        this.open = false;
+        boolean interrupted = false;
+        while (this.writer.isAlive()) {
+            try {
+                this.writer.join();
+            } catch (final InterruptedException iex) {
+                interrupted = true;
+            }
+        }
+        if (this.summary != null && this.rejected.get() > 0L) {
+            this.summary.println(this.summarize());
+        }
+        if (this.summary == null && this.dropped.get() > 0L) {
+            this.details.println(
+                String.format("dropped: %d", this.dropped.get())
+            );
+            this.details.flush();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loop of the background writer, which writes batches of failures until
+     * the sink is closed and the queue is empty.
+     */
+    private void drain() {
+        final List<ErrorSink.Failure> batch =
+            new ArrayList<>(ErrorSink.BATCH);
+        final StringBuilder text = new StringBuilder();
+        long last = System.nanoTime();
+        long shown = 0L;
+        while (this.open || !this.queue.isEmpty()) {
+            try {
+                final ErrorSink.Failure first =
+                    this.queue.poll(this.period, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    this.queue.drainTo(batch, ErrorSink.BATCH - 1);
+                    this.write(batch, text);
+                    batch.clear();
+                }
+            } catch (final InterruptedException iex) {
+                this.open = false;
+            }
+            final long now = System.nanoTime();
+            final long count = this.rejected.get();
+            if (this.summary != null && this.open && count != shown
+                && now - last >= this.period) {
+                this.summary.println(this.summarize());
+                last = now;
+                shown = count;
+            }
+        }
+    }
+
+    /**
+     * Formats and writes a batch of failures.
+     *
+     * @param batch Failures.
+     * @param text Reused buffer.
+     */
+    private void write(
+        final List<ErrorSink.Failure> batch,
+        final StringBuilder text) {
+        text.setLength(0);
+        for (final ErrorSink.Failure failure : batch) {
+            text.append("line ").append(failure.line).append(": ")
+                .append(failure.code.message(failure.field))
+                .append(System.lineSeparator());
+        }
+        this.details.print(text);
+        this.details.flush();
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "{0} rows rejected", batch.size());
+        }
+    }
+
+    /**
+     * Summary of the rejected and dropped rows.
+     *
+     * @return Summary line.
+     */
+    private String summarize() {
+        return String.format(
+            "rejected: %d, dropped: %d",
+            this.rejected.get(),
+            this.dropped.get()
+        );
+    }
+
+    /**
+     * A rejected row.
+     */
+    private static final class Failure {
+
+        /**
+         * Line number.
+         */
+        private final long line;
+
+        /**
+         * Error code.
+         */
+        private final ErrorCode code;
+
+        /**
+         * Offending field.
+         */
+        private final String field;
+
+        /**
+         * Failure constructor.
+         *
+         * @param line Line number.
+         * @param code Error code.
+         * @param field Offending field.
+         */
+        Failure(final long line, final ErrorCode code, final String field) {
+            this.line = line;
+            this.code = code;
+            this.field = field;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.NameArena;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts output lines by a {@link SortKey} with bounded memory. Lines are
+ * kept as binary records of a fixed-width key, a sequence number for a
+ * stable order, handles of the interned fore- and surname in a {@link
+ * NameArena} and the remaining line bytes. Full names are only assembled
+ * when the sorted lines are written. When the buffered records and the
+ * arena of their names exceed the memory budget they are sorted and written
+ * to a temporary run file as the key, the sequence number and the assembled
+ * line, and the arena starts over. At the end all runs are merged with a
+ * heap.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class ExternalSorter implements Closeable {
+
+    /**
+     * Default memory budget for buffered records in bytes.
+     */
+    static final long DEFAULT_BUDGET = 64L << 20;
+
+    /**
+     * Width of the compared record prefix, the key and sequence number.
+     */
+    private static final int PREFIX = SortKey.WIDTH + Long.BYTES;
+
+    /**
+     * Index of the line prefix length, after the key, sequence number and
+     * name handles.
+     */
+    private static final int BODY = ExternalSorter.PREFIX + 2 * Integer.BYTES;
+
+    /**
+     * Index of the line prefix.
+     */
+    private static final int LINE = ExternalSorter.BODY + Short.BYTES;
+
+    /**
+     * Largest line prefix length.
+     */
+    private static final int MAX_PREFIX = 0xFFFF;
+
+    /**
+     * Estimated memory overhead of a buffered record in bytes.
+     */
+    private static final int OVERHEAD = 32;
+
+    /**
+     * Size of the run file buffers.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Orders records by their key and sequence number.
+     */
+    private static final Comparator<byte[]> ORDER = ExternalSorter::compare;
+
+    /**
+     * Sort key.
+     */
+    private final SortKey key;
+
+    /**
+     * Directory for temporary run files.
+     */
+    private final Path dir;
+
+    /**
+     * Memory budget for buffered records in bytes.
+     */
+    private final long budget;
+
+    /**
+     * Buffered records.
+     */
+    private final List<byte[]> records;
+
+    /**
+     * Sorted run files.
+     */
+    private final List<Path> runs;
+
+    /**
+     * Interned fore- and surnames of the buffered records.
+     */
+    private final NameArena names;
+
+    /**
+     * Buffer for assembling output lines.
+     */
+    private byte[] line;
+
+    /**
+     * Memory used by the buffered records, without their names.
+     */
+    private long used;
+
+    /**
+     * Sequence number of the next record.
+     */
+    private long sequence;
+
+    /**
+     * Sorter constructor.
+     *
+     * @param key Sort key.
+     * @param dir Directory for temporary run files.
+     * @param budget Memory budget for buffered records in bytes.
+     */
+    ExternalSorter(final SortKey key, final Path dir, final long budget) {
+        this.key = key;
+        this.dir = dir;
+        this.budget = budget;
+        this.records = new ArrayList<>();
+        this.runs = new ArrayList<>();
+        this.names = new NameArena();
+        this.line = new byte[ExternalSorter.BUFFER_SIZE];
+    }
+
+    /**
+     * Adds the output line of a result, which is {@code prefix} followed by
+     * the result.
+     *
+     * @param request The processed request.
+     * @param result The result of the request.
+     * @param prefix Prefix of the output line.
+     * @throws IOException When a run cannot be written.
+     */
+    void add(
+        final PayslipRequest request,
+        final PayslipResult result,
+        final String prefix) throws IOException {
+        final byte[] head = prefix.getBytes(StandardCharsets.UTF_8);
+        if (head.length > ExternalSorter.MAX_PREFIX) {
+            throw new IOException("line prefix is too long to sort");
+        }
+        final byte[] details = ",".concat(result.getDetails())
+            .getBytes(StandardCharsets.UTF_8);
+        final byte[] record =
+            new byte[ExternalSorter.LINE + head.length + details.length];
+        this.key.encode(request, result, record);
+        final Employee employee = request.getEmployee();
+        ByteBuffer.wrap(
+            record, SortKey.WIDTH, ExternalSorter.LINE - SortKey.WIDTH
+        )
+            .putLong(this.sequence)
+            .putInt(this.names.intern(employee.getForename()))
+            .putInt(this.names.intern(employee.getSurname()))
+            .putShort((short) head.length);
+        System.arraycopy(
+            head, 0, record, ExternalSorter.LINE, head.length
+        );
+        System.arraycopy(
+            details, 0, record, ExternalSorter.LINE + head.length,
+            details.length
+        );
+        this.sequence += 1;
+        this.records.add(record);
+        this.used += record.length + ExternalSorter.OVERHEAD;
+        if (this.used + this.names.footprint() >= this.budget) {
+            this.spill();
+        }
+    }
+
+    /**
+     * Writes all added lines in sorted order to {@code writer}.
+     *
+     * @param writer Output writer.
+     * @throws IOException When reading runs or writing fails.
+     */
+    void writeTo(final BatchWriter writer) throws IOException {
+        if (this.runs.isEmpty()) {
+            this.records.sort(ExternalSorter.ORDER);
+            for (final byte[] record : this.records) {
+                writer.writeRecord(this.line, 0, this.assemble(record));
+            }
+            this.records.clear();
+        } else {
+            this.spill();
+            this.merge(writer);
+        }
+    }
+
+    /**
+     * Amount of bytes used by the interned names of the buffered records.
+     *
+     * @return Name bytes.
+     */
+    int nameBytes() {
+        return this.names.size();
+    }
+
+    /**
+     * Amount of run files written so far.
+     *
+     * @return Amount of spilled runs.
+     */
+    int runs() {
+        return this.runs.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Path run : this.runs) {
+            Files.deleteIfExists(run);
+        }
+        this.runs.clear();
+    }
+
+    /**
+     * Sorts the buffered records and writes them to a new run file with
+     * their assembled lines, and clears the names.
+     *
+     * @throws IOException When writing fails.
+     */
+    private void spill() throws IOException {
+        if (!this.records.isEmpty()) {
+            this.records.sort(ExternalSorter.ORDER);
+            final Path run = Files.createTempFile(this.dir, "sort", ".run");
+            this.runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(
+                    Files.newOutputStream(run), ExternalSorter.BUFFER_SIZE
+                )
+            )) {
+                for (final byte[] record : this.records) {
+                    final int length = this.assemble(record);
+                    out.writeInt(ExternalSorter.PREFIX + length);
+                    out.write(record, 0, ExternalSorter.PREFIX);
+                    out.write(this.line, 0, length);
+                }
+            }
+            this.records.clear();
+            this.names.clear();
+            this.used = 0L;
+        }
+    }
+
+    /**
+     * Merges all run files into {@code writer} with a heap.
+     *
+     * @param writer Output writer.
+     * @throws IOException When reading or writing fails.
+     */
+    private void merge(final BatchWriter writer) throws IOException {
+        final List<Run> open = new ArrayList<>(this.runs.size());
+        final PriorityQueue<Run> heap = new PriorityQueue<>(
+            this.runs.size(),
+            (first, second) -> compare(first.record, second.record)
+        );
+        try {
+            for (final Path file : this.runs) {
+                final Run run = new Run(
+                    new DataInputStream(
+                        new BufferedInputStream(
+                            Files.newInputStream(file),
+                            ExternalSorter.BUFFER_SIZE
+                        )
+                    )
+                );
+                open.add(run);
+                if (run.advance()) {
+                    heap.add(run);
+                }
+            }
+            while (!heap.isEmpty()) {
+                final Run run = heap.poll();
+                writer.writeRecord(
+                    run.record, ExternalSorter.PREFIX, run.record.length
+                );
+                if (run.advance()) {
+                    heap.add(run);
+                }
+            }
+        } finally {
+            for (final Run run : open) {
+                run.input.close();
+            }
+        }
+    }
+
+    /**
+     * Assembles the output line of a buffered record into {@link #line}.
+     *
+     * @param record Record.
+     * @return Length of the line.
+     */
+    private int assemble(final byte[] record) {
+        final ByteBuffer body = ByteBuffer.wrap(record);
+        final int forename = body.getInt(ExternalSorter.PREFIX);
+        final int surname = body.getInt(ExternalSorter.PREFIX + Integer.BYTES);
+        final int head =
+            Short.toUnsignedInt(body.getShort(ExternalSorter.BODY));
+        final int rest = record.length - ExternalSorter.LINE - head;
+        final int length = head + this.names.utfLength(forename) + 1
+            + this.names.utfLength(surname) + rest;
+        if (length > this.line.length) {
+            this.line = Arrays.copyOf(this.line, length);
+        }
+        System.arraycopy(record, ExternalSorter.LINE, this.line, 0, head);
+        int position = this.names.writeUtf(forename, this.line, head);
+        this.line[position] = ' ';
+        position = this.names.writeUtf(surname, this.line, position + 1);
+        System.arraycopy(
+            record, ExternalSorter.LINE + head, this.line, position, rest
+        );
+        return length;
+    }
+
+    /**
+     * Compares the key and sequence number of two records as unsigned bytes.
+     *
+     * @param first First record.
+     * @param second Second record.
+     * @return Negative, zero or positive like {@link Comparator#compare}.
+     */
+    private static int compare(final byte[] first, final byte[] second) {
+        int result = 0;
+        for (int index = 0; result == 0 && index < ExternalSorter.PREFIX;
+            ++index) {
+            result = Integer.compare(
+                Byte.toUnsignedInt(first[index]),
+                Byte.toUnsignedInt(second[index])
+            );
+        }
+        return result;
+    }
+
+    /**
+     * Read position in a sorted run file.
+     */
+    private static final class Run {
+
+        /**
+         * Run input.
+         */
+        private final DataInputStream input;
+
+        /**
+         * Current record, the key and sequence number followed by the line.
+         */
+        private byte[] record;
+
+        /**
+         * Run constructor.
+         *
+         * @param input Run input.
+         */
+        Run(final DataInputStream input) {
+            this.input = input;
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return False at the end of the run.
+         * @throws IOException When reading fails.
+         */
+        boolean advance() throws IOException {
+            boolean found = true;
+            try {
+                this.record = new byte[this.input.readInt()];
+                this.input.readFully(this.record);
+            } catch (final EOFException eof) {
+                found = false;
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Month;
+import java.util.Locale;
+
+/**
+ * Finds the comma separated fields of request lines in a buffer of UTF-8
+ * bytes, with the rules of {@link PayslipRequestParser}: fields are trimmed
+ * like {@link String#trim()}, empty fields are skipped and month names are
+ * read like {@link Month#valueOf(String)} of the name in uppercase. Fields
+ * of ASCII bytes are read in place, other fields are decoded. A scanner
+ * keeps the fields of the last split line, not thread safe.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class FieldScanner {
+
+    /**
+     * Largest ASCII byte.
+     */
+    static final int ASCII = 0x7f;
+
+    /**
+     * Largest byte removed by {@link String#trim()}.
+     */
+    static final int SPACE = 0x20;
+
+    /**
+     * Mask of a byte.
+     */
+    private static final int BYTE = 0xff;
+
+    /**
+     * Difference between an ASCII lowercase and uppercase letter.
+     */
+    private static final int CASE = 'a' - 'A';
+
+    /**
+     * The ASCII alphabet.
+     */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * Months in month order.
+     */
+    private static final Month[] MONTHS = Month.values();
+
+    /**
+     * Buffer with the lines.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The default locale uppercases ASCII letters to ASCII letters.
+     */
+    private final boolean ascii;
+
+    /**
+     * Start of every trimmed field.
+     */
+    private final int[] starts;
+
+    /**
+     * End of every trimmed field.
+     */
+    private final int[] ends;
+
+    /**
+     * View of an ASCII field.
+     */
+    private final FieldScanner.AsciiView view;
+
+    /**
+     * The last split line has only ASCII bytes.
+     */
+    private boolean plain;
+
+    /**
+     * Scanner constructor.
+     *
+     * @param buffer Buffer with the lines.
+     * @param ascii Whether month names can be compared as ASCII, see {@link
+     *  #isAsciiLocale()}.
+     */
+    FieldScanner(final ByteBuffer buffer, final boolean ascii) {
+        this.buffer = buffer;
+        this.ascii = ascii;
+        this.starts = new int[PayslipRequestParser.PARSE_LEN];
+        this.ends = new int[PayslipRequestParser.PARSE_LEN];
+        this.view = new FieldScanner.AsciiView(buffer);
+    }
+
+    /**
+     * Whether the default locale uppercases ASCII letters to the same
+     * letters as English, so ASCII month names can be compared in place.
+     *
+     * @return True for such a locale.
+     */
+    static boolean isAsciiLocale() {
+        return FieldScanner.ALPHABET
+            .toUpperCase(Locale.getDefault())
+            .equals(FieldScanner.ALPHABET.toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Finds the trimmed non-empty comma separated fields of a line. The
+     * bounds of the first {@link PayslipRequestParser#PARSE_LEN} fields are
+     * kept.
+     *
+     * @param from Start of the line.
+     * @param until End of the line without its line terminator.
+     * @return Amount of non-empty fields.
+     */
+    int split(final int from, final int until) {
+        int count = 0;
+        boolean ascii = true;
+        int start = from;
+        while (start <= until) {
+            int stop = start;
+            while (stop < until && this.buffer.get(stop) != ',') {
+                ascii = ascii && this.unsigned(stop) <= FieldScanner.ASCII;
+                stop += 1;
+            }
+            final int first = this.trimStart(start, stop);
+            final int last = this.trimEnd(first, stop);
+            if (first < last) {
+                if (count < PayslipRequestParser.PARSE_LEN) {
+                    this.starts[count] = first;
+                    this.ends[count] = last;
+                }
+                count += 1;
+            }
+            start = stop + 1;
+        }
+        this.plain = ascii;
+        return count;
+    }
+
+    /**
+     * Whether the last split line has only ASCII bytes.
+     *
+     * @return True for an ASCII line.
+     */
+    boolean isAscii() {
+        return this.plain;
+    }
+
+    /**
+     * Start of a field of the last split line.
+     *
+     * @param index Field index.
+     * @return Buffer index of the first byte.
+     */
+    int start(final int index) {
+        return this.starts[index];
+    }
+
+    /**
+     * End of a field of the last split line.
+     *
+     * @param index Field index.
+     * @return Buffer index after the last byte.
+     */
+    int end(final int index) {
+        return this.ends[index];
+    }
+
+    /**
+     * First position of a range that {@link String#trim()} keeps.
+     *
+     * @param from Start of the range.
+     * @param until End of the range.
+     * @return Start of the trimmed range, {@code until} when blank.
+     */
+    int trimStart(final int from, final int until) {
+        int start = from;
+        while (start < until
+            && this.unsigned(start) <= FieldScanner.SPACE) {
+            start += 1;
+        }
+        return start;
+    }
+
+    /**
+     * Field as characters, a reused view of the buffer for ASCII fields.
+     *
+     * @param index Field index.
+     * @return Field characters, valid until the next call.
+     */
+    CharSequence field(final int index) {
+        final int start = this.starts[index];
+        final int end = this.ends[index];
+        final CharSequence field;
+        if (this.isAscii(start, end)) {
+            field = this.view.of(start, end);
+        } else {
+            field = this.decode(start, end);
+        }
+        return field;
+    }
+
+    /**
+     * Reads a month field, a month name or a range of two names separated
+     * by a dash.
+     *
+     * @param index Field index.
+     * @param range Receives the ordinal of the first and the last month,
+     *  zero for January.
+     * @return True when every month name is valid.
+     */
+    boolean months(final int index, final int[] range) {
+        final int start = this.starts[index];
+        final int end = this.ends[index];
+        int split = start;
+        while (split < end && this.buffer.get(split) != '-') {
+            split += 1;
+        }
+        range[0] = this.month(start, split);
+        range[1] = range[0];
+        if (split < end) {
+            range[1] = this.month(split + 1, end);
+        }
+        return range[0] >= 0 && range[1] >= 0;
+    }
+
+    /**
+     * Finds a month by its name, ignoring surrounding blanks, like {@link
+     * Month#valueOf(String)} of the name in uppercase.
+     *
+     * @param from Start of the name.
+     * @param until End of the name.
+     * @return Month ordinal or minus one for an invalid name.
+     */
+    private int month(final int from, final int until) {
+        final int start = this.trimStart(from, until);
+        final int end = this.trimEnd(start, until);
+        String upper = null;
+        if (!this.ascii || !this.isAscii(start, end)) {
+            upper = this.decode(start, end).toUpperCase(Locale.getDefault());
+        }
+        int found = -1;
+        for (final Month month : FieldScanner.MONTHS) {
+            final boolean same;
+            if (upper == null) {
+                same = this.sameLetters(start, end, month.name());
+            } else {
+                same = month.name().equals(upper);
+            }
+            if (same) {
+                found = month.ordinal();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Whether an ASCII range equals an uppercase name ignoring case.
+     *
+     * @param from Start of the range.
+     * @param until End of the range.
+     * @param name Uppercase ASCII name.
+     * @return True when the letters are equal.
+     */
+    private boolean sameLetters(
+        final int from,
+        final int until,
+        final String name) {
+        boolean same = until - from == name.length();
+        for (int index = 0; same && index < name.length(); ++index) {
+            int chr = this.buffer.get(from + index);
+            if (chr >= 'a' && chr <= 'z') {
+                chr -= FieldScanner.CASE;
+            }
+            same = chr == name.charAt(index);
+        }
+        return same;
+    }
+
+    /**
+     * Last position plus one of a range that {@link String#trim()} keeps.
+     *
+     * @param from Start of the range, after any leading blanks.
+     * @param until End of the range.
+     * @return End of the trimmed range.
+     */
+    private int trimEnd(final int from, final int until) {
+        int end = until;
+        while (end > from && this.unsigned(end - 1) <= FieldScanner.SPACE) {
+            end -= 1;
+        }
+        return end;
+    }
+
+    /**
+     * Whether a range has only ASCII bytes.
+     *
+     * @param from Start of the range.
+     * @param until End of the range.
+     * @return True for ASCII bytes.
+     */
+    private boolean isAscii(final int from, final int until) {
+        boolean ascii = true;
+        for (int pos = from; ascii && pos < until; ++pos) {
+            ascii = this.unsigned(pos) <= FieldScanner.ASCII;
+        }
+        return ascii;
+    }
+
+    /**
+     * Decodes a range of the buffer.
+     *
+     * @param from Start of the range.
+     * @param until End of the range.
+     * @return Decoded characters.
+     */
+    private String decode(final int from, final int until) {
+        final byte[] bytes = new byte[until - from];
+        final ByteBuffer copy = this.buffer.duplicate();
+        copy.position(from);
+        copy.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Unsigned byte of the buffer.
+     *
+     * @param index Buffer index.
+     * @return Byte from 0 to 255.
+     */
+    private int unsigned(final int index) {
+        return this.buffer.get(index) & FieldScanner.BYTE;
+    }
+
+    /**
+     * Reusable character view of an ASCII range of a buffer.
+     */
+    private static final class AsciiView implements CharSequence {
+
+        /**
+         * Buffer.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Start of the range.
+         */
+        private int start;
+
+        /**
+         * End of the range.
+         */
+        private int end;
+
+        /**
+         * View constructor.
+         *
+         * @param buffer Buffer.
+         */
+        AsciiView(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Points this view at a range.
+         *
+         * @param from Start of the range.
+         * @param until End of the range.
+         * @return This view.
+         */
+        AsciiView of(final int from, final int until) {
+            this.start = from;
+            this.end = until;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) this.buffer.get(this.start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int until) {
+            return this.toString().substring(from, until);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder text = new StringBuilder(this.length());
+            for (int index = 0; index < this.length(); ++index) {
+                text.append(this.charAt(index));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,485 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the request lines of a byte range of a file, which
+ * processes every non-blank line into a {@link PayslipOutcome} when it is
+ * consumed. A range that is not consumed yet is split in the middle, moved
+ * forward to the next line start, as long as both halves hold at least
+ * {@link #MIN_BLOCK} bytes, so parallel streams work on large blocks.
+ *
+ * <p>Splits do not read the file to number the lines. The ranges form a
+ * tree of {@link FileRequestSpliterator.Block}s, and a spliterator looks up
+ * the number of lines before its range when it starts consuming it. A
+ * consumed range records its amount of lines, so only the ranges before it
+ * that are not consumed yet are counted, and every range at most once. All
+ * spliterators of a file read the shared channel with positional reads.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class FileRequestSpliterator implements Spliterator<PayslipOutcome> {
+
+    /**
+     * Smallest amount of bytes of a split off range.
+     */
+    static final long MIN_BLOCK = 1L << 20;
+
+    /**
+     * Initial size of the read buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Estimated amount of bytes of a line.
+     */
+    private static final int LINE_SIZE = 32;
+
+    /**
+     * Processor of the lines.
+     */
+    private final PayslipProcessor processor;
+
+    /**
+     * Input channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The range, replaced by its later half on a split.
+     */
+    private FileRequestSpliterator.Block block;
+
+    /**
+     * Offset of the next line.
+     */
+    private long position;
+
+    /**
+     * Number of the line before the range, negative until the range is
+     * consumed.
+     */
+    private long first;
+
+    /**
+     * Number of the last read line.
+     */
+    private long line;
+
+    /**
+     * Read buffer.
+     */
+    private byte[] buffer;
+
+    /**
+     * Index of the byte at {@link #position} in the buffer.
+     */
+    private int head;
+
+    /**
+     * Index after the last read byte in the buffer.
+     */
+    private int tail;
+
+    /**
+     * Spliterator over the lines from offset {@code start} up to offset
+     * {@code end}, which are line starts or the end of the file.
+     *
+     * @param processor Processor of the lines.
+     * @param channel Input channel.
+     * @param start Offset of the first line.
+     * @param end Offset after the last line.
+     * @param line Number of the line before the first line.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    FileRequestSpliterator(
+        final PayslipProcessor processor,
+        final FileChannel channel,
+        final long start,
+        final long end,
+        final long line) {
+        this(
+            processor, channel,
+            new FileRequestSpliterator.Block(null, start, end, line)
+        );
+    }
+
+    /**
+     * Spliterator over the lines of a range.
+     *
+     * @param processor Processor of the lines.
+     * @param channel Input channel.
+     * @param block The range.
+     */
+    private FileRequestSpliterator(
+        final PayslipProcessor processor,
+        final FileChannel channel,
+        final FileRequestSpliterator.Block block) {
+        this.processor = processor;
+        this.channel = channel;
+        this.block = block;
+        this.position = block.start;
+        this.first = -1L;
+        this.buffer = new byte[FileRequestSpliterator.BUFFER_SIZE];
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super PayslipOutcome> action) {
+        try {
+            if (this.first < 0L) {
+                this.first = this.block.before(this.channel);
+                this.line = this.first;
+            }
+            String text = this.next();
+            while (text != null && text.trim().isEmpty()) {
+                text = this.next();
+            }
+            if (text == null) {
+                this.block.lines = this.line - this.first;
+            } else {
+                action.accept(this.processor.outcome(this.line, text));
+            }
+            return text != null;
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    @Override
+    public Spliterator<PayslipOutcome> trySplit() {
+        try {
+            Spliterator<PayslipOutcome> prefix = null;
+            final long size = this.block.end - this.position;
+            if (this.first < 0L
+                && size >= 2L * FileRequestSpliterator.MIN_BLOCK) {
+                final long split = FileRequestSpliterator.boundary(
+                    this.channel, this.position + size / 2L, this.block.end
+                );
+                if (split < this.block.end) {
+                    prefix = new FileRequestSpliterator(
+                        this.processor, this.channel, this.block.split(split)
+                    );
+                    this.block = this.block.right;
+                    this.position = split;
+                }
+            }
+            return prefix;
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return (this.block.end - this.position)
+            / FileRequestSpliterator.LINE_SIZE;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    /**
+     * Reads the next line of the range.
+     *
+     * @return Line without separator or {@code null} at the end of the
+     *  range.
+     * @throws IOException When reading fails.
+     */
+    private String next() throws IOException {
+        final long end = this.block.end;
+        String text = null;
+        boolean more = this.position < end;
+        int from = this.head;
+        while (more) {
+            int newline = -1;
+            for (int index = from; newline < 0 && index < this.tail;
+                ++index) {
+                if (this.buffer[index] == '\n') {
+                    newline = index;
+                }
+            }
+            if (newline >= 0) {
+                text = this.decode(newline);
+                this.position += newline + 1 - this.head;
+                this.head = newline + 1;
+                more = false;
+            } else if (this.position + this.tail - this.head >= end) {
+                text = this.decode(this.tail);
+                this.position = end;
+                this.head = this.tail;
+                more = false;
+            } else {
+                final int seen = this.tail - this.head;
+                this.fill();
+                from = this.head + seen;
+            }
+        }
+        if (text != null) {
+            this.line += 1L;
+        }
+        return text;
+    }
+
+    /**
+     * Decodes the buffered line from {@link #head} without a trailing
+     * carriage return.
+     *
+     * @param stop Index after the last byte of the line.
+     * @return Line.
+     */
+    private String decode(final int stop) {
+        int last = stop;
+        if (last > this.head && this.buffer[last - 1] == '\r') {
+            last -= 1;
+        }
+        return new String(
+            this.buffer, this.head, last - this.head, StandardCharsets.UTF_8
+        );
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer, grows the buffer
+     * when it is full and reads the following bytes of the range.
+     *
+     * @throws IOException When reading fails or the file got shorter.
+     */
+    private void fill() throws IOException {
+        final int kept = this.tail - this.head;
+        System.arraycopy(this.buffer, this.head, this.buffer, 0, kept);
+        this.head = 0;
+        this.tail = kept;
+        if (this.tail == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+        }
+        final long from = this.position + kept;
+        final int read = this.channel.read(
+            ByteBuffer.wrap(
+                this.buffer,
+                this.tail,
+                (int) Math.min(
+                    this.buffer.length - this.tail, this.block.end - from
+                )
+            ),
+            from
+        );
+        if (read < 0) {
+            throw new EOFException("the input file got shorter");
+        }
+        this.tail += read;
+    }
+
+    /**
+     * Offset of the first line start at or after {@code offset}, which is
+     * after the start of the file.
+     *
+     * @param channel Input channel.
+     * @param offset Offset in the range.
+     * @param end Offset after the last line of the range.
+     * @return Line start or the end of the range.
+     * @throws IOException When reading fails.
+     */
+    static long boundary(
+        final FileChannel channel,
+        final long offset,
+        final long end) throws IOException {
+        final ByteBuffer scratch =
+            ByteBuffer.allocate(FileRequestSpliterator.BUFFER_SIZE);
+        long split = end;
+        long from = offset - 1L;
+        while (split == end && from < end) {
+            scratch.clear();
+            scratch.limit((int) Math.min(scratch.capacity(), end - from));
+            final int read = channel.read(scratch, from);
+            if (read < 0) {
+                throw new EOFException("the input file got shorter");
+            }
+            for (int index = 0; split == end && index < read; ++index) {
+                if (scratch.get(index) == '\n') {
+                    split = from + index + 1L;
+                }
+            }
+            from += read;
+        }
+        return split;
+    }
+
+    /**
+     * Range of the file with its lazily known amount of lines and of lines
+     * before it. A split range has the halves as children. The fields are
+     * written once with the same value by any thread that finds them, so
+     * they need no locks.
+     */
+    private static final class Block {
+
+        /**
+         * The range that was split into this range, {@code null} for the
+         * whole range.
+         */
+        private final FileRequestSpliterator.Block parent;
+
+        /**
+         * Offset of the first line.
+         */
+        private final long start;
+
+        /**
+         * Offset after the last line.
+         */
+        private final long end;
+
+        /**
+         * Earlier half after a split, {@code null} before.
+         */
+        private volatile FileRequestSpliterator.Block left;
+
+        /**
+         * Later half after a split, {@code null} before.
+         */
+        private volatile FileRequestSpliterator.Block right;
+
+        /**
+         * Amount of lines of the range, negative while unknown. For a range
+         * that ends at a line start it is the amount of line separators.
+         */
+        private volatile long lines;
+
+        /**
+         * Amount of lines before the range, negative while unknown.
+         */
+        private volatile long before;
+
+        /**
+         * Block constructor.
+         *
+         * @param parent The split range or {@code null}.
+         * @param start Offset of the first line.
+         * @param end Offset after the last line.
+         * @param before Amount of lines before the range, negative when
+         *  unknown.
+         * @checkstyle ParameterNumberCheck (10 lines)
+         */
+        Block(
+            final FileRequestSpliterator.Block parent,
+            final long start,
+            final long end,
+            final long before) {
+            this.parent = parent;
+            this.start = start;
+            this.end = end;
+            this.lines = -1L;
+            this.before = before;
+        }
+
+        /**
+         * Splits the range at a line start into two halves.
+         *
+         * @param offset Line start in the range.
+         * @return Earlier half.
+         */
+        FileRequestSpliterator.Block split(final long offset) {
+            this.right = new FileRequestSpliterator.Block(
+                this, offset, this.end, -1L
+            );
+            this.left = new FileRequestSpliterator.Block(
+                this, this.start, offset, this.before
+            );
+            return this.left;
+        }
+
+        /**
+         * Amount of lines before the range, from the amount of lines of the
+         * earlier halves of the enclosing ranges.
+         *
+         * @param channel Input channel to count unconsumed ranges.
+         * @return Amount of lines.
+         * @throws IOException When reading fails.
+         */
+        long before(final FileChannel channel) throws IOException {
+            long amount = this.before;
+            if (amount < 0L) {
+                amount = this.parent.before(channel);
+                if (this == this.parent.right) {
+                    amount += this.parent.left.lines(channel);
+                }
+                this.before = amount;
+            }
+            return amount;
+        }
+
+        /**
+         * Amount of lines of the range, from its halves or by counting the
+         * line separators when it is neither split nor consumed.
+         *
+         * @param channel Input channel.
+         * @return Amount of lines.
+         * @throws IOException When reading fails.
+         */
+        long lines(final FileChannel channel) throws IOException {
+            long amount = this.lines;
+            if (amount < 0L) {
+                if (this.left == null) {
+                    amount = FileRequestSpliterator.count(
+                        channel, this.start, this.end
+                    );
+                } else {
+                    amount = this.left.lines(channel)
+                        + this.right.lines(channel);
+                }
+                this.lines = amount;
+            }
+            return amount;
+        }
+    }
+
+    /**
+     * Amount of line separators from offset {@code start} up to offset
+     * {@code stop}.
+     *
+     * @param channel Input channel.
+     * @param start First offset.
+     * @param stop Offset after the last byte.
+     * @return Amount of lines.
+     * @throws IOException When reading fails.
+     */
+    static long count(
+        final FileChannel channel,
+        final long start,
+        final long stop) throws IOException {
+        final ByteBuffer scratch =
+            ByteBuffer.allocate(FileRequestSpliterator.BUFFER_SIZE);
+        final byte[] bytes = scratch.array();
+        long lines = 0L;
+        long from = start;
+        while (from < stop) {
+            scratch.clear();
+            scratch.limit((int) Math.min(scratch.capacity(), stop - from));
+            final int read = channel.read(scratch, from);
+            if (read < 0) {
+                throw new EOFException("the input file got shorter");
+            }
+            for (int index = 0; index < read; ++index) {
+                if (bytes[index] == '\n') {
+                    lines += 1L;
+                }
+            }
+            from += read;
+        }
+        return lines;
+    }
+}
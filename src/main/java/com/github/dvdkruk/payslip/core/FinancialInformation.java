@@ -4,6 +4,8 @@
 
 package com.github.dvdkruk.payslip.core;
 
+import com.github.dvdkruk.payslip.utils.CommaSeparatedStringBuilder;
+
 /**
  * Contains financial information for a month.
  *
@@ -39,7 +41,7 @@ public final class FinancialInformation extends PayslipObject {
         final int salary,
         final int tax,
         final int superannuation) {
-        super(salary, tax, salary - tax, superannuation);
+        super();
         this.salary = salary;
         this.tax = tax;
         this.superann = superannuation;
@@ -81,4 +83,27 @@ public final class FinancialInformation extends PayslipObject {
         return this.superann;
     }
 
+    @Override
+    protected void display(final CommaSeparatedStringBuilder builder) {
+        builder.append(this.salary)
+            .append(this.tax)
+            .append(this.getNetIncome())
+            .append(this.superann);
+    }
+
+    @Override
+    protected boolean equalFields(final PayslipObject obj) {
+        final FinancialInformation that = (FinancialInformation) obj;
+        return this.salary == that.salary
+            && this.tax == that.tax
+            && this.superann == that.superann;
+    }
+
+    @Override
+    protected int fieldHash() {
+        int hash = this.salary;
+        hash = PayslipObject.PRIME * hash + this.tax;
+        return PayslipObject.PRIME * hash + this.superann;
+    }
+
 }
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Inverse of the payslip calculation: the smallest annual salary in whole
+ * dollars whose net monthly income, the monthly salary minus the monthly
+ * tax as calculated by {@link PayslipProcessor}, is at least a target.
+ *
+ * <p>Without rounding the net income is linear within a bracket of the
+ * {@link TaxSchedule}, so the salary is solved directly in the bracket of
+ * the target. The half up rounding of the monthly salary and tax moves the
+ * net income less than one dollar either way, so the answer lies between
+ * the exact solutions for one dollar below and one dollar above the target.
+ * That window is scanned upwards from its start, which costs a few dozen
+ * primitive tax calculations at most. The schedule is expected to have
+ * rates below 100% and no tax jumps at the bracket bounds, like {@link
+ * DefaultTaxRuleFactory#DEFAULT}.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class GrossUp {
+
+    /**
+     * Amount of months.
+     */
+    private static final long MONTHS = 12L;
+
+    /**
+     * Compiled tax rules.
+     */
+    private final TaxSchedule schedule;
+
+    /**
+     * Scale of a dollar in the scaled tax of the schedule.
+     */
+    private final long factor;
+
+    /**
+     * Twelve times the scaled net monthly income without rounding at the
+     * upper bound of every bracket.
+     */
+    private final long[] reach;
+
+    /**
+     * Gross-up constructor.
+     *
+     * @param schedule Compiled tax rules.
+     * @throws PayslipException When a rate is 100% or more.
+     */
+    public GrossUp(final TaxSchedule schedule) {
+        this.schedule = schedule;
+        this.factor = schedule.divisor() / GrossUp.MONTHS;
+        this.reach = new long[schedule.size()];
+        for (int bracket = 0; bracket < schedule.size(); ++bracket) {
+            if (schedule.rate(bracket) >= this.factor) {
+                throw new PayslipException(
+                    "gross-up needs tax rates below 100%"
+                );
+            }
+            this.reach[bracket] =
+                this.scaledNet(bracket, schedule.high(bracket));
+        }
+    }
+
+    /**
+     * Smallest annual salary with at least {@code net} net monthly income.
+     *
+     * @param net Target net monthly income in whole dollars.
+     * @return Annual salary in whole dollars.
+     * @throws PayslipException When the target is not positive, no salary
+     *  of the schedule reaches it or the scaled target overflows.
+     */
+    public Money salary(final int net) {
+        try {
+            return this.gross(net);
+        } catch (final ArithmeticException aex) {
+            throw new PayslipException(
+                ErrorCode.SALARY_RANGE, Integer.toString(net), aex
+            );
+        }
+    }
+
+    /**
+     * Answers a file of targets, one net monthly income per line, with lines
+     * of the target and its annual salary. Rejected targets are reported to
+     * {@code sink} with their line number.
+     *
+     * @param reader Targets.
+     * @param writer Receives {@code <net>,<salary>} lines.
+     * @param sink Sink for rejected targets.
+     * @return Amount of answered targets.
+     * @throws IOException When reading or writing fails.
+     */
+    public long run(
+        final BufferedReader reader,
+        final Writer writer,
+        final ErrorSink sink) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        long answered = 0L;
+        long number = 0L;
+        String target = reader.readLine();
+        while (target != null) {
+            number += 1L;
+            final String trimmed = target.trim();
+            if (!trimmed.isEmpty()) {
+                try {
+                    final Money salary = this.salary(GrossUp.parse(trimmed));
+                    line.setLength(0);
+                    line.append(trimmed).append(',')
+                        .append(salary.toDollars()).append('\n');
+                    writer.append(line);
+                    answered += 1L;
+                } catch (final PayslipException pex) {
+                    sink.report(number, pex);
+                }
+            }
+            target = reader.readLine();
+        }
+        writer.flush();
+        return answered;
+    }
+
+    /**
+     * Net monthly income of an annual salary, like {@link PayslipProcessor}.
+     *
+     * @param salary Annual salary in whole dollars.
+     * @return Net monthly income in whole dollars.
+     */
+    int net(final int salary) {
+        return (int) Money.halfUp(salary, GrossUp.MONTHS)
+            - this.schedule.tax(salary);
+    }
+
+    /**
+     * Smallest annual salary with at least {@code net} net monthly income,
+     * with exact arithmetic.
+     *
+     * @param net Target net monthly income in whole dollars.
+     * @return Annual salary in whole dollars.
+     * @throws PayslipException When the target is not positive or no salary
+     *  of the schedule reaches it.
+     * @throws ArithmeticException When the scaled target overflows.
+     */
+    private Money gross(final int net) {
+        if (net < 1) {
+            throw GrossUp.unreachable(Integer.toString(net));
+        }
+        final long target = Math.multiplyExact(
+            net - 1L, this.schedule.divisor()
+        );
+        int bracket = 0;
+        while (bracket < this.reach.length && this.reach[bracket] < target) {
+            bracket += 1;
+        }
+        if (bracket == this.reach.length) {
+            throw GrossUp.unreachable(Integer.toString(net));
+        }
+        final long last = this.schedule.high(this.reach.length - 1);
+        long salary = Math.max(
+            Math.max(this.schedule.low(bracket) + 1L, 1L),
+            this.solve(bracket, target)
+        );
+        while (salary <= last && this.net((int) salary) < net) {
+            salary += 1L;
+        }
+        if (salary > last) {
+            throw GrossUp.unreachable(Integer.toString(net));
+        }
+        return Money.ofDollars(salary);
+    }
+
+    /**
+     * Smallest salary of a bracket's line whose unrounded net monthly income
+     * is at least the target.
+     *
+     * @param bracket Bracket index.
+     * @param target Twelve times the scaled net monthly income.
+     * @return Annual salary, may be outside the bracket.
+     */
+    private long solve(final int bracket, final long target) {
+        final long slope = this.factor - this.schedule.rate(bracket);
+        final long offset = this.scaledNet(bracket, 0L);
+        return GrossUp.ceilDiv(Math.subtractExact(target, offset), slope);
+    }
+
+    /**
+     * Twelve times the scaled net monthly income without rounding of a
+     * salary taxed in a bracket.
+     *
+     * @param bracket Bracket index.
+     * @param salary Annual salary.
+     * @return Scaled net income.
+     */
+    private long scaledNet(final int bracket, final long salary) {
+        return salary * this.factor
+            - ((salary - this.schedule.subtract(bracket))
+            * this.schedule.rate(bracket) + this.schedule.base(bracket));
+    }
+
+    /**
+     * Division rounded towards positive infinity.
+     *
+     * @param dividend Dividend.
+     * @param divisor Positive divisor.
+     * @return Rounded quotient.
+     */
+    private static long ceilDiv(final long dividend, final long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    /**
+     * Parses a target net monthly income.
+     *
+     * @param text Whole dollars.
+     * @return Net monthly income.
+     * @throws PayslipException When the text is not a whole number.
+     */
+    private static int parse(final String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (final NumberFormatException nfe) {
+            throw new PayslipException(ErrorCode.NET_INCOME, text, nfe);
+        }
+    }
+
+    /**
+     * Exception for a target that no salary reaches.
+     *
+     * @param net Target net monthly income.
+     * @return Exception.
+     */
+    private static PayslipException unreachable(final String net) {
+        return new PayslipException(ErrorCode.NET_INCOME, net);
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Month;
+import java.util.Arrays;
+
+/**
+ * Encodes results as JSON Lines into a reused byte buffer, for example
+ * {@code {"name":"David Rudd","period":"01 March - 31 March","salary":5004,
+ * "tax":922,"netIncome":4082,"superannuation":450}}. Field names and periods
+ * are encoded once, numbers are written as ASCII digits and names are
+ * escaped and encoded as UTF-8 character by character, so a line costs no
+ * allocation once the buffer is large enough.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class JsonLineEncoder {
+
+    /**
+     * Start of a line up to the name value.
+     */
+    static final byte[] NAME = JsonLineEncoder.ascii("{\"name\":\"");
+
+    /**
+     * End of the name up to the period value.
+     */
+    static final byte[] PERIOD =
+        JsonLineEncoder.ascii("\",\"period\":\"");
+
+    /**
+     * End of the period up to the salary value.
+     */
+    static final byte[] SALARY =
+        JsonLineEncoder.ascii("\",\"salary\":");
+
+    /**
+     * Tax field name.
+     */
+    static final byte[] TAX = JsonLineEncoder.ascii(",\"tax\":");
+
+    /**
+     * Net income field name.
+     */
+    static final byte[] NET = JsonLineEncoder.ascii(",\"netIncome\":");
+
+    /**
+     * Superannuation field name.
+     */
+    static final byte[] SUPER =
+        JsonLineEncoder.ascii(",\"superannuation\":");
+
+    /**
+     * Initial size of the line buffer.
+     */
+    private static final int INITIAL_SIZE = 256;
+
+    /**
+     * Hexadecimal digits of escaped control characters.
+     */
+    private static final byte[] HEX = JsonLineEncoder.ascii("0123456789abcdef");
+
+    /**
+     * Largest amount of bytes of the fixed parts of a line, the field names,
+     * the longest period and four numbers.
+     */
+    private static final int FIXED = 160;
+
+    /**
+     * Largest amount of UTF-8 bytes of an escaped character.
+     */
+    private static final int ESCAPED = 6;
+
+    /**
+     * Largest amount of UTF-8 bytes of a character.
+     */
+    private static final int ENCODED = 3;
+
+    /**
+     * Encoded display period of every month.
+     */
+    private final byte[][] periods;
+
+    /**
+     * Line buffer.
+     */
+    private byte[] line;
+
+    /**
+     * Length of the line in the buffer.
+     */
+    private int length;
+
+    /**
+     * Encoder constructor.
+     */
+    JsonLineEncoder() {
+        this.periods = new byte[Month.values().length][];
+        for (final Month month : Month.values()) {
+            this.periods[month.ordinal()] = PayslipResult
+                .toDisplayMonthRange(month)
+                .getBytes(StandardCharsets.UTF_8);
+        }
+        this.line = new byte[JsonLineEncoder.INITIAL_SIZE];
+    }
+
+    /**
+     * Encodes the line of {@code result}, which is {@code prefix} followed by
+     * the JSON object of the result, into the buffer.
+     *
+     * @param prefix Prefix of the line, written as is.
+     * @param result Encoded result.
+     * @return Length of the line, the line starts at index zero of {@link
+     *  #bytes()}.
+     */
+    int encode(final String prefix, final PayslipResult result) {
+        final String name = String.valueOf(result.getName());
+        final int size = JsonLineEncoder.FIXED
+            + prefix.length() * JsonLineEncoder.ENCODED
+            + name.length() * JsonLineEncoder.ESCAPED;
+        if (size > this.line.length) {
+            this.line = Arrays.copyOf(this.line, 2 * size);
+        }
+        this.length = 0;
+        this.text(prefix, false);
+        this.raw(JsonLineEncoder.NAME);
+        this.text(name, true);
+        this.raw(JsonLineEncoder.PERIOD);
+        this.raw(this.periods[result.getMonth().ordinal()]);
+        this.raw(JsonLineEncoder.SALARY);
+        this.number(result.getSalary());
+        this.raw(JsonLineEncoder.TAX);
+        this.number(result.getTax());
+        this.raw(JsonLineEncoder.NET);
+        this.number(result.getNetIncome());
+        this.raw(JsonLineEncoder.SUPER);
+        this.number(result.getSuperannuation());
+        this.put('}');
+        return this.length;
+    }
+
+    /**
+     * Line buffer with the last encoded line. The buffer is reused by the
+     * next call of {@link #encode(String, PayslipResult)}.
+     *
+     * @return Line buffer.
+     */
+    byte[] bytes() {
+        return this.line;
+    }
+
+    /**
+     * Appends the UTF-8 bytes of {@code text}. Unpaired surrogates are
+     * written as {@code ?}, like {@link String#getBytes} does.
+     *
+     * @param text Appended text.
+     * @param escape Whether quotes, backslashes and control characters are
+     *  escaped as in a JSON string.
+     */
+    private void text(final String text, final boolean escape) {
+        final int end = text.length();
+        int index = 0;
+        while (index < end) {
+            final char chr = text.charAt(index);
+            index += 1;
+            if (chr < 0x80) {
+                if (escape && (chr < 0x20 || chr == '"' || chr == '\\')) {
+                    this.escape(chr);
+                } else {
+                    this.put(chr);
+                }
+            } else if (chr < 0x800) {
+                this.put(0xC0 | chr >> 6);
+                this.put(0x80 | chr & 0x3F);
+            } else if (!Character.isSurrogate(chr)) {
+                this.put(0xE0 | chr >> 12);
+                this.put(0x80 | chr >> 6 & 0x3F);
+                this.put(0x80 | chr & 0x3F);
+            } else if (Character.isHighSurrogate(chr) && index < end
+                && Character.isLowSurrogate(text.charAt(index))) {
+                final int code = Character.toCodePoint(chr, text.charAt(index));
+                index += 1;
+                this.put(0xF0 | code >> 18);
+                this.put(0x80 | code >> 12 & 0x3F);
+                this.put(0x80 | code >> 6 & 0x3F);
+                this.put(0x80 | code & 0x3F);
+            } else {
+                this.put('?');
+            }
+        }
+    }
+
+    /**
+     * Appends an escaped quote, backslash or control character.
+     *
+     * @param chr Escaped character.
+     */
+    private void escape(final char chr) {
+        this.put('\\');
+        switch (chr) {
+            case '"':
+            case '\\':
+                this.put(chr);
+                break;
+            case '\b':
+                this.put('b');
+                break;
+            case '\f':
+                this.put('f');
+                break;
+            case '\n':
+                this.put('n');
+                break;
+            case '\r':
+                this.put('r');
+                break;
+            case '\t':
+                this.put('t');
+                break;
+            default:
+                this.put('u');
+                this.put('0');
+                this.put('0');
+                this.put(JsonLineEncoder.HEX[chr >> 4]);
+                this.put(JsonLineEncoder.HEX[chr & 0xF]);
+                break;
+        }
+    }
+
+    /**
+     * Appends the decimal ASCII digits of {@code value}.
+     *
+     * @param value Appended number.
+     */
+    private void number(final int value) {
+        this.length = AsciiDigits.encode(value, this.line, this.length);
+    }
+
+    /**
+     * Appends {@code bytes}.
+     *
+     * @param bytes Appended bytes.
+     */
+    private void raw(final byte[] bytes) {
+        System.arraycopy(bytes, 0, this.line, this.length, bytes.length);
+        this.length += bytes.length;
+    }
+
+    /**
+     * Appends a byte.
+     *
+     * @param value Appended byte in the lowest eight bits.
+     */
+    private void put(final int value) {
+        this.line[this.length] = (byte) value;
+        this.length += 1;
+    }
+
+    /**
+     * ASCII bytes of a constant.
+     *
+     * @param text Constant.
+     * @return Bytes.
+     */
+    private static byte[] ascii(final String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the request lines of an iterator, which processes every
+ * non-blank line into a {@link PayslipOutcome} when it is consumed. A split
+ * takes the next {@link #BLOCK} lines off the iterator as a block, which is
+ * processed by whichever thread consumes it, so parallel streams only share
+ * the cheap reading of the lines.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class LineRequestSpliterator implements Spliterator<PayslipOutcome> {
+
+    /**
+     * Amount of lines of a split off block.
+     */
+    static final int BLOCK = 4_096;
+
+    /**
+     * Processor of the lines.
+     */
+    private final PayslipProcessor processor;
+
+    /**
+     * Remaining lines.
+     */
+    private final Iterator<String> lines;
+
+    /**
+     * Number of the last taken line.
+     */
+    private long line;
+
+    /**
+     * Spliterator over {@code lines}.
+     *
+     * @param processor Processor of the lines.
+     * @param lines Request lines, the first line has number one.
+     */
+    LineRequestSpliterator(
+        final PayslipProcessor processor,
+        final Iterator<String> lines) {
+        this.processor = processor;
+        this.lines = lines;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super PayslipOutcome> action) {
+        String text = null;
+        while (text == null && this.lines.hasNext()) {
+            this.line += 1L;
+            text = this.lines.next();
+            if (text.trim().isEmpty()) {
+                text = null;
+            }
+        }
+        if (text != null) {
+            action.accept(this.processor.outcome(this.line, text));
+        }
+        return text != null;
+    }
+
+    @Override
+    public Spliterator<PayslipOutcome> trySplit() {
+        Spliterator<PayslipOutcome> prefix = null;
+        if (this.lines.hasNext()) {
+            final String[] block = new String[LineRequestSpliterator.BLOCK];
+            int size = 0;
+            while (size < block.length && this.lines.hasNext()) {
+                block[size] = this.lines.next();
+                size += 1;
+            }
+            prefix = new LineRequestSpliterator.Block(
+                this.processor, block, 0, size, this.line + 1L
+            );
+            this.line += size;
+        }
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    /**
+     * Spliterator over a block of taken lines, which splits in halves.
+     */
+    private static final class Block implements Spliterator<PayslipOutcome> {
+
+        /**
+         * Smallest amount of lines of a split off half.
+         */
+        private static final int MIN_HALF = 256;
+
+        /**
+         * Processor of the lines.
+         */
+        private final PayslipProcessor processor;
+
+        /**
+         * Lines.
+         */
+        private final String[] lines;
+
+        /**
+         * Index after the last line.
+         */
+        private final int end;
+
+        /**
+         * Index of the next line.
+         */
+        private int index;
+
+        /**
+         * Number of the line at index zero.
+         */
+        private final long first;
+
+        /**
+         * Block of the lines from {@code start} up to {@code end}.
+         *
+         * @param processor Processor of the lines.
+         * @param lines Lines.
+         * @param start Index of the first line.
+         * @param end Index after the last line.
+         * @param first Number of the line at index zero.
+         * @checkstyle ParameterNumberCheck (10 lines)
+         */
+        Block(
+            final PayslipProcessor processor,
+            final String[] lines,
+            final int start,
+            final int end,
+            final long first) {
+            this.processor = processor;
+            this.lines = lines;
+            this.index = start;
+            this.end = end;
+            this.first = first;
+        }
+
+        @Override
+        public boolean tryAdvance(
+            final Consumer<? super PayslipOutcome> action) {
+            while (this.index < this.end
+                && this.lines[this.index].trim().isEmpty()) {
+                this.index += 1;
+            }
+            final boolean found = this.index < this.end;
+            if (found) {
+                action.accept(
+                    this.processor.outcome(
+                        this.first + this.index, this.lines[this.index]
+                    )
+                );
+                this.index += 1;
+            }
+            return found;
+        }
+
+        @Override
+        public Spliterator<PayslipOutcome> trySplit() {
+            Spliterator<PayslipOutcome> prefix = null;
+            final int half = (this.end - this.index) / 2;
+            if (half >= Block.MIN_HALF) {
+                prefix = new LineRequestSpliterator.Block(
+                    this.processor,
+                    this.lines,
+                    this.index,
+                    this.index + half,
+                    this.first
+                );
+                this.index += half;
+            }
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.end - this.index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+}
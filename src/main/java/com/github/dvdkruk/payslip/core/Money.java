@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+/**
+ * An amount of money as a {@code long} count of cents. Arithmetic throws
+ * {@link ArithmeticException} on overflow instead of wrapping, and divisions
+ * round half up like the {@link java.math.RoundingMode#HALF_UP} calculations
+ * they replace.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class Money implements Comparable<Money> {
+
+    /**
+     * Cents in a dollar.
+     */
+    public static final long CENTS = 100L;
+
+    /**
+     * Zero dollars.
+     */
+    public static final Money ZERO = new Money(0L);
+
+    /**
+     * Decimals of a cent amount.
+     */
+    private static final int DECIMALS = 2;
+
+    /**
+     * Radix of the parsed digits.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Smallest digit that rounds up.
+     */
+    private static final int ROUND_UP = 5;
+
+    /**
+     * Amount in cents.
+     */
+    private final long cents;
+
+    /**
+     * Money constructor.
+     *
+     * @param cents Amount in cents.
+     */
+    private Money(final long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * Amount of cents.
+     *
+     * @param cents Amount in cents.
+     * @return Money.
+     */
+    public static Money ofCents(final long cents) {
+        return new Money(cents);
+    }
+
+    /**
+     * Amount of whole dollars.
+     *
+     * @param dollars Amount in dollars.
+     * @return Money.
+     * @throws ArithmeticException When the cents overflow a {@code long}.
+     */
+    public static Money ofDollars(final long dollars) {
+        return new Money(Math.multiplyExact(dollars, Money.CENTS));
+    }
+
+    /**
+     * Parses a plain decimal amount of dollars, like {@code 60050} or {@code
+     * -12.5}, without allocating intermediate numbers. More than two decimals
+     * are rounded half up to cents.
+     *
+     * @param text Decimal amount.
+     * @return Money.
+     * @throws NumberFormatException When {@code text} is not a plain decimal
+     *  or does not fit in a {@code long} count of cents.
+     */
+    public static Money parse(final CharSequence text) {
+        final long[] cents = new long[1];
+        if (!Money.tryParse(text, cents)) {
+            throw Money.invalid(text);
+        }
+        return new Money(cents[0]);
+    }
+
+    /**
+     * Parses like {@link #parse(CharSequence)}, but reports an invalid text
+     * by its result instead of an exception.
+     *
+     * @param text Decimal amount.
+     * @param cents Receives the amount in cents at index zero.
+     * @return True when {@code text} is a plain decimal that fits.
+     */
+    static boolean tryParse(final CharSequence text, final long[] cents) {
+        final int length = text.length();
+        int pos = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            pos = 1;
+        }
+        long amount = 0L;
+        int digits = 0;
+        int decimals = -1;
+        boolean round = false;
+        boolean valid = true;
+        for (; valid && pos < length; ++pos) {
+            final char chr = text.charAt(pos);
+            if (chr == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                final int digit = Character.digit(chr, Money.RADIX);
+                valid = digit >= 0;
+                digits += 1;
+                if (decimals < Money.DECIMALS) {
+                    valid = valid
+                        && amount <= (Long.MAX_VALUE - digit) / Money.RADIX;
+                    amount = amount * Money.RADIX + digit;
+                } else if (decimals == Money.DECIMALS) {
+                    round = digit >= Money.ROUND_UP;
+                }
+                if (decimals >= 0) {
+                    decimals += 1;
+                }
+            }
+        }
+        for (int pad = Math.max(decimals, 0); pad < Money.DECIMALS; ++pad) {
+            valid = valid && amount <= Long.MAX_VALUE / Money.RADIX;
+            amount *= Money.RADIX;
+        }
+        if (round) {
+            valid = valid && amount < Long.MAX_VALUE;
+            amount += 1L;
+        }
+        if (negative) {
+            amount = -amount;
+        }
+        cents[0] = amount;
+        return valid && digits > 0;
+    }
+
+    /**
+     * Amount of cents.
+     *
+     * @return Amount in cents.
+     */
+    public long getCents() {
+        return this.cents;
+    }
+
+    /**
+     * Sign of the amount.
+     *
+     * @return -1, 0 or 1.
+     */
+    public int signum() {
+        return Long.signum(this.cents);
+    }
+
+    /**
+     * Sum of this and {@code other}.
+     *
+     * @param other Added amount.
+     * @return Sum.
+     * @throws ArithmeticException On overflow.
+     */
+    public Money plus(final Money other) {
+        return new Money(Math.addExact(this.cents, other.cents));
+    }
+
+    /**
+     * Difference of this and {@code other}.
+     *
+     * @param other Subtracted amount.
+     * @return Difference.
+     * @throws ArithmeticException On overflow.
+     */
+    public Money minus(final Money other) {
+        return new Money(Math.subtractExact(this.cents, other.cents));
+    }
+
+    /**
+     * This amount multiplied by {@code factor}.
+     *
+     * @param factor Factor.
+     * @return Product.
+     * @throws ArithmeticException On overflow.
+     */
+    public Money times(final long factor) {
+        return new Money(Math.multiplyExact(this.cents, factor));
+    }
+
+    /**
+     * This amount divided by {@code divisor}, rounded half up to cents.
+     *
+     * @param divisor Positive divisor.
+     * @return Quotient.
+     */
+    public Money divide(final long divisor) {
+        return new Money(Money.halfUp(this.cents, divisor));
+    }
+
+    /**
+     * This amount divided by {@code divisor}, rounded half up to whole
+     * dollars.
+     *
+     * @param divisor Positive divisor.
+     * @return Quotient in whole dollars.
+     * @throws ArithmeticException On overflow.
+     */
+    public Money divideToDollars(final long divisor) {
+        return Money.ofDollars(
+            Money.halfUp(this.cents, Math.multiplyExact(divisor, Money.CENTS))
+        );
+    }
+
+    /**
+     * Amount rounded half up to whole dollars.
+     *
+     * @return Whole dollars.
+     */
+    public long toDollars() {
+        return Money.halfUp(this.cents, Money.CENTS);
+    }
+
+    /**
+     * Amount rounded half up to whole dollars as an {@code int}.
+     *
+     * @return Whole dollars.
+     * @throws ArithmeticException When the dollars overflow an {@code int}.
+     */
+    public int toIntDollars() {
+        return Math.toIntExact(this.toDollars());
+    }
+
+    @Override
+    public int compareTo(final Money other) {
+        return Long.compare(this.cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return this == obj
+            || obj instanceof Money && ((Money) obj).cents == this.cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.cents);
+    }
+
+    /**
+     * Plain decimal amount with two decimals, like {@code 60050.00}.
+     *
+     * @return Decimal amount.
+     */
+    @Override
+    public String toString() {
+        final long abs = Math.abs(this.cents / Money.CENTS);
+        final long rest = Math.abs(this.cents % Money.CENTS);
+        final StringBuilder text = new StringBuilder();
+        if (this.cents < 0L) {
+            text.append('-');
+        }
+        text.append(abs).append('.');
+        if (rest < Money.RADIX) {
+            text.append('0');
+        }
+        return text.append(rest).toString();
+    }
+
+    /**
+     * Divides and rounds half up, away from zero for negative halves.
+     *
+     * @param dividend Dividend.
+     * @param divisor Positive divisor.
+     * @return Rounded quotient.
+     */
+    static long halfUp(final long dividend, final long divisor) {
+        final long quotient = dividend / divisor;
+        final long rest = Math.abs(dividend % divisor);
+        final long rounded;
+        if (rest >= divisor - rest) {
+            rounded = quotient + Long.signum(dividend);
+        } else {
+            rounded = quotient;
+        }
+        return rounded;
+    }
+
+    /**
+     * Exception for text that is not a decimal amount.
+     *
+     * @param text Parsed text.
+     * @return Exception.
+     */
+    private static NumberFormatException invalid(final CharSequence text) {
+        return new NumberFormatException(
+            String.format("'%s' is not a decimal amount", text)
+        );
+    }
+}
@@ -0,0 +1,715 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Month;
+
+/**
+ * Block of request lines staged in direct buffers, so a batch run creates
+ * no objects for the rows of the block. The lines are read into an input
+ * buffer and parsed into fixed-layout records of name offsets, salary
+ * cents, super rate basis points and months. The calculation writes the
+ * amounts of every record into a result buffer and the encoding writes the
+ * output lines into an output buffer, which goes to the output file as is.
+ *
+ * <p>Only plain lines are staged: ASCII lines with a valid request, a super
+ * rate of whole basis points and amounts that fit the tax schedule. Every
+ * other line, including rejected lines, is left to the object path of the
+ * batch, so the output and the reported errors stay the same. The records
+ * are reused for the next block, not thread safe.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class OffHeapRecords {
+
+    /**
+     * Default size of the input buffer in bytes.
+     */
+    static final int DEFAULT_BLOCK = 1 << 20;
+
+    /**
+     * Default amount of records of a block.
+     */
+    static final int DEFAULT_RECORDS = 1 << 15;
+
+    /**
+     * Record offset of the line start in the input buffer.
+     */
+    private static final int LINE_START = 0;
+
+    /**
+     * Record offset of the line end in the input buffer.
+     */
+    private static final int LINE_END = 4;
+
+    /**
+     * Record offset of the forename start.
+     */
+    private static final int FORENAME_START = 8;
+
+    /**
+     * Record offset of the forename end.
+     */
+    private static final int FORENAME_END = 12;
+
+    /**
+     * Record offset of the surname start.
+     */
+    private static final int SURNAME_START = 16;
+
+    /**
+     * Record offset of the surname end.
+     */
+    private static final int SURNAME_END = 20;
+
+    /**
+     * Record offset of the annual salary in cents.
+     */
+    private static final int CENTS = 24;
+
+    /**
+     * Record offset of the super rate in basis points.
+     */
+    private static final int RATE = 32;
+
+    /**
+     * Record offset of the first month, zero for January.
+     */
+    private static final int MONTH = 36;
+
+    /**
+     * Record offset of the amount of months.
+     */
+    private static final int MONTHS = 37;
+
+    /**
+     * Record offset of the staged flag, zero for lines of the object path.
+     */
+    private static final int STAGED = 38;
+
+    /**
+     * Size of a record in bytes.
+     */
+    private static final int RECORD = 40;
+
+    /**
+     * Result offset of the monthly salary.
+     */
+    private static final int SALARY = 0;
+
+    /**
+     * Result offset of the monthly tax.
+     */
+    private static final int TAX = 4;
+
+    /**
+     * Result offset of the monthly net income.
+     */
+    private static final int NET = 8;
+
+    /**
+     * Result offset of the monthly superannuation.
+     */
+    private static final int SUPER = 12;
+
+    /**
+     * Size of a result in bytes.
+     */
+    private static final int RESULT = 16;
+
+    /**
+     * Largest amount of bytes of a staged name.
+     */
+    private static final int NAME_LIMIT = 1_024;
+
+    /**
+     * Largest amount of bytes of the fixed parts of an output line.
+     */
+    private static final int FIXED = 192;
+
+    /**
+     * Size of the output buffer in bytes, which holds the lines of any
+     * staged record.
+     */
+    private static final int OUTPUT = 1 << 16;
+
+    /**
+     * Super rate basis points of one percent.
+     */
+    private static final int PERCENT = 100;
+
+    /**
+     * Largest super rate in basis points.
+     */
+    private static final int MAX_RATE = OffHeapRecords.PERCENT
+        * PayslipProcessor.MAX_SUPER_RATE.intValueExact();
+
+    /**
+     * Super rate basis points of the whole rate.
+     */
+    private static final int WHOLE = 10_000;
+
+    /**
+     * Divisor of the monthly salary from the annual salary in cents.
+     */
+    private static final long MONTHLY = 12L * Money.CENTS;
+
+    /**
+     * Radix of numbers.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Months in month order.
+     */
+    private static final Month[] MONTH_NAMES = Month.values();
+
+    /**
+     * Whether the output lines are JSON instead of comma separated.
+     */
+    private final boolean json;
+
+    /**
+     * UTF-8 bytes of the period of every month.
+     */
+    private final byte[][] periods;
+
+    /**
+     * Records of the lines of the block.
+     */
+    private final ByteBuffer records;
+
+    /**
+     * Amounts of the records.
+     */
+    private final ByteBuffer results;
+
+    /**
+     * Encoded output lines.
+     */
+    private final ByteBuffer output;
+
+    /**
+     * Receives the cents of a parsed salary.
+     */
+    private final long[] cents;
+
+    /**
+     * Receives the first and the last month of a parsed line.
+     */
+    private final int[] range;
+
+    /**
+     * Receives the digits of an encoded number.
+     */
+    private final byte[] digits;
+
+    /**
+     * Lines of the block.
+     */
+    private ByteBuffer input;
+
+    /**
+     * Fields of the parsed line of the input.
+     */
+    private FieldScanner fields;
+
+    /**
+     * Amount of records of the block.
+     */
+    private int count;
+
+    /**
+     * Amount of input bytes of the lines of the block.
+     */
+    private int consumed;
+
+    /**
+     * Records with the default sizes.
+     *
+     * @param format Output format, which is not sorted.
+     */
+    OffHeapRecords(final OutputFormat format) {
+        this(
+            format, OffHeapRecords.DEFAULT_BLOCK, OffHeapRecords.DEFAULT_RECORDS
+        );
+    }
+
+    /**
+     * Records constructor.
+     *
+     * @param format Output format, which is not sorted.
+     * @param block Initial size of the input buffer in bytes, which grows
+     *  for longer lines.
+     * @param capacity Largest amount of records of a block.
+     */
+    OffHeapRecords(
+        final OutputFormat format,
+        final int block,
+        final int capacity) {
+        this.json = format == OutputFormat.JSON;
+        this.periods = new byte[OffHeapRecords.MONTH_NAMES.length][];
+        for (final Month month : OffHeapRecords.MONTH_NAMES) {
+            this.periods[month.ordinal()] = PayslipResult
+                .toDisplayMonthRange(month)
+                .getBytes(StandardCharsets.UTF_8);
+        }
+        this.records = ByteBuffer.allocateDirect(
+            capacity * OffHeapRecords.RECORD
+        );
+        this.results = ByteBuffer.allocateDirect(
+            capacity * OffHeapRecords.RESULT
+        );
+        this.output = ByteBuffer.allocateDirect(OffHeapRecords.OUTPUT);
+        this.cents = new long[1];
+        this.range = new int[2];
+        this.digits = new byte[AsciiDigits.MAX_LENGTH];
+        this.input = ByteBuffer.allocateDirect(block);
+        this.fields =
+            new FieldScanner(this.input, FieldScanner.isAsciiLocale());
+    }
+
+    /**
+     * Reads the lines from {@code position} into the block and parses them,
+     * as many as fit the input buffer and the records.
+     *
+     * @param channel Input channel.
+     * @param position Offset of the first line.
+     * @param end Offset after the last line.
+     * @return Amount of bytes of the lines of the block, including their
+     *  separators.
+     * @throws IOException When reading fails or the file got shorter.
+     */
+    int load(final FileChannel channel, final long position, final long end)
+        throws IOException {
+        boolean loaded = false;
+        while (!loaded) {
+            this.input.clear();
+            this.input.limit(
+                (int) Math.min(this.input.capacity(), end - position)
+            );
+            while (this.input.hasRemaining()) {
+                final int read = channel.read(
+                    this.input, position + this.input.position()
+                );
+                if (read < 0) {
+                    throw new EOFException("the input file got shorter");
+                }
+            }
+            this.input.flip();
+            final boolean last = position + this.input.limit() >= end;
+            this.parse(last);
+            loaded = this.count > 0 || last;
+            if (!loaded) {
+                this.input =
+                    ByteBuffer.allocateDirect(2 * this.input.capacity());
+                this.fields = new FieldScanner(
+                    this.input, FieldScanner.isAsciiLocale()
+                );
+            }
+        }
+        return this.consumed;
+    }
+
+    /**
+     * Amount of records of the block, one for every line.
+     *
+     * @return Amount of records.
+     */
+    int size() {
+        return this.count;
+    }
+
+    /**
+     * Calculates the amounts of the staged records like {@link
+     * PayslipProcessor#processMonths(PayslipRequest)}. A record whose
+     * amounts do not fit the schedule or an {@code int} is left to the
+     * object path, which reports it.
+     *
+     * @param schedule Tax schedule.
+     */
+    void calculate(final TaxSchedule schedule) {
+        final long limit = schedule.limit();
+        for (int index = 0; index < this.count; ++index) {
+            final int record = index * OffHeapRecords.RECORD;
+            final long salary =
+                this.records.getLong(record + OffHeapRecords.CENTS);
+            final long income = Money.halfUp(salary, OffHeapRecords.MONTHLY);
+            boolean staged = this.isStaged(index) && salary <= limit
+                && income <= Integer.MAX_VALUE;
+            long tax = 0L;
+            if (staged) {
+                try {
+                    tax = schedule.monthly(salary);
+                } catch (final ArithmeticException aex) {
+                    staged = false;
+                }
+            }
+            staged = staged && tax >= 0L && tax <= Integer.MAX_VALUE;
+            if (staged) {
+                final int result = index * OffHeapRecords.RESULT;
+                final long rate =
+                    this.records.getInt(record + OffHeapRecords.RATE);
+                this.results.putInt(
+                    result + OffHeapRecords.SALARY, (int) income
+                );
+                this.results.putInt(result + OffHeapRecords.TAX, (int) tax);
+                this.results.putInt(
+                    result + OffHeapRecords.NET, (int) (income - tax)
+                );
+                this.results.putInt(
+                    result + OffHeapRecords.SUPER,
+                    (int) (income * rate / OffHeapRecords.WHOLE)
+                );
+            } else {
+                this.records.put(record + OffHeapRecords.STAGED, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Whether a record is staged, otherwise its line takes the object path.
+     *
+     * @param index Record index.
+     * @return True when staged.
+     */
+    boolean isStaged(final int index) {
+        return this.records.get(
+            index * OffHeapRecords.RECORD + OffHeapRecords.STAGED
+        ) != 0;
+    }
+
+    /**
+     * Line of a record, for the object path.
+     *
+     * @param index Record index.
+     * @return Line without separator.
+     */
+    String line(final int index) {
+        final int record = index * OffHeapRecords.RECORD;
+        final int start =
+            this.records.getInt(record + OffHeapRecords.LINE_START);
+        final byte[] bytes = new byte[
+            this.records.getInt(record + OffHeapRecords.LINE_END) - start
+        ];
+        for (int pos = 0; pos < bytes.length; ++pos) {
+            bytes[pos] = this.input.get(start + pos);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the output lines of a calculated staged record, one for every
+     * month, and adds them to the totals.
+     *
+     * @param index Record index.
+     * @param totals Running totals.
+     * @param out Batch output, which receives the full output buffer.
+     * @throws IOException When writing fails.
+     */
+    void encode(
+        final int index,
+        final BatchTotals totals,
+        final BatchOutput out) throws IOException {
+        final int record = index * OffHeapRecords.RECORD;
+        final int result = index * OffHeapRecords.RESULT;
+        final int salary =
+            this.results.getInt(result + OffHeapRecords.SALARY);
+        final int tax = this.results.getInt(result + OffHeapRecords.TAX);
+        final int net = this.results.getInt(result + OffHeapRecords.NET);
+        final int superann =
+            this.results.getInt(result + OffHeapRecords.SUPER);
+        final int first = this.records.get(record + OffHeapRecords.MONTH);
+        final int months = this.records.get(record + OffHeapRecords.MONTHS);
+        final int size = OffHeapRecords.FIXED
+            + this.records.getInt(record + OffHeapRecords.FORENAME_END)
+            - this.records.getInt(record + OffHeapRecords.FORENAME_START)
+            + this.records.getInt(record + OffHeapRecords.SURNAME_END)
+            - this.records.getInt(record + OffHeapRecords.SURNAME_START);
+        for (int month = 0; month < months; ++month) {
+            if (this.output.remaining() < size) {
+                this.flush(out);
+            }
+            if (this.json) {
+                this.output.put(JsonLineEncoder.NAME);
+                this.name(record);
+                this.output.put(JsonLineEncoder.PERIOD);
+                this.output.put(this.periods[
+                    (first + month) % OffHeapRecords.MONTH_NAMES.length
+                ]);
+                this.output.put(JsonLineEncoder.SALARY);
+                this.number(salary);
+                this.output.put(JsonLineEncoder.TAX);
+                this.number(tax);
+                this.output.put(JsonLineEncoder.NET);
+                this.number(net);
+                this.output.put(JsonLineEncoder.SUPER);
+                this.number(superann);
+                this.output.put((byte) '}');
+            } else {
+                this.name(record);
+                this.output.put((byte) ',');
+                this.output.put(this.periods[
+                    (first + month) % OffHeapRecords.MONTH_NAMES.length
+                ]);
+                this.output.put((byte) ',');
+                this.number(salary);
+                this.output.put((byte) ',');
+                this.number(tax);
+                this.output.put((byte) ',');
+                this.number(net);
+                this.output.put((byte) ',');
+                this.number(superann);
+            }
+            this.output.put((byte) '\n');
+            totals.add(salary, tax, superann);
+        }
+    }
+
+    /**
+     * Writes the encoded output lines to the batch output.
+     *
+     * @param out Batch output.
+     * @throws IOException When writing fails.
+     */
+    void flush(final BatchOutput out) throws IOException {
+        this.output.flip();
+        if (this.output.hasRemaining()) {
+            out.write(this.output);
+        }
+        this.output.clear();
+    }
+
+    /**
+     * Parses the lines of the input buffer into records, up to the record
+     * capacity. The last line of the input only counts without a line
+     * separator when it ends the range.
+     *
+     * @param last Whether the input buffer ends the range.
+     */
+    private void parse(final boolean last) {
+        final int capacity = this.records.capacity() / OffHeapRecords.RECORD;
+        final int limit = this.input.limit();
+        this.count = 0;
+        this.consumed = 0;
+        boolean more = true;
+        while (more && this.count < capacity) {
+            int stop = this.consumed;
+            while (stop < limit && this.input.get(stop) != '\n') {
+                stop += 1;
+            }
+            more = stop < limit || last && this.consumed < limit;
+            if (more) {
+                int end = stop;
+                if (end > this.consumed && this.input.get(end - 1) == '\r') {
+                    end -= 1;
+                }
+                this.record(this.count, this.consumed, end);
+                this.count += 1;
+                this.consumed = Math.min(stop + 1, limit);
+            }
+        }
+    }
+
+    /**
+     * Parses a line into a record, which is staged when the line is a plain
+     * valid request.
+     *
+     * @param index Record index.
+     * @param from Start of the line.
+     * @param until End of the line without its line terminator.
+     */
+    private void record(final int index, final int from, final int until) {
+        final int record = index * OffHeapRecords.RECORD;
+        this.records.putInt(record + OffHeapRecords.LINE_START, from);
+        this.records.putInt(record + OffHeapRecords.LINE_END, until);
+        final boolean staged = this.fields.split(from, until)
+            == PayslipRequestParser.PARSE_LEN
+            && this.fields.isAscii()
+            && this.names(record)
+            && this.salary(record)
+            && this.rate(record)
+            && this.months(record);
+        this.records.put(
+            record + OffHeapRecords.STAGED, (byte) (staged ? 1 : 0)
+        );
+    }
+
+    /**
+     * Stores the names in their slots. A name is staged when it needs no
+     * escaping in JSON and fits the output buffer.
+     *
+     * @param record Record offset.
+     * @return True when the names can be staged.
+     */
+    private boolean names(final int record) {
+        this.records.putInt(
+            record + OffHeapRecords.FORENAME_START, this.fields.start(0)
+        );
+        this.records.putInt(
+            record + OffHeapRecords.FORENAME_END, this.fields.end(0)
+        );
+        this.records.putInt(
+            record + OffHeapRecords.SURNAME_START, this.fields.start(1)
+        );
+        this.records.putInt(
+            record + OffHeapRecords.SURNAME_END, this.fields.end(1)
+        );
+        return this.plain(0) && this.plain(1);
+    }
+
+    /**
+     * Whether a name field can be copied to the output as is.
+     *
+     * @param field Field index.
+     * @return True when the name is short and needs no escaping.
+     */
+    private boolean plain(final int field) {
+        final int end = this.fields.end(field);
+        int pos = this.fields.start(field);
+        boolean plain = end - pos <= OffHeapRecords.NAME_LIMIT;
+        for (; plain && pos < end; ++pos) {
+            final byte chr = this.input.get(pos);
+            plain = chr >= FieldScanner.SPACE && chr != '"' && chr != '\\';
+        }
+        return plain;
+    }
+
+    /**
+     * Parses the salary field into the cents slot.
+     *
+     * @param record Record offset.
+     * @return True when the salary is a positive number.
+     */
+    private boolean salary(final int record) {
+        final int field = PayslipRequestParser.ANNUAL_SALARY_I;
+        final boolean valid =
+            Money.tryParse(this.fields.field(field), this.cents);
+        this.records.putLong(record + OffHeapRecords.CENTS, this.cents[0]);
+        return valid && this.cents[0] > 0L;
+    }
+
+    /**
+     * Parses the super rate field into the rate slot. Only a plain number
+     * of at most two nonzero decimals in range is staged.
+     *
+     * @param record Record offset.
+     * @return True when the rate can be staged.
+     */
+    private boolean rate(final int record) {
+        final int field = PayslipRequestParser.SUPER_RATE_I;
+        int pos = this.fields.start(field);
+        final int end = this.fields.end(field) - 1;
+        boolean valid = end > pos && this.input.get(end) == '%';
+        if (valid && this.input.get(pos) == '+') {
+            pos += 1;
+        }
+        int whole = 0;
+        int fraction = 0;
+        int decimals = -1;
+        int digits = 0;
+        for (; valid && pos < end; ++pos) {
+            final byte chr = this.input.get(pos);
+            if (chr >= '0' && chr <= '9') {
+                final int digit = chr - '0';
+                digits += 1;
+                if (decimals < 0) {
+                    whole = Math.min(
+                        whole * OffHeapRecords.RADIX + digit,
+                        OffHeapRecords.MAX_RATE
+                    );
+                } else if (decimals < 2) {
+                    fraction = fraction * OffHeapRecords.RADIX + digit;
+                    decimals += 1;
+                } else {
+                    valid = digit == 0;
+                }
+            } else if (chr == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                valid = false;
+            }
+        }
+        for (; decimals < 2; ++decimals) {
+            fraction *= OffHeapRecords.RADIX;
+        }
+        final long rate = (long) whole * OffHeapRecords.PERCENT + fraction;
+        this.records.putInt(record + OffHeapRecords.RATE, (int) rate);
+        return valid && digits > 0 && rate <= OffHeapRecords.MAX_RATE;
+    }
+
+    /**
+     * Parses the month field, a month or a range of months, into the month
+     * slots.
+     *
+     * @param record Record offset.
+     * @return True when the months are valid.
+     */
+    private boolean months(final int record) {
+        final boolean valid =
+            this.fields.months(PayslipRequestParser.MONTH_I, this.range);
+        if (valid) {
+            final int first = this.range[0];
+            final int last = this.range[1];
+            this.records.put(record + OffHeapRecords.MONTH, (byte) first);
+            this.records.put(
+                record + OffHeapRecords.MONTHS,
+                (byte) (
+                    Math.floorMod(
+                        last - first, OffHeapRecords.MONTH_NAMES.length
+                    ) + 1
+                )
+            );
+        }
+        return valid;
+    }
+
+    /**
+     * Appends the full name of a record to the output buffer.
+     *
+     * @param record Record offset.
+     */
+    private void name(final int record) {
+        this.copy(
+            this.records.getInt(record + OffHeapRecords.FORENAME_START),
+            this.records.getInt(record + OffHeapRecords.FORENAME_END)
+        );
+        this.output.put((byte) ' ');
+        this.copy(
+            this.records.getInt(record + OffHeapRecords.SURNAME_START),
+            this.records.getInt(record + OffHeapRecords.SURNAME_END)
+        );
+    }
+
+    /**
+     * Appends input bytes to the output buffer.
+     *
+     * @param from Start of the bytes.
+     * @param until End of the bytes.
+     */
+    private void copy(final int from, final int until) {
+        for (int pos = from; pos < until; ++pos) {
+            this.output.put(this.input.get(pos));
+        }
+    }
+
+    /**
+     * Appends the ASCII digits of a number to the output buffer.
+     *
+     * @param value Number.
+     */
+    private void number(final int value) {
+        this.output.put(
+            this.digits, 0, AsciiDigits.encode(value, this.digits, 0)
+        );
+    }
+}
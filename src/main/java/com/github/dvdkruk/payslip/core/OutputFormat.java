@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.Locale;
+
+/**
+ * Format of the result lines of a batch run.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public enum OutputFormat {
+
+    /**
+     * Comma separated lines, like {@link PayslipResult#toString()}.
+     */
+    CSV,
+
+    /**
+     * JSON Lines, one object per result with the same values as the comma
+     * separated lines.
+     */
+    JSON;
+
+    /**
+     * Parses a format name.
+     *
+     * @param name Format name, {@code csv} or {@code json}.
+     * @return The format.
+     * @throws PayslipException When the name is unknown.
+     */
+    public static OutputFormat parse(final String name) {
+        try {
+            return OutputFormat.valueOf(name.toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException iae) {
+            throw new PayslipException(
+                String.format("%s is an invalid output format", name),
+                iae
+            );
+        }
+    }
+}
@@ -0,0 +1,437 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.OffsetLineReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Processes a file with one request per line into a file with one result
+ * per line. The run writes a checkpoint every configured amount of lines,
+ * after forcing its output to disk, so an interrupted run can be resumed
+ * from its last checkpoint instead of from the first line.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipBatch {
+
+    /**
+     * Separator between the line number and the content of sequenced lines.
+     */
+    static final char SEQUENCE_SEPARATOR = '\t';
+
+    /**
+     * Payslip processor.
+     */
+    private final PayslipProcessor processor;
+
+    /**
+     * Batch settings.
+     */
+    private final BatchSettings settings;
+
+    /**
+     * Sink for rows that could not be processed.
+     */
+    private final ErrorSink errors;
+
+    /**
+     * Progress of the run.
+     */
+    private final BatchProgress progress;
+
+    /**
+     * Batch constructor without progress output.
+     *
+     * @param processor A processor.
+     * @param settings Batch settings.
+     * @param errors Rejected rows are reported to this sink.
+     */
+    public PayslipBatch(
+        final PayslipProcessor processor,
+        final BatchSettings settings,
+        final ErrorSink errors) {
+        this(processor, settings, errors, new BatchProgress());
+    }
+
+    /**
+     * Batch constructor.
+     *
+     * @param processor A processor.
+     * @param settings Batch settings.
+     * @param errors Rejected rows are reported to this sink.
+     * @param progress Progress of the run, which is closed by the caller.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    public PayslipBatch(
+        final PayslipProcessor processor,
+        final BatchSettings settings,
+        final ErrorSink errors,
+        final BatchProgress progress) {
+        this.processor = processor;
+        this.settings = settings;
+        this.errors = errors;
+        this.progress = progress;
+    }
+
+    /**
+     * Runs the batch.
+     *
+     * @return Totals of the complete run, including resumed parts.
+     * @throws IOException When reading input or writing output fails.
+     */
+    public BatchTotals run() throws IOException {
+        final boolean sorted = this.settings.getSort() != null;
+        if (sorted && this.settings.isResume()) {
+            throw new PayslipException("sorted output cannot be resumed");
+        }
+        if (sorted && this.settings.getFormat() == OutputFormat.JSON) {
+            throw new PayslipException("JSON output cannot be sorted");
+        }
+        if (this.settings.isOffHeap()
+            && (sorted || this.settings.isSequenced())) {
+            throw new PayslipException(
+                "off-heap runs cannot be sorted or read sequenced input"
+            );
+        }
+        if (this.settings.isRanged()
+            && (this.settings.isOffHeap() || this.settings.isSequenced())) {
+            throw new PayslipException(
+                "a byte range cannot be staged off-heap or read sequenced"
+            );
+        }
+        if (this.settings.getEmployees() != null
+            && (this.settings.isOffHeap()
+            || this.settings.getDuplicates() != null)) {
+            throw new PayslipException(
+                "pay-run lines cannot be staged or checked for duplicates"
+            );
+        }
+        final Checkpoint start = this.start();
+        this.progress.begin(
+            Files.size(this.settings.getInput()), start.getInputOffset()
+        );
+        final DuplicateDetector.Duplicates duplicates = this.duplicates();
+        final EmployeeIndex employees = this.employees();
+        this.progress.stage("process");
+        final BatchTotals totals = start.getTotals();
+        try (BatchOutput output = this.open(start)) {
+            if (this.settings.isOffHeap()) {
+                this.blocks(start, duplicates, output, totals);
+            } else {
+                this.lines(start, duplicates, employees, output, totals);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Processes the input line by line.
+     *
+     * @param start Checkpoint to start from.
+     * @param duplicates Duplicate lines of the input.
+     * @param employees Employees of pay-run lines or {@code null}.
+     * @param output Batch output.
+     * @param totals Running totals.
+     * @throws IOException When reading input or writing output fails.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    private void lines(
+        final Checkpoint start,
+        final DuplicateDetector.Duplicates duplicates,
+        final EmployeeIndex employees,
+        final BatchOutput output,
+        final BatchTotals totals) throws IOException {
+        final boolean sorted = this.settings.getSort() != null;
+        final Path marker = this.settings.getCheckpoint();
+        final int interval = this.settings.getInterval();
+        long line = start.getLine();
+        long position = start.getInputOffset();
+        long end = Long.MAX_VALUE;
+        if (this.settings.isRanged()) {
+            end = this.settings.getEnd();
+        }
+        try (
+            OffsetLineReader reader = new OffsetLineReader(
+                this.settings.getInput(), start.getInputOffset()
+            )
+        ) {
+            boolean done = false;
+            while (!done) {
+                String request = null;
+                if (reader.offset() < end) {
+                    request = reader.readLine();
+                }
+                this.progress.read(reader.offset() - position);
+                position = reader.offset();
+                done = request == null;
+                if (done) {
+                    this.progress.stage("write");
+                    output.finish();
+                } else {
+                    line += 1;
+                    this.progress.row();
+                    if (this.admit(duplicates, line, totals)) {
+                        this.process(
+                            request, line, employees, output, totals
+                        );
+                    }
+                }
+                if (done || !sorted && interval > 0 && line % interval == 0) {
+                    output.sync();
+                    new Checkpoint(
+                        reader.offset(), output.offset(), line, totals
+                    ).store(marker);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the input in blocks of {@link OffHeapRecords}. Plain lines
+     * are calculated and encoded in direct buffers, the other lines are
+     * processed one by one like in the line by line run. A checkpoint is
+     * written after the block that reaches the next checkpoint interval.
+     *
+     * @param start Checkpoint to start from.
+     * @param duplicates Duplicate lines of the input.
+     * @param output Batch output.
+     * @param totals Running totals.
+     * @throws IOException When reading input or writing output fails.
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private void blocks(
+        final Checkpoint start,
+        final DuplicateDetector.Duplicates duplicates,
+        final BatchOutput output,
+        final BatchTotals totals) throws IOException {
+        final Path marker = this.settings.getCheckpoint();
+        final int interval = this.settings.getInterval();
+        final TaxSchedule schedule = this.processor.schedule();
+        final OffHeapRecords records =
+            new OffHeapRecords(this.settings.getFormat());
+        long line = start.getLine();
+        long position = start.getInputOffset();
+        try (
+            FileChannel channel = FileChannel.open(
+                this.settings.getInput(), StandardOpenOption.READ
+            )
+        ) {
+            final long size = channel.size();
+            while (position < size) {
+                final long first = line;
+                final int consumed = records.load(channel, position, size);
+                position += consumed;
+                records.calculate(schedule);
+                for (int index = 0; index < records.size(); ++index) {
+                    line += 1L;
+                    this.progress.row();
+                    final boolean admitted =
+                        this.admit(duplicates, line, totals);
+                    if (admitted && records.isStaged(index)) {
+                        records.encode(index, totals, output);
+                    } else if (admitted) {
+                        records.flush(output);
+                        this.process(
+                            records.line(index), line, null, output, totals
+                        );
+                    }
+                }
+                records.flush(output);
+                this.progress.read(consumed);
+                if (interval > 0 && line / interval > first / interval) {
+                    output.sync();
+                    new Checkpoint(
+                        position, output.offset(), line, totals
+                    ).store(marker);
+                }
+            }
+        }
+        this.progress.stage("write");
+        output.finish();
+        output.sync();
+        new Checkpoint(position, output.offset(), line, totals).store(marker);
+    }
+
+    /**
+     * Processes a single request line and writes its result.
+     *
+     * @param request Request line.
+     * @param line Line number of the request.
+     * @param employees Employees of pay-run lines or {@code null}.
+     * @param output Batch output.
+     * @param totals Running totals.
+     * @throws IOException When writing fails.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    private void process(
+        final String request,
+        final long line,
+        final EmployeeIndex employees,
+        final BatchOutput output,
+        final BatchTotals totals) throws IOException {
+        String content = request;
+        long number = line;
+        String prefix = "";
+        if (this.settings.isSequenced()) {
+            final int split = request.indexOf(PayslipBatch.SEQUENCE_SEPARATOR);
+            if (split < 1) {
+                throw new IOException(
+                    String.format("line %d has no line number prefix", line)
+                );
+            }
+            prefix = request.substring(0, split + 1);
+            number = Long.parseLong(prefix.trim());
+            content = request.substring(split + 1);
+        } else if (this.settings.isRanged()) {
+            prefix = new StringBuilder()
+                .append(line)
+                .append(PayslipBatch.SEQUENCE_SEPARATOR)
+                .toString();
+        }
+        if (!content.trim().isEmpty()) {
+            try {
+                final PayslipRequest parsed = new PayslipRequestParser(
+                    content, employees
+                ).toPayslipRequest();
+                for (final PayslipResult result
+                    : this.processor.processMonths(parsed)) {
+                    output.write(parsed, result, prefix);
+                    totals.add(result);
+                }
+            } catch (final PayslipException pex) {
+                totals.fail();
+                this.progress.fail();
+                this.errors.report(number, pex);
+            }
+        }
+    }
+
+    /**
+     * Reports a duplicate line and decides whether it is processed.
+     *
+     * @param duplicates Duplicate lines of the input.
+     * @param line Line number.
+     * @param totals Running totals, skipped lines count as failed.
+     * @return True when the line is processed.
+     */
+    private boolean admit(
+        final DuplicateDetector.Duplicates duplicates,
+        final long line,
+        final BatchTotals totals) {
+        final long first = duplicates.firstOf(line);
+        boolean admitted = true;
+        if (first > 0L) {
+            this.errors.report(
+                line,
+                new PayslipException(
+                    ErrorCode.DUPLICATE, Long.toString(first)
+                )
+            );
+            if (this.settings.getDuplicates() == DuplicatePolicy.SKIP) {
+                totals.fail();
+                this.progress.fail();
+                admitted = false;
+            }
+        }
+        return admitted;
+    }
+
+    /**
+     * Duplicate lines of the input, found before the run when the settings
+     * have a duplicate policy. The whole input is scanned, also when the run
+     * is resumed, so line numbers stay those of the input.
+     *
+     * @return Duplicate lines.
+     * @throws IOException When reading the input fails.
+     */
+    private DuplicateDetector.Duplicates duplicates() throws IOException {
+        DuplicateDetector.Duplicates duplicates =
+            DuplicateDetector.Duplicates.NONE;
+        if (this.settings.getDuplicates() != null) {
+            if (this.settings.isSequenced()) {
+                throw new PayslipException(
+                    "sequenced input cannot be checked for duplicates"
+                );
+            }
+            this.progress.stage("duplicates");
+            duplicates = new DuplicateDetector(
+                this.settings.getOutput().toAbsolutePath().getParent(),
+                DuplicateDetector.DEFAULT_BUDGET,
+                DuplicateDetector.DEFAULT_FPP
+            ).scan(this.settings.getInput());
+        }
+        return duplicates;
+    }
+
+    /**
+     * Employees of pay-run lines, loaded before the run when the settings
+     * have an employee file.
+     *
+     * @return Employees or {@code null} for request lines with names.
+     * @throws IOException When reading the employee file fails.
+     */
+    private EmployeeIndex employees() throws IOException {
+        EmployeeIndex employees = null;
+        if (this.settings.getEmployees() != null) {
+            this.progress.stage("employees");
+            employees = EmployeeIndex.load(this.settings.getEmployees());
+        }
+        return employees;
+    }
+
+    /**
+     * Opens the output at the output offset of {@code start}.
+     *
+     * @param start Checkpoint to start from.
+     * @return Batch output.
+     * @throws IOException When the output cannot be opened.
+     */
+    private BatchOutput open(final Checkpoint start) throws IOException {
+        final Path output = this.settings.getOutput().toAbsolutePath();
+        ExternalSorter sorter = null;
+        JsonLineEncoder json = null;
+        if (this.settings.getFormat() == OutputFormat.JSON) {
+            json = new JsonLineEncoder();
+        }
+        if (this.settings.getSort() != null) {
+            sorter = new ExternalSorter(
+                this.settings.getSort(),
+                output.getParent(),
+                ExternalSorter.DEFAULT_BUDGET
+            );
+        }
+        return new BatchOutput(
+            new BatchWriter(output, start.getOutputOffset()), sorter, json
+        );
+    }
+
+    /**
+     * Checkpoint to start from, which is the last stored checkpoint when
+     * resuming or the start of the input or its byte range otherwise.
+     *
+     * @return Start checkpoint.
+     * @throws IOException When the checkpoint cannot be read.
+     */
+    private Checkpoint start() throws IOException {
+        final Path marker = this.settings.getCheckpoint();
+        final Checkpoint start;
+        if (this.settings.isResume() && Files.exists(marker)) {
+            start = Checkpoint.load(marker);
+        } else {
+            start = new Checkpoint(
+                this.settings.getStart(), 0L, this.settings.getBefore(),
+                new BatchTotals()
+            );
+        }
+        return start;
+    }
+}
@@ -6,10 +6,22 @@ package com.github.dvdkruk.payslip.core;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import java.io.BufferedReader;
 import java.io.Console;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Command line interface class for the monthly payslip application.
@@ -19,12 +31,6 @@ import java.util.logging.Logger;
  * @since 1.0
  */
 final class PayslipCli {
-    /**
-     * Logger.
-     */
-    private static final Logger LOG =
-        Logger.getLogger(PayslipCli.class.getName());
-
     /**
      * Payslip processor.
      */
@@ -63,9 +69,36 @@ final class PayslipCli {
      * @param args Program arguments.
      */
     private void start(final String... args) {
-        if (this.console == null) {
+        if (PayslipOptions.isOptions(args)) {
+            final PayslipOptions options = new PayslipOptions(args);
+            if (options.has("pipe")) {
+                this.runPipe(options);
+            } else if (options.has("gross-up")) {
+                PayslipCli.runGrossUp(options);
+            } else if (options.has("scenarios")) {
+                PayslipCli.runScenarios(options);
+            } else if (options.has("components")) {
+                PayslipCli.runComponents(options);
+            } else if (options.has("validate")) {
+                PayslipCli.runValidate(options);
+            } else {
+                this.runBatch(options);
+            }
+        } else if (this.console == null) {
             throw new PayslipCliRuntimeException();
+        } else {
+            this.runConsole(args);
         }
+    }
+
+    /**
+     * Runs the interactive mode without arguments, otherwise processes the
+     * arguments once. Rejected requests are reported right away, so an
+     * error appears before the next prompt or result.
+     *
+     * @param args Program arguments.
+     */
+    private void runConsole(final String... args) {
         if (args.length == 0) {
             this.runInteractiveMode();
         } else {
@@ -73,31 +106,488 @@ final class PayslipCli {
         }
     }
 
+    /**
+     * Runs co-process mode, which answers framed requests on standard input
+     * with framed responses on standard output. Responses are flushed every
+     * {@code --batch} responses or after {@code --latency} milliseconds.
+     * With {@code --rules} the tax rules of that file are used and reloaded
+     * when the file changes.
+     *
+     * @param options Command line options.
+     */
+    private void runPipe(final PayslipOptions options) {
+        final int batch = options.getInt("batch", PayslipPipe.DEFAULT_BATCH);
+        final int latency =
+            options.getInt("latency", PayslipPipe.DEFAULT_LATENCY);
+        try {
+            if (options.has("rules")) {
+                try (
+                    TaxRuleReloader rules = new TaxRuleReloader(
+                        Paths.get(options.get("rules")), System.err
+                    )
+                ) {
+                    new PayslipPipe(rules, batch, latency)
+                        .run(System.in, System.out);
+                }
+            } else {
+                new PayslipPipe(this.processor, batch, latency)
+                    .run(System.in, System.out);
+            }
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    /**
+     * Runs gross-up mode, which reads target net monthly incomes from {@code
+     * --input} and writes them with the smallest annual salary that yields
+     * them to {@code --output}. Rejected targets are reported on standard
+     * error.
+     *
+     * @param options Command line options.
+     */
+    private static void runGrossUp(final PayslipOptions options) {
+        final GrossUp gross = new GrossUp(
+            TaxSchedule.compile(DefaultTaxRuleFactory.DEFAULT)
+        );
+        try (
+            BufferedReader reader = Files.newBufferedReader(
+                Paths.get(options.get("input")), StandardCharsets.UTF_8
+            );
+            Writer writer = Files.newBufferedWriter(
+                Paths.get(options.get("output")), StandardCharsets.UTF_8
+            );
+            ErrorSink sink = new ErrorSink(new PrintWriter(System.err))
+        ) {
+            System.out.println(
+                String.format(
+                    "answered: %d", gross.run(reader, writer, sink)
+                )
+            );
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    /**
+     * Runs validation mode, which checks the requests of {@code --input}
+     * without calculating them and prints the rejected requests per error
+     * code with sample line numbers. Pay-run lines of {@code --employees}
+     * cannot be validated.
+     *
+     * @param options Command line options.
+     */
+    private static void runValidate(final PayslipOptions options) {
+        if (options.has("employees")) {
+            throw new PayslipException(
+                "validation cannot reference employees by id"
+            );
+        }
+        try {
+            System.out.println(
+                new RequestValidator().scan(Paths.get(options.get("input")))
+            );
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    /**
+     * Runs scenario mode, which taxes the requests of {@code --input} with
+     * the baseline rules and the comma separated rule files of {@code
+     * --scenarios} in one pass. The per-row deltas are written to {@code
+     * --output} and the totals per scenario to standard output.
+     *
+     * @param options Command line options.
+     */
+    private static void runScenarios(final PayslipOptions options) {
+        final List<String> names = new ArrayList<>();
+        final List<List<TaxRule>> rules = new ArrayList<>();
+        try {
+            PayslipCli.readRules(options.get("scenarios"), names, rules);
+            final TaxScenarios scenarios = new TaxScenarios(names, rules);
+            try (
+                BufferedReader reader = Files.newBufferedReader(
+                    Paths.get(options.get("input")), StandardCharsets.UTF_8
+                );
+                Writer writer = Files.newBufferedWriter(
+                    Paths.get(options.get("output")), StandardCharsets.UTF_8
+                );
+                ErrorSink sink = new ErrorSink(new PrintWriter(System.err))
+            ) {
+                System.out.println(
+                    scenarios.summary(scenarios.run(reader, writer, sink))
+                );
+            }
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    /**
+     * Runs component mode, which merges the default rules and the comma
+     * separated rule files of {@code --components} into one schedule and
+     * writes the monthly total and the amount of every component per
+     * request of {@code --input} to {@code --output}. The totals per
+     * component are written to standard output.
+     *
+     * @param options Command line options.
+     */
+    private static void runComponents(final PayslipOptions options) {
+        final List<String> names = new ArrayList<>();
+        final List<List<TaxRule>> rules = new ArrayList<>();
+        names.add(CompositeSchedule.INCOME);
+        rules.add(DefaultTaxRuleFactory.DEFAULT);
+        try {
+            PayslipCli.readRules(options.get("components"), names, rules);
+            final CompositeSchedule schedule =
+                CompositeSchedule.compile(names, rules);
+            try (
+                BufferedReader reader = Files.newBufferedReader(
+                    Paths.get(options.get("input")), StandardCharsets.UTF_8
+                );
+                Writer writer = Files.newBufferedWriter(
+                    Paths.get(options.get("output")), StandardCharsets.UTF_8
+                );
+                ErrorSink sink = new ErrorSink(new PrintWriter(System.err))
+            ) {
+                System.out.println(
+                    schedule.summary(schedule.run(reader, writer, sink))
+                );
+            }
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    /**
+     * Reads comma separated rule files, named after the file without its
+     * extension.
+     *
+     * @param files Comma separated rule files.
+     * @param names Receives the names of the files.
+     * @param rules Receives the tax rules of the files.
+     * @throws IOException When a file cannot be read.
+     */
+    private static void readRules(
+        final String files,
+        final List<String> names,
+        final List<List<TaxRule>> rules) throws IOException {
+        for (final String file : files.split(",")) {
+            final Path path = Paths.get(file.trim());
+            final String name = path.getFileName().toString();
+            final int dot = name.lastIndexOf('.');
+            names.add(name.substring(0, dot > 0 ? dot : name.length()));
+            rules.add(
+                TaxScenarios.parseRules(
+                    Files.readAllLines(path, StandardCharsets.UTF_8)
+                )
+            );
+        }
+    }
+
+    /**
+     * Runs batch mode, which reads requests from {@code --input} and writes
+     * results to {@code --output}. A checkpoint is written every {@code
+     * --checkpoint} lines and {@code --resume} continues from the last
+     * checkpoint. With {@code --shards} the input is split by {@code
+     * --shard-by} over worker JVMs, which are started with the optional
+     * {@code --launcher} command prefix and run with {@code --worker}.
+     * {@code --sort} sorts the output by surname, month or net income.
+     * {@code --duplicates} reports or skips requests for an employee and
+     * month that an earlier line already requested.
+     * {@code --format json} writes JSON Lines instead of comma separated
+     * lines. {@code --progress} prints the throughput and the estimated
+     * remaining time to standard error every given amount of seconds and
+     * the wall time of every stage at the end. {@code --off-heap} stages
+     * plain request lines in direct buffers instead of objects. With {@code
+     * --employees} the input has pay-run lines that reference the employees
+     * of that file by ID.
+     * Rejected rows are written to {@code --errors} with periodic summaries
+     * on standard error, or to standard error without that option. A
+     * resumed run appends to the {@code --errors} file.
+     *
+     * @param options Command line options.
+     */
+    private void runBatch(final PayslipOptions options) {
+        final BatchSettings plain = new BatchSettings(
+            Paths.get(options.get("input")),
+            Paths.get(options.get("output"))
+        )
+            .withInterval(
+                options.getInt("checkpoint", BatchSettings.DEFAULT_INTERVAL)
+            )
+            .withResume(options.has("resume"))
+            .withSequenced(options.has("worker") && !options.has("range"))
+            .withSort(PayslipCli.sortKey(options))
+            .withDuplicates(PayslipCli.duplicatePolicy(options))
+            .withFormat(
+                OutputFormat.parse(options.getOr("format", "csv"))
+            )
+            .withOffHeap(options.has("off-heap"))
+            .withEmployees(PayslipCli.employees(options));
+        final BatchSettings settings = PayslipCli.range(plain, options);
+        try {
+            final BatchTotals totals;
+            if (options.has("errors")) {
+                try (
+                    PrintWriter details = new PrintWriter(
+                        Files.newBufferedWriter(
+                            Paths.get(options.get("errors")),
+                            StandardCharsets.UTF_8,
+                            PayslipCli.errorsOptions(settings)
+                        )
+                    );
+                    ErrorSink sink = new ErrorSink(
+                        details, System.err, ErrorSink.DEFAULT_PERIOD
+                    )
+                ) {
+                    totals = this.execute(options, settings, sink);
+                }
+            } else {
+                try (
+                    ErrorSink sink =
+                        new ErrorSink(new PrintWriter(System.err))
+                ) {
+                    totals = this.execute(options, settings, sink);
+                }
+            }
+            System.out.println(totals);
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    /**
+     * Options to open the {@code --errors} file with, which append to the
+     * rejected rows of the interrupted run when resuming.
+     *
+     * @param settings Batch settings.
+     * @return Open options.
+     */
+    private static OpenOption[] errorsOptions(final BatchSettings settings) {
+        final OpenOption[] options;
+        if (settings.isResume()) {
+            options = new OpenOption[] {
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+            };
+        } else {
+            options = new OpenOption[] {
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE,
+            };
+        }
+        return options;
+    }
+
+    /**
+     * Executes a batch run in this JVM or, with {@code --shards}, over
+     * worker JVMs.
+     *
+     * @param options Command line options.
+     * @param settings Batch settings.
+     * @param sink Sink for rejected rows of a run in this JVM.
+     * @return Totals of the run.
+     * @throws IOException When reading input or writing output fails.
+     */
+    private BatchTotals execute(
+        final PayslipOptions options,
+        final BatchSettings settings,
+        final ErrorSink sink) throws IOException {
+        final BatchTotals totals;
+        if (options.has("shards")) {
+            if (settings.getSort() != null) {
+                throw new PayslipException(
+                    "sharded output cannot be sorted"
+                );
+            }
+            if (settings.getDuplicates() != null) {
+                throw new PayslipException(
+                    "sharded input cannot be checked for duplicates"
+                );
+            }
+            if (settings.isOffHeap()) {
+                throw new PayslipException(
+                    "sharded input cannot be staged off-heap"
+                );
+            }
+            if (settings.getEmployees() != null) {
+                throw new PayslipException(
+                    "sharded input cannot reference employees by id"
+                );
+            }
+            if (options.has("errors")) {
+                throw new PayslipException(
+                    "sharded errors cannot be written to a file"
+                );
+            }
+            if (options.has("progress")) {
+                throw new PayslipException(
+                    "sharded progress cannot be reported"
+                );
+            }
+            totals = PayslipCli.coordinator(options, settings).run();
+        } else {
+            try (BatchProgress progress = PayslipCli.progress(options)) {
+                totals = new PayslipBatch(
+                    this.processor, settings, sink, progress
+                ).run();
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Coordinator of the shard workers of a batch.
+     *
+     * @param options Parsed options.
+     * @param settings Batch settings.
+     * @return Shard coordinator.
+     */
+    private static ShardCoordinator coordinator(
+        final PayslipOptions options,
+        final BatchSettings settings) {
+        final ShardCoordinator coordinator = new ShardCoordinator(
+            settings,
+            options.getInt("shards", 1),
+            ShardStrategy.parse(options.getOr("shard-by", "hash"))
+        );
+        final ShardCoordinator launched;
+        if (options.has("launcher")) {
+            launched = coordinator.withLauncher(
+                Arrays.asList(options.get("launcher").split("\\s+"))
+            );
+        } else {
+            launched = coordinator;
+        }
+        return launched;
+    }
+
+    /**
+     * Progress of the {@code --progress} option, which prints a progress line
+     * to standard error every given amount of seconds.
+     *
+     * @param options Command line options.
+     * @return Progress, silent when the option is not given.
+     */
+    private static BatchProgress progress(final PayslipOptions options) {
+        BatchProgress progress = new BatchProgress();
+        if (options.has("progress")) {
+            progress = new BatchProgress(
+                System.err,
+                TimeUnit.SECONDS.toMillis(options.getInt("progress", 0))
+            );
+        }
+        return progress;
+    }
+
+    /**
+     * Duplicate policy of the {@code --duplicates} option.
+     *
+     * @param options Command line options.
+     * @return Policy or {@code null} when duplicates are not detected.
+     */
+    private static DuplicatePolicy duplicatePolicy(
+        final PayslipOptions options) {
+        DuplicatePolicy policy = null;
+        if (options.has("duplicates")) {
+            policy = DuplicatePolicy.parse(options.get("duplicates"));
+        }
+        return policy;
+    }
+
+    /**
+     * Sort key of the {@code --sort} option.
+     *
+     * @param options Command line options.
+     * @return Sort key or {@code null} when the output is not sorted.
+     */
+    private static SortKey sortKey(final PayslipOptions options) {
+        SortKey key = null;
+        if (options.has("sort")) {
+            key = SortKey.parse(options.get("sort"));
+        }
+        return key;
+    }
+
+    /**
+     * Employee file of the {@code --employees} option.
+     *
+     * @param options Command line options.
+     * @return Employee file or {@code null} for request lines with names.
+     */
+    private static Path employees(final PayslipOptions options) {
+        Path file = null;
+        if (options.has("employees")) {
+            file = Paths.get(options.get("employees"));
+        }
+        return file;
+    }
+
+    /**
+     * Settings for the byte range of the {@code --range} option of a shard
+     * worker, given as {@code <start>,<end>,<lines before>}.
+     *
+     * @param settings Batch settings.
+     * @param options Command line options.
+     * @return Settings, unchanged when the option is not given.
+     * @throws PayslipException When the range is not three numbers.
+     */
+    private static BatchSettings range(
+        final BatchSettings settings,
+        final PayslipOptions options) {
+        BatchSettings ranged = settings;
+        if (options.has("range")) {
+            final String text = options.get("range");
+            final String[] parts = text.split(",", -1);
+            if (parts.length != 3) {
+                throw new PayslipException(
+                    String.format("%s is an invalid input range", text)
+                );
+            }
+            try {
+                ranged = settings.withRange(
+                    Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2])
+                );
+            } catch (final NumberFormatException nfe) {
+                throw new PayslipException(
+                    String.format("%s is an invalid input range", text), nfe
+                );
+            }
+        }
+        return ranged;
+    }
+
     /**
      * Executed the interactive mode.
      */
     private void runInteractiveMode() {
         this.printInteractiveModeText();
         boolean running = true;
+        long number = 0L;
         while (running) {
-            running = this.parseLine();
+            number += 1L;
+            running = this.parseLine(number);
         }
     }
 
     /**
      * Parses a line from the {@link PayslipCli#console}.
      *
+     * @param number Number of the line.
      * @return Is {@code false} when exit is parsed, else {@code true} is
      *  returned.
      */
-    private boolean parseLine() {
+    private boolean parseLine(final long number) {
         final String line = this.console.readLine();
         boolean proceed = true;
         if (!isNullOrEmpty(line)) {
             if ("exit".equals(line)) {
                 proceed = false;
             } else {
-                this.parse(line);
+                this.parse(line, number);
             }
         }
         return proceed;
@@ -126,15 +616,6 @@ final class PayslipCli {
         return string == null || string.trim().isEmpty();
     }
 
-    /**
-     * Parses and executes the given program argument.
-     *
-     * @param line A String containing the program arguments.
-     */
-    private void parse(final String line) {
-        this.parse(line, -1);
-    }
-
     /**
      * Run once with the given arguments.
      *
@@ -142,44 +623,29 @@ final class PayslipCli {
      */
     private void runOnce(final String... args) {
         for (int index = 0; index < args.length; ++index) {
-            this.parse(args[index], index);
+            this.parse(args[index], index + 1L);
         }
     }
 
     /**
-     * Parses and executes the given line. The index is used for given hints
-     * when to what argument is couldn't be successfully executed. When only one
-     * argument is, used index -1 or lower to disable argument number hints.
+     * Parses and executes the given line. A rejected line is written to the
+     * console with its number.
      *
      * @param line A String containing the program arguments.
-     * @param index Index for the argument number hint.
+     * @param number Line or argument number used in the error report.
      */
-    private void parse(final String line, final int index) {
+    private void parse(final String line, final long number) {
         try {
             final PayslipRequestParser parser = new PayslipRequestParser(line);
             final PayslipRequest request = parser.toPayslipRequest();
-            final PayslipResult result = this.processor.process(request);
-            this.console.writer().println(result.toString());
+            for (final PayslipResult result
+                : this.processor.processMonths(request)) {
+                this.console.writer().println(result.toString());
+            }
         } catch (final PayslipException pex) {
-            this.handle(pex, index);
-        }
-    }
-
-    /**
-     * Handles {@code pex} for argument {@code index}.
-     *
-     * @param pex Exception that need to be handled.
-     * @param index Argument index.
-     */
-    private void handle(final PayslipException pex, final int index) {
-        if (index < 0) {
-            final String msg =
-                String.format("error, argument: %s", index);
-            this.console.writer().println(msg);
-            LOG.log(Level.FINE, msg, pex);
-        } else {
-            this.console.writer().println(pex.getMessage());
-            LOG.log(Level.FINE, "error", pex);
+            this.console.writer().println(
+                String.format("line %d: %s", number, pex.getMessage())
+            );
         }
     }
 
@@ -4,7 +4,9 @@
 package com.github.dvdkruk.payslip.core;
 
 /**
- * A general exception for identifying errors in the Payslip tool.
+ * A general exception for identifying errors in the Payslip tool. Rejected
+ * requests carry an {@link ErrorCode} and the offending field, the message
+ * is only formatted when it is requested.
  *
  * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
  * @version $Id$
@@ -12,13 +14,41 @@ package com.github.dvdkruk.payslip.core;
  */
 public class PayslipException extends IllegalArgumentException {
 
+    /**
+     * Error code.
+     */
+    private final ErrorCode code;
+
+    /**
+     * Offending field.
+     */
+    private final String field;
+
+    /**
+     * Where the error occurred, like a line of a file, or {@code null}.
+     */
+    private final String location;
+
     /**
      * Payslip exception constructor.
      *
      * @param message Describing the exception.
      */
     public PayslipException(final String message) {
-        super(message);
+        this(ErrorCode.GENERAL, message);
+    }
+
+    /**
+     * Payslip exception constructor.
+     *
+     * @param code Error code.
+     * @param field The offending field.
+     */
+    public PayslipException(final ErrorCode code, final String field) {
+        super();
+        this.code = code;
+        this.field = field;
+        this.location = null;
     }
 
     /**
@@ -28,6 +58,68 @@ public class PayslipException extends IllegalArgumentException {
      * @param cause The underlying case of this exception.
      */
     PayslipException(final String message, final Throwable cause) {
-        super(message, cause);
+        this(ErrorCode.GENERAL, message, cause);
+    }
+
+    /**
+     * Payslip exception constructor.
+     *
+     * @param code Error code.
+     * @param field The offending field.
+     * @param cause The underlying case of this exception.
+     */
+    PayslipException(
+        final ErrorCode code,
+        final String field,
+        final Throwable cause) {
+        super(cause);
+        this.code = code;
+        this.field = field;
+        this.location = null;
+    }
+
+    /**
+     * Payslip exception constructor, which keeps the error code and field
+     * of {@code cause} and prefixes its message with a location.
+     *
+     * @param location Where the error occurred, like a line of a file.
+     * @param cause The underlying case of this exception.
+     */
+    PayslipException(final String location, final PayslipException cause) {
+        super(cause);
+        this.code = cause.getCode();
+        this.field = cause.getField();
+        this.location = location;
+    }
+
+    /**
+     * Error code.
+     *
+     * @return Error code.
+     */
+    public ErrorCode getCode() {
+        return this.code;
+    }
+
+    /**
+     * The offending field.
+     *
+     * @return Field.
+     */
+    public String getField() {
+        return this.field;
+    }
+
+    @Override
+    public String getMessage() {
+        final String message;
+        if (this.location == null) {
+            message = this.code.message(this.field);
+        } else {
+            message = String.format(
+                "%s: %s", this.location, this.code.message(this.field)
+            );
+        }
+        return message;
     }
 }
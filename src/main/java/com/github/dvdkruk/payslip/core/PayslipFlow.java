@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+/**
+ * Reactive stream interfaces with flow control, with the same methods and
+ * rules as {@code java.util.concurrent.Flow}, which this Java 8 code base
+ * cannot use. {@code FlowAdapters} of the JDK 9 sources adapts them to
+ * {@code Flow}, an adapter to Reactive Streams would also only forward
+ * every call.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipFlow {
+
+    /**
+     * Utility class.
+     */
+    private PayslipFlow() {
+    }
+
+    /**
+     * Producer of items for subscribers, which receive items after they
+     * requested them.
+     *
+     * @param <T> Item type.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Adds a subscriber, which receives a subscription with {@link
+         * Subscriber#onSubscribe(Subscription)}.
+         *
+         * @param subscriber Subscriber.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receiver of items. The methods of a subscriber are called one at a
+     * time.
+     *
+     * @param <T> Item type.
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called once before any other method.
+         *
+         * @param subscription Subscription to request items with.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Next requested item.
+         *
+         * @param item Item.
+         */
+        void onNext(T item);
+
+        /**
+         * Ends the items with an error, no more calls follow.
+         *
+         * @param throwable Error.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Ends the items, no more calls follow.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between a publisher and a subscriber.
+     */
+    public interface Subscription {
+
+        /**
+         * Requests up to {@code amount} more items. A non-positive amount
+         * ends the subscription with an {@link IllegalArgumentException}.
+         *
+         * @param amount Amount of items.
+         */
+        void request(long amount);
+
+        /**
+         * Stops sending items, possibly after items that are underway.
+         */
+        void cancel();
+    }
+
+    /**
+     * Subscriber and publisher at once, which transforms the items it
+     * receives.
+     *
+     * @param <T> Received item type.
+     * @param <R> Published item type.
+     */
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
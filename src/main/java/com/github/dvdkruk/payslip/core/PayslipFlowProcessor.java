@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reactive processor of request lines into {@link PayslipOutcome}s, for
+ * callers that must not block, like event loops. Every line becomes one
+ * outcome, a rejected line an outcome with its error, numbered from one in
+ * the order of arrival.
+ *
+ * <p>Demand of the subscriber is passed upstream as is, so the processor
+ * never holds more lines than the subscriber requested and did not receive
+ * yet. Lines are processed on the executor, at most {@code batch} lines per
+ * task, in one task at a time, so the outcomes keep the order of the lines
+ * and the subscriber is called serially. The processor has one subscriber.
+ * An unchecked exception while processing a line or in {@code onNext} of
+ * the subscriber ends the flow with that error and cancels upstream.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipFlowProcessor
+    implements PayslipFlow.Processor<String, PayslipOutcome> {
+
+    /**
+     * Default amount of lines per executor task.
+     */
+    public static final int DEFAULT_BATCH = 256;
+
+    /**
+     * Payslip processor.
+     */
+    private final PayslipProcessor processor;
+
+    /**
+     * Executor of the processing tasks.
+     */
+    private final Executor executor;
+
+    /**
+     * Largest amount of lines per task.
+     */
+    private final int batch;
+
+    /**
+     * Received lines that are not processed yet.
+     */
+    private final Queue<String> queue;
+
+    /**
+     * Amount of drain requests, the drain task runs while it is positive.
+     */
+    private final AtomicInteger work;
+
+    /**
+     * Upstream subscription, {@code null} until subscribed.
+     */
+    private PayslipFlow.Subscription upstream;
+
+    /**
+     * Demand requested before the upstream subscription arrived.
+     */
+    private long pending;
+
+    /**
+     * The subscriber, {@code null} until subscribed.
+     */
+    private volatile PayslipFlow.Subscriber<? super PayslipOutcome>
+        downstream;
+
+    /**
+     * Whether the subscriber cancelled or was terminated.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Whether upstream completed or failed.
+     */
+    private volatile boolean finished;
+
+    /**
+     * Upstream error, {@code null} when it completed normally.
+     */
+    private volatile Throwable error;
+
+    /**
+     * Number of the last processed line, only used by the drain task.
+     */
+    private long line;
+
+    /**
+     * Flow processor constructor.
+     *
+     * @param processor Payslip processor.
+     * @param executor Executor of the processing tasks.
+     * @param batch Largest amount of lines per task.
+     */
+    public PayslipFlowProcessor(
+        final PayslipProcessor processor,
+        final Executor executor,
+        final int batch) {
+        this.processor = processor;
+        this.executor = executor;
+        this.batch = batch;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.work = new AtomicInteger();
+    }
+
+    @Override
+    public void subscribe(
+        final PayslipFlow.Subscriber<? super PayslipOutcome> subscriber) {
+        boolean first = false;
+        synchronized (this) {
+            if (this.downstream == null) {
+                this.downstream = subscriber;
+                first = true;
+            }
+        }
+        if (first) {
+            subscriber.onSubscribe(new PayslipFlowProcessor.Demand());
+            this.drain();
+        } else {
+            subscriber.onSubscribe(new PayslipFlowProcessor.Refused());
+            subscriber.onError(
+                new IllegalStateException("the processor has a subscriber")
+            );
+        }
+    }
+
+    @Override
+    public void onSubscribe(final PayslipFlow.Subscription subscription) {
+        final long demand;
+        synchronized (this) {
+            if (this.upstream == null && !this.cancelled && !this.finished) {
+                this.upstream = subscription;
+                demand = this.pending;
+                this.pending = 0L;
+            } else {
+                demand = -1L;
+            }
+        }
+        if (demand < 0L) {
+            subscription.cancel();
+        } else if (demand > 0L) {
+            subscription.request(demand);
+        }
+    }
+
+    @Override
+    public void onNext(final String item) {
+        if (!this.cancelled) {
+            this.queue.offer(item);
+            this.drain();
+        }
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        this.finish(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        this.finish(null);
+    }
+
+    /**
+     * Ends the flow once the queued lines are processed, the first end
+     * wins.
+     *
+     * @param throwable Error or {@code null} for a normal end.
+     */
+    private void finish(final Throwable throwable) {
+        synchronized (this) {
+            if (!this.finished) {
+                this.error = throwable;
+                this.finished = true;
+            }
+        }
+        this.drain();
+    }
+
+    /**
+     * Ends the flow with {@code throwable} after a protocol violation of the
+     * subscriber, drops the queued lines and cancels upstream. The violation
+     * takes precedence over an end of upstream, unless the subscriber was
+     * already terminated.
+     *
+     * @param throwable Error.
+     */
+    private void violate(final Throwable throwable) {
+        final PayslipFlow.Subscription subscription;
+        synchronized (this) {
+            subscription = this.upstream;
+            this.upstream = null;
+            this.pending = 0L;
+            if (!this.cancelled) {
+                this.error = throwable;
+                this.finished = true;
+            }
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        this.queue.clear();
+        this.drain();
+    }
+
+    /**
+     * Passes demand of the subscriber upstream.
+     *
+     * @param amount Amount of requested outcomes.
+     */
+    private void request(final long amount) {
+        final PayslipFlow.Subscription subscription;
+        synchronized (this) {
+            subscription = this.upstream;
+            if (subscription == null) {
+                if (Long.MAX_VALUE - this.pending < amount) {
+                    this.pending = Long.MAX_VALUE;
+                } else {
+                    this.pending += amount;
+                }
+            }
+        }
+        if (subscription != null) {
+            subscription.request(amount);
+        }
+    }
+
+    /**
+     * Stops the flow and cancels upstream.
+     */
+    private void cancel() {
+        final PayslipFlow.Subscription subscription;
+        synchronized (this) {
+            this.cancelled = true;
+            subscription = this.upstream;
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        this.drain();
+    }
+
+    /**
+     * Starts the drain task, unless it is running.
+     */
+    private void drain() {
+        if (this.downstream != null && this.work.getAndIncrement() == 0) {
+            this.executor.execute(this::run);
+        }
+    }
+
+    /**
+     * Drain task, which processes queued lines and signals the end of the
+     * flow to the subscriber. After {@link #batch} lines it hands over to a
+     * new task, so other tasks of the executor get their turn.
+     */
+    private void run() {
+        final PayslipFlow.Subscriber<? super PayslipOutcome> subscriber =
+            this.downstream;
+        int missed = 1;
+        int done = 0;
+        boolean yielded = false;
+        while (missed != 0 && !yielded) {
+            boolean more = true;
+            while (more) {
+                if (this.cancelled) {
+                    this.queue.clear();
+                    more = false;
+                } else if (done == this.batch) {
+                    yielded = true;
+                    more = false;
+                } else {
+                    final String item = this.queue.poll();
+                    more = item != null;
+                    if (more) {
+                        this.line += 1L;
+                        this.emit(subscriber, item);
+                        done += 1;
+                    }
+                }
+            }
+            if (!yielded) {
+                final boolean ended = this.finished;
+                if (ended && !this.cancelled && this.queue.isEmpty()) {
+                    this.cancelled = true;
+                    if (this.error == null) {
+                        subscriber.onComplete();
+                    } else {
+                        subscriber.onError(this.error);
+                    }
+                }
+                missed = this.work.addAndGet(-missed);
+            }
+        }
+        if (yielded) {
+            this.executor.execute(this::run);
+        }
+    }
+
+    /**
+     * Processes a line and sends its outcome, only called by the drain task.
+     * An unchecked exception of the processor or the subscriber stops the
+     * flow, drops the queued lines, cancels upstream and is signalled with
+     * {@code onError}, so the drain task keeps running and ends normally.
+     *
+     * @param subscriber The subscriber.
+     * @param item Request line.
+     * @checkstyle IllegalCatchCheck (20 lines)
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void emit(
+        final PayslipFlow.Subscriber<? super PayslipOutcome> subscriber,
+        final String item) {
+        try {
+            subscriber.onNext(this.processor.outcome(this.line, item));
+        } catch (final RuntimeException ex) {
+            final PayslipFlow.Subscription subscription;
+            synchronized (this) {
+                this.cancelled = true;
+                subscription = this.upstream;
+                this.upstream = null;
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            this.queue.clear();
+            subscriber.onError(ex);
+        }
+    }
+
+    /**
+     * Subscription of the subscriber.
+     */
+    private final class Demand implements PayslipFlow.Subscription {
+
+        @Override
+        public void request(final long amount) {
+            if (amount > 0L) {
+                PayslipFlowProcessor.this.request(amount);
+            } else {
+                PayslipFlowProcessor.this.violate(
+                    new IllegalArgumentException(
+                        String.format("non-positive request of %d", amount)
+                    )
+                );
+            }
+        }
+
+        @Override
+        public void cancel() {
+            PayslipFlowProcessor.this.cancel();
+        }
+    }
+
+    /**
+     * Subscription of a refused subscriber, which ignores all calls.
+     */
+    private static final class Refused implements PayslipFlow.Subscription {
+
+        @Override
+        public void request(final long amount) {
+            // nothing is sent to a refused subscriber
+        }
+
+        @Override
+        public void cancel() {
+            // nothing is sent to a refused subscriber
+        }
+    }
+}
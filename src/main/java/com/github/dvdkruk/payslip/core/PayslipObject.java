@@ -5,46 +5,43 @@
 package com.github.dvdkruk.payslip.core;
 
 import com.github.dvdkruk.payslip.utils.CommaSeparatedStringBuilder;
+import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
 import java.time.Month;
 import java.time.format.TextStyle;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
 
 /**
- * PayslipObject.
+ * PayslipObject. Subclasses compare their own fields, the hash code is
+ * calculated once and cached, and the comma separated display values are
+ * only formatted by {@link #toString()}.
  * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
  * @version $Id$
  * @since 1.0
  */
-class PayslipObject {
+abstract class PayslipObject {
 
     /**
-     * Values.
+     * Multiplier for combining field hashes.
      */
-    private final List<Object> values;
+    protected static final int PRIME = 31;
 
     /**
-     * PayslipObject.
-     * @param values Values.
+     * Cached hash code, zero until calculated.
      */
-    PayslipObject(final Object... values) {
-        this.values = Arrays.asList(values);
-    }
+    private int hash;
 
     @Override
-    public String toString() {
+    public final String toString() {
         final CommaSeparatedStringBuilder builder =
             new CommaSeparatedStringBuilder();
-        this.values.forEach(val -> builder.append(String.valueOf(val)));
+        this.display(builder);
         return builder.toString();
     }
 
     @Override
-    public boolean equals(final Object obj) {
+    public final boolean equals(final Object obj) {
         final boolean equals;
         if (this == obj)  {
             equals = true;
@@ -52,14 +49,78 @@ class PayslipObject {
             equals = false;
         } else {
             final PayslipObject that = (PayslipObject) obj;
-            equals = Objects.equals(this.values, that.values);
+            equals = this.hashCode() == that.hashCode()
+                && this.equalFields(that);
         }
         return equals;
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(this.values.toArray());
+    public final int hashCode() {
+        int result = this.hash;
+        if (result == 0) {
+            result = this.fieldHash();
+            this.hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Appends the display values of this object.
+     *
+     * @param builder Receives the display values.
+     */
+    protected abstract void display(CommaSeparatedStringBuilder builder);
+
+    /**
+     * Compares the fields of this object with an object of the same class.
+     *
+     * @param obj Object of the same class.
+     * @return True when all fields are equal.
+     */
+    protected abstract boolean equalFields(PayslipObject obj);
+
+    /**
+     * Hash code of the fields, consistent with {@link #equalFields}.
+     *
+     * @return Hash code.
+     */
+    protected abstract int fieldHash();
+
+    /**
+     * Compares two decimals by value, ignoring their scale.
+     *
+     * @param first First decimal or {@code null}.
+     * @param second Second decimal or {@code null}.
+     * @return True when both are {@code null} or have the same value.
+     */
+    protected static boolean sameValue(
+        final BigDecimal first,
+        final BigDecimal second) {
+        final boolean same;
+        if (first == null || second == null) {
+            same = first == second;
+        } else {
+            same = first.compareTo(second) == 0;
+        }
+        return same;
+    }
+
+    /**
+     * Hash code of a decimal by value, consistent with {@link
+     * #sameValue(BigDecimal, BigDecimal)}.
+     *
+     * @param value Decimal or {@code null}.
+     * @return Hash code.
+     */
+    protected static int valueHash(final BigDecimal value) {
+        final int hash;
+        if (value == null) {
+            hash = 0;
+        } else {
+            hash = value.stripTrailingZeros().hashCode();
+        }
+        return hash;
     }
 
     /**
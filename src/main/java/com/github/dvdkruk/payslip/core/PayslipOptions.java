@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options in the form {@code --name value} or {@code --flag}.
+ * An option takes the next argument as value, unless that argument is
+ * another option.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class PayslipOptions {
+
+    /**
+     * Option prefix.
+     */
+    private static final String PREFIX = "--";
+
+    /**
+     * Parsed options, flags have an empty value.
+     */
+    private final Map<String, String> values;
+
+    /**
+     * Parses {@code args} into options.
+     *
+     * @param args Program arguments.
+     */
+    PayslipOptions(final String... args) {
+        this.values = new HashMap<>(args.length);
+        int index = 0;
+        while (index < args.length) {
+            final String arg = args[index];
+            if (!isOption(arg)) {
+                throw new PayslipException(
+                    String.format("unexpected argument '%s'", arg)
+                );
+            }
+            final String name = arg.substring(PayslipOptions.PREFIX.length());
+            String value = "";
+            if (index + 1 < args.length && !isOption(args[index + 1])) {
+                index += 1;
+                value = args[index];
+            }
+            this.values.put(name, value);
+            index += 1;
+        }
+    }
+
+    /**
+     * Checks if {@code args} are options instead of request lines.
+     *
+     * @param args Program arguments.
+     * @return True when the first argument is an option.
+     */
+    static boolean isOptions(final String... args) {
+        return args.length > 0 && isOption(args[0]);
+    }
+
+    /**
+     * Checks if option {@code name} was given.
+     *
+     * @param name Option name without prefix.
+     * @return True when the option was given.
+     */
+    boolean has(final String name) {
+        return this.values.containsKey(name);
+    }
+
+    /**
+     * Value of the required option {@code name}.
+     *
+     * @param name Option name without prefix.
+     * @return Value of the option.
+     * @throws PayslipException When the option has no value.
+     */
+    String get(final String name) {
+        final String value = this.values.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new PayslipException(
+                String.format("option --%s requires a value", name)
+            );
+        }
+        return value;
+    }
+
+    /**
+     * Value of option {@code name} or {@code fallback}.
+     *
+     * @param name Option name without prefix.
+     * @param fallback Value when the option was not given.
+     * @return Value of the option.
+     */
+    String getOr(final String name, final String fallback) {
+        String value = fallback;
+        if (this.has(name)) {
+            value = this.get(name);
+        }
+        return value;
+    }
+
+    /**
+     * Integer value of option {@code name}.
+     *
+     * @param name Option name without prefix.
+     * @param fallback Value when the option was not given.
+     * @return Value of the option.
+     * @throws PayslipException When the value is not an integer.
+     */
+    int getInt(final String name, final int fallback) {
+        int value = fallback;
+        if (this.has(name)) {
+            final String text = this.get(name);
+            try {
+                value = Integer.parseInt(text);
+            } catch (final NumberFormatException nfe) {
+                throw new PayslipException(
+                    String.format("option --%s: '%s' is no number", name, text),
+                    nfe
+                );
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Checks if {@code arg} is an option.
+     *
+     * @param arg Program argument.
+     * @return True when {@code arg} starts with the option prefix.
+     */
+    private static boolean isOption(final String arg) {
+        return arg.startsWith(PayslipOptions.PREFIX);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a request line of a stream: the results of the line or the
+ * reason it was rejected, so a rejected line does not end the stream.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipOutcome {
+
+    /**
+     * Line number of the request, starting at one.
+     */
+    private final long line;
+
+    /**
+     * Results in month order, empty when rejected.
+     */
+    private final List<PayslipResult> results;
+
+    /**
+     * Reason of the rejection, {@code null} when processed.
+     */
+    private final PayslipException error;
+
+    /**
+     * Outcome of a processed request.
+     *
+     * @param line Line number of the request.
+     * @param results Results in month order.
+     */
+    public PayslipOutcome(final long line, final List<PayslipResult> results) {
+        this.line = line;
+        this.results = Collections.unmodifiableList(results);
+        this.error = null;
+    }
+
+    /**
+     * Outcome of a rejected request.
+     *
+     * @param line Line number of the request.
+     * @param error Reason of the rejection.
+     */
+    public PayslipOutcome(final long line, final PayslipException error) {
+        this.line = line;
+        this.results = Collections.emptyList();
+        this.error = error;
+    }
+
+    /**
+     * Line number of the request, starting at one.
+     *
+     * @return Line number.
+     */
+    public long getLine() {
+        return this.line;
+    }
+
+    /**
+     * Whether the request was rejected.
+     *
+     * @return True when rejected.
+     */
+    public boolean isFailure() {
+        return this.error != null;
+    }
+
+    /**
+     * Results of the request in month order.
+     *
+     * @return Results, empty when the request was rejected.
+     */
+    public List<PayslipResult> getResults() {
+        return this.results;
+    }
+
+    /**
+     * Reason of the rejection.
+     *
+     * @return Exception or {@code null} when the request was processed.
+     */
+    public PayslipException getError() {
+        return this.error;
+    }
+
+    /**
+     * The result lines, or the line number and error message of a rejected
+     * request like {@code line 3: Peter is an invalid month}.
+     *
+     * @return Display string.
+     */
+    @Override
+    public String toString() {
+        final String text;
+        if (this.error == null) {
+            final StringBuilder lines = new StringBuilder();
+            for (final PayslipResult result : this.results) {
+                if (lines.length() > 0) {
+                    lines.append(System.lineSeparator());
+                }
+                lines.append(result);
+            }
+            text = lines.toString();
+        } else {
+            text = String.format(
+                "line %d: %s", this.line, this.error.getMessage()
+            );
+        }
+        return text;
+    }
+}
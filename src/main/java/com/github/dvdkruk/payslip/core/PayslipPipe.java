@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Co-process mode, which answers framed requests from a parent process.
+ * Every input line is {@code <id> <request>} and is answered with {@code
+ * <id> OK <result>}, a line per month of a range of months, or {@code
+ * <id> ERR <code> <message>}. Responses are buffered and flushed when a
+ * batch is complete, or at the latest after the maximum latency, so a
+ * response does not cost a system call. The processor is taken from its
+ * supplier for the first response after every flush, so the responses of a
+ * flush share one processor and a reloaded one is used from the next
+ * flush.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipPipe {
+
+    /**
+     * Default amount of responses per flush.
+     */
+    public static final int DEFAULT_BATCH = 256;
+
+    /**
+     * Default maximum latency of a response in milliseconds.
+     */
+    public static final int DEFAULT_LATENCY = 5;
+
+    /**
+     * Size of the output buffer.
+     */
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     * Supplier of the payslip processor.
+     */
+    private final Supplier<PayslipProcessor> processors;
+
+    /**
+     * Amount of responses per flush.
+     */
+    private final int batch;
+
+    /**
+     * Maximum latency of a response in milliseconds.
+     */
+    private final long latency;
+
+    /**
+     * Guards the output and the pending responses.
+     */
+    private final Object lock;
+
+    /**
+     * Buffered responses that are not flushed yet.
+     */
+    private int pending;
+
+    /**
+     * Processor of the pending responses.
+     */
+    private PayslipProcessor processor;
+
+    /**
+     * Failure of a flush by the latency timer.
+     */
+    private IOException failure;
+
+    /**
+     * Pipe constructor.
+     *
+     * @param processor A processor.
+     * @param batch Amount of responses per flush, at least 1.
+     * @param latency Maximum latency in milliseconds, {@code 0} flushes
+     *  every response.
+     */
+    public PayslipPipe(
+        final PayslipProcessor processor,
+        final int batch,
+        final long latency) {
+        this(() -> processor, batch, latency);
+    }
+
+    /**
+     * Pipe constructor with a processor that can change between batches.
+     *
+     * @param processors Supplier of the processor, called once per batch.
+     * @param batch Amount of responses per flush, at least 1.
+     * @param latency Maximum latency in milliseconds, {@code 0} flushes
+     *  every response.
+     */
+    public PayslipPipe(
+        final Supplier<PayslipProcessor> processors,
+        final int batch,
+        final long latency) {
+        if (batch < 1 || latency < 0L) {
+            throw new PayslipException(
+                "pipe batch must be positive and latency not negative"
+            );
+        }
+        this.processors = processors;
+        this.batch = batch;
+        this.latency = latency;
+        this.lock = new Object();
+    }
+
+    /**
+     * Answers the requests of {@code input} on {@code output} until the end
+     * of the input.
+     *
+     * @param input Framed requests.
+     * @param output Framed responses.
+     * @return Amount of answered requests.
+     * @throws IOException When reading or writing fails.
+     */
+    public long run(final InputStream input, final OutputStream output)
+        throws IOException {
+        final BufferedReader reader = new BufferedReader(
+            new InputStreamReader(input, StandardCharsets.UTF_8)
+        );
+        final Writer writer = new BufferedWriter(
+            new OutputStreamWriter(output, StandardCharsets.UTF_8),
+            PayslipPipe.BUFFER
+        );
+        final ScheduledExecutorService timer = this.timer(writer);
+        long answered = 0L;
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                if (!line.trim().isEmpty()) {
+                    this.answer(line.trim(), writer);
+                    answered += 1L;
+                }
+                line = reader.readLine();
+            }
+        } finally {
+            if (timer != null) {
+                timer.shutdownNow();
+            }
+        }
+        synchronized (this.lock) {
+            this.flush(writer);
+        }
+        return answered;
+    }
+
+    /**
+     * Processes one framed request and buffers its response. The request is
+     * processed under the lock, so a timer flush cannot start a new batch
+     * of responses between taking the processor and writing the response.
+     *
+     * @param line Framed request.
+     * @param writer Response writer.
+     * @throws IOException When writing fails.
+     */
+    private void answer(final String line, final Writer writer)
+        throws IOException {
+        final int split = line.indexOf(' ');
+        synchronized (this.lock) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            if (this.pending == 0) {
+                this.processor = this.processors.get();
+            }
+            final String response;
+            if (split < 0) {
+                response = PayslipPipe.error(
+                    line, new PayslipException("missing request")
+                );
+            } else {
+                response = PayslipPipe.response(
+                    this.processor,
+                    line.substring(0, split),
+                    line.substring(split + 1)
+                );
+            }
+            writer.write(response);
+            writer.write('\n');
+            this.pending += 1;
+            if (this.pending >= this.batch || this.latency == 0L) {
+                this.flush(writer);
+            }
+        }
+    }
+
+    /**
+     * Response to a request, a line per month of a range of months.
+     *
+     * @param processor Processor of the pending responses.
+     * @param id Request identifier.
+     * @param request Request line.
+     * @return Response lines.
+     */
+    private static String response(
+        final PayslipProcessor processor,
+        final String id,
+        final String request) {
+        String response;
+        try {
+            final StringBuilder lines = new StringBuilder();
+            for (final PayslipResult result : processor.processMonths(
+                new PayslipRequestParser(request).toPayslipRequest()
+            )) {
+                if (lines.length() > 0) {
+                    lines.append('\n');
+                }
+                lines.append(id).append(" OK ").append(result.toString());
+            }
+            response = lines.toString();
+        } catch (final PayslipException pex) {
+            response = PayslipPipe.error(id, pex);
+        }
+        return response;
+    }
+
+    /**
+     * Error response.
+     *
+     * @param id Request identifier.
+     * @param pex Reason of the rejection.
+     * @return Response line.
+     */
+    private static String error(final String id, final PayslipException pex) {
+        return new StringBuilder(id).append(" ERR ")
+            .append(pex.getCode().name()).append(' ')
+            .append(pex.getMessage()).toString();
+    }
+
+    /**
+     * Starts the timer that flushes responses older than the latency.
+     *
+     * @param writer Response writer.
+     * @return Timer or {@code null} when every response is flushed.
+     */
+    private ScheduledExecutorService timer(final Writer writer) {
+        ScheduledExecutorService timer = null;
+        if (this.latency > 0L) {
+            timer = Executors.newSingleThreadScheduledExecutor(
+                task -> {
+                    final Thread thread = new Thread(task, "payslip-pipe");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+            timer.scheduleAtFixedRate(
+                () -> this.tick(writer),
+                this.latency, this.latency, TimeUnit.MILLISECONDS
+            );
+        }
+        return timer;
+    }
+
+    /**
+     * Flushes the pending responses from the timer. A flush failure is
+     * rethrown by the next response.
+     *
+     * @param writer Response writer.
+     */
+    private void tick(final Writer writer) {
+        synchronized (this.lock) {
+            try {
+                this.flush(writer);
+            } catch (final IOException iox) {
+                this.failure = iox;
+            }
+        }
+    }
+
+    /**
+     * Flushes the pending responses, the caller holds the lock.
+     *
+     * @param writer Response writer.
+     * @throws IOException When writing fails.
+     */
+    private void flush(final Writer writer) throws IOException {
+        if (this.pending > 0) {
+            writer.flush();
+            this.pending = 0;
+        }
+    }
+}
@@ -4,21 +4,36 @@
 
 package com.github.dvdkruk.payslip.core;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Month;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
 /**
  * Payslip processor - Processes {@code PayslipRequest} instance to {@code
  * PayslipResult}.
  *
+ * <p>A processor is thread safe and meant to be shared: its only state is
+ * an immutable {@link TaxSchedule} that is assigned in the constructor, and
+ * every call works on its own local values. The injector binds it as a
+ * singleton, so all modes and worker threads of a JVM use one instance.
+ *
  * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
  * @version $Id$
  * @since 1.0
  */
+@Singleton
 public final class PayslipProcessor {
     /**
      * Exception message for null request.
@@ -50,7 +65,7 @@ public final class PayslipProcessor {
     /**
      * Amount of months.
      */
-    private static final BigDecimal AMOUNT_OF_MONTHS = new BigDecimal("12");
+    private static final long AMOUNT_OF_MONTHS = 12L;
     /**
      * BigDecimal of 100.
      */
@@ -58,65 +73,203 @@ public final class PayslipProcessor {
     /**
      * Max super rate.
      */
-    private static final BigDecimal MAX_SUPER_RATE = new BigDecimal("50");
+    static final BigDecimal MAX_SUPER_RATE = new BigDecimal("50");
+    /**
+     * Largest annual salary in cents, the whole dollars of an {@code int}.
+     */
+    static final long MAX_SALARY = Integer.MAX_VALUE * Money.CENTS;
     /**
      * Scale for calculations.
      */
     private static final int SCALE = 99;
 
     /**
-     * List containing all the income tax rules for the calculation.
+     * The income tax rules compiled for the calculation.
      */
-    private final List<TaxRule> rules;
+    private final TaxSchedule schedule;
 
     /**
-     * Create a {@link PayslipProcessor} with the {@code factory}.
+     * Create a {@link PayslipProcessor} with the {@link
+     * DefaultTaxRuleFactory#DEFAULT} tax rules.
      */
     @Inject
     public PayslipProcessor() {
-        this.rules = DefaultTaxRuleFactory.DEFAULT;
+        this(TaxSchedule.compile(DefaultTaxRuleFactory.DEFAULT));
+    }
+
+    /**
+     * Create a {@link PayslipProcessor} with compiled tax rules.
+     *
+     * @param schedule The income tax rules.
+     */
+    public PayslipProcessor(final TaxSchedule schedule) {
+        this.schedule = schedule;
     }
 
     /**
      * Processes the request into a {@link PayslipResult}.
      *
-     * @param request A payslip request.
+     * @param request A payslip request for one month.
      * @return The result of the request argument.
-     * @throws PayslipException If the request is not valid.
+     * @throws PayslipException If the request is not valid or covers more
+     *  than one month.
      */
     public PayslipResult process(final PayslipRequest request) {
-        validate(request);
+        this.validate(request);
+        if (request.getMonths() > 1) {
+            throw new PayslipException(
+                ErrorCode.MONTH_RANGE, request.getMonth().toString()
+            );
+        }
         final String name = request.getEmployee().getFullName();
         final Month month = request.getMonth();
         return new PayslipResult(name, month, this.calculate(request));
     }
 
     /**
-     * Calculates monthly salary/income, income tax and superannuation.
+     * Processes the request into a {@link PayslipResult} for every month of
+     * its range, the same as a request per month. The request is validated
+     * and the monthly figures are calculated once, and are shared by the
+     * results.
      *
-     * @param request With the data for the calculation.
-     * @return Monthly financial information.
+     * @param request A payslip request for one or more months.
+     * @return The results in month order, starting at the first month.
+     * @throws PayslipException If the request is not valid.
      */
-    private FinancialInformation calculate(final PayslipRequest request) {
-        final Employee employee = request.getEmployee();
-        final int income = calculateIncome(employee.getAnnualSalary());
-        final int tax = this.calculateTax(
-            employee.getAnnualSalary().intValueExact()
+    public List<PayslipResult> processMonths(final PayslipRequest request) {
+        this.validate(request);
+        final String name = request.getEmployee().getFullName();
+        final FinancialInformation financial = this.calculate(request);
+        final int months = request.getMonths();
+        final List<PayslipResult> results = new ArrayList<>(months);
+        for (int index = 0; index < months; ++index) {
+            results.add(
+                new PayslipResult(
+                    name, request.getMonth().plus(index), financial
+                )
+            );
+        }
+        return results;
+    }
+
+    /**
+     * Lazy stream of the outcomes of the request lines of {@code file}, one
+     * per non-blank line. A rejected line is an outcome with its error, so
+     * it does not end the stream. The file is split at line starts into
+     * blocks of at least a megabyte, so {@link Stream#parallel()} scales
+     * with large files. The stream holds the file open until it is closed.
+     *
+     * @param file File with one request per line.
+     * @return Sequential stream of outcomes in line order.
+     * @throws IOException When the file cannot be opened.
+     */
+    public Stream<PayslipOutcome> processAll(final Path file)
+        throws IOException {
+        final FileChannel channel =
+            FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return StreamSupport.stream(
+                new FileRequestSpliterator(
+                    this, channel, 0L, channel.size(), 0L
+                ),
+                false
+            ).onClose(
+                () -> {
+                    try {
+                        channel.close();
+                    } catch (final IOException iox) {
+                        throw new UncheckedIOException(iox);
+                    }
+                }
+            );
+        } catch (final IOException iox) {
+            channel.close();
+            throw iox;
+        }
+    }
+
+    /**
+     * Lazy stream of the outcomes of the request lines of {@code reader},
+     * one per non-blank line, see {@link #processAll(Iterable)}. The reader
+     * is not closed by the stream.
+     *
+     * @param reader Reader with one request per line.
+     * @return Sequential stream of outcomes in line order.
+     */
+    public Stream<PayslipOutcome> processAll(final Reader reader) {
+        final BufferedReader lines;
+        if (reader instanceof BufferedReader) {
+            lines = (BufferedReader) reader;
+        } else {
+            lines = new BufferedReader(reader);
+        }
+        return StreamSupport.stream(
+            new LineRequestSpliterator(this, lines.lines().iterator()), false
         );
-        final int superann = calculateSuper(income, request.getSuperRate());
-        return new FinancialInformation(income, tax, superann);
     }
 
     /**
-     * Calculates monthly salary.
+     * Lazy stream of the outcomes of request {@code lines}, one per
+     * non-blank line. A rejected line is an outcome with its error, so it
+     * does not end the stream. Parallel streams take blocks of lines off
+     * the source and process every block in one thread.
      *
-     * @param salary Annual salary.
-     * @return Monthly salary.
+     * @param lines Request lines.
+     * @return Sequential stream of outcomes in line order.
      */
-    private static int calculateIncome(final BigDecimal salary) {
-        return salary
-            .divide(PayslipProcessor.AMOUNT_OF_MONTHS, 0, RoundingMode.HALF_UP)
-            .intValueExact();
+    public Stream<PayslipOutcome> processAll(final Iterable<String> lines) {
+        return StreamSupport.stream(
+            new LineRequestSpliterator(this, lines.iterator()), false
+        );
+    }
+
+    /**
+     * Parses and processes a request line.
+     *
+     * @param line Line number.
+     * @param request Request line.
+     * @return The results or the error of the line.
+     */
+    PayslipOutcome outcome(final long line, final String request) {
+        PayslipOutcome outcome;
+        try {
+            outcome = new PayslipOutcome(
+                line,
+                this.processMonths(
+                    new PayslipRequestParser(request).toPayslipRequest()
+                )
+            );
+        } catch (final PayslipException pex) {
+            outcome = new PayslipOutcome(line, pex);
+        }
+        return outcome;
+    }
+
+    /**
+     * Tax schedule of this processor.
+     *
+     * @return Tax schedule.
+     */
+    TaxSchedule schedule() {
+        return this.schedule;
+    }
+
+    /**
+     * Calculates monthly salary/income, income tax and superannuation. The
+     * annual salary is used to the cent, the monthly amounts are rounded half
+     * up to whole dollars.
+     *
+     * @param request With the data for the calculation.
+     * @return Monthly financial information.
+     */
+    private FinancialInformation calculate(final PayslipRequest request) {
+        final Money salary = request.getEmployee().getAnnualSalary();
+        final int income = salary
+            .divideToDollars(PayslipProcessor.AMOUNT_OF_MONTHS)
+            .toIntDollars();
+        final int tax = this.schedule.tax(salary).toIntDollars();
+        final int superann = calculateSuper(income, request.getSuperRate());
+        return new FinancialInformation(income, tax, superann);
     }
 
     /**
@@ -124,34 +277,49 @@ public final class PayslipProcessor {
      *
      * @param request Valid this request.
      */
-    private static void validate(final PayslipRequest request) {
+    private void validate(final PayslipRequest request) {
         if (request == null || request.getEmployee() == null) {
-            throw new PayslipException(PayslipProcessor.REQUEST_NULL);
+            throw new PayslipException(ErrorCode.REQUEST_NULL, null);
         }
-        validate(request.getEmployee());
+        this.validate(request.getEmployee());
         if (request.getSuperRate() == null) {
-            throw new PayslipException(PayslipProcessor.SUPER_RATE_NULL);
+            throw new PayslipException(ErrorCode.SUPER_RATE_NULL, null);
         }
         final BigDecimal rate = request.getSuperRate();
         if (isBetween(rate, BigDecimal.ZERO, PayslipProcessor.MAX_SUPER_RATE)) {
-            throw new PayslipException(PayslipProcessor.INVAL_SUPER_RATE);
+            throw new PayslipException(
+                ErrorCode.SUPER_RATE_RANGE, rate.toPlainString()
+            );
         }
     }
 
     /**
-     * Validates {@code employee}.
+     * Validates {@code employee}, whose salary must be covered by the tax
+     * schedule.
      *
      * @param employee Valid this employee.
      */
-    private static void validate(final Employee employee) {
+    private void validate(final Employee employee) {
         if (isNullOrEmpty(employee.getForename())) {
-            throw new PayslipException(PayslipProcessor.INVAL_FORENAME);
+            throw new PayslipException(
+                ErrorCode.FORENAME, employee.getForename()
+            );
         }
         if (isNullOrEmpty(employee.getSurname())) {
-            throw new PayslipException(PayslipProcessor.INVAL_SURNAME);
+            throw new PayslipException(
+                ErrorCode.SURNAME, employee.getSurname()
+            );
         }
-        if (employee.getAnnualSalary().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new PayslipException(PayslipProcessor.INVAL_SALARY);
+        final Money salary = employee.getAnnualSalary();
+        if (salary.signum() <= 0) {
+            throw new PayslipException(ErrorCode.SALARY, salary.toString());
+        }
+        if (salary.getCents() > Math.min(
+            this.schedule.limit(), PayslipProcessor.MAX_SALARY
+        )) {
+            throw new PayslipException(
+                ErrorCode.SALARY_RANGE, salary.toString()
+            );
         }
     }
 
@@ -195,69 +363,4 @@ public final class PayslipProcessor {
             .toBigInteger()
             .intValueExact();
     }
-
-    /**
-     * Calculates tax for the given salary.
-     *
-     * @param salary The salary used in the tax calculation.
-     * @return Tax in complete/whole digits.
-     */
-    private int calculateTax(final int salary) {
-        final TaxRule rule = this.rules.get(0);
-        final int tax;
-        if (salary > rule.getMax()) {
-            tax = this.calculateTax(salary, 1, rule.getMax());
-        } else {
-            tax = calculateTax(salary, rule);
-        }
-        return tax;
-    }
-
-    /**
-     * Calculates tax for the given salary using the rule corresponding to the
-     * given index.
-     *
-     * @param salary The salary for the tax calculation.
-     * @param index The index of the rule for usage in the calculation.
-     * @param subtract The subtract this amount before tax calculation.
-     * @return Tax in complete/whole digits.
-     */
-    private int calculateTax(
-        final int salary,
-        final int index,
-        final int subtract) {
-        if (index >= this.rules.size()) {
-            final String msg = String.format(
-                "No tax rule found for annual salary '%s'",
-                salary
-            );
-            throw new NoSuchElementException(msg);
-        }
-        final TaxRule rule = this.rules.get(index);
-        final int tax;
-        if (salary > rule.getMax()) {
-            tax = this.calculateTax(salary, index + 1, rule.getMax());
-        } else {
-            final int taxable = salary - subtract;
-            tax = calculateTax(taxable, rule);
-        }
-        return tax;
-    }
-
-    /**
-     * Calculates tax in complete dollars for the given salary using the given
-     * rule.
-     *
-     * @param salary The salary for the tax calculation.
-     * @param rule The rule for calculating the tax.
-     * @return Tax in complete/whole dollars.
-     */
-    private static int calculateTax(final int salary, final TaxRule rule) {
-        final RoundingMode rounding = RoundingMode.HALF_UP;
-        return BigDecimal.valueOf(salary)
-            .multiply(rule.getTax())
-            .add(BigDecimal.valueOf(rule.getBase()))
-            .divide(PayslipProcessor.AMOUNT_OF_MONTHS, 0, rounding)
-            .intValueExact();
-    }
 }
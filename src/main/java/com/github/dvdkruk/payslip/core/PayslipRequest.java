@@ -4,11 +4,14 @@
 
 package com.github.dvdkruk.payslip.core;
 
+import com.github.dvdkruk.payslip.utils.CommaSeparatedStringBuilder;
 import java.math.BigDecimal;
 import java.time.Month;
+import java.util.Objects;
 
 /**
- * Represent a payslip request.
+ * Represent a payslip request for a month or for a range of months, like
+ * {@code July-June}, which may wrap around the end of the year.
  *
  * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
  * @version $Id$
@@ -28,6 +31,10 @@ public final class PayslipRequest extends PayslipObject {
      * Calculate payslip for this month.
      */
     private final Month month;
+    /**
+     * Last month of the range, the same as {@link #month} for one month.
+     */
+    private final Month last;
 
     /**
      * Payslip request constructor.
@@ -40,10 +47,29 @@ public final class PayslipRequest extends PayslipObject {
         final Employee employee,
         final BigDecimal rate,
         final Month month) {
-        super(employee, toDisplaySuperRate(rate), toDisplayMonth(month));
+        this(employee, rate, month, month);
+    }
+
+    /**
+     * Payslip request constructor for a range of months.
+     *
+     * @param employee Employee.
+     * @param rate Superannuation rate.
+     * @param month First payslip month.
+     * @param last Last payslip month, after {@code month} or wrapped around
+     *  the end of the year.
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    public PayslipRequest(
+        final Employee employee,
+        final BigDecimal rate,
+        final Month month,
+        final Month last) {
+        super();
         this.employee = employee;
         this.rate = rate;
         this.month = month;
+        this.last = last;
     }
 
     /**
@@ -73,6 +99,58 @@ public final class PayslipRequest extends PayslipObject {
         return this.month;
     }
 
+    /**
+     * Last month of the range.
+     *
+     * @return Last month, the same as {@link #getMonth()} for one month.
+     */
+    public Month getLastMonth() {
+        return this.last;
+    }
+
+    /**
+     * Amount of months from the first to the last month.
+     *
+     * @return Amount of months, 1 to 12.
+     */
+    public int getMonths() {
+        final int months = Month.values().length;
+        return Math.floorMod(
+            this.last.getValue() - this.month.getValue(), months
+        ) + 1;
+    }
+
+    @Override
+    protected void display(final CommaSeparatedStringBuilder builder) {
+        builder.append(String.valueOf(this.employee))
+            .append(toDisplaySuperRate(this.rate));
+        if (this.month == this.last) {
+            builder.append(toDisplayMonth(this.month));
+        } else {
+            builder.append(
+                new StringBuilder(toDisplayMonth(this.month)).append('-')
+                    .append(toDisplayMonth(this.last))
+            );
+        }
+    }
+
+    @Override
+    protected boolean equalFields(final PayslipObject obj) {
+        final PayslipRequest that = (PayslipRequest) obj;
+        return this.month == that.month
+            && this.last == that.last
+            && sameValue(this.rate, that.rate)
+            && Objects.equals(this.employee, that.employee);
+    }
+
+    @Override
+    protected int fieldHash() {
+        int hash = Objects.hashCode(this.employee);
+        hash = PayslipObject.PRIME * hash + valueHash(this.rate);
+        hash = PayslipObject.PRIME * hash + Objects.hashCode(this.month);
+        return PayslipObject.PRIME * hash + Objects.hashCode(this.last);
+    }
+
     /**
      * Display superannuation with two decimals and % character.
      * @param rate Superannuation rate.
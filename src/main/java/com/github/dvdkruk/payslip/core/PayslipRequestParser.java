@@ -27,6 +27,18 @@ public final class PayslipRequestParser {
         "a payslip request must consist of %s (non empty) elements",
         PayslipRequestParser.PARSE_LEN
     );
+    /**
+     * Least amount of elements of a pay-run line.
+     */
+    public static final int PAY_RUN_LEN = 3;
+    /**
+     * Exception message for parsing a pay-run line with an invalid amount
+     * of elements.
+     */
+    public static final String INVAL_PAY_RUN_AMNT = String.format(
+        "a pay-run line must consist of %s or %s (non empty) elements",
+        PayslipRequestParser.PAY_RUN_LEN, PayslipRequestParser.PAY_RUN_LEN + 1
+    );
     /**
      * Exception message parsing an invalid superannuation rate.
      */
@@ -53,15 +65,31 @@ public final class PayslipRequestParser {
     /**
      * Parse index of annual salary.
      */
-    private static final int ANNUAL_SALARY_I = 2;
+    static final int ANNUAL_SALARY_I = 2;
     /**
      * Parse index of superannuation rate.
      */
-    private static final int SUPER_RATE_I = 3;
+    static final int SUPER_RATE_I = 3;
     /**
      * Parse index of month.
      */
-    private static final int MONTH_I = 4;
+    static final int MONTH_I = 4;
+    /**
+     * Pay-run index of the employee ID.
+     */
+    private static final int ID_I = 0;
+    /**
+     * Pay-run index of the annual salary.
+     */
+    private static final int PAY_SALARY_I = 1;
+    /**
+     * Pay-run index of the month.
+     */
+    private static final int PAY_MONTH_I = 2;
+    /**
+     * Pay-run index of the optional superannuation rate.
+     */
+    private static final int PAY_RATE_I = 3;
     /**
      * Comma.
      */
@@ -72,19 +100,41 @@ public final class PayslipRequestParser {
      */
     private final String line;
 
+    /**
+     * Employees of pay-run lines, {@code null} for lines with names.
+     */
+    private final EmployeeIndex employees;
+
     /**
      * Payslip request parser for {@code line}.
      *
      * @param line Parse this line.
      */
     public PayslipRequestParser(final String line) {
+        this(line, null);
+    }
+
+    /**
+     * Payslip request parser for a pay-run {@code line}, which references
+     * its employee by ID.
+     *
+     * @param line Parse this line.
+     * @param employees Employees the IDs refer to, {@code null} to parse a
+     *  line with names.
+     */
+    public PayslipRequestParser(
+        final String line,
+        final EmployeeIndex employees) {
         this.line = line;
+        this.employees = employees;
     }
 
     /**
      * Parses {@link PayslipRequestParser#line} to a {@link PayslipRequest}.
      * Allowed format: {@code
-     * <forename>,<surname>,<annual_salary>,<super_rate>%,<month>};
+     * <forename>,<surname>,<annual_salary>,<super_rate>%,<month>}, or with
+     * an employee index {@code <id>,<annual_salary>,<month>[,<super_rate>%]},
+     * where the names and the default super rate come from the index;
      *
      * @return A {@link PayslipRequest} that represents {@link
      *  PayslipRequestParser#line}.
@@ -100,10 +150,63 @@ public final class PayslipRequestParser {
             .map(String::trim)
             .filter(e -> !e.isEmpty())
             .toArray(String[]::new);
-        if (element.length != PayslipRequestParser.PARSE_LEN) {
-            throw new PayslipException(PayslipRequestParser.INVAL_ELMNT_AMNT);
+        final PayslipRequest request;
+        if (this.employees == null) {
+            if (element.length != PayslipRequestParser.PARSE_LEN) {
+                throw new PayslipException(
+                    ErrorCode.ELEMENT_AMOUNT, this.line
+                );
+            }
+            request = PayslipRequestParser.parse(element);
+        } else {
+            request = this.payRun(element);
+        }
+        return request;
+    }
+
+    /**
+     * Parse the {@code elements} of a pay-run line, which references its
+     * employee by ID, into a {@code PayslipRequest}.
+     *
+     * @param elements Parse this array.
+     * @return A {@link PayslipRequest}.
+     */
+    private PayslipRequest payRun(final String... elements) {
+        if (elements.length < PayslipRequestParser.PAY_RUN_LEN
+            || elements.length > PayslipRequestParser.PAY_RATE_I + 1) {
+            throw new PayslipException(ErrorCode.PAY_RUN_AMOUNT, this.line);
         }
-        return PayslipRequestParser.parse(element);
+        final String text = elements[PayslipRequestParser.ID_I];
+        final long id;
+        try {
+            id = Long.parseLong(text);
+        } catch (final NumberFormatException nfe) {
+            throw new PayslipException(ErrorCode.EMPLOYEE_ID, text, nfe);
+        }
+        final int slot = this.employees.find(id);
+        if (slot < 0) {
+            throw new PayslipException(ErrorCode.EMPLOYEE, text);
+        }
+        final Money salary = PayslipRequestParser.parseAnnualSalary(
+            elements[PayslipRequestParser.PAY_SALARY_I]
+        );
+        final BigDecimal rate;
+        if (elements.length > PayslipRequestParser.PAY_RATE_I) {
+            rate = PayslipRequestParser.parseSuperRate(
+                elements[PayslipRequestParser.PAY_RATE_I]
+            );
+        } else {
+            rate = this.employees.rate(slot);
+        }
+        return PayslipRequestParser.request(
+            new Employee(
+                this.employees.forename(slot),
+                this.employees.surname(slot),
+                salary
+            ),
+            rate,
+            elements[PayslipRequestParser.PAY_MONTH_I]
+        );
     }
 
     /**
@@ -114,46 +217,75 @@ public final class PayslipRequestParser {
      */
     private static PayslipRequest parse(final String... elements) {
         final Employee employee = parseEmployee(elements);
-        final BigDecimal rate = parseSuperRate(elements);
-        final Month month = parseMonth(elements);
-        return new PayslipRequest(employee, rate, month);
+        final BigDecimal rate = parseSuperRate(
+            elements[PayslipRequestParser.SUPER_RATE_I]
+        );
+        return PayslipRequestParser.request(
+            employee, rate, elements[PayslipRequestParser.MONTH_I]
+        );
     }
 
     /**
-     * Parse month from {@code elements}.
+     * Request of an employee for a month or a range of months.
      *
-     * @param elements Pick and parse month from this array.
+     * @param employee Employee.
+     * @param rate Superannuation rate.
+     * @param months The month element, a month or a range like {@code
+     *  July-June}.
+     * @return A {@link PayslipRequest}.
+     */
+    private static PayslipRequest request(
+        final Employee employee,
+        final BigDecimal rate,
+        final String months) {
+        final int split = months.indexOf('-');
+        final PayslipRequest request;
+        if (split < 0) {
+            request = new PayslipRequest(
+                employee, rate, parseMonth(months, months)
+            );
+        } else {
+            request = new PayslipRequest(
+                employee,
+                rate,
+                parseMonth(months.substring(0, split).trim(), months),
+                parseMonth(months.substring(split + 1).trim(), months)
+            );
+        }
+        return request;
+    }
+
+    /**
+     * Parse a month name.
+     *
+     * @param month Month name.
+     * @param field The month element, a month or a range like {@code
+     *  July-June}, reported when the name is invalid.
      * @return Month.
      */
-    private static Month parseMonth(final String... elements) {
-        final String month = elements[PayslipRequestParser.MONTH_I];
+    private static Month parseMonth(final String month, final String field) {
         try {
             return Month.valueOf(month.toUpperCase(Locale.getDefault()));
         } catch (final IllegalArgumentException iae) {
-            final String msg =
-                String.format(PayslipRequestParser.INVAL_MONTH, month);
-            throw new PayslipException(msg, iae);
+            throw new PayslipException(ErrorCode.MONTH, field, iae);
         }
     }
 
     /**
-     * Parse superannuation rate from {@code elements}.
+     * Parse a superannuation rate element like {@code 9.5%}.
      *
-     * @param elements Pick and parse superannuation rate from this array.
+     * @param rate Superannuation rate element.
      * @return Superannuation rate.
      */
-    private static BigDecimal parseSuperRate(final String... elements) {
-        final String rate = elements[PayslipRequestParser.SUPER_RATE_I];
+    static BigDecimal parseSuperRate(final String rate) {
         if (rate.length() < 2) {
-            throw new PayslipException(PayslipRequestParser.INVAL_SUPER_RATE);
+            throw new PayslipException(ErrorCode.SUPER_RATE_LENGTH, rate);
         }
         if (rate.charAt(rate.length() - 1) != '%') {
-            throw new PayslipException(
-                PayslipRequestParser.NO_PERCNT_SUFFX
-            );
+            throw new PayslipException(ErrorCode.SUPER_RATE_SUFFIX, rate);
         }
         final String digits = rate.substring(0, rate.length() - 1);
-        return parseBigDecimal(digits, "super rate");
+        return parseBigDecimal(digits, ErrorCode.SUPER_RATE_NUMBER);
     }
 
     /**
@@ -167,41 +299,41 @@ public final class PayslipRequestParser {
             elements[PayslipRequestParser.FORENAME_I];
         final String surname =
             elements[PayslipRequestParser.SURNAME_I];
-        final BigDecimal salary = parseAnnualSalary(elements);
+        final Money salary = parseAnnualSalary(
+            elements[PayslipRequestParser.ANNUAL_SALARY_I]
+        );
         return new Employee(forename, surname, salary);
     }
 
     /**
-     * Parses the annual salary from {@code elements}.
+     * Parses an annual salary element.
      *
-     * @param elements Pick and parse the annual salary from this array.
+     * @param salary Annual salary element.
      * @return Annual salary.
      */
-    private static BigDecimal parseAnnualSalary(final String... elements) {
-        final String salary = elements[PayslipRequestParser.ANNUAL_SALARY_I];
-        return parseBigDecimal(salary, "annual salary");
+    private static Money parseAnnualSalary(final String salary) {
+        try {
+            return Money.parse(salary);
+        } catch (final NumberFormatException nfe) {
+            throw new PayslipException(ErrorCode.SALARY_NUMBER, salary, nfe);
+        }
     }
 
     /**
      * Parses {@code element} into a decimal.
      *
      * @param element Parses this element into {@link BigDecimal}.
-     * @param field When {@code element} is not parable into {@link
-     *  BigDecimal}, this field is shown in the exception message.
+     * @param code When {@code element} is not parable into {@link
+     *  BigDecimal}, the exception has this code.
      * @return A {@link BigDecimal} with the value of {@code element}.
      */
     private static BigDecimal parseBigDecimal(
         final String element,
-        final String field) {
+        final ErrorCode code) {
         try {
             return new BigDecimal(element);
         } catch (final NumberFormatException nfe) {
-            final String msg = String.format(
-                "cannot parse %s '%s' into a number",
-                field,
-                element
-            );
-            throw new PayslipException(msg, nfe);
+            throw new PayslipException(code, element, nfe);
         }
     }
 }
@@ -4,8 +4,10 @@
 
 package com.github.dvdkruk.payslip.core;
 
+import com.github.dvdkruk.payslip.utils.CommaSeparatedStringBuilder;
 import java.time.Month;
 import java.time.Year;
+import java.util.Objects;
 
 /**
  * Represent a payslip result - Result of a successfully processed
@@ -43,7 +45,7 @@ public final class PayslipResult extends PayslipObject {
         final String name,
         final Month month,
         final FinancialInformation financial) {
-        super(name, toDisplayMonthRange(month), financial);
+        super();
         this.name = name;
         this.month = month;
         this.financial = financial;
@@ -103,13 +105,48 @@ public final class PayslipResult extends PayslipObject {
         return this.financial.getSuperannuation();
     }
 
+    @Override
+    protected void display(final CommaSeparatedStringBuilder builder) {
+        builder.append(String.valueOf(this.name))
+            .append(toDisplayMonthRange(this.month))
+            .append(String.valueOf(this.financial));
+    }
+
+    @Override
+    protected boolean equalFields(final PayslipObject obj) {
+        final PayslipResult that = (PayslipResult) obj;
+        return this.month == that.month
+            && Objects.equals(this.name, that.name)
+            && Objects.equals(this.financial, that.financial);
+    }
+
+    @Override
+    protected int fieldHash() {
+        int hash = Objects.hashCode(this.name);
+        hash = PayslipObject.PRIME * hash + Objects.hashCode(this.month);
+        return PayslipObject.PRIME * hash + Objects.hashCode(this.financial);
+    }
+
+    /**
+     * Display line without the full name, the part of {@link #toString()}
+     * after the name and its comma.
+     *
+     * @return Month range and financial information.
+     */
+    String getDetails() {
+        return new CommaSeparatedStringBuilder()
+            .append(toDisplayMonthRange(this.month))
+            .append(this.financial.toString())
+            .toString();
+    }
+
     /**
      * Display string of {@link PayslipResult#month}.
      *
      * @param month Month.
      * @return Display string of {@link PayslipResult#month}.
      */
-    private static String toDisplayMonthRange(final Month month) {
+    static String toDisplayMonthRange(final Month month) {
         return String.format(
             "01 %s - %s %1$s",
             toDisplayMonth(month),
@@ -0,0 +1,969 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only store of payslip results, keyed by employee name and
+ * period, for example {@code 201707}.
+ *
+ * <p>Results are appended as checksummed binary records to numbered segment
+ * files. A memory-mapped open addressing hash table maps the 64 bit hash of
+ * the key to the segment and offset of the latest record, so a lookup is a
+ * probe of the mapped index and one positional read. {@link #commit()}
+ * forces the appended records to disk, and threads that commit at the same
+ * time share one {@code fsync}. The index is marked clean when the store is
+ * closed; after a crash it is rebuilt by scanning the segments, and a torn
+ * record at the end of the last segment is truncated. {@link #compact()}
+ * rewrites the live records of all segments and removes the superseded
+ * ones.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipStore implements Closeable {
+
+    /**
+     * Default size after which a new segment is started.
+     */
+    public static final long DEFAULT_SEGMENT = 1L << 30;
+
+    /**
+     * Name of the index file.
+     */
+    private static final String INDEX = "index";
+
+    /**
+     * Suffix of segment files.
+     */
+    private static final String SUFFIX = ".seg";
+
+    /**
+     * Magic number of the index file.
+     */
+    private static final long MAGIC = 0x5041_5953_4c49_5031L;
+
+    /**
+     * Size of the index header.
+     */
+    private static final int HEADER = 64;
+
+    /**
+     * Position of the capacity in the index header.
+     */
+    private static final int CAPACITY_AT = 8;
+
+    /**
+     * Position of the amount of keys in the index header.
+     */
+    private static final int COUNT_AT = 16;
+
+    /**
+     * Position of the clean flag in the index header.
+     */
+    private static final int CLEAN_AT = 24;
+
+    /**
+     * Size of an index slot, the key hash and the location.
+     */
+    private static final int SLOT = 16;
+
+    /**
+     * Bytes per mapped chunk of the index, a multiple of the slot size.
+     */
+    private static final long CHUNK = 1L << 30;
+
+    /**
+     * Initial amount of index slots.
+     */
+    private static final long INITIAL = 1L << 12;
+
+    /**
+     * Bits of the offset in a location.
+     */
+    private static final int OFFSET_BITS = 40;
+
+    /**
+     * Size of the length and checksum of a record.
+     */
+    private static final int RECORD_HEAD = 8;
+
+    /**
+     * Size of the fixed fields of a record payload.
+     */
+    private static final int RECORD_FIXED = 19;
+
+    /**
+     * Largest size of a UTF-8 employee name.
+     */
+    private static final int MAX_NAME = 0xffff;
+
+    /**
+     * Size of the append buffer.
+     */
+    private static final int BUFFER = 1 << 17;
+
+    /**
+     * Multiplier of the FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100_0000_01b3L;
+
+    /**
+     * Offset basis of the FNV-1a hash.
+     */
+    private static final long FNV_BASIS = 0xcbf2_9ce4_8422_2325L;
+
+    /**
+     * Multiplier of the final mix of a hash.
+     */
+    private static final long MIX = 0xff51_afd7_ed55_8ccdL;
+
+    /**
+     * Mask of a byte.
+     */
+    private static final int BYTE = 0xff;
+
+    /**
+     * Shift of a half long.
+     */
+    private static final int HALF = 32;
+
+    /**
+     * Store directory.
+     */
+    private final Path dir;
+
+    /**
+     * Size after which a new segment is started.
+     */
+    private final long limit;
+
+    /**
+     * Open segments by number.
+     */
+    private final SortedMap<Integer, FileChannel> segments;
+
+    /**
+     * Buffer of appended records that are not written yet.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Serializes commits, so concurrent commits share one force.
+     */
+    private final Object committing;
+
+    /**
+     * Mapped chunks of the index file.
+     */
+    private MappedByteBuffer[] index;
+
+    /**
+     * Amount of index slots, a power of two.
+     */
+    private long capacity;
+
+    /**
+     * Amount of keys in the index.
+     */
+    private long count;
+
+    /**
+     * Number of the segment that records are appended to.
+     */
+    private int active;
+
+    /**
+     * Size of the active segment including the buffered records.
+     */
+    private long size;
+
+    /**
+     * Amount of appended records.
+     */
+    private long appended;
+
+    /**
+     * Amount of appended records that are forced to disk.
+     */
+    private volatile long durable;
+
+    /**
+     * Store constructor.
+     *
+     * @param dir Store directory.
+     * @param limit Size after which a new segment is started.
+     */
+    private PayslipStore(final Path dir, final long limit) {
+        this.dir = dir;
+        this.limit = limit;
+        this.segments = new TreeMap<>();
+        this.buffer = ByteBuffer.allocate(PayslipStore.BUFFER);
+        this.committing = new Object();
+    }
+
+    /**
+     * Opens or creates the store in {@code dir} with segments of {@link
+     * #DEFAULT_SEGMENT} bytes.
+     *
+     * @param dir Store directory.
+     * @return Opened store.
+     * @throws IOException When the store cannot be opened or recovered.
+     */
+    public static PayslipStore open(final Path dir) throws IOException {
+        return PayslipStore.open(dir, PayslipStore.DEFAULT_SEGMENT);
+    }
+
+    /**
+     * Opens or creates the store in {@code dir}.
+     *
+     * @param dir Store directory.
+     * @param limit Size after which a new segment is started.
+     * @return Opened store.
+     * @throws IOException When the store cannot be opened or recovered.
+     */
+    public static PayslipStore open(final Path dir, final long limit)
+        throws IOException {
+        Files.createDirectories(dir);
+        final PayslipStore store = new PayslipStore(dir, limit);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Appends the result of an employee for a period. A result for the same
+     * name and period supersedes the previous one. The record is durable
+     * after the next {@link #commit()}.
+     *
+     * @param period Period of the result, for example {@code 201707}.
+     * @param result Result with the employee name.
+     * @throws IOException When writing fails.
+     */
+    public synchronized void append(
+        final int period,
+        final PayslipResult result) throws IOException {
+        final byte[] name = result.getName().getBytes(StandardCharsets.UTF_8);
+        final int payload = PayslipStore.RECORD_FIXED + name.length;
+        if (name.length > PayslipStore.MAX_NAME) {
+            throw new PayslipException("employee name is too long to store");
+        }
+        if (this.size > 0L && this.size + payload > this.limit) {
+            this.roll();
+        }
+        if (this.buffer.remaining() < PayslipStore.RECORD_HEAD + payload) {
+            this.flush();
+        }
+        final long location = PayslipStore.location(this.active, this.size);
+        final int start = this.buffer.position();
+        this.buffer.putInt(payload).putInt(0);
+        this.buffer.putInt(period)
+            .put((byte) result.getMonth().getValue())
+            .putInt(result.getSalary())
+            .putInt(result.getTax())
+            .putInt(result.getSuperannuation())
+            .putShort((short) name.length)
+            .put(name);
+        final CRC32 crc = new CRC32();
+        crc.update(
+            this.buffer.array(), start + PayslipStore.RECORD_HEAD, payload
+        );
+        this.buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+        this.size += PayslipStore.RECORD_HEAD + payload;
+        this.appended += 1L;
+        this.put(name, period, location);
+    }
+
+    /**
+     * Forces the appended records to disk. A commit that arrives while
+     * another commit forces the segment waits for it, and is done without a
+     * force of its own when that force covered its records.
+     *
+     * @throws IOException When writing or forcing fails.
+     */
+    public void commit() throws IOException {
+        final long target;
+        synchronized (this) {
+            target = this.appended;
+        }
+        synchronized (this.committing) {
+            if (this.durable < target) {
+                final long upto;
+                final FileChannel channel;
+                synchronized (this) {
+                    this.flush();
+                    upto = this.appended;
+                    channel = this.segments.get(this.active);
+                }
+                channel.force(false);
+                this.durable = upto;
+            }
+        }
+    }
+
+    /**
+     * Latest result of an employee for a period.
+     *
+     * @param name Employee name.
+     * @param period Period of the result.
+     * @return Result or {@code null} when none is stored.
+     * @throws IOException When reading fails.
+     */
+    public synchronized PayslipResult find(final String name, final int period)
+        throws IOException {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        final long hash = PayslipStore.hash(bytes, period);
+        long slot = hash & this.capacity - 1L;
+        PayslipResult result = null;
+        long stored = this.slotHash(slot);
+        while (result == null && stored != 0L) {
+            if (stored == hash) {
+                final ByteBuffer record = this.read(this.slotLocation(slot));
+                if (PayslipStore.matches(record, bytes, period)) {
+                    result = PayslipStore.decode(record);
+                }
+            }
+            slot = slot + 1L & this.capacity - 1L;
+            stored = this.slotHash(slot);
+        }
+        return result;
+    }
+
+    /**
+     * Amount of stored keys, without superseded records.
+     *
+     * @return Amount of keys.
+     */
+    public synchronized long size() {
+        return this.count;
+    }
+
+    /**
+     * Amount of segment files.
+     *
+     * @return Amount of segments.
+     */
+    public synchronized int segments() {
+        return this.segments.size();
+    }
+
+    /**
+     * Rewrites the live records of all segments into a new segment and
+     * deletes the old segments. Records are appended to a new segment after
+     * the compacted one, so the compacted records stay older than them.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    public synchronized void compact() throws IOException {
+        this.flush();
+        final List<Integer> old = new ArrayList<>(this.segments.keySet());
+        final int target = this.active + 1;
+        final FileChannel compacted =
+            PayslipStore.channel(this.segment(target));
+        this.segments.put(target, compacted);
+        final long[] position = new long[1];
+        final ByteBuffer out = ByteBuffer.allocate(PayslipStore.BUFFER);
+        for (final int number : old) {
+            this.scan(
+                number,
+                (offset, record) -> {
+                    final long from = PayslipStore.location(number, offset);
+                    final long hash = PayslipStore.hash(record);
+                    final long slot = this.slotOf(hash, from);
+                    if (slot >= 0L) {
+                        if (out.remaining() < record.remaining()) {
+                            PayslipStore.drain(out, compacted);
+                        }
+                        this.setSlot(
+                            slot, hash,
+                            PayslipStore.location(target, position[0])
+                        );
+                        position[0] += record.remaining();
+                        out.put(record);
+                    }
+                }
+            );
+        }
+        PayslipStore.drain(out, compacted);
+        compacted.force(false);
+        for (final int number : old) {
+            this.segments.remove(number).close();
+            Files.delete(this.segment(number));
+        }
+        this.active = target + 1;
+        this.size = 0L;
+        this.segments.put(
+            this.active, PayslipStore.channel(this.segment(this.active))
+        );
+        this.durable = this.appended;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.commit();
+        synchronized (this) {
+            for (final MappedByteBuffer chunk : this.index) {
+                chunk.force();
+            }
+            this.header().putLong(PayslipStore.COUNT_AT, this.count)
+                .putInt(PayslipStore.CLEAN_AT, 1);
+            this.index[0].force();
+            for (final FileChannel channel : this.segments.values()) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Opens the segments and the index, and rebuilds the index when the
+     * store was not closed.
+     *
+     * @throws IOException When the store cannot be opened or recovered.
+     */
+    private void load() throws IOException {
+        try (
+            DirectoryStream<Path> files =
+                Files.newDirectoryStream(
+                    this.dir, "*".concat(PayslipStore.SUFFIX)
+                )
+        ) {
+            for (final Path file : files) {
+                final String name = file.getFileName().toString();
+                final int number = Integer.parseInt(
+                    name.substring(
+                        0, name.length() - PayslipStore.SUFFIX.length()
+                    )
+                );
+                this.segments.put(number, PayslipStore.channel(file));
+            }
+        }
+        if (this.segments.isEmpty()) {
+            this.segments.put(0, PayslipStore.channel(this.segment(0)));
+        }
+        this.active = this.segments.lastKey();
+        final Path file = this.dir.resolve(PayslipStore.INDEX);
+        boolean clean = false;
+        if (Files.exists(file) && Files.size(file) >= PayslipStore.HEADER) {
+            this.map(file, -1L);
+            final ByteBuffer header = this.header();
+            clean = header.getLong(0) == PayslipStore.MAGIC
+                && header.getInt(PayslipStore.CLEAN_AT) == 1;
+        }
+        if (clean) {
+            this.count = this.header().getLong(PayslipStore.COUNT_AT);
+        } else {
+            this.map(file, PayslipStore.INITIAL);
+            this.count = 0L;
+            for (final int number : this.segments.keySet()) {
+                this.scan(
+                    number,
+                    (offset, record) -> this.put(
+                        PayslipStore.name(record), PayslipStore.period(record),
+                        PayslipStore.location(number, offset)
+                    )
+                );
+            }
+        }
+        this.header().putInt(PayslipStore.CLEAN_AT, 0);
+        this.index[0].force();
+        this.size = this.segments.get(this.active).size();
+    }
+
+    /**
+     * Maps the index file.
+     *
+     * @param file Index file.
+     * @param slots Amount of slots of a new empty index, or {@code -1} to
+     *  map the existing file.
+     * @throws IOException When mapping fails.
+     */
+    private void map(final Path file, final long slots) throws IOException {
+        try (
+            FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+            )
+        ) {
+            final long length;
+            if (slots < 0L) {
+                length = channel.size();
+            } else {
+                channel.truncate(0L);
+                length = PayslipStore.HEADER + slots * PayslipStore.SLOT;
+            }
+            final int chunks = (int) ((length - 1L) / PayslipStore.CHUNK) + 1;
+            this.index = new MappedByteBuffer[chunks];
+            for (int chunk = 0; chunk < chunks; ++chunk) {
+                final long start = chunk * PayslipStore.CHUNK;
+                this.index[chunk] = channel.map(
+                    FileChannel.MapMode.READ_WRITE, start,
+                    Math.min(PayslipStore.CHUNK, length - start)
+                );
+            }
+            if (slots >= 0L) {
+                this.header().putLong(0, PayslipStore.MAGIC)
+                    .putLong(PayslipStore.CAPACITY_AT, slots);
+            }
+            this.capacity = this.header().getLong(PayslipStore.CAPACITY_AT);
+        }
+    }
+
+    /**
+     * Points a key to {@code location}, replacing the location of the same
+     * key, and grows the index beyond three quarters. Only a slot with the
+     * same hash costs a read to compare the stored key.
+     *
+     * @param name UTF-8 employee name.
+     * @param period Period.
+     * @param location Location of the latest record.
+     * @throws IOException When reading a record or growing fails.
+     */
+    private void put(final byte[] name, final int period, final long location)
+        throws IOException {
+        final long hash = PayslipStore.hash(name, period);
+        long slot = hash & this.capacity - 1L;
+        long stored = this.slotHash(slot);
+        boolean placed = false;
+        while (!placed && stored != 0L) {
+            if (stored == hash && PayslipStore.matches(
+                this.read(this.slotLocation(slot)), name, period
+            )) {
+                this.setSlot(slot, hash, location);
+                placed = true;
+            } else {
+                slot = slot + 1L & this.capacity - 1L;
+                stored = this.slotHash(slot);
+            }
+        }
+        if (!placed) {
+            this.setSlot(slot, hash, location);
+            this.count += 1L;
+            if (this.count * 4L > this.capacity * 3L) {
+                this.grow();
+            }
+        }
+    }
+
+    /**
+     * Slot of the key with {@code hash} when it points to {@code location}.
+     *
+     * @param hash Key hash.
+     * @param location Record location.
+     * @return Slot or {@code -1} when the key points elsewhere.
+     */
+    private long slotOf(final long hash, final long location) {
+        long slot = hash & this.capacity - 1L;
+        long stored = this.slotHash(slot);
+        long found = -1L;
+        while (found < 0L && stored != 0L) {
+            if (stored == hash && this.slotLocation(slot) == location) {
+                found = slot;
+            }
+            slot = slot + 1L & this.capacity - 1L;
+            stored = this.slotHash(slot);
+        }
+        return found;
+    }
+
+    /**
+     * Doubles the index into a new file, which replaces the old one.
+     *
+     * @throws IOException When writing the new index fails.
+     */
+    private void grow() throws IOException {
+        final MappedByteBuffer[] old = this.index;
+        final long slots = this.capacity;
+        final Path file = this.dir.resolve(PayslipStore.INDEX);
+        final Path next = this.dir.resolve(PayslipStore.INDEX.concat(".tmp"));
+        this.map(next, slots * 2L);
+        for (long slot = 0L; slot < slots; ++slot) {
+            final long at = PayslipStore.HEADER + slot * PayslipStore.SLOT;
+            final ByteBuffer chunk = old[(int) (at / PayslipStore.CHUNK)];
+            final int pos = (int) (at % PayslipStore.CHUNK);
+            final long hash = chunk.getLong(pos);
+            if (hash != 0L) {
+                long target = hash & this.capacity - 1L;
+                while (this.slotHash(target) != 0L) {
+                    target = target + 1L & this.capacity - 1L;
+                }
+                this.setSlot(target, hash, chunk.getLong(pos + Long.BYTES));
+            }
+        }
+        Files.move(next, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the record at {@code location}, writing buffered records first
+     * when it is one of them.
+     *
+     * @param location Record location.
+     * @return Record from its length prefix, positioned at the start.
+     * @throws IOException When reading fails.
+     */
+    private ByteBuffer read(final long location) throws IOException {
+        final int number = (int) (location >>> PayslipStore.OFFSET_BITS);
+        final long offset = location & (1L << PayslipStore.OFFSET_BITS) - 1L;
+        if (number == this.active && this.buffer.position() > 0) {
+            this.flush();
+        }
+        final FileChannel channel = this.segments.get(number);
+        final ByteBuffer head = ByteBuffer.allocate(PayslipStore.RECORD_HEAD);
+        PayslipStore.readFully(channel, head, offset);
+        final ByteBuffer record = ByteBuffer.allocate(
+            PayslipStore.RECORD_HEAD + head.getInt(0)
+        );
+        PayslipStore.readFully(channel, record, offset);
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Calls {@code visitor} with every valid record of a segment, and
+     * truncates a torn or corrupt tail of the active segment, which is all
+     * a crash can leave behind.
+     *
+     * @param number Segment number.
+     * @param visitor Receives the offset and record of every record.
+     * @throws IOException When reading fails or a sealed segment is corrupt.
+     */
+    private void scan(final int number, final PayslipStore.Visitor visitor)
+        throws IOException {
+        final FileChannel channel = this.segments.get(number);
+        final long end = channel.size();
+        final ByteBuffer head = ByteBuffer.allocate(PayslipStore.RECORD_HEAD);
+        long offset = 0L;
+        boolean valid = true;
+        while (valid && offset < end) {
+            head.clear();
+            valid = end - offset >= PayslipStore.RECORD_HEAD;
+            if (valid) {
+                PayslipStore.readFully(channel, head, offset);
+                final int payload = head.getInt(0);
+                valid = payload >= PayslipStore.RECORD_FIXED
+                    && payload <= end - offset - PayslipStore.RECORD_HEAD;
+                if (valid) {
+                    final ByteBuffer record = ByteBuffer.allocate(
+                        PayslipStore.RECORD_HEAD + payload
+                    );
+                    PayslipStore.readFully(channel, record, offset);
+                    record.flip();
+                    valid = PayslipStore.checksum(record) == head.getInt(
+                        Integer.BYTES
+                    );
+                    if (valid) {
+                        visitor.visit(offset, record.duplicate());
+                        offset += record.remaining();
+                    }
+                }
+            }
+        }
+        if (!valid) {
+            if (number != this.active) {
+                throw new IOException(
+                    String.format(
+                        "corrupt record in segment %d at %d", number, offset
+                    )
+                );
+            }
+            channel.truncate(offset);
+        }
+    }
+
+    /**
+     * Writes the buffered records to the active segment.
+     *
+     * @throws IOException When writing fails.
+     */
+    private void flush() throws IOException {
+        PayslipStore.drain(this.buffer, this.segments.get(this.active));
+    }
+
+    /**
+     * Seals the active segment and starts a new one.
+     *
+     * @throws IOException When writing or forcing fails.
+     */
+    private void roll() throws IOException {
+        this.flush();
+        this.segments.get(this.active).force(false);
+        this.active += 1;
+        this.size = 0L;
+        this.segments.put(
+            this.active, PayslipStore.channel(this.segment(this.active))
+        );
+    }
+
+    /**
+     * Path of a segment.
+     *
+     * @param number Segment number.
+     * @return Segment path.
+     */
+    private Path segment(final int number) {
+        return this.dir.resolve(
+            String.format("%010d%s", number, PayslipStore.SUFFIX)
+        );
+    }
+
+    /**
+     * The index header.
+     *
+     * @return Header buffer of the first chunk.
+     */
+    private ByteBuffer header() {
+        return this.index[0];
+    }
+
+    /**
+     * Key hash of a slot.
+     *
+     * @param slot Slot index.
+     * @return Key hash, {@code 0} when the slot is empty.
+     */
+    private long slotHash(final long slot) {
+        final long at = PayslipStore.HEADER + slot * PayslipStore.SLOT;
+        return this.index[(int) (at / PayslipStore.CHUNK)]
+            .getLong((int) (at % PayslipStore.CHUNK));
+    }
+
+    /**
+     * Record location of a slot.
+     *
+     * @param slot Slot index.
+     * @return Record location.
+     */
+    private long slotLocation(final long slot) {
+        final long at = PayslipStore.HEADER + slot * PayslipStore.SLOT;
+        return this.index[(int) (at / PayslipStore.CHUNK)]
+            .getLong((int) (at % PayslipStore.CHUNK) + Long.BYTES);
+    }
+
+    /**
+     * Writes a slot.
+     *
+     * @param slot Slot index.
+     * @param hash Key hash.
+     * @param location Record location.
+     */
+    private void setSlot(
+        final long slot,
+        final long hash,
+        final long location) {
+        final long at = PayslipStore.HEADER + slot * PayslipStore.SLOT;
+        final ByteBuffer chunk = this.index[(int) (at / PayslipStore.CHUNK)];
+        final int pos = (int) (at % PayslipStore.CHUNK);
+        chunk.putLong(pos + Long.BYTES, location);
+        chunk.putLong(pos, hash);
+    }
+
+    /**
+     * Location of an offset in a segment.
+     *
+     * @param number Segment number.
+     * @param offset Offset in the segment.
+     * @return Location.
+     */
+    private static long location(final int number, final long offset) {
+        return (long) number << PayslipStore.OFFSET_BITS | offset;
+    }
+
+    /**
+     * Key hash of an employee name and period, never {@code 0}.
+     *
+     * @param name UTF-8 employee name.
+     * @param period Period.
+     * @return Key hash.
+     */
+    private static long hash(final byte[] name, final int period) {
+        long hash = PayslipStore.FNV_BASIS;
+        for (final byte chr : name) {
+            hash = (hash ^ (chr & PayslipStore.BYTE)) * PayslipStore.FNV_PRIME;
+        }
+        hash = (hash ^ period) * PayslipStore.MIX;
+        hash ^= hash >>> PayslipStore.HALF;
+        return hash == 0L ? 1L : hash;
+    }
+
+    /**
+     * Key hash of a record.
+     *
+     * @param record Record positioned at its start.
+     * @return Key hash.
+     */
+    private static long hash(final ByteBuffer record) {
+        return PayslipStore.hash(
+            PayslipStore.name(record), PayslipStore.period(record)
+        );
+    }
+
+    /**
+     * Whether a record has the given key.
+     *
+     * @param record Record positioned at its start.
+     * @param name UTF-8 employee name.
+     * @param period Period.
+     * @return True when the name and period are equal.
+     */
+    private static boolean matches(
+        final ByteBuffer record,
+        final byte[] name,
+        final int period) {
+        return PayslipStore.period(record) == period
+            && Arrays.equals(PayslipStore.name(record), name);
+    }
+
+    /**
+     * Period of a record.
+     *
+     * @param record Record positioned at its start.
+     * @return Period.
+     */
+    private static int period(final ByteBuffer record) {
+        return record.getInt(record.position() + PayslipStore.RECORD_HEAD);
+    }
+
+    /**
+     * UTF-8 employee name of a record.
+     *
+     * @param record Record positioned at its start.
+     * @return Name bytes.
+     */
+    private static byte[] name(final ByteBuffer record) {
+        final int at = record.position() + PayslipStore.RECORD_HEAD
+            + PayslipStore.RECORD_FIXED;
+        final byte[] name =
+            new byte[record.getShort(at - Short.BYTES) & PayslipStore.MAX_NAME];
+        final ByteBuffer view = record.duplicate();
+        view.position(at);
+        view.get(name);
+        return name;
+    }
+
+    /**
+     * Decodes a record.
+     *
+     * @param record Record positioned at its start.
+     * @return Payslip result.
+     */
+    private static PayslipResult decode(final ByteBuffer record) {
+        final ByteBuffer view = record.duplicate();
+        view.position(
+            record.position() + PayslipStore.RECORD_HEAD + Integer.BYTES
+        );
+        final Month month = Month.of(view.get());
+        final int salary = view.getInt();
+        final int tax = view.getInt();
+        final int superann = view.getInt();
+        return new PayslipResult(
+            new String(PayslipStore.name(record), StandardCharsets.UTF_8),
+            month,
+            new FinancialInformation(salary, tax, superann)
+        );
+    }
+
+    /**
+     * Checksum of the payload of a record.
+     *
+     * @param record Record positioned at its start.
+     * @return CRC-32 of the payload.
+     */
+    private static int checksum(final ByteBuffer record) {
+        final CRC32 crc = new CRC32();
+        crc.update(
+            record.array(),
+            record.position() + PayslipStore.RECORD_HEAD,
+            record.remaining() - PayslipStore.RECORD_HEAD
+        );
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Opens a segment file for reading and appending.
+     *
+     * @param file Segment file.
+     * @return Channel positioned at the end.
+     * @throws IOException When opening fails.
+     */
+    private static FileChannel channel(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        channel.position(channel.size());
+        return channel;
+    }
+
+    /**
+     * Writes and clears a buffer.
+     *
+     * @param buffer Buffer with bytes up to its position.
+     * @param channel Target channel at the end of the segment.
+     * @throws IOException When writing fails.
+     */
+    private static void drain(
+        final ByteBuffer buffer,
+        final FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Fills a buffer from a channel position.
+     *
+     * @param channel Source channel.
+     * @param buffer Buffer to fill.
+     * @param offset Channel position.
+     * @throws IOException When the end of the channel is reached first.
+     */
+    private static void readFully(
+        final FileChannel channel,
+        final ByteBuffer buffer,
+        final long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of segment");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Receives the records of a segment scan.
+     */
+    private interface Visitor {
+
+        /**
+         * Visits a record.
+         *
+         * @param offset Offset of the record in its segment.
+         * @param record Record positioned at its start.
+         * @throws IOException When handling the record fails.
+         */
+        void visit(long offset, ByteBuffer record) throws IOException;
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Checks request lines with the rules of {@link PayslipRequestParser} and
+ * {@link PayslipProcessor#processMonths(PayslipRequest)}, without building
+ * requests, calculating or throwing exceptions. A line gets the {@link
+ * ErrorCode} of the first rule it breaks, in the order in which the parser
+ * and the processor apply them.
+ *
+ * <p>The check works on the UTF-8 bytes of a line. Fields of ASCII bytes are
+ * checked in place; fields with other characters and super rates with an
+ * exponent, which are rare, are decoded and checked with the same classes
+ * as the parser. {@link #scan(Path)} maps the input in chunks that end at
+ * a line break and checks the chunks in parallel.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class RequestValidator {
+
+    /**
+     * Default nominal size of a chunk of the input.
+     */
+    static final long DEFAULT_CHUNK = 1L << 25;
+
+    /**
+     * Size of the buffer that searches a line break after a chunk bound.
+     */
+    private static final int PROBE = 4096;
+
+    /**
+     * Largest whole number of a super rate in range.
+     */
+    private static final int MAX_RATE =
+        PayslipProcessor.MAX_SUPER_RATE.intValueExact();
+
+    /**
+     * Cap of the whole number part of a super rate in the fast path.
+     */
+    private static final int RATE_CAP = 1000;
+
+    /**
+     * Radix of the super rate digits.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Nominal size of a chunk of the input.
+     */
+    private final long chunk;
+
+    /**
+     * The default locale uppercases ASCII letters to ASCII letters.
+     */
+    private final boolean ascii;
+
+    /**
+     * Validator for the current default locale, which the parser uses to
+     * read month names.
+     */
+    public RequestValidator() {
+        this(RequestValidator.DEFAULT_CHUNK);
+    }
+
+    /**
+     * Validator with another chunk size.
+     *
+     * @param chunk Nominal size of a chunk of the input.
+     */
+    RequestValidator(final long chunk) {
+        this.chunk = chunk;
+        this.ascii = FieldScanner.isAsciiLocale();
+    }
+
+    /**
+     * Checks a request line.
+     *
+     * @param line Request line.
+     * @return Error code of the first broken rule or {@code null} when the
+     *  line is a valid request.
+     */
+    public ErrorCode check(final String line) {
+        final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return new RequestValidator.Checker(
+            new FieldScanner(ByteBuffer.wrap(bytes), this.ascii)
+        ).check(0, bytes.length);
+    }
+
+    /**
+     * Checks every line of a file, in parallel chunks. Blank lines are
+     * counted but not checked, like in batch mode.
+     *
+     * @param input Input file with one request per line.
+     * @return Report of the rejected lines.
+     * @throws IOException When reading fails.
+     */
+    public ValidationReport scan(final Path input) throws IOException {
+        final ValidationReport report = new ValidationReport();
+        try (
+            FileChannel channel =
+                FileChannel.open(input, StandardOpenOption.READ)
+        ) {
+            final long[] bounds = this.bounds(channel);
+            final List<ValidationReport> parts;
+            try {
+                parts = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(
+                        part -> this.scan(
+                            channel, bounds[part], bounds[part + 1]
+                        )
+                    )
+                    .collect(Collectors.toList());
+            } catch (final UncheckedIOException uio) {
+                throw uio.getCause();
+            }
+            for (final ValidationReport part : parts) {
+                report.append(part);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Checks the lines of a chunk.
+     *
+     * @param channel Input.
+     * @param from Start of the chunk, the start of a line.
+     * @param until End of the chunk, after a line break or at the end.
+     * @return Report with line numbers relative to the chunk.
+     * @throws UncheckedIOException When mapping fails.
+     */
+    private ValidationReport scan(
+        final FileChannel channel,
+        final long from,
+        final long until) {
+        final ByteBuffer buffer;
+        try {
+            buffer = channel.map(
+                FileChannel.MapMode.READ_ONLY, from, until - from
+            );
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+        final FieldScanner fields = new FieldScanner(buffer, this.ascii);
+        final RequestValidator.Checker checker =
+            new RequestValidator.Checker(fields);
+        final ValidationReport report = new ValidationReport();
+        final int limit = buffer.limit();
+        long number = 0L;
+        int start = 0;
+        while (start < limit) {
+            int stop = start;
+            while (stop < limit && buffer.get(stop) != '\n') {
+                stop += 1;
+            }
+            int end = stop;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end -= 1;
+            }
+            number += 1L;
+            final boolean blank = fields.trimStart(start, end) == end;
+            report.line(blank);
+            if (!blank) {
+                final ErrorCode code = checker.check(start, end);
+                if (code != null) {
+                    report.reject(number, code);
+                }
+            }
+            start = stop + 1;
+        }
+        return report;
+    }
+
+    /**
+     * Chunk bounds of the input, every bound except the last is the start
+     * of a line.
+     *
+     * @param channel Input.
+     * @return Bounds, starting at zero and ending at the size.
+     * @throws IOException When reading fails.
+     */
+    private long[] bounds(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        final ByteBuffer probe = ByteBuffer.allocate(RequestValidator.PROBE);
+        long bound = 0L;
+        while (bound < size) {
+            long next = bound + this.chunk;
+            if (next >= size) {
+                next = size;
+            } else {
+                boolean found = false;
+                long position = next - 1L;
+                while (!found && position < size) {
+                    probe.clear();
+                    final int read = Math.max(0, channel.read(probe, position));
+                    int index = 0;
+                    while (!found && index < read) {
+                        found = probe.get(index) == '\n';
+                        index += 1;
+                    }
+                    position += index;
+                }
+                next = Math.min(position, size);
+            }
+            bounds.add(next);
+            bound = next;
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Checks lines of one buffer, not thread safe.
+     */
+    private static final class Checker {
+
+        /**
+         * Fields of the checked line.
+         */
+        private final FieldScanner fields;
+
+        /**
+         * Receives the cents of the annual salary.
+         */
+        private final long[] cents;
+
+        /**
+         * Receives the first and the last month.
+         */
+        private final int[] range;
+
+        /**
+         * Checker constructor.
+         *
+         * @param fields Scanner of the buffer with the lines.
+         */
+        Checker(final FieldScanner fields) {
+            this.fields = fields;
+            this.cents = new long[1];
+            this.range = new int[2];
+        }
+
+        /**
+         * Checks a line.
+         *
+         * @param from Start of the line.
+         * @param until End of the line without its line terminator.
+         * @return Error code of the first broken rule or {@code null}.
+         */
+        ErrorCode check(final int from, final int until) {
+            ErrorCode code = null;
+            if (this.fields.split(from, until)
+                != PayslipRequestParser.PARSE_LEN) {
+                code = ErrorCode.ELEMENT_AMOUNT;
+            }
+            if (code == null && !Money.tryParse(
+                this.fields.field(PayslipRequestParser.ANNUAL_SALARY_I),
+                this.cents
+            )) {
+                code = ErrorCode.SALARY_NUMBER;
+            }
+            int rate = 0;
+            if (code == null) {
+                final CharSequence text =
+                    this.fields.field(PayslipRequestParser.SUPER_RATE_I);
+                if (text.length() < 2) {
+                    code = ErrorCode.SUPER_RATE_LENGTH;
+                } else if (text.charAt(text.length() - 1) != '%') {
+                    code = ErrorCode.SUPER_RATE_SUFFIX;
+                } else {
+                    rate = RequestValidator.Checker.rate(
+                        text, text.length() - 1
+                    );
+                    if (rate < 0) {
+                        code = ErrorCode.SUPER_RATE_NUMBER;
+                    }
+                }
+            }
+            if (code == null && !this.fields.months(
+                PayslipRequestParser.MONTH_I, this.range
+            )) {
+                code = ErrorCode.MONTH;
+            }
+            if (code == null && this.cents[0] <= 0L) {
+                code = ErrorCode.SALARY;
+            }
+            if (code == null && this.cents[0] > PayslipProcessor.MAX_SALARY) {
+                code = ErrorCode.SALARY_RANGE;
+            }
+            if (code == null && rate > 0) {
+                code = ErrorCode.SUPER_RATE_RANGE;
+            }
+            return code;
+        }
+
+        /**
+         * Checks a super rate number like {@link BigDecimal#BigDecimal(
+         * String)} and the range of the processor.
+         *
+         * @param text Rate field.
+         * @param until End of the number, before the percent sign.
+         * @return Zero when valid and in range, one when out of range and
+         *  minus one when not a number.
+         */
+        private static int rate(final CharSequence text, final int until) {
+            int pos = 0;
+            boolean negative = false;
+            if (text.charAt(0) == '-' || text.charAt(0) == '+') {
+                negative = text.charAt(0) == '-';
+                pos = 1;
+            }
+            int whole = 0;
+            int digits = 0;
+            boolean dot = false;
+            boolean fraction = false;
+            boolean nonzero = false;
+            boolean valid = true;
+            boolean plain = true;
+            for (; valid && plain && pos < until; ++pos) {
+                final char chr = text.charAt(pos);
+                if (chr >= '0' && chr <= '9') {
+                    final int digit = chr - '0';
+                    digits += 1;
+                    nonzero = nonzero || digit != 0;
+                    if (dot) {
+                        fraction = fraction || digit != 0;
+                    } else {
+                        whole = Math.min(
+                            whole * RequestValidator.RADIX + digit,
+                            RequestValidator.RATE_CAP
+                        );
+                    }
+                } else if (chr == '.' && !dot) {
+                    dot = true;
+                } else {
+                    plain = chr <= FieldScanner.ASCII
+                        && chr != 'e' && chr != 'E';
+                    valid = !plain;
+                }
+            }
+            final int result;
+            if (!plain) {
+                result = RequestValidator.Checker.decimal(
+                    text.subSequence(0, until).toString()
+                );
+            } else if (!valid || digits == 0) {
+                result = -1;
+            } else if (negative && nonzero
+                || whole > RequestValidator.MAX_RATE
+                || whole == RequestValidator.MAX_RATE && fraction) {
+                result = 1;
+            } else {
+                result = 0;
+            }
+            return result;
+        }
+
+        /**
+         * Checks a super rate number that the fast path does not handle with
+         * {@link BigDecimal} itself.
+         *
+         * @param text Rate number.
+         * @return Zero when valid and in range, one when out of range and
+         *  minus one when not a number.
+         */
+        private static int decimal(final String text) {
+            int result;
+            try {
+                final BigDecimal rate = new BigDecimal(text);
+                result = 0;
+                if (rate.signum() < 0
+                    || rate.compareTo(PayslipProcessor.MAX_SUPER_RATE) > 0) {
+                    result = 1;
+                }
+            } catch (final NumberFormatException nfe) {
+                result = -1;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Runs a batch in several worker JVMs. The input is split into shard files,
+ * or into byte ranges that the workers read from the input itself, every
+ * shard is processed by its own worker process with its own {@link
+ * PayslipProcessor} and the sequenced shard outputs are merged back into
+ * input order. Workers are started as local processes or through a launcher
+ * command prefix, like {@code ssh node{shard}}, on hosts that share the
+ * file system.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class ShardCoordinator {
+
+    /**
+     * Placeholder for the shard index in the launcher prefix.
+     */
+    public static final String SHARD_PLACEHOLDER = "{shard}";
+
+    /**
+     * Batch settings of the complete run.
+     */
+    private final BatchSettings settings;
+
+    /**
+     * Amount of shards.
+     */
+    private final int shards;
+
+    /**
+     * Strategy for assigning lines to shards.
+     */
+    private final ShardStrategy strategy;
+
+    /**
+     * Command prefix for starting a worker JVM.
+     */
+    private List<String> launcher;
+
+    /**
+     * Coordinator constructor.
+     *
+     * @param settings Batch settings of the complete run.
+     * @param shards Amount of shards and worker processes.
+     * @param strategy Strategy for assigning lines to shards.
+     */
+    public ShardCoordinator(
+        final BatchSettings settings,
+        final int shards,
+        final ShardStrategy strategy) {
+        if (shards < 1) {
+            throw new PayslipException("amount of shards must be positive");
+        }
+        this.settings = settings;
+        this.shards = shards;
+        this.strategy = strategy;
+        this.launcher = Collections.emptyList();
+    }
+
+    /**
+     * Copy of this coordinator that starts workers with a command prefix.
+     * Every {@link ShardCoordinator#SHARD_PLACEHOLDER} in the prefix is
+     * replaced by the shard index.
+     *
+     * @param prefix Command prefix, for example {@code ssh node{shard}}.
+     * @return New coordinator.
+     */
+    public ShardCoordinator withLauncher(final List<String> prefix) {
+        final ShardCoordinator copy = new ShardCoordinator(
+            this.settings, this.shards, this.strategy
+        );
+        copy.launcher = Collections.unmodifiableList(new ArrayList<>(prefix));
+        return copy;
+    }
+
+    /**
+     * Splits the input, runs all workers and merges their results.
+     *
+     * @return Combined totals of all shards.
+     * @throws IOException When a step or a worker fails.
+     */
+    public BatchTotals run() throws IOException {
+        final Path output = this.settings.getOutput();
+        final Path dir = Files.createDirectories(
+            output.resolveSibling(
+                String.format("%s.shards", output.getFileName())
+            )
+        );
+        final List<Path> outputs = new ArrayList<>(this.shards);
+        for (int shard = 0; shard < this.shards; ++shard) {
+            outputs.add(dir.resolve(String.format("shard-%d.out", shard)));
+        }
+        this.await(
+            this.launch(
+                this.strategy.inputs(
+                    this.settings.getInput(), dir, this.shards
+                ),
+                outputs
+            )
+        );
+        new ShardMerger().merge(outputs, output);
+        final BatchTotals totals = new BatchTotals();
+        for (final Path shard : outputs) {
+            totals.combine(
+                Checkpoint.load(Checkpoint.fileOf(shard)).getTotals()
+            );
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+        return totals;
+    }
+
+    /**
+     * Starts a worker process for every shard.
+     *
+     * @param inputs Input arguments of every shard.
+     * @param outputs Shard output files.
+     * @return Worker processes.
+     * @throws IOException When a worker cannot be started.
+     */
+    private List<Process> launch(
+        final List<List<String>> inputs,
+        final List<Path> outputs) throws IOException {
+        final String java = Paths.get(
+            System.getProperty("java.home"), "bin", "java"
+        ).toString();
+        final List<Process> workers = new ArrayList<>(this.shards);
+        for (int shard = 0; shard < this.shards; ++shard) {
+            final List<String> command = new ArrayList<>(this.launcher.size());
+            for (final String part : this.launcher) {
+                command.add(
+                    part.replace(
+                        ShardCoordinator.SHARD_PLACEHOLDER,
+                        Integer.toString(shard)
+                    )
+                );
+            }
+            command.add(java);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(PayslipCli.class.getName());
+            command.add("--worker");
+            command.addAll(inputs.get(shard));
+            command.add("--output");
+            command.add(outputs.get(shard).toAbsolutePath().toString());
+            command.add("--format");
+            command.add(
+                this.settings.getFormat().name().toLowerCase(Locale.ENGLISH)
+            );
+            workers.add(
+                new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .redirectOutput(
+                        ProcessBuilder.Redirect.appendTo(
+                            outputs.get(shard).resolveSibling(
+                                String.format("shard-%d.log", shard)
+                            ).toFile()
+                        )
+                    )
+                    .start()
+            );
+        }
+        return workers;
+    }
+
+    /**
+     * Waits until all {@code workers} have finished successfully.
+     *
+     * @param workers Worker processes.
+     * @throws IOException When a worker fails or waiting is interrupted.
+     */
+    private void await(final List<Process> workers) throws IOException {
+        try {
+            for (int shard = 0; shard < workers.size(); ++shard) {
+                final int code = workers.get(shard).waitFor();
+                if (code != 0) {
+                    workers.forEach(Process::destroy);
+                    throw new IOException(
+                        String.format(
+                            "shard %d failed with exit code %d", shard, code
+                        )
+                    );
+                }
+            }
+        } catch (final InterruptedException iex) {
+            workers.forEach(Process::destroy);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(iex.getMessage());
+        }
+    }
+}
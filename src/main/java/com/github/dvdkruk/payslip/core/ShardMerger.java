@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges sequenced shard outputs back into input order with a k-way merge.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class ShardMerger {
+
+    /**
+     * Merges the sequenced lines of {@code shards} into {@code target}
+     * ordered by their line numbers, without the line number prefixes. Each
+     * shard must be ordered by line number.
+     *
+     * @param shards Sequenced shard output files.
+     * @param target Merged output file.
+     * @throws IOException When reading or writing fails.
+     */
+    void merge(final List<Path> shards, final Path target) throws IOException {
+        final List<Cursor> cursors = new ArrayList<>(shards.size());
+        try (BatchWriter writer = new BatchWriter(target, 0L)) {
+            final PriorityQueue<Cursor> heap = new PriorityQueue<>(
+                Math.max(1, shards.size()),
+                (first, second) -> Long.compare(first.line, second.line)
+            );
+            for (final Path shard : shards) {
+                final Cursor cursor = new Cursor(
+                    Files.newBufferedReader(shard, StandardCharsets.UTF_8)
+                );
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+            while (!heap.isEmpty()) {
+                final Cursor cursor = heap.poll();
+                writer.writeLine(cursor.content);
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+        } finally {
+            for (final Cursor cursor : cursors) {
+                cursor.reader.close();
+            }
+        }
+    }
+
+    /**
+     * Read position in a sequenced shard file.
+     */
+    private static final class Cursor {
+
+        /**
+         * Shard reader.
+         */
+        private final BufferedReader reader;
+
+        /**
+         * Line number of the current line.
+         */
+        private long line;
+
+        /**
+         * Content of the current line.
+         */
+        private String content;
+
+        /**
+         * Cursor constructor.
+         *
+         * @param reader Shard reader.
+         */
+        Cursor(final BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next line.
+         *
+         * @return False at the end of the shard.
+         * @throws IOException When reading fails or the line is not
+         *  sequenced.
+         */
+        boolean advance() throws IOException {
+            final String next = this.reader.readLine();
+            final boolean found = next != null;
+            if (found) {
+                final int split = next.indexOf(PayslipBatch.SEQUENCE_SEPARATOR);
+                if (split < 1) {
+                    throw new IOException(
+                        String.format("'%s' has no line number prefix", next)
+                    );
+                }
+                this.line = Long.parseLong(next.substring(0, split));
+                this.content = next.substring(split + 1);
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.OffsetLineReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Splits an input file into shard files with sequenced lines by employee,
+ * or into byte ranges that shard workers read from the input file itself.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class ShardSplitter {
+
+    /**
+     * Utility class.
+     */
+    private ShardSplitter() {
+    }
+
+    /**
+     * Splits the non empty lines of {@code input} over {@code shards} by a
+     * stable hash of their employee. Every line is prefixed with its line
+     * number in {@code input}.
+     *
+     * @param input Input file.
+     * @param shards Shard files to write.
+     * @throws IOException When reading or writing fails.
+     */
+    static void split(final Path input, final List<Path> shards)
+        throws IOException {
+        final List<BatchWriter> writers = new ArrayList<>(shards.size());
+        try (OffsetLineReader reader = new OffsetLineReader(input, 0L)) {
+            for (final Path shard : shards) {
+                writers.add(new BatchWriter(shard, 0L));
+            }
+            long line = 0L;
+            String text = reader.readLine();
+            while (text != null) {
+                line += 1;
+                if (!text.trim().isEmpty()) {
+                    final int index = Math.floorMod(
+                        ShardSplitter.employee(text).hashCode(), shards.size()
+                    );
+                    writers.get(index).writeLine(
+                        new StringBuilder()
+                            .append(line)
+                            .append(PayslipBatch.SEQUENCE_SEPARATOR)
+                            .append(text)
+                            .toString()
+                    );
+                }
+                text = reader.readLine();
+            }
+        } finally {
+            for (final BatchWriter writer : writers) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Splits {@code input} into contiguous byte ranges of about the same
+     * size, which start at line starts. Nothing is copied: the line
+     * separators of every range are counted in parallel to number the lines
+     * before it, and the workers read their range from the input.
+     *
+     * @param input Input file.
+     * @param shards Amount of ranges.
+     * @return Offset of the first line, offset after the last line and the
+     *  amount of lines before the range, for every range.
+     * @throws IOException When reading fails.
+     */
+    static List<long[]> ranges(final Path input, final int shards)
+        throws IOException {
+        try (
+            FileChannel channel =
+                FileChannel.open(input, StandardOpenOption.READ)
+        ) {
+            final long size = channel.size();
+            final long[] bounds = new long[shards + 1];
+            bounds[shards] = size;
+            for (int shard = 1; shard < shards; ++shard) {
+                bounds[shard] = Math.max(
+                    bounds[shard - 1],
+                    FileRequestSpliterator.boundary(
+                        channel, Math.max(1L, size / shards * shard), size
+                    )
+                );
+            }
+            final long[] lines = new long[shards];
+            try {
+                IntStream.range(1, shards).parallel().forEach(
+                    shard -> lines[shard] = ShardSplitter.count(
+                        channel, bounds[shard - 1], bounds[shard]
+                    )
+                );
+            } catch (final UncheckedIOException uio) {
+                throw uio.getCause();
+            }
+            final List<long[]> ranges = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; ++shard) {
+                if (shard > 0) {
+                    lines[shard] += lines[shard - 1];
+                }
+                ranges.add(
+                    new long[] {bounds[shard], bounds[shard + 1], lines[shard]}
+                );
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Amount of line separators of a byte range.
+     *
+     * @param channel Input channel.
+     * @param start First offset.
+     * @param end Offset after the last byte.
+     * @return Amount of lines.
+     */
+    private static long count(
+        final FileChannel channel,
+        final long start,
+        final long end) {
+        try {
+            return FileRequestSpliterator.count(channel, start, end);
+        } catch (final IOException iox) {
+            throw new UncheckedIOException(iox);
+        }
+    }
+
+    /**
+     * Employee key of a request line, its trimmed fore- and surname. {@link
+     * String#hashCode()} of this key is specified by the language and thus
+     * the same in every JVM.
+     *
+     * @param line Request line.
+     * @return Employee key.
+     */
+    private static String employee(final String line) {
+        final String[] elements = line.split(",", 3);
+        final String key;
+        if (elements.length < 2) {
+            key = line.trim();
+        } else {
+            key = String.format(
+                "%s,%s", elements[0].trim(), elements[1].trim()
+            );
+        }
+        return key;
+    }
+}
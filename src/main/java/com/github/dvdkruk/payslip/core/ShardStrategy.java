@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Strategies for assigning input lines to shards.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public enum ShardStrategy {
+
+    /**
+     * Assigns lines by a stable hash of the employee's fore- and surname, so
+     * all requests of one employee end up in the same shard. The lines are
+     * written to a shard file per worker.
+     */
+    HASH {
+        @Override
+        List<List<String>> inputs(
+            final Path input,
+            final Path dir,
+            final int shards) throws IOException {
+            final List<Path> files = new ArrayList<>(shards);
+            final List<List<String>> inputs = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; ++shard) {
+                final Path file =
+                    dir.resolve(String.format("shard-%d.csv", shard));
+                files.add(file);
+                inputs.add(
+                    Arrays.asList(
+                        "--input", file.toAbsolutePath().toString()
+                    )
+                );
+            }
+            ShardSplitter.split(input, files);
+            return inputs;
+        }
+    },
+
+    /**
+     * Assigns contiguous byte ranges of the input, which start at line
+     * starts, to the shards. The workers read their range from the input,
+     * so no line is copied into a shard file.
+     */
+    RANGE {
+        @Override
+        List<List<String>> inputs(
+            final Path input,
+            final Path dir,
+            final int shards) throws IOException {
+            final List<List<String>> inputs = new ArrayList<>(shards);
+            for (final long[] range : ShardSplitter.ranges(input, shards)) {
+                inputs.add(
+                    Arrays.asList(
+                        "--input", input.toAbsolutePath().toString(),
+                        "--range",
+                        String.format("%d,%d,%d", range[0], range[1], range[2])
+                    )
+                );
+            }
+            return inputs;
+        }
+    };
+
+    /**
+     * Splits the input over the shards.
+     *
+     * @param input Input file.
+     * @param dir Directory for shard files.
+     * @param shards Amount of shards.
+     * @return Input arguments of the worker of every shard.
+     * @throws IOException When reading the input or writing a shard fails.
+     */
+    abstract List<List<String>> inputs(Path input, Path dir, int shards)
+        throws IOException;
+
+    /**
+     * Parses a strategy name.
+     *
+     * @param name Strategy name, {@code hash} or {@code range}.
+     * @return The strategy.
+     * @throws PayslipException When the name is unknown.
+     */
+    public static ShardStrategy parse(final String name) {
+        try {
+            return ShardStrategy.valueOf(name.toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException iae) {
+            throw new PayslipException(
+                String.format("%s is an invalid shard strategy", name),
+                iae
+            );
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Sort keys for payslip results. Every key is encoded into {@link
+ * SortKey#WIDTH} bytes, which are compared as unsigned bytes, so records can
+ * be ordered without decoding or formatting them.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public enum SortKey {
+
+    /**
+     * Orders by surname and then by forename, case insensitive. Names are
+     * compared on their first {@link SortKey#SURNAME_WIDTH} and {@link
+     * SortKey#FORENAME_WIDTH} UTF-8 bytes.
+     */
+    SURNAME {
+        @Override
+        void encode(
+            final PayslipRequest request,
+            final PayslipResult result,
+            final byte[] key) {
+            final Employee employee = request.getEmployee();
+            copy(employee.getSurname(), key, 0, SortKey.SURNAME_WIDTH);
+            copy(
+                employee.getForename(),
+                key,
+                SortKey.SURNAME_WIDTH,
+                SortKey.FORENAME_WIDTH
+            );
+        }
+    },
+
+    /**
+     * Orders by calendar month.
+     */
+    MONTH {
+        @Override
+        void encode(
+            final PayslipRequest request,
+            final PayslipResult result,
+            final byte[] key) {
+            key[0] = (byte) result.getMonth().getValue();
+        }
+    },
+
+    /**
+     * Orders by monthly net income, lowest first.
+     */
+    NET {
+        @Override
+        void encode(
+            final PayslipRequest request,
+            final PayslipResult result,
+            final byte[] key) {
+            ByteBuffer.wrap(key)
+                .putInt(result.getNetIncome() ^ Integer.MIN_VALUE);
+        }
+    };
+
+    /**
+     * Width of an encoded key in bytes.
+     */
+    public static final int WIDTH = 32;
+
+    /**
+     * Bytes of the surname in a {@link SortKey#SURNAME} key.
+     */
+    private static final int SURNAME_WIDTH = 24;
+
+    /**
+     * Bytes of the forename in a {@link SortKey#SURNAME} key.
+     */
+    private static final int FORENAME_WIDTH = 8;
+
+    /**
+     * Encodes the key of a result into the first {@link SortKey#WIDTH} bytes
+     * of {@code key}, which must be zero.
+     *
+     * @param request The processed request.
+     * @param result The result of the request.
+     * @param key Target bytes.
+     */
+    abstract void encode(
+        PayslipRequest request,
+        PayslipResult result,
+        byte[] key);
+
+    /**
+     * Parses a sort key name.
+     *
+     * @param name Sort key name, {@code surname}, {@code month} or {@code
+     *  net}.
+     * @return The sort key.
+     * @throws PayslipException When the name is unknown.
+     */
+    public static SortKey parse(final String name) {
+        try {
+            return SortKey.valueOf(name.toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException iae) {
+            throw new PayslipException(
+                String.format("%s is an invalid sort key", name),
+                iae
+            );
+        }
+    }
+
+    /**
+     * Copies the upper case UTF-8 bytes of {@code text} into {@code key}.
+     *
+     * @param text Text to copy.
+     * @param key Target bytes.
+     * @param start Start index in {@code key}.
+     * @param width Maximum amount of bytes to copy.
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static void copy(
+        final String text,
+        final byte[] key,
+        final int start,
+        final int width) {
+        final byte[] bytes =
+            text.toUpperCase(Locale.ENGLISH).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, key, start, Math.min(width, bytes.length));
+    }
+}
@@ -4,6 +4,7 @@
 
 package com.github.dvdkruk.payslip.core;
 
+import com.github.dvdkruk.payslip.utils.CommaSeparatedStringBuilder;
 import java.math.BigDecimal;
 
 /**
@@ -38,7 +39,7 @@ public final class TaxRule extends PayslipObject {
      * @param tax Tax rule percentage.
      */
     public TaxRule(final int max, final int base, final BigDecimal tax) {
-        super(max, base, tax);
+        super();
         this.max = max;
         this.base = base;
         this.tax = tax;
@@ -67,4 +68,26 @@ public final class TaxRule extends PayslipObject {
     public BigDecimal getTax() {
         return this.tax;
     }
+
+    @Override
+    protected void display(final CommaSeparatedStringBuilder builder) {
+        builder.append(this.max)
+            .append(this.base)
+            .append(String.valueOf(this.tax));
+    }
+
+    @Override
+    protected boolean equalFields(final PayslipObject obj) {
+        final TaxRule that = (TaxRule) obj;
+        return this.max == that.max
+            && this.base == that.base
+            && sameValue(this.tax, that.tax);
+    }
+
+    @Override
+    protected int fieldHash() {
+        int hash = this.max;
+        hash = PayslipObject.PRIME * hash + this.base;
+        return PayslipObject.PRIME * hash + valueHash(this.tax);
+    }
 }
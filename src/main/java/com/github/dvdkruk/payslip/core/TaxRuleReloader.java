@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a {@link PayslipProcessor} for the tax rules of a rule file and
+ * replaces it when the file changes, without restarting the JVM. A
+ * background thread watches the directory of the file, and parses and
+ * compiles the changed rules into a new processor, which is published with
+ * one swap of an atomic reference. Rules that cannot be read or compiled
+ * are reported and the previous processor stays in use.
+ *
+ * <p>A processor is immutable, so a caller that gets it once per batch
+ * keeps that snapshot for the whole batch, and rows pay no locks or
+ * volatile reads. Replace the file by moving a new file over it, so the
+ * watcher never sees a half written file.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class TaxRuleReloader
+    implements Supplier<PayslipProcessor>, AutoCloseable {
+
+    /**
+     * Rule file.
+     */
+    private final Path file;
+
+    /**
+     * Stream for reload messages.
+     */
+    private final PrintStream log;
+
+    /**
+     * Processor of the last valid rules.
+     */
+    private final AtomicReference<PayslipProcessor> current;
+
+    /**
+     * Amount of published rule sets, the initial rules included.
+     */
+    private final AtomicLong generation;
+
+    /**
+     * Watch service of the directory of the file.
+     */
+    private final WatchService watcher;
+
+    /**
+     * Background watch thread.
+     */
+    private final Thread thread;
+
+    /**
+     * Reloader constructor, which loads the rules and starts watching the
+     * file.
+     *
+     * @param file Rule file with a {@code <max>,<base>,<rate>} line per
+     *  bracket.
+     * @param log Stream for reload messages.
+     * @throws IOException When the file cannot be read or watched.
+     * @throws PayslipException When the initial rules are not valid.
+     */
+    public TaxRuleReloader(final Path file, final PrintStream log)
+        throws IOException {
+        this.file = file.toAbsolutePath();
+        this.log = log;
+        this.current = new AtomicReference<>(
+            new PayslipProcessor(TaxRuleReloader.compile(this.file))
+        );
+        this.generation = new AtomicLong(1L);
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(
+            this.watcher,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY
+        );
+        this.thread = new Thread(this::watch, "payslip-rules");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Processor of the last valid rules. Call it once per batch and keep
+     * the processor for the rows of that batch.
+     *
+     * @return Processor.
+     */
+    @Override
+    public PayslipProcessor get() {
+        return this.current.get();
+    }
+
+    /**
+     * Amount of published rule sets, the initial rules included.
+     *
+     * @return Generation of the current processor.
+     */
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Reads and compiles the rule file, and publishes the new processor
+     * when the rules are valid.
+     *
+     * @return True when the new rules are published.
+     */
+    public boolean reload() {
+        boolean published = false;
+        try {
+            final TaxSchedule schedule = TaxRuleReloader.compile(this.file);
+            this.current.set(new PayslipProcessor(schedule));
+            this.log.println(
+                String.format(
+                    "tax rules %d loaded from %s: %d brackets",
+                    this.generation.incrementAndGet(), this.file,
+                    schedule.size()
+                )
+            );
+            published = true;
+        } catch (final IOException | PayslipException
+            | ArithmeticException ex) {
+            this.log.println(
+                String.format(
+                    "tax rules of %s rejected, keeping tax rules %d: %s",
+                    this.file, this.generation.get(), ex.getMessage()
+                )
+            );
+        }
+        return published;
+    }
+
+    /**
+     * Stops watching the file. The current processor stays available.
+     *
+     * @throws IOException When the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.watcher.close();
+        boolean interrupted = false;
+        while (this.thread.isAlive()) {
+            try {
+                this.thread.join();
+            } catch (final InterruptedException iex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loop of the watch thread, which reloads the rules after every change
+     * of the file until the watch service is closed.
+     */
+    private void watch() {
+        final Path name = this.file.getFileName();
+        try {
+            boolean valid = true;
+            while (valid) {
+                final WatchKey key = this.watcher.take();
+                boolean changed = false;
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    changed |= name.equals(event.context());
+                }
+                if (changed) {
+                    this.reload();
+                }
+                valid = key.reset();
+            }
+        } catch (final ClosedWatchServiceException ex) {
+            // the reloader is closed
+        } catch (final InterruptedException iex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Parses and compiles the rules of a rule file.
+     *
+     * @param file Rule file.
+     * @return Compiled rules.
+     * @throws IOException When the file cannot be read.
+     * @throws PayslipException When the rules are not valid.
+     */
+    private static TaxSchedule compile(final Path file) throws IOException {
+        return TaxSchedule.compile(
+            TaxScenarios.parseRules(
+                Files.readAllLines(file, StandardCharsets.UTF_8)
+            )
+        );
+    }
+}
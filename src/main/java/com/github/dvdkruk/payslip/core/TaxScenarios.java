@@ -0,0 +1,312 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates alternative tax schedules against one population in a single
+ * pass. Every request row is parsed once into its name and annual salary.
+ * Blocks of salaries are then taxed with the baseline {@link
+ * DefaultTaxRuleFactory#DEFAULT} and every scenario in parallel, one
+ * scenario per task, with the primitive arithmetic of {@link TaxSchedule}.
+ * Only the salary is validated, because the tax does not depend on the
+ * other fields.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class TaxScenarios {
+
+    /**
+     * Name of the baseline schedule.
+     */
+    public static final String BASELINE = "baseline";
+
+    /**
+     * Rows per block.
+     */
+    private static final int BLOCK = 4096;
+
+    /**
+     * Amount of elements of a tax rule line.
+     */
+    private static final int RULE_LEN = 3;
+
+    /**
+     * Names of the baseline and the scenarios.
+     */
+    private final List<String> names;
+
+    /**
+     * Compiled baseline and scenario schedules.
+     */
+    private final TaxSchedule[] schedules;
+
+    /**
+     * Largest salary in cents covered by all schedules and taxed by them
+     * without overflow.
+     */
+    private final long limit;
+
+    /**
+     * Scenarios constructor.
+     *
+     * @param names Names of the scenarios.
+     * @param scenarios Tax rules of the scenarios, in the order of {@code
+     *  names}.
+     * @throws PayslipException When the names and rules do not match or a
+     *  rule list cannot be compiled.
+     */
+    public TaxScenarios(
+        final List<String> names,
+        final List<List<TaxRule>> scenarios) {
+        if (names.size() != scenarios.size()) {
+            throw new PayslipException(
+                "every tax scenario needs exactly one name"
+            );
+        }
+        final List<String> all = new ArrayList<>(names.size() + 1);
+        all.add(TaxScenarios.BASELINE);
+        all.addAll(names);
+        this.names = Collections.unmodifiableList(all);
+        this.schedules = new TaxSchedule[all.size()];
+        this.schedules[0] = TaxSchedule.compile(DefaultTaxRuleFactory.DEFAULT);
+        long covered = this.schedules[0].exactLimit();
+        for (int index = 0; index < scenarios.size(); ++index) {
+            this.schedules[index + 1] = TaxSchedule.compile(
+                scenarios.get(index)
+            );
+            covered = Math.min(covered, this.schedules[index + 1].exactLimit());
+        }
+        this.limit = covered;
+    }
+
+    /**
+     * Parses tax rules, one {@code <max>,<base>,<rate>} line per rule like
+     * {@link TaxRule#toString()}, for example {@code 37000,0,0.19}. Empty
+     * lines and lines starting with {@code #} are skipped.
+     *
+     * @param lines Rule lines.
+     * @return Tax rules.
+     * @throws PayslipException When a line is not a tax rule.
+     */
+    public static List<TaxRule> parseRules(final List<String> lines) {
+        final List<TaxRule> rules = new ArrayList<>(lines.size());
+        for (int index = 0; index < lines.size(); ++index) {
+            final String line = lines.get(index).trim();
+            if (!line.isEmpty() && line.charAt(0) != '#') {
+                rules.add(TaxScenarios.parseRule(line, index + 1));
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Names of the baseline and the scenarios.
+     *
+     * @return Names, the baseline first.
+     */
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    /**
+     * Taxes every request of {@code reader} with the baseline and every
+     * scenario, and writes a header and a line per row with the name, the
+     * baseline monthly tax and the difference of every scenario with the
+     * baseline. Rejected rows are reported to {@code sink} with their line
+     * number.
+     *
+     * @param reader Request lines.
+     * @param writer Receives the per-row deltas.
+     * @param sink Sink for rejected rows.
+     * @return Total monthly tax of the baseline and every scenario.
+     * @throws IOException When reading or writing fails.
+     */
+    public long[] run(
+        final BufferedReader reader,
+        final Writer writer,
+        final ErrorSink sink) throws IOException {
+        final long[] totals = new long[this.schedules.length];
+        final String[] people = new String[TaxScenarios.BLOCK];
+        final long[] salaries = new long[TaxScenarios.BLOCK];
+        final long[][] taxes = new long[this.schedules.length][];
+        for (int index = 0; index < taxes.length; ++index) {
+            taxes[index] = new long[TaxScenarios.BLOCK];
+        }
+        final StringBuilder line = new StringBuilder();
+        line.append("name");
+        for (final String name : this.names) {
+            line.append(',').append(name);
+        }
+        writer.append(line).append('\n');
+        long number = 0L;
+        int size = 0;
+        String request = reader.readLine();
+        while (request != null) {
+            number += 1L;
+            if (!request.trim().isEmpty()) {
+                try {
+                    final Employee employee = new PayslipRequestParser(request)
+                        .toPayslipRequest().getEmployee();
+                    salaries[size] = TaxScenarios.salary(
+                        employee, this.limit
+                    );
+                    people[size] = employee.getFullName();
+                    size += 1;
+                } catch (final PayslipException pex) {
+                    sink.report(number, pex);
+                }
+            }
+            if (size == TaxScenarios.BLOCK) {
+                this.block(people, salaries, size, taxes, totals, writer);
+                size = 0;
+            }
+            request = reader.readLine();
+        }
+        this.block(people, salaries, size, taxes, totals, writer);
+        writer.flush();
+        return totals;
+    }
+
+    /**
+     * Summary of the totals of {@link #run}, a line per schedule with its
+     * total monthly tax and, for the scenarios, the difference with the
+     * baseline.
+     *
+     * @param totals Totals of {@link #run}.
+     * @return Summary lines.
+     */
+    public String summary(final long[] totals) {
+        final StringBuilder summary = new StringBuilder();
+        summary.append(TaxScenarios.BASELINE).append(": tax ")
+            .append(totals[0]);
+        for (int index = 1; index < totals.length; ++index) {
+            summary.append(System.lineSeparator())
+                .append(this.names.get(index)).append(": tax ")
+                .append(totals[index]).append(", delta ")
+                .append(String.format("%+d", totals[index] - totals[0]));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Validated annual salary of a row.
+     *
+     * @param employee Parsed employee.
+     * @param limit Largest salary in cents covered by every schedule and
+     *  taxed without overflow.
+     * @return Annual salary in cents.
+     * @throws PayslipException When the salary is not positive, not covered
+     *  by every schedule or its tax overflows.
+     */
+    static long salary(final Employee employee, final long limit) {
+        final Money salary = employee.getAnnualSalary();
+        if (salary.signum() <= 0) {
+            throw new PayslipException(ErrorCode.SALARY, salary.toString());
+        }
+        if (salary.getCents()
+            > Math.min(limit, PayslipProcessor.MAX_SALARY)) {
+            throw new PayslipException(
+                ErrorCode.SALARY_RANGE, salary.toString()
+            );
+        }
+        return salary.getCents();
+    }
+
+    /**
+     * Taxes a block of salaries with every schedule in parallel and writes
+     * the rows.
+     *
+     * @param people Names of the rows.
+     * @param salaries Annual salaries in cents.
+     * @param size Amount of rows in the block.
+     * @param taxes Receive the monthly taxes, a column per schedule.
+     * @param totals Running totals per schedule.
+     * @param writer Receives the per-row deltas.
+     * @throws IOException When writing fails.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    private void block(
+        final String[] people,
+        final long[] salaries,
+        final int size,
+        final long[][] taxes,
+        final long[] totals,
+        final Writer writer) throws IOException {
+        IntStream.range(0, this.schedules.length).parallel().forEach(
+            index -> {
+                final TaxSchedule schedule = this.schedules[index];
+                final long[] column = taxes[index];
+                long total = 0L;
+                for (int row = 0; row < size; ++row) {
+                    column[row] = schedule.monthly(salaries[row]);
+                    total += column[row];
+                }
+                totals[index] += total;
+            }
+        );
+        final StringBuilder line = new StringBuilder();
+        for (int row = 0; row < size; ++row) {
+            line.setLength(0);
+            line.append(people[row]).append(',').append(taxes[0][row]);
+            for (int index = 1; index < taxes.length; ++index) {
+                line.append(',').append(taxes[index][row] - taxes[0][row]);
+            }
+            writer.append(line).append('\n');
+        }
+    }
+
+    /**
+     * Parses a tax rule line.
+     *
+     * @param line Rule line.
+     * @param number Line number.
+     * @return Tax rule.
+     * @throws PayslipException When the line is not a tax rule.
+     */
+    private static TaxRule parseRule(final String line, final int number) {
+        final String[] elements = line.split(",");
+        if (elements.length != TaxScenarios.RULE_LEN) {
+            throw TaxScenarios.invalidRule(line, number, null);
+        }
+        try {
+            return new TaxRule(
+                Integer.parseInt(elements[0].trim()),
+                Integer.parseInt(elements[1].trim()),
+                new BigDecimal(elements[2].trim())
+            );
+        } catch (final NumberFormatException nfe) {
+            throw TaxScenarios.invalidRule(line, number, nfe);
+        }
+    }
+
+    /**
+     * Exception for a line that is not a tax rule.
+     *
+     * @param line Rule line.
+     * @param number Line number.
+     * @param cause Cause or {@code null}.
+     * @return Exception.
+     */
+    private static PayslipException invalidRule(
+        final String line,
+        final int number,
+        final Throwable cause) {
+        return new PayslipException(
+            String.format("invalid tax rule on line %d: %s", number, line),
+            cause
+        );
+    }
+}
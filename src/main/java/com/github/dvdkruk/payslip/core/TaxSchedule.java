@@ -0,0 +1,439 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A list of {@link TaxRule}s compiled into primitive arrays. Rates are
+ * scaled to integers with a common scale, so the monthly tax is calculated
+ * with exact {@code long} arithmetic and the same half up rounding as the
+ * {@link BigDecimal} calculation of {@link PayslipProcessor}. A schedule is
+ * immutable, its arrays are filled in the constructor and never exposed, so
+ * one schedule can be shared by any amount of threads.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class TaxSchedule {
+
+    /**
+     * Amount of months.
+     */
+    private static final long MONTHS = 12L;
+
+    /**
+     * Largest supported scale of the tax rule percentages.
+     */
+    private static final int MAX_SCALE = 9;
+
+    /**
+     * Upper bound of every bracket.
+     */
+    private final int[] upper;
+
+    /**
+     * Amount subtracted from the salary in every bracket.
+     */
+    private final int[] lower;
+
+    /**
+     * Scaled tax rate of every bracket.
+     */
+    private final long[] rate;
+
+    /**
+     * Scaled base tax of every bracket.
+     */
+    private final long[] base;
+
+    /**
+     * Divisor from scaled annual tax to monthly tax.
+     */
+    private final long divisor;
+
+    /**
+     * All rates and bases are zero or positive.
+     */
+    private final boolean positive;
+
+    /**
+     * Schedule constructor.
+     *
+     * @param rules Tax rules ordered by ascending maximum.
+     * @param scale Common scale of the rates.
+     */
+    private TaxSchedule(final List<TaxRule> rules, final int scale) {
+        final int size = rules.size();
+        this.upper = new int[size];
+        this.lower = new int[size];
+        this.rate = new long[size];
+        this.base = new long[size];
+        final long factor =
+            BigDecimal.ONE.scaleByPowerOfTen(scale).longValueExact();
+        this.divisor = TaxSchedule.MONTHS * factor;
+        boolean nonnegative = true;
+        for (int index = 0; index < size; ++index) {
+            final TaxRule rule = rules.get(index);
+            this.upper[index] = rule.getMax();
+            if (index > 0) {
+                this.lower[index] = this.upper[index - 1];
+            }
+            this.rate[index] = rule.getTax().setScale(scale)
+                .unscaledValue().longValueExact();
+            this.base[index] =
+                Math.multiplyExact((long) rule.getBase(), factor);
+            TaxSchedule.checkRange(this.rate[index], this.base[index]);
+            nonnegative &= this.rate[index] >= 0L && this.base[index] >= 0L;
+        }
+        this.positive = nonnegative;
+    }
+
+    /**
+     * Compiles {@code rules} into a schedule. Rule {@code i} applies to
+     * salaries above the maximum of rule {@code i - 1} up to its own maximum,
+     * and taxes the salary minus that previous maximum.
+     *
+     * @param rules Tax rules ordered by ascending maximum.
+     * @return The compiled schedule.
+     * @throws PayslipException When the rules are not ascending or cannot be
+     *  calculated exactly.
+     */
+    public static TaxSchedule compile(final List<TaxRule> rules) {
+        if (rules.isEmpty()) {
+            throw new PayslipException("a tax schedule needs at least 1 rule");
+        }
+        int scale = 0;
+        for (int index = 0; index < rules.size(); ++index) {
+            final TaxRule rule = rules.get(index);
+            if (index > 0 && rule.getMax() <= rules.get(index - 1).getMax()) {
+                throw new PayslipException(
+                    "tax rules must have ascending maxima"
+                );
+            }
+            scale = Math.max(scale, rule.getTax().stripTrailingZeros().scale());
+        }
+        if (scale > TaxSchedule.MAX_SCALE) {
+            throw new PayslipException(
+                String.format(
+                    "tax rates with more than %d decimals are not supported",
+                    TaxSchedule.MAX_SCALE
+                )
+            );
+        }
+        return new TaxSchedule(rules, scale);
+    }
+
+    /**
+     * Monthly tax in whole dollars for an annual salary.
+     *
+     * @param salary Annual salary in whole dollars.
+     * @return Monthly tax.
+     * @throws NoSuchElementException When no bracket covers the salary.
+     */
+    public int tax(final int salary) {
+        return this.tax(salary, this.bracket(salary));
+    }
+
+    /**
+     * Monthly tax in whole dollars for an annual salary with cents. The
+     * salary is taxed to the cent and only the monthly tax is rounded half
+     * up.
+     *
+     * @param salary Annual salary.
+     * @return Monthly tax in whole dollars.
+     * @throws NoSuchElementException When no bracket covers the salary.
+     * @throws ArithmeticException When the scaled tax overflows a {@code
+     *  long}.
+     */
+    public Money tax(final Money salary) {
+        if (salary.getCents() > this.limit()) {
+            throw TaxSchedule.uncovered(salary);
+        }
+        return Money.ofDollars(this.monthly(salary.getCents()));
+    }
+
+    /**
+     * Monthly tax in whole dollars for an annual salary in cents, without
+     * allocating. The salary must not exceed {@link #limit()}.
+     *
+     * @param cents Annual salary in cents.
+     * @return Monthly tax in whole dollars.
+     * @throws ArithmeticException When the scaled tax overflows a {@code
+     *  long}.
+     */
+    long monthly(final long cents) {
+        final int bracket = this.find(cents);
+        final long taxable = Math.subtractExact(
+            cents, this.lower[bracket] * Money.CENTS
+        );
+        final long scaled = Math.addExact(
+            Math.multiplyExact(taxable, this.rate[bracket]),
+            Math.multiplyExact(this.base[bracket], Money.CENTS)
+        );
+        return Money.halfUp(scaled, this.divisor * Money.CENTS);
+    }
+
+    /**
+     * Largest annual salary in cents covered by the brackets.
+     *
+     * @return Upper bound of the last bracket in cents.
+     */
+    long limit() {
+        return this.upper[this.upper.length - 1] * Money.CENTS;
+    }
+
+    /**
+     * Largest annual salary in cents up to {@link #limit()} whose {@link
+     * #monthly(long)} tax, and that of every smaller salary, fits in a
+     * {@code long}. The scaled tax is linear within a bracket, so the
+     * salaries of a bracket that fit are a prefix of the bracket.
+     *
+     * @return Annual salary in cents.
+     */
+    long exactLimit() {
+        long exact = this.limit();
+        boolean fits = true;
+        for (int bracket = 0; fits && bracket < this.upper.length;
+            ++bracket) {
+            long good = this.lower[bracket] * Money.CENTS;
+            long bad = this.upper[bracket] * Money.CENTS;
+            fits = this.fits(bracket, bad);
+            if (!fits) {
+                while (bad - good > 1L) {
+                    final long middle = good + (bad - good) / 2L;
+                    if (this.fits(bracket, middle)) {
+                        good = middle;
+                    } else {
+                        bad = middle;
+                    }
+                }
+                exact = good;
+            }
+        }
+        return exact;
+    }
+
+    /**
+     * Calculates the monthly taxes for a column of annual salaries, bracket
+     * by bracket with a mask per bracket. This is the scalar fallback of
+     * {@link ColumnarTaxes}.
+     *
+     * @param salaries Annual salaries in whole dollars.
+     * @param taxes Receives the monthly tax of every salary.
+     * @throws NoSuchElementException When no bracket covers a salary.
+     */
+    public void taxes(final int[] salaries, final int[] taxes) {
+        this.check(salaries, taxes);
+        for (int bracket = 0; bracket < this.upper.length; ++bracket) {
+            final long low = this.low(bracket);
+            final long high = this.upper[bracket];
+            for (int index = 0; index < salaries.length; ++index) {
+                final int salary = salaries[index];
+                final boolean inside = salary > low & salary <= high;
+                final int tax = this.tax(salary, bracket);
+                taxes[index] = inside ? tax : taxes[index];
+            }
+        }
+    }
+
+    /**
+     * Amount of brackets.
+     *
+     * @return Amount of brackets.
+     */
+    public int size() {
+        return this.upper.length;
+    }
+
+    /**
+     * Checks that all salaries are covered and the columns have the same
+     * length.
+     *
+     * @param salaries Annual salaries.
+     * @param taxes Tax column.
+     * @throws NoSuchElementException When no bracket covers a salary.
+     */
+    void check(final int[] salaries, final int[] taxes) {
+        if (salaries.length != taxes.length) {
+            throw new IllegalArgumentException(
+                "salary and tax columns must have the same length"
+            );
+        }
+        final int max = this.upper[this.upper.length - 1];
+        for (final int salary : salaries) {
+            if (salary > max) {
+                throw TaxSchedule.uncovered(salary);
+            }
+        }
+    }
+
+    /**
+     * Exclusive lower bound of a bracket.
+     *
+     * @param bracket Bracket index.
+     * @return Lower bound, {@link Long#MIN_VALUE} for the first bracket.
+     */
+    long low(final int bracket) {
+        final long low;
+        if (bracket == 0) {
+            low = Long.MIN_VALUE;
+        } else {
+            low = this.upper[bracket - 1];
+        }
+        return low;
+    }
+
+    /**
+     * Upper bound of a bracket.
+     *
+     * @param bracket Bracket index.
+     * @return Inclusive upper bound.
+     */
+    int high(final int bracket) {
+        return this.upper[bracket];
+    }
+
+    /**
+     * Amount subtracted from the salary in a bracket.
+     *
+     * @param bracket Bracket index.
+     * @return Subtracted amount.
+     */
+    int subtract(final int bracket) {
+        return this.lower[bracket];
+    }
+
+    /**
+     * Scaled rate of a bracket.
+     *
+     * @param bracket Bracket index.
+     * @return Rate multiplied by the scale.
+     */
+    long rate(final int bracket) {
+        return this.rate[bracket];
+    }
+
+    /**
+     * Scaled base tax of a bracket.
+     *
+     * @param bracket Bracket index.
+     * @return Base tax multiplied by the scale.
+     */
+    long base(final int bracket) {
+        return this.base[bracket];
+    }
+
+    /**
+     * Divisor from scaled annual tax to monthly tax.
+     *
+     * @return Divisor.
+     */
+    long divisor() {
+        return this.divisor;
+    }
+
+    /**
+     * All rates and bases are zero or positive, so the scaled tax of a
+     * positive salary is never negative.
+     *
+     * @return True when no rate or base is negative.
+     */
+    boolean isPositive() {
+        return this.positive;
+    }
+
+    /**
+     * Index of the bracket that covers {@code salary}.
+     *
+     * @param salary Annual salary.
+     * @return Bracket index.
+     * @throws NoSuchElementException When no bracket covers the salary.
+     */
+    int bracket(final int salary) {
+        final int bracket = this.find(salary * Money.CENTS);
+        if (bracket == this.upper.length) {
+            throw TaxSchedule.uncovered(salary);
+        }
+        return bracket;
+    }
+
+    /**
+     * Index of the bracket that covers an amount of cents.
+     *
+     * @param cents Annual salary in cents.
+     * @return Bracket index, the amount of brackets when none covers it.
+     */
+    private int find(final long cents) {
+        int bracket = 0;
+        while (bracket < this.upper.length
+            && cents > this.upper[bracket] * Money.CENTS) {
+            bracket += 1;
+        }
+        return bracket;
+    }
+
+    /**
+     * Monthly tax of {@code salary} in {@code bracket}.
+     *
+     * @param salary Annual salary.
+     * @param bracket Bracket index.
+     * @return Monthly tax rounded half up.
+     */
+    private int tax(final int salary, final int bracket) {
+        final long scaled = ((long) salary - this.lower[bracket])
+            * this.rate[bracket] + this.base[bracket];
+        return (int) Money.halfUp(scaled, this.divisor);
+    }
+
+    /**
+     * Whether the scaled tax of {@link #monthly(long)} for a salary in a
+     * bracket and its terms fit in a {@code long}.
+     *
+     * @param bracket Bracket index.
+     * @param cents Annual salary in cents.
+     * @return True when no term overflows.
+     */
+    private boolean fits(final int bracket, final long cents) {
+        final BigInteger taxed = BigInteger
+            .valueOf(cents - this.lower[bracket] * Money.CENTS)
+            .multiply(BigInteger.valueOf(this.rate[bracket]));
+        final BigInteger base = BigInteger.valueOf(this.base[bracket])
+            .multiply(BigInteger.valueOf(Money.CENTS));
+        return taxed.bitLength() < Long.SIZE && base.bitLength() < Long.SIZE
+            && taxed.add(base).bitLength() < Long.SIZE;
+    }
+
+    /**
+     * Checks that the scaled tax of any {@code int} salary difference fits
+     * in a {@code long}.
+     *
+     * @param rate Scaled rate.
+     * @param base Scaled base tax.
+     * @throws ArithmeticException When the tax could overflow.
+     */
+    private static void checkRange(final long rate, final long base) {
+        final long span = 1L << Integer.SIZE;
+        if (Math.abs(rate) > (Long.MAX_VALUE - Math.abs(base)) / span) {
+            throw new ArithmeticException("tax rule exceeds the long range");
+        }
+    }
+
+    /**
+     * Exception for a salary without bracket.
+     *
+     * @param salary Annual salary.
+     * @return Exception.
+     */
+    private static NoSuchElementException uncovered(final Object salary) {
+        return new NoSuchElementException(
+            String.format("No tax rule found for annual salary '%s'", salary)
+        );
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.core;
+
+/**
+ * Outcome of a validation run: the amount of lines, requests and rejected
+ * requests per {@link ErrorCode}, with the first line numbers of every code
+ * as samples. Reports of consecutive parts of an input are combined with
+ * {@link #append(ValidationReport)}.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class ValidationReport {
+
+    /**
+     * Amount of sample line numbers per error code.
+     */
+    public static final int SAMPLES = 5;
+
+    /**
+     * Amount of lines, including blank lines.
+     */
+    private long lines;
+
+    /**
+     * Amount of non-blank lines.
+     */
+    private long requests;
+
+    /**
+     * Rejected requests per error code ordinal.
+     */
+    private final long[] counts;
+
+    /**
+     * First rejected line numbers per error code ordinal.
+     */
+    private final long[][] samples;
+
+    /**
+     * Empty report.
+     */
+    public ValidationReport() {
+        final int codes = ErrorCode.values().length;
+        this.counts = new long[codes];
+        this.samples = new long[codes][ValidationReport.SAMPLES];
+    }
+
+    /**
+     * Counts a line.
+     *
+     * @param blank Whether the line is blank, and thus no request.
+     */
+    void line(final boolean blank) {
+        this.lines += 1L;
+        if (!blank) {
+            this.requests += 1L;
+        }
+    }
+
+    /**
+     * Counts a rejected request.
+     *
+     * @param line Line number of the request.
+     * @param code Error code of the request.
+     */
+    void reject(final long line, final ErrorCode code) {
+        final int index = code.ordinal();
+        if (this.counts[index] < ValidationReport.SAMPLES) {
+            this.samples[index][(int) this.counts[index]] = line;
+        }
+        this.counts[index] += 1L;
+    }
+
+    /**
+     * Appends the report of the part of the input that follows this part.
+     * Line numbers of {@code next} are relative to its part.
+     *
+     * @param next Report of the next part.
+     */
+    void append(final ValidationReport next) {
+        for (int index = 0; index < this.counts.length; ++index) {
+            final int sampled = (int) Math.min(
+                next.counts[index], ValidationReport.SAMPLES
+            );
+            for (int sample = 0; sample < sampled; ++sample) {
+                this.reject(
+                    this.lines + next.samples[index][sample],
+                    ErrorCode.values()[index]
+                );
+            }
+            this.counts[index] += next.counts[index] - sampled;
+        }
+        this.lines += next.lines;
+        this.requests += next.requests;
+    }
+
+    /**
+     * Amount of lines, including blank lines.
+     *
+     * @return Amount of lines.
+     */
+    public long getLines() {
+        return this.lines;
+    }
+
+    /**
+     * Amount of non-blank lines.
+     *
+     * @return Amount of requests.
+     */
+    public long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * Amount of rejected requests.
+     *
+     * @return Amount of rejected requests.
+     */
+    public long getRejected() {
+        long rejected = 0L;
+        for (final long count : this.counts) {
+            rejected += count;
+        }
+        return rejected;
+    }
+
+    /**
+     * Amount of requests rejected with {@code code}.
+     *
+     * @param code Error code.
+     * @return Amount of rejected requests.
+     */
+    public long getRejected(final ErrorCode code) {
+        return this.counts[code.ordinal()];
+    }
+
+    /**
+     * Summary with a line for the totals and a line per error code with its
+     * count and sample line numbers, for example {@code MONTH: 2 (lines 3,
+     * 9)}.
+     *
+     * @return Summary lines.
+     */
+    @Override
+    public String toString() {
+        final long rejected = this.getRejected();
+        final StringBuilder summary = new StringBuilder();
+        summary.append("lines: ").append(this.lines)
+            .append(", requests: ").append(this.requests)
+            .append(", valid: ").append(this.requests - rejected)
+            .append(", rejected: ").append(rejected);
+        for (final ErrorCode code : ErrorCode.values()) {
+            final long count = this.counts[code.ordinal()];
+            if (count > 0L) {
+                summary.append(System.lineSeparator()).append(code)
+                    .append(": ").append(count).append(" (lines ");
+                final long sampled = Math.min(count, ValidationReport.SAMPLES);
+                for (int sample = 0; sample < sampled; ++sample) {
+                    if (sample > 0) {
+                        summary.append(", ");
+                    }
+                    summary.append(this.samples[code.ordinal()][sample]);
+                }
+                if (count > sampled) {
+                    summary.append(", ...");
+                }
+                summary.append(')');
+            }
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,542 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.utils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Stores names in one growing byte array. A name is referenced by an
+ * {@code int} handle, its offset in the arena, where a length header is
+ * followed by the name in Latin-1, or in UTF-8 when it has characters
+ * outside Latin-1. Interned names that repeat, like the names of an
+ * employee across months, are stored only once.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class NameArena {
+
+    /**
+     * Initial capacity of the arena in bytes.
+     */
+    private static final int CAPACITY = 1 << 12;
+
+    /**
+     * Largest capacity of the arena in bytes, the largest array length
+     * that virtual machines allocate.
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * Initial amount of slots of the intern table, a power of two.
+     */
+    private static final int SLOTS = 1 << 10;
+
+    /**
+     * Bits of a header byte that hold a part of the header value.
+     */
+    private static final int SEVEN_BITS = 0x7F;
+
+    /**
+     * Amount of header value bits per header byte.
+     */
+    private static final int BITS = 7;
+
+    /**
+     * Header byte flag for a following header byte, also the first
+     * character that needs two UTF-8 bytes.
+     */
+    private static final int MORE = 0x80;
+
+    /**
+     * First byte marker of a two byte UTF-8 character.
+     */
+    private static final int UTF_LEAD = 0xC0;
+
+    /**
+     * Bits of a UTF-8 continuation byte.
+     */
+    private static final int UTF_BITS = 0x3F;
+
+    /**
+     * Shift of the lead byte of a two byte UTF-8 character.
+     */
+    private static final int UTF_SHIFT = 6;
+
+    /**
+     * Multiplier of the name hash.
+     */
+    private static final int PRIME = 31;
+
+    /**
+     * Shift that mixes the high bits of the hash into the low bits.
+     */
+    private static final int MIX = 16;
+
+    /**
+     * Largest Latin-1 character.
+     */
+    private static final char LATIN_MAX = 0xFF;
+
+    /**
+     * Stored names.
+     */
+    private byte[] bytes;
+
+    /**
+     * Amount of used bytes.
+     */
+    private int size;
+
+    /**
+     * Intern table with handles plus one, zero marks an empty slot.
+     */
+    private int[] slots;
+
+    /**
+     * Amount of interned names.
+     */
+    private int interned;
+
+    /**
+     * Scratch buffer for encoding names.
+     */
+    private byte[] scratch;
+
+    /**
+     * Arena constructor.
+     */
+    public NameArena() {
+        this.bytes = new byte[NameArena.CAPACITY];
+        this.slots = new int[NameArena.SLOTS];
+        this.scratch = new byte[NameArena.SLOTS];
+    }
+
+    /**
+     * Stores {@code name}.
+     *
+     * @param name Name to store.
+     * @return Handle of the name.
+     */
+    public int add(final CharSequence name) {
+        final boolean utf = NameArena.isUtf(name);
+        return this.append(this.encode(name, utf), utf);
+    }
+
+    /**
+     * Stores {@code name} unless an equal name was interned before.
+     *
+     * @param name Name to intern.
+     * @return Handle of the equal interned name or of the stored name.
+     */
+    public int intern(final CharSequence name) {
+        final boolean utf = NameArena.isUtf(name);
+        final int length = this.encode(name, utf);
+        final int hash = NameArena.hash(this.scratch, 0, length);
+        final int mask = this.slots.length - 1;
+        int slot = hash & mask;
+        int handle = -1;
+        while (handle < 0 && this.slots[slot] != 0) {
+            final int candidate = this.slots[slot] - 1;
+            if (this.matches(candidate, length, utf)) {
+                handle = candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (handle < 0) {
+            handle = this.append(length, utf);
+            this.slots[slot] = handle + 1;
+            this.interned += 1;
+            if (this.interned * 2 > this.slots.length) {
+                this.rehash();
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * The name of a handle.
+     *
+     * @param handle Handle of a stored name.
+     * @return Name.
+     */
+    public String get(final int handle) {
+        final int header = this.header(handle);
+        return new String(
+            this.bytes,
+            handle + NameArena.headerLength(header),
+            header >>> 1,
+            NameArena.charset(header)
+        );
+    }
+
+    /**
+     * Appends the name of a handle without creating a string for it.
+     *
+     * @param handle Handle of a stored name.
+     * @param target Receives the name.
+     * @return The target.
+     */
+    public StringBuilder appendTo(
+        final int handle,
+        final StringBuilder target) {
+        final int header = this.header(handle);
+        if ((header & 1) == 0) {
+            final int start = handle + NameArena.headerLength(header);
+            final int end = start + (header >>> 1);
+            for (int index = start; index < end; ++index) {
+                target.append((char) Byte.toUnsignedInt(this.bytes[index]));
+            }
+        } else {
+            target.append(this.get(handle));
+        }
+        return target;
+    }
+
+    /**
+     * Writes the name of a handle as UTF-8.
+     *
+     * @param handle Handle of a stored name.
+     * @param target Target array with room for {@link #utfLength(int)}
+     *  bytes from {@code position}.
+     * @param position Index of the first written byte.
+     * @return Index after the last written byte.
+     */
+    public int writeUtf(
+        final int handle,
+        final byte[] target,
+        final int position) {
+        final int header = this.header(handle);
+        final int start = handle + NameArena.headerLength(header);
+        final int end = start + (header >>> 1);
+        int next = position;
+        if ((header & 1) == 0) {
+            for (int index = start; index < end; ++index) {
+                next = NameArena.putUtf(this.bytes[index], target, next);
+            }
+        } else {
+            System.arraycopy(this.bytes, start, target, next, end - start);
+            next += end - start;
+        }
+        return next;
+    }
+
+    /**
+     * Length of the name of a handle in UTF-8.
+     *
+     * @param handle Handle of a stored name.
+     * @return Amount of UTF-8 bytes.
+     */
+    public int utfLength(final int handle) {
+        final int header = this.header(handle);
+        final int start = handle + NameArena.headerLength(header);
+        final int end = start + (header >>> 1);
+        int length = end - start;
+        if ((header & 1) == 0) {
+            for (int index = start; index < end; ++index) {
+                if (this.bytes[index] < 0) {
+                    length += 1;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Amount of bytes used by the stored names.
+     *
+     * @return Used bytes.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Amount of interned names.
+     *
+     * @return Interned names.
+     */
+    public int interned() {
+        return this.interned;
+    }
+
+    /**
+     * Amount of bytes allocated by the arena, for memory budgets.
+     *
+     * @return Allocated bytes.
+     */
+    public long footprint() {
+        return (long) this.bytes.length + this.scratch.length
+            + (long) this.slots.length * Integer.BYTES;
+    }
+
+    /**
+     * Removes all names and shrinks the arena to its initial capacity.
+     * Handles of removed names are no longer valid.
+     */
+    public void clear() {
+        this.bytes = new byte[NameArena.CAPACITY];
+        this.slots = new int[NameArena.SLOTS];
+        this.scratch = new byte[NameArena.SLOTS];
+        this.size = 0;
+        this.interned = 0;
+    }
+
+    /**
+     * Encodes {@code name} into {@link NameArena#scratch}.
+     *
+     * @param name Name to encode.
+     * @param utf Whether the name is encoded in UTF-8 instead of Latin-1.
+     * @return Amount of encoded bytes.
+     */
+    private int encode(final CharSequence name, final boolean utf) {
+        final int length;
+        if (utf) {
+            final byte[] encoded =
+                name.toString().getBytes(StandardCharsets.UTF_8);
+            length = encoded.length;
+            this.scratch = NameArena.ensure(this.scratch, length);
+            System.arraycopy(encoded, 0, this.scratch, 0, length);
+        } else {
+            length = name.length();
+            this.scratch = NameArena.ensure(this.scratch, length);
+            for (int index = 0; index < length; ++index) {
+                this.scratch[index] = (byte) name.charAt(index);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Appends the encoded scratch bytes with their header.
+     *
+     * @param length Amount of encoded bytes.
+     * @param utf Whether the bytes are UTF-8.
+     * @return Handle of the appended name.
+     */
+    private int append(final int length, final boolean utf) {
+        final int handle = this.size;
+        int header = length << 1;
+        if (utf) {
+            header |= 1;
+        }
+        this.bytes = NameArena.ensure(
+            this.bytes,
+            (long) this.size + NameArena.headerLength(header) + length
+        );
+        while (header > NameArena.SEVEN_BITS) {
+            this.bytes[this.size] =
+                (byte) (header & NameArena.SEVEN_BITS | NameArena.MORE);
+            this.size += 1;
+            header >>>= NameArena.BITS;
+        }
+        this.bytes[this.size] = (byte) header;
+        this.size += 1;
+        System.arraycopy(this.scratch, 0, this.bytes, this.size, length);
+        this.size += length;
+        return handle;
+    }
+
+    /**
+     * Reads the header at a handle.
+     *
+     * @param handle Handle of a stored name.
+     * @return Header value, the length shifted left by one and the UTF-8
+     *  flag in the lowest bit.
+     */
+    private int header(final int handle) {
+        int header = 0;
+        int shift = 0;
+        int index = handle;
+        boolean more = true;
+        while (more) {
+            final int part = this.bytes[index];
+            header |= (part & NameArena.SEVEN_BITS) << shift;
+            more = (part & NameArena.MORE) != 0;
+            shift += NameArena.BITS;
+            index += 1;
+        }
+        return header;
+    }
+
+    /**
+     * Checks if the name of a handle equals the encoded scratch bytes.
+     *
+     * @param handle Handle of a stored name.
+     * @param length Amount of encoded bytes.
+     * @param utf Whether the bytes are UTF-8.
+     * @return True when equal.
+     */
+    private boolean matches(
+        final int handle,
+        final int length,
+        final boolean utf) {
+        final int header = this.header(handle);
+        boolean equal = header >>> 1 == length && ((header & 1) == 1) == utf;
+        final int start = handle + NameArena.headerLength(header);
+        for (int index = 0; equal && index < length; ++index) {
+            equal = this.bytes[start + index] == this.scratch[index];
+        }
+        return equal;
+    }
+
+    /**
+     * Doubles the intern table.
+     */
+    private void rehash() {
+        final int[] old = this.slots;
+        this.slots = new int[old.length * 2];
+        final int mask = this.slots.length - 1;
+        for (final int entry : old) {
+            if (entry != 0) {
+                final int header = this.header(entry - 1);
+                final int start = entry - 1 + NameArena.headerLength(header);
+                int slot =
+                    NameArena.hash(this.bytes, start, header >>> 1) & mask;
+                while (this.slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                this.slots[slot] = entry;
+            }
+        }
+    }
+
+    /**
+     * Writes a Latin-1 byte as UTF-8.
+     *
+     * @param latin Latin-1 byte.
+     * @param target Target array.
+     * @param position Index of the first written byte.
+     * @return Index after the last written byte.
+     */
+    private static int putUtf(
+        final byte latin,
+        final byte[] target,
+        final int position) {
+        final int value = Byte.toUnsignedInt(latin);
+        int next = position;
+        if (value < NameArena.MORE) {
+            target[next] = latin;
+            next += 1;
+        } else {
+            target[next] =
+                (byte) (NameArena.UTF_LEAD | value >>> NameArena.UTF_SHIFT);
+            target[next + 1] =
+                (byte) (NameArena.MORE | value & NameArena.UTF_BITS);
+            next += 2;
+        }
+        return next;
+    }
+
+    /**
+     * Hash of {@code length} bytes from {@code start}.
+     *
+     * @param bytes Bytes.
+     * @param start Index of the first hashed byte.
+     * @param length Amount of hashed bytes.
+     * @return Hash.
+     */
+    private static int hash(
+        final byte[] bytes,
+        final int start,
+        final int length) {
+        int hash = 1;
+        for (int index = start; index < start + length; ++index) {
+            hash = NameArena.PRIME * hash + bytes[index];
+        }
+        return hash ^ hash >>> NameArena.MIX;
+    }
+
+    /**
+     * Amount of bytes of a header.
+     *
+     * @param header Header value.
+     * @return Bytes of the header.
+     */
+    private static int headerLength(final int header) {
+        int length = 1;
+        int rest = header >>> NameArena.BITS;
+        while (rest != 0) {
+            length += 1;
+            rest >>>= NameArena.BITS;
+        }
+        return length;
+    }
+
+    /**
+     * Charset of a header.
+     *
+     * @param header Header value.
+     * @return UTF-8 or Latin-1.
+     */
+    private static Charset charset(final int header) {
+        final Charset charset;
+        if ((header & 1) == 0) {
+            charset = StandardCharsets.ISO_8859_1;
+        } else {
+            charset = StandardCharsets.UTF_8;
+        }
+        return charset;
+    }
+
+    /**
+     * Checks if {@code name} has characters outside Latin-1.
+     *
+     * @param name Name.
+     * @return True when the name needs UTF-8.
+     */
+    private static boolean isUtf(final CharSequence name) {
+        boolean utf = false;
+        for (int index = 0; !utf && index < name.length(); ++index) {
+            utf = name.charAt(index) > NameArena.LATIN_MAX;
+        }
+        return utf;
+    }
+
+    /**
+     * Grows {@code array} to at least {@code length} bytes.
+     *
+     * @param array Array.
+     * @param length Required length.
+     * @return The array or a larger copy.
+     */
+    private static byte[] ensure(final byte[] array, final long length) {
+        byte[] result = array;
+        if (length > array.length) {
+            result = Arrays.copyOf(
+                array, NameArena.capacity(array.length, length)
+            );
+        }
+        return result;
+    }
+
+    /**
+     * Capacity to grow an array to, double the current capacity or the
+     * required length when that is larger, capped at the largest array
+     * length.
+     *
+     * @param current Current capacity.
+     * @param length Required length, larger than {@code current}.
+     * @return New capacity.
+     * @throws IllegalStateException When the required length exceeds the
+     *  largest array length.
+     */
+    static int capacity(final int current, final long length) {
+        if (length > NameArena.MAX_CAPACITY) {
+            throw new IllegalStateException(
+                String.format(
+                    "name arena cannot hold %d bytes, at most %d",
+                    length, NameArena.MAX_CAPACITY
+                )
+            );
+        }
+        return (int) Math.min(
+            Math.max(length, current * 2L), NameArena.MAX_CAPACITY
+        );
+    }
+}
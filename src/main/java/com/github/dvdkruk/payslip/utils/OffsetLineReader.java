@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+
+package com.github.dvdkruk.payslip.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A UTF-8 line reader that keeps track of the byte offset of the next line,
+ * so that reading can be resumed at an exact position in a file.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class OffsetLineReader implements Closeable {
+
+    /**
+     * Size of the read buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Initial size of the line buffer.
+     */
+    private static final int LINE_SIZE = 128;
+
+    /**
+     * Channel to read from.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Read buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Bytes of the line that is being read.
+     */
+    private byte[] line;
+
+    /**
+     * Byte offset of the next line.
+     */
+    private long offset;
+
+    /**
+     * Opens {@code file} for reading, starting at byte {@code offset}.
+     *
+     * @param file File to read.
+     * @param offset Byte offset of the first line to read.
+     * @throws IOException When the file cannot be opened.
+     */
+    public OffsetLineReader(final Path file, final long offset)
+        throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.channel.position(offset);
+        this.buffer = ByteBuffer.allocate(OffsetLineReader.BUFFER_SIZE);
+        this.buffer.flip();
+        this.line = new byte[OffsetLineReader.LINE_SIZE];
+        this.offset = offset;
+    }
+
+    /**
+     * Reads the next line without its line terminator.
+     *
+     * @return The next line or {@code null} at the end of the file.
+     * @throws IOException When reading fails.
+     */
+    public String readLine() throws IOException {
+        int length = 0;
+        boolean found = false;
+        boolean eof = false;
+        while (!found && !eof) {
+            if (!this.buffer.hasRemaining()) {
+                eof = !this.fill();
+            } else {
+                final byte next = this.buffer.get();
+                this.offset += 1;
+                if (next == '\n') {
+                    found = true;
+                } else {
+                    this.store(length, next);
+                    length += 1;
+                }
+            }
+        }
+        final String result;
+        if (!found && length == 0) {
+            result = null;
+        } else {
+            if (length > 0 && this.line[length - 1] == '\r') {
+                length -= 1;
+            }
+            result = new String(this.line, 0, length, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    /**
+     * Byte offset of the next line that will be read.
+     *
+     * @return Byte offset from the start of the file.
+     */
+    public long offset() {
+        return this.offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Refills the read buffer.
+     *
+     * @return False when the end of the file has been reached.
+     * @throws IOException When reading fails.
+     */
+    private boolean fill() throws IOException {
+        this.buffer.clear();
+        final int read = this.channel.read(this.buffer);
+        this.buffer.flip();
+        return read > 0;
+    }
+
+    /**
+     * Stores {@code value} at {@code index} of the line buffer.
+     *
+     * @param index Index in the line buffer.
+     * @param value Byte to store.
+     */
+    private void store(final int index, final byte value) {
+        if (index == this.line.length) {
+            this.line = Arrays.copyOf(this.line, this.line.length * 2);
+        }
+        this.line[index] = value;
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+import org.hamcrest.Description;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.TypeSafeMatcher;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Allocation budgets of the per-row hot path. Every stage is warmed up and
+ * then measured over many calls with the allocation counter of the current
+ * thread, so a change that adds garbage per row fails the build. The tests
+ * are skipped on virtual machines without per-thread allocation counters.
+ *
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class AllocationTest {
+
+    /**
+     * A valid request line.
+     */
+    private static final String LINE = "David,Rudd,60050,9%,March";
+
+    /**
+     * Calls before measuring, so the stages are compiled.
+     */
+    private static final int WARMUP = 50_000;
+
+    /**
+     * Measured calls.
+     */
+    private static final int CALLS = 100_000;
+
+    /**
+     * Budget of parsing a request line in bytes per call.
+     */
+    private static final long PARSE_BUDGET = 1_536L;
+
+    /**
+     * Budget of processing a request in bytes per call.
+     */
+    private static final long PROCESS_BUDGET = 2_048L;
+
+    /**
+     * Budget of rendering a result in bytes per call on top of formatting
+     * its period. The formatting of the period depends on the JDK, so it is
+     * measured as the baseline instead of being part of a fixed amount. The
+     * rest takes about 1 KiB on JDK 17; the budget leaves room for the two
+     * byte characters of strings on Java 8.
+     */
+    private static final long RENDER_BUDGET = 2_560L;
+
+    /**
+     * Budget of encoding a result as a JSON line in bytes per call, which
+     * only allows for the boxed line length.
+     */
+    private static final long JSON_BUDGET = 16L;
+
+    /**
+     * Budget of staging, calculating and writing a request line off-heap in
+     * bytes per call, which allows no garbage per row. The few bytes only
+     * tolerate rare allocations of the virtual machine itself, like a
+     * recompilation, during the measured calls.
+     */
+    private static final long OFF_HEAP_BUDGET = 2L;
+
+    /**
+     * Last produced value, so the measured calls are not eliminated.
+     */
+    private static volatile Object sink;
+
+    /**
+     * Allocation counters of the current thread.
+     */
+    private com.sun.management.ThreadMXBean bean;
+
+    /**
+     * Skips the tests without per-thread allocation counters.
+     */
+    @BeforeEach
+    public void init() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(
+            threads instanceof com.sun.management.ThreadMXBean
+        );
+        this.bean = (com.sun.management.ThreadMXBean) threads;
+        Assumptions.assumeTrue(
+            this.bean.isThreadAllocatedMemorySupported()
+        );
+        this.bean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Checks the allocation budget of {@link
+     * PayslipRequestParser#toPayslipRequest()}.
+     */
+    @Test
+    public void parseWithinBudget() {
+        this.check(
+            () -> new PayslipRequestParser(AllocationTest.LINE)
+                .toPayslipRequest(),
+            AllocationTest.PARSE_BUDGET
+        );
+    }
+
+    /**
+     * Checks the allocation budget of {@link
+     * PayslipProcessor#process(PayslipRequest)}.
+     */
+    @Test
+    public void processWithinBudget() {
+        final PayslipProcessor processor = new PayslipProcessor();
+        final PayslipRequest request =
+            new PayslipRequestParser(AllocationTest.LINE).toPayslipRequest();
+        this.check(
+            () -> processor.process(request), AllocationTest.PROCESS_BUDGET
+        );
+    }
+
+    /**
+     * Checks the allocation budget of rendering a {@link PayslipResult}.
+     */
+    @Test
+    public void renderWithinBudget() {
+        final PayslipResult result = new PayslipProcessor().process(
+            new PayslipRequestParser(AllocationTest.LINE).toPayslipRequest()
+        );
+        final long period = this.measure(
+            () -> PayslipResult.toDisplayMonthRange(result.getMonth())
+        );
+        this.check(result::toString, period + AllocationTest.RENDER_BUDGET);
+    }
+
+    /**
+     * Checks the allocation budget of {@link
+     * JsonLineEncoder#encode(String, PayslipResult)}.
+     */
+    @Test
+    public void jsonWithinBudget() {
+        final PayslipResult result = new PayslipProcessor().process(
+            new PayslipRequestParser(AllocationTest.LINE).toPayslipRequest()
+        );
+        final JsonLineEncoder encoder = new JsonLineEncoder();
+        this.check(
+            () -> encoder.encode("", result), AllocationTest.JSON_BUDGET
+        );
+    }
+
+    /**
+     * Checks the allocation budget of a block of {@link OffHeapRecords} with
+     * one request line, from reading the line to writing its output line.
+     *
+     * @throws IOException When the files cannot be written.
+     */
+    @Test
+    public void offHeapWithinBudget() throws IOException {
+        final Path dir = Files.createTempDirectory("allocation");
+        final Path input = Files.write(
+            dir.resolve("in.csv"),
+            AllocationTest.LINE.getBytes(StandardCharsets.UTF_8)
+        );
+        final TaxSchedule schedule = new PayslipProcessor().schedule();
+        final OffHeapRecords records = new OffHeapRecords(OutputFormat.CSV);
+        final BatchTotals totals = new BatchTotals();
+        try (
+            FileChannel channel =
+                FileChannel.open(input, StandardOpenOption.READ);
+            BatchOutput output = new BatchOutput(
+                new BatchWriter(dir.resolve("out.csv"), 0L), null
+            )
+        ) {
+            final long size = channel.size();
+            this.check(
+                () -> {
+                    try {
+                        records.load(channel, 0L, size);
+                        records.calculate(schedule);
+                        records.encode(0, totals, output);
+                        records.flush(output);
+                    } catch (final IOException iox) {
+                        throw new UncheckedIOException(iox);
+                    }
+                    return records;
+                },
+                AllocationTest.OFF_HEAP_BUDGET
+            );
+        }
+    }
+
+    /**
+     * Measures the bytes allocated per call of {@code stage} and checks them
+     * against {@code budget}.
+     *
+     * @param stage Measured stage.
+     * @param budget Allowed bytes per call.
+     */
+    private void check(final Supplier<?> stage, final long budget) {
+        MatcherAssert.assertThat(
+            "bytes per call", this.measure(stage),
+            new AllocationTest.AtMost(budget)
+        );
+    }
+
+    /**
+     * Measures the bytes allocated per call of {@code stage} after warming
+     * it up.
+     *
+     * @param stage Measured stage.
+     * @return Allocated bytes per call.
+     */
+    private long measure(final Supplier<?> stage) {
+        for (int call = 0; call < AllocationTest.WARMUP; ++call) {
+            AllocationTest.sink = stage.get();
+        }
+        final long thread = Thread.currentThread().getId();
+        final long before = this.bean.getThreadAllocatedBytes(thread);
+        for (int call = 0; call < AllocationTest.CALLS; ++call) {
+            AllocationTest.sink = stage.get();
+        }
+        return (this.bean.getThreadAllocatedBytes(thread) - before)
+            / AllocationTest.CALLS;
+    }
+
+    /**
+     * Matches amounts up to a maximum, as hamcrest-core has no ordering
+     * matchers.
+     */
+    private static final class AtMost extends TypeSafeMatcher<Long> {
+
+        /**
+         * Largest matching amount.
+         */
+        private final long max;
+
+        /**
+         * Matcher constructor.
+         *
+         * @param max Largest matching amount.
+         */
+        AtMost(final long max) {
+            super();
+            this.max = max;
+        }
+
+        @Override
+        public void describeTo(final Description description) {
+            description.appendText("a value less than or equal to ")
+                .appendValue(this.max);
+        }
+
+        @Override
+        protected boolean matchesSafely(final Long item) {
+            return item <= this.max;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link AsciiDigits}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class AsciiDigitsTest {
+
+    /**
+     * Checks that the digits equal {@link Integer#toString(int)} and are
+     * written at the offset.
+     *
+     * @param value Number.
+     */
+    @ParameterizedTest
+    @ValueSource(
+        ints = {
+            0, 7, 10, 99, 100, 5004, -1, -10, -4082,
+            Integer.MAX_VALUE, Integer.MIN_VALUE,
+        }
+    )
+    public void writesLikeToString(final int value) {
+        final byte[] target = new byte[AsciiDigits.MAX_LENGTH + 2];
+        target[0] = 'x';
+        final int end = AsciiDigits.encode(value, target, 1);
+        new TestAssert<>(
+            new String(target, 0, end, StandardCharsets.US_ASCII)
+        ).equalTo(String.format("x%d", value));
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link BatchProgress}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class BatchProgressTest {
+
+    /**
+     * Checks that the timer prints progress lines with the error rate and
+     * the done part of the input, and that closing prints the summary with
+     * the stages.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     * @throws UnsupportedEncodingException Never.
+     */
+    @Test
+    public void printsProgressAndSummary()
+        throws InterruptedException, UnsupportedEncodingException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final String charset = StandardCharsets.UTF_8.name();
+        try (
+            BatchProgress progress = new BatchProgress(
+                new PrintStream(bytes, true, charset), 10L
+            )
+        ) {
+            progress.begin(1_000L, 100L);
+            progress.stage("process");
+            progress.read(400L);
+            for (int row = 0; row < 4; ++row) {
+                progress.row();
+            }
+            progress.fail();
+            final long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(30L);
+            while (!bytes.toString(charset).contains("progress:")
+                && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            progress.stage("write");
+        }
+        final String[] lines = bytes.toString(charset).trim()
+            .split(System.lineSeparator());
+        new TestAssert<>(
+            lines[0].matches(
+                "progress: 4 rows, \\d+ rows/s, [\\d.,]+ MB/s, "
+                    .concat("errors: 25[.,]00%, done: 50[.,]0%, eta: .+")
+            )
+        ).equalTo(true);
+        new TestAssert<>(
+            lines[lines.length - 1].matches(
+                "finished: 4 rows, 1 failed, 0[.,]0 MB in [\\d.,]+ s "
+                    .concat("\\(\\d+ rows/s\\), process [\\d.,]+ s, ")
+                    .concat("write [\\d.,]+ s")
+            )
+        ).equalTo(true);
+    }
+
+    /**
+     * Checks that a run which fails before it begins prints no summary.
+     *
+     * @throws UnsupportedEncodingException Never.
+     */
+    @Test
+    public void skipsSummaryWithoutBegin()
+        throws UnsupportedEncodingException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final String charset = StandardCharsets.UTF_8.name();
+        try (
+            BatchProgress progress = new BatchProgress(
+                new PrintStream(bytes, true, charset), 10L
+            )
+        ) {
+            progress.fail();
+        }
+        new TestAssert<>(bytes.toString(charset)).equalTo("");
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link CompositeSchedule}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class CompositeScheduleTest {
+
+    /**
+     * Names of the components.
+     */
+    private static final List<String> NAMES = Arrays.asList(
+        CompositeSchedule.INCOME, "levy", "loan", "offset"
+    );
+
+    /**
+     * Rules of the components: the default rules, a levy that is phased in
+     * between 20000 and 25000, a loan repayment and a tax offset that is
+     * phased out.
+     */
+    private static final List<List<TaxRule>> RULES = Arrays.asList(
+        DefaultTaxRuleFactory.DEFAULT,
+        TaxScenarios.parseRules(
+            Arrays.asList("20000,0,0", "25000,0,0.1", "2147483647,500,0.02")
+        ),
+        TaxScenarios.parseRules(
+            Arrays.asList("51956,0,0", "60000,0,0.01", "2000000000,80,0.0275")
+        ),
+        TaxScenarios.parseRules(
+            Arrays.asList("37000,-445,0", "66667,-445,0.015", "2000000000,0,0")
+        )
+    );
+
+    /**
+     * Checks that the merged schedule has a bracket per distinct maximum up
+     * to the smallest last maximum.
+     */
+    @Test
+    public void mergesMaxima() {
+        new TestAssert<>(
+            CompositeSchedule.compile(
+                CompositeScheduleTest.NAMES, CompositeScheduleTest.RULES
+            ).size()
+        ).equalTo(10);
+    }
+
+    /**
+     * Checks that every component equals its own schedule, around every
+     * maximum and over a range of salaries with cents.
+     */
+    @Test
+    public void breaksDownLikeSeparateSchedules() {
+        final CompositeSchedule composite = CompositeSchedule.compile(
+            CompositeScheduleTest.NAMES, CompositeScheduleTest.RULES
+        );
+        final List<TaxSchedule> parts = new ArrayList<>();
+        final List<Long> salaries = new ArrayList<>();
+        for (final List<TaxRule> rules : CompositeScheduleTest.RULES) {
+            parts.add(TaxSchedule.compile(rules));
+            for (final TaxRule rule : rules) {
+                for (long delta = -101L; delta <= 101L; ++delta) {
+                    salaries.add(rule.getMax() * Money.CENTS + delta);
+                }
+            }
+        }
+        for (long cents = 1L; cents < 30_000_000L; cents += 9_973L) {
+            salaries.add(cents);
+        }
+        final long[] amounts = new long[parts.size()];
+        final long[] expected = new long[parts.size()];
+        for (final long cents : salaries) {
+            if (cents > 0L && cents <= composite.limit()) {
+                long total = 0L;
+                for (int index = 0; index < parts.size(); ++index) {
+                    expected[index] = parts.get(index).monthly(cents);
+                    total += expected[index];
+                }
+                new TestAssert<>(composite.monthly(cents, amounts))
+                    .equalTo(total);
+                new TestAssert<>(Arrays.toString(amounts))
+                    .equalTo(Arrays.toString(expected));
+            }
+        }
+    }
+
+    /**
+     * Checks that salaries above the smallest last maximum are rejected.
+     */
+    @Test
+    public void rejectsUncoveredSalary() {
+        final CompositeSchedule composite = CompositeSchedule.compile(
+            CompositeScheduleTest.NAMES, CompositeScheduleTest.RULES
+        );
+        String message = null;
+        try {
+            composite.breakdown(
+                Money.ofDollars(2_000_000_001L), new long[4]
+            );
+        } catch (final NoSuchElementException nse) {
+            message = nse.getMessage();
+        }
+        new TestAssert<>(message).equalTo(
+            "No tax rule found for annual salary '2000000001.00'"
+        );
+    }
+
+    /**
+     * Checks the per-row breakdown, the rejected rows and the summary of a
+     * run.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void writesBreakdown() throws IOException {
+        final CompositeSchedule composite = CompositeSchedule.compile(
+            CompositeScheduleTest.NAMES, CompositeScheduleTest.RULES
+        );
+        final StringWriter output = new StringWriter();
+        final StringWriter errors = new StringWriter();
+        final long[] totals;
+        try (ErrorSink sink = new ErrorSink(new PrintWriter(errors))) {
+            totals = composite.run(
+                new BufferedReader(
+                    new StringReader(
+                        String.join(
+                            "\n",
+                            "David,Rudd,60050,9%,March",
+                            "",
+                            "Ryan,Chen,0,10%,May",
+                            "Emma,Stone,24000,9%,May"
+                        )
+                    )
+                ),
+                output,
+                sink
+            );
+        }
+        new TestAssert<>(Arrays.asList(output.toString().split("\n")))
+            .equalTo(
+                Arrays.asList(
+                    "name,total,income,levy,loan,offset",
+                    "David Rudd,1021,922,100,7,-8",
+                    "Emma Stone,88,92,33,0,-37"
+                )
+            );
+        new TestAssert<>(errors.toString()).equalTo(
+            String.format("line 3: %s%n", PayslipProcessor.INVAL_SALARY)
+        );
+        new TestAssert<>(composite.summary(totals)).equalTo(
+            String.format(
+                "total: 1109%nincome: 1014%nlevy: 133%nloan: 7%noffset: -45"
+            )
+        );
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link DuplicateDetector}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class DuplicateDetectorTest {
+
+    /**
+     * Amount of input lines.
+     */
+    private static final int LINES = 50_000;
+
+    /**
+     * Checks the duplicates of a random input against a map of the first
+     * line per employee and month, with the exact check in memory and
+     * spilled to disk, and that no partition files are left behind.
+     *
+     * @param budget Memory budget of the exact check.
+     * @throws IOException When reading or writing fails.
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {DuplicateDetector.DEFAULT_BUDGET, 4096L})
+    public void findsDuplicates(final long budget) throws IOException {
+        final Path dir = Files.createTempDirectory("duplicates");
+        final Random random = new Random(budget);
+        final String[] months = {"March", "May", "March-May"};
+        final String[][] covered = {
+            {"March"}, {"May"}, {"March", "April", "May"},
+        };
+        final List<String> lines = new ArrayList<>();
+        final Map<String, Long> firsts = new HashMap<>();
+        final List<Long> expected = new ArrayList<>();
+        for (int index = 0; index < DuplicateDetectorTest.LINES; ++index) {
+            final int range = random.nextInt(months.length);
+            final String key = String.format(
+                "Stone%d,%s",
+                random.nextInt(DuplicateDetectorTest.LINES), months[range]
+            );
+            final long number = index + 1L;
+            long first = Long.MAX_VALUE;
+            for (final String month : covered[range]) {
+                first = Math.min(
+                    first,
+                    firsts.computeIfAbsent(
+                        key.split(",")[0].concat(month), name -> number
+                    )
+                );
+            }
+            if (first != number) {
+                expected.add(first);
+            }
+            expected.add(-1L);
+            final String[] fields = key.split(",");
+            lines.add(
+                String.format(
+                    "Emma,%s,%d,9%%,%s",
+                    fields[0], random.nextInt(100_000) + 1, fields[1]
+                )
+            );
+        }
+        lines.add("Emma,Stone1,60050,9%,Peter");
+        lines.add("Emma,Stone1,60050,9%,Peter");
+        final Path input = Files.write(dir.resolve("in.csv"), lines);
+        final DuplicateDetector.Duplicates duplicates =
+            new DuplicateDetector(dir, budget, DuplicateDetector.DEFAULT_FPP)
+                .scan(input);
+        final List<Long> actual = new ArrayList<>();
+        for (int index = 0; index < DuplicateDetectorTest.LINES; ++index) {
+            final long first = duplicates.firstOf(index + 1L);
+            if (first > 0L) {
+                actual.add(first);
+            }
+            actual.add(-1L);
+        }
+        new TestAssert<>(actual).equalTo(expected);
+        new TestAssert<>(duplicates.firstOf(lines.size())).equalTo(-1L);
+        try (Stream<Path> files = Files.list(dir)) {
+            new TestAssert<>(files.count()).equalTo(1L);
+        }
+    }
+
+    /**
+     * Checks that a range of months is a duplicate of an earlier single
+     * month that it covers, and the other way around.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void findsOverlappingRanges() throws IOException {
+        final Path dir = Files.createTempDirectory("duplicates");
+        final Path input = Files.write(
+            dir.resolve("in.csv"),
+            Arrays.asList(
+                "Emma,Stone,60050,9%,July",
+                "Emma,Stone,60050,9%,July-September",
+                "Emma,Stone,60050,9%,August",
+                "Emma,Stone,60050,9%,October",
+                "Emma,Stone,60050,9%,December-February",
+                "Emma,Stone,60050,9%,January",
+                "Ryan,Chen,60050,9%,July"
+            )
+        );
+        final DuplicateDetector.Duplicates duplicates =
+            new DuplicateDetector(
+                dir, DuplicateDetector.DEFAULT_BUDGET,
+                DuplicateDetector.DEFAULT_FPP
+            ).scan(input);
+        final List<Long> firsts = new ArrayList<>();
+        for (long line = 1L; line <= 7L; ++line) {
+            firsts.add(duplicates.firstOf(line));
+        }
+        new TestAssert<>(firsts)
+            .equalTo(Arrays.asList(-1L, 1L, 2L, -1L, -1L, 5L, -1L));
+    }
+
+    /**
+     * Checks that a line that the processor rejects is neither a duplicate
+     * nor the first occurrence of a later valid line.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void skipsRejectedLines() throws IOException {
+        final Path dir = Files.createTempDirectory("duplicates");
+        final Path input = Files.write(
+            dir.resolve("in.csv"),
+            Arrays.asList(
+                "John,Smith,-5,9%,March",
+                "John,Smith,60050,9%,March",
+                "John,Smith,60050,60%,March",
+                "John,Smith,60050,9%,March"
+            )
+        );
+        final DuplicateDetector.Duplicates duplicates =
+            new DuplicateDetector(
+                dir, DuplicateDetector.DEFAULT_BUDGET,
+                DuplicateDetector.DEFAULT_FPP
+            ).scan(input);
+        final List<Long> firsts = new ArrayList<>();
+        for (long line = 1L; line <= 4L; ++line) {
+            firsts.add(duplicates.firstOf(line));
+        }
+        new TestAssert<>(firsts)
+            .equalTo(Arrays.asList(-1L, -1L, -1L, 2L));
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Unit tests for {@link EmployeeIndex} and pay-run lines of {@link
+ * PayslipRequestParser}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class EmployeeIndexTest {
+
+    /**
+     * Employee lines.
+     */
+    private static final List<String> EMPLOYEES = Arrays.asList(
+        "17,David,Rudd,9%",
+        "",
+        " 4711 , Ryan , Chen , 10% "
+    );
+
+    /**
+     * Employee file.
+     */
+    private Path file;
+
+    /**
+     * Creates the employee file.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    @BeforeEach
+    public void init() throws IOException {
+        this.file = Files.write(
+            Files.createTempFile("employees", ".csv"),
+            EmployeeIndexTest.EMPLOYEES
+        );
+    }
+
+    /**
+     * Checks that a pay-run line gets the names and the default super rate
+     * of its employee.
+     *
+     * @throws IOException When the file cannot be read.
+     */
+    @Test
+    public void resolvesEmployee() throws IOException {
+        final PayslipRequest request = new PayslipRequestParser(
+            "4711,120000,May-June", EmployeeIndex.load(this.file)
+        ).toPayslipRequest();
+        new TestAssert<>(request.getEmployee().getFullName())
+            .equalTo("Ryan Chen");
+        new TestAssert<>(request.getEmployee().getAnnualSalary())
+            .equalTo(Money.ofDollars(120_000L));
+        new TestAssert<>(request.getSuperRate()).equalTo(new BigDecimal("10"));
+        new TestAssert<>(request.getMonth()).equalTo(Month.MAY);
+        new TestAssert<>(request.getMonths()).equalTo(2);
+    }
+
+    /**
+     * Checks that the super rate of a pay-run line overrides the default
+     * super rate of the employee.
+     *
+     * @throws IOException When the file cannot be read.
+     */
+    @Test
+    public void overridesSuperRate() throws IOException {
+        new TestAssert<>(
+            new PayslipProcessor().process(
+                new PayslipRequestParser(
+                    "17,60050,March,10.5%", EmployeeIndex.load(this.file)
+                ).toPayslipRequest()
+            ).toString()
+        ).equalTo("David Rudd,01 March - 31 March,5004,922,4082,525");
+    }
+
+    /**
+     * Checks the errors of invalid pay-run lines.
+     *
+     * @param line Pay-run line.
+     * @param message Expected message.
+     * @throws IOException When the file cannot be read.
+     */
+    @ParameterizedTest
+    @CsvSource(
+        delimiter = '|',
+        value = {
+            "18,60050,March|18 is an unknown employee id",
+            "David,60050,March|cannot parse employee id 'David' into a number",
+            "17,60050,Peter|Peter is an invalid month",
+        }
+    )
+    public void rejectsInvalidLines(final String line, final String message)
+        throws IOException {
+        new TestAssert<>(this.error(line)).equalTo(message);
+    }
+
+    /**
+     * Checks that pay-run lines with too few or too many elements are
+     * rejected.
+     *
+     * @throws IOException When the file cannot be read.
+     */
+    @Test
+    public void rejectsElementAmount() throws IOException {
+        new TestAssert<>(this.error("17,60050"))
+            .equalTo(PayslipRequestParser.INVAL_PAY_RUN_AMNT);
+        new TestAssert<>(this.error("17,60050,March,9%,1"))
+            .equalTo(PayslipRequestParser.INVAL_PAY_RUN_AMNT);
+    }
+
+    /**
+     * Checks that every employee of a large file is found after the index
+     * grew.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    @Test
+    public void findsManyEmployees() throws IOException {
+        final int amount = 10_000;
+        final List<String> lines = new ArrayList<>(amount);
+        for (int index = 0; index < amount; ++index) {
+            lines.add(
+                String.format("%d,Name%d,Surname,9%%", index * 7L, index)
+            );
+        }
+        final EmployeeIndex employees =
+            EmployeeIndex.load(Files.write(this.file, lines));
+        int found = 0;
+        for (int index = 0; index < amount * 7; ++index) {
+            if (employees.contains(index)) {
+                found += 1;
+            }
+        }
+        new TestAssert<>(employees.size()).equalTo(amount);
+        new TestAssert<>(found).equalTo(amount);
+        new TestAssert<>(employees.surname(employees.find(7L * 42)))
+            .equalTo("Surname");
+        new TestAssert<>(employees.forename(employees.find(7L * 42)))
+            .equalTo("Name42");
+    }
+
+    /**
+     * Checks that a repeated employee ID is rejected with its line number.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    @Test
+    public void rejectsRepeatedIds() throws IOException {
+        Files.write(this.file, Arrays.asList("1,A,B,9%", "1,C,D,9%"));
+        PayslipException error = null;
+        try {
+            EmployeeIndex.load(this.file);
+        } catch (final PayslipException pex) {
+            error = pex;
+        }
+        new TestAssert<>(error.getMessage()).equalTo(
+            String.format(
+                "line 2 of %s: employee id 1 is not unique",
+                this.file.getFileName()
+            )
+        );
+        new TestAssert<>(error.getCause() instanceof PayslipException)
+            .equalTo(true);
+    }
+
+    /**
+     * Checks that an invalid employee line keeps the error code of the line.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    @Test
+    public void keepsErrorCode() throws IOException {
+        Files.write(this.file, Arrays.asList("", "x,A,B,9%"));
+        PayslipException error = null;
+        try {
+            EmployeeIndex.load(this.file);
+        } catch (final PayslipException pex) {
+            error = pex;
+        }
+        new TestAssert<>(error.getCode()).equalTo(ErrorCode.EMPLOYEE_ID);
+        new TestAssert<>(error.getMessage()).equalTo(
+            String.format(
+                "line 2 of %s: cannot parse employee id 'x' into a number",
+                this.file.getFileName()
+            )
+        );
+    }
+
+    /**
+     * Parses a pay-run line against the employee file.
+     *
+     * @param line Pay-run line.
+     * @return Message of the parse error or {@code null} when it is valid.
+     * @throws IOException When the file cannot be read.
+     */
+    private String error(final String line) throws IOException {
+        final EmployeeIndex employees = EmployeeIndex.load(this.file);
+        String error = null;
+        try {
+            new PayslipRequestParser(line, employees).toPayslipRequest();
+        } catch (final PayslipException pex) {
+            error = pex.getMessage();
+        }
+        return error;
+    }
+}
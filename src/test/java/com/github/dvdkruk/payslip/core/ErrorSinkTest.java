@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ErrorSink}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class ErrorSinkTest {
+
+    /**
+     * Checks that failures are formatted by the writer thread and that a
+     * final summary is printed on close.
+     *
+     * @throws UnsupportedEncodingException When UTF-8 is unsupported.
+     */
+    @Test
+    public void writesFailuresAndSummary()
+        throws UnsupportedEncodingException {
+        final StringWriter details = new StringWriter();
+        final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(details),
+                new PrintStream(summary, true, StandardCharsets.UTF_8.name()),
+                ErrorSink.DEFAULT_PERIOD
+            )
+        ) {
+            sink.report(3L, new PayslipException(ErrorCode.MONTH, "Peter"));
+            sink.report(7L, ErrorCode.FORENAME, "");
+        }
+        new TestAssert<>(details.toString()).equalTo(
+            String.format(
+                "line 3: Peter is an invalid month%nline 7: %s%n",
+                PayslipProcessor.INVAL_FORENAME
+            )
+        );
+        new TestAssert<>(summary.toString(StandardCharsets.UTF_8.name()))
+            .equalTo(String.format("rejected: 2, dropped: 0%n"));
+    }
+
+    /**
+     * Checks that reporting does not block on a stalled writer, but drops
+     * and counts the failures that do not fit in the queue, and writes the
+     * amount of dropped failures after the failures without summaries.
+     */
+    @Test
+    public void dropsWhenFull() {
+        final CountDownLatch stall = new CountDownLatch(1);
+        final StringWriter details = new StringWriter();
+        final Writer stalled = new ErrorSinkTest.Stalled(stall, details);
+        final int amount = 2 * ErrorSink.DEFAULT_CAPACITY;
+        final ErrorSink sink = new ErrorSink(new PrintWriter(stalled));
+        for (int line = 1; line <= amount; ++line) {
+            sink.report(line, ErrorCode.SALARY, "0");
+        }
+        stall.countDown();
+        sink.close();
+        new TestAssert<>(sink.getRejected()).equalTo((long) amount);
+        new TestAssert<>(sink.getDropped() > 0L).isSame(true);
+        final String[] lines = details.toString()
+            .split(System.lineSeparator());
+        new TestAssert<>(lines[lines.length - 1])
+            .equalTo(String.format("dropped: %d", sink.getDropped()));
+        new TestAssert<>(lines.length - 1 + sink.getDropped())
+            .equalTo((long) amount);
+    }
+
+    /**
+     * Writer that stalls until a latch is released.
+     */
+    private static final class Stalled extends Writer {
+
+        /**
+         * Latch that releases the writer.
+         */
+        private final CountDownLatch stall;
+
+        /**
+         * Target of the written characters.
+         */
+        private final StringWriter target;
+
+        /**
+         * Stalled writer constructor.
+         *
+         * @param stall Latch that releases the writer.
+         * @param target Target of the written characters.
+         */
+        Stalled(final CountDownLatch stall, final StringWriter target) {
+            super();
+            this.stall = stall;
+            this.target = target;
+        }
+
+        @Override
+        public void write(final char[] chars, final int off, final int len) {
+            try {
+                this.stall.await();
+            } catch (final InterruptedException iex) {
+                Thread.currentThread().interrupt();
+            }
+            this.target.write(chars, off, len);
+        }
+
+        @Override
+        public void flush() {
+            this.target.flush();
+        }
+
+        @Override
+        public void close() {
+            this.target.flush();
+        }
+    }
+}
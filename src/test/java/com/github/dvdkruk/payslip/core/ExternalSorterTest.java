@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ExternalSorter}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class ExternalSorterTest {
+
+    /**
+     * Memory budget that forces a run file for every few records.
+     */
+    private static final long BUDGET = 150L;
+
+    /**
+     * Unsorted requests.
+     */
+    private static final List<String> REQUESTS = Arrays.asList(
+        "Ryan,Chen,120000,10%,May",
+        "David,Rudd,60050,9%,March",
+        "Michael,Jackson,18200,1%,December",
+        "Amy,chen,60050,9%,January",
+        "Zo\u00eb,\u0141ukasiewicz,60050,9%,February",
+        "Jennifer,Lawrence,180001,50%,November",
+        "Bob,Adams,60050,9%,March"
+    );
+
+    /**
+     * Full name with Latin-1 and other characters.
+     */
+    private static final String ZOE = "Zo\u00eb \u0141ukasiewicz";
+
+    /**
+     * Directory for run and output files.
+     */
+    private Path dir;
+
+    /**
+     * Creates the directory for run files.
+     *
+     * @throws IOException When the directory cannot be created.
+     */
+    @BeforeEach
+    public void init() throws IOException {
+        this.dir = Files.createTempDirectory("sort");
+    }
+
+    /**
+     * Checks sorting by surname, case insensitive and stable.
+     *
+     * @throws IOException When sorting fails.
+     */
+    @Test
+    public void sortsBySurname() throws IOException {
+        new TestAssert<>(this.sort(SortKey.SURNAME)).equalTo(
+            Arrays.asList(
+                "Bob Adams", "Amy chen", "Ryan Chen", "Michael Jackson",
+                "Jennifer Lawrence", "David Rudd", ExternalSorterTest.ZOE
+            )
+        );
+    }
+
+    /**
+     * Checks that equal keys keep their input order.
+     *
+     * @throws IOException When sorting fails.
+     */
+    @Test
+    public void sortsByNetIncomeStable() throws IOException {
+        new TestAssert<>(this.sort(SortKey.NET)).equalTo(
+            Arrays.asList(
+                "Michael Jackson", "David Rudd", "Amy chen",
+                ExternalSorterTest.ZOE, "Bob Adams", "Ryan Chen",
+                "Jennifer Lawrence"
+            )
+        );
+    }
+
+    /**
+     * Checks sorting by month.
+     *
+     * @throws IOException When sorting fails.
+     */
+    @Test
+    public void sortsByMonth() throws IOException {
+        new TestAssert<>(this.sort(SortKey.MONTH)).equalTo(
+            Arrays.asList(
+                "Amy chen", ExternalSorterTest.ZOE, "David Rudd",
+                "Bob Adams", "Ryan Chen", "Jennifer Lawrence",
+                "Michael Jackson"
+            )
+        );
+    }
+
+    /**
+     * Checks that the names of many distinct employees count against the
+     * budget, so the arena starts over with every run instead of growing
+     * with the input, and that the sorted output is complete.
+     *
+     * @throws IOException When sorting fails.
+     */
+    @Test
+    public void boundsNamesByBudget() throws IOException {
+        final long budget = 1L << 16;
+        final int rows = 5_000;
+        final PayslipProcessor processor = new PayslipProcessor();
+        final Path output = this.dir.resolve("names");
+        int largest = 0;
+        try (
+            ExternalSorter sorter =
+                new ExternalSorter(SortKey.SURNAME, this.dir, budget);
+            BatchWriter writer = new BatchWriter(output, 0L)
+        ) {
+            for (int row = rows; row > 0; --row) {
+                final PayslipRequest request = new PayslipRequestParser(
+                    String.format(
+                        "Forename%06d,Surname%06d,60050,9%%,March", row, row
+                    )
+                ).toPayslipRequest();
+                sorter.add(request, processor.process(request), "");
+                largest = Math.max(largest, sorter.nameBytes());
+            }
+            new TestAssert<>(sorter.runs() > 1).isSame(true);
+            sorter.writeTo(writer);
+        }
+        final List<String> lines =
+            Files.readAllLines(output, StandardCharsets.UTF_8);
+        new TestAssert<>(largest < budget).isSame(true);
+        new TestAssert<>(lines.size()).equalTo(rows);
+        new TestAssert<>(
+            lines.get(0).startsWith("Forename000001 Surname000001,")
+        ).isSame(true);
+        new TestAssert<>(
+            lines.get(rows - 1).startsWith("Forename005000 Surname005000,")
+        ).isSame(true);
+    }
+
+    /**
+     * Checks that a row whose details are shorter than the sort key is
+     * added and written.
+     *
+     * @throws IOException When sorting fails.
+     */
+    @Test
+    public void sortsShortRow() throws IOException {
+        final PayslipRequest request =
+            new PayslipRequestParser("A,B,12,0%,May").toPayslipRequest();
+        final PayslipResult result = new PayslipProcessor().process(request);
+        final Path output = this.dir.resolve("short");
+        try (
+            ExternalSorter sorter = new ExternalSorter(
+                SortKey.SURNAME, this.dir, ExternalSorter.DEFAULT_BUDGET
+            );
+            BatchWriter writer = new BatchWriter(output, 0L)
+        ) {
+            sorter.add(request, result, "");
+            sorter.writeTo(writer);
+        }
+        new TestAssert<>(Files.readAllLines(output, StandardCharsets.UTF_8))
+            .equalTo(Arrays.asList(result.toString()));
+    }
+
+    /**
+     * Sorts {@link ExternalSorterTest#REQUESTS} by {@code key} through
+     * several run files.
+     *
+     * @param key Sort key.
+     * @return Names of the sorted results.
+     * @throws IOException When sorting fails.
+     */
+    private List<String> sort(final SortKey key) throws IOException {
+        final PayslipProcessor processor = new PayslipProcessor();
+        final Path output = this.dir.resolve(key.name());
+        try (
+            ExternalSorter sorter = new ExternalSorter(
+                key, this.dir, ExternalSorterTest.BUDGET
+            );
+            BatchWriter writer = new BatchWriter(output, 0L)
+        ) {
+            for (final String line : ExternalSorterTest.REQUESTS) {
+                final PayslipRequest request =
+                    new PayslipRequestParser(line).toPayslipRequest();
+                final PayslipResult result = processor.process(request);
+                sorter.add(request, result, "");
+            }
+            new TestAssert<>(sorter.runs() > 1).isSame(true);
+            sorter.writeTo(writer);
+        }
+        final List<String> lines =
+            Files.readAllLines(output, StandardCharsets.UTF_8);
+        final List<String> names = new ArrayList<>(lines.size());
+        for (final String line : lines) {
+            names.add(line.substring(0, line.indexOf(',')));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Unit tests for {@link FieldScanner}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class FieldScannerTest {
+
+    /**
+     * Checks that fields are trimmed and empty fields are skipped.
+     */
+    @Test
+    public void splitsTrimmedFields() {
+        final byte[] bytes = " David ,, Rudd,60050 ,\t9%,March , "
+            .getBytes(StandardCharsets.UTF_8);
+        final FieldScanner fields = new FieldScanner(
+            ByteBuffer.wrap(bytes), FieldScanner.isAsciiLocale()
+        );
+        new TestAssert<>(fields.split(0, bytes.length)).equalTo(5);
+        new TestAssert<>(fields.isAscii()).equalTo(true);
+        new TestAssert<>(fields.field(1).toString()).equalTo("Rudd");
+        new TestAssert<>(
+            fields.field(PayslipRequestParser.SUPER_RATE_I).toString()
+        ).equalTo("9%");
+    }
+
+    /**
+     * Checks that fields with other characters are decoded.
+     */
+    @Test
+    public void decodesOtherCharacters() {
+        final FieldScanner fields =
+            FieldScannerTest.scanner("Zo\u00eb,Stone,60050,9%,March");
+        new TestAssert<>(fields.isAscii()).equalTo(false);
+        new TestAssert<>(fields.field(0).toString()).equalTo("Zo\u00eb");
+        new TestAssert<>(fields.field(1).toString()).equalTo("Stone");
+    }
+
+    /**
+     * Checks the month ordinals of month fields.
+     *
+     * @param field Month field.
+     * @param first Expected first ordinal.
+     * @param last Expected last ordinal.
+     * @param valid Whether every name is a month.
+     */
+    @ParameterizedTest
+    @CsvSource(
+        delimiter = '|',
+        value = {
+            "March|2|2|true",
+            "may - July|4|6|true",
+            "NOVEMBER-february|10|1|true",
+            "Peter|-1|-1|false",
+            "March-Peter|2|-1|false",
+            "M\u00e4rz|-1|-1|false",
+        }
+    )
+    public void readsMonths(
+        final String field,
+        final int first,
+        final int last,
+        final boolean valid) {
+        final FieldScanner fields = FieldScannerTest.scanner(
+            String.format("David,Rudd,60050,9%%,%s", field)
+        );
+        final int[] range = new int[2];
+        new TestAssert<>(
+            fields.months(PayslipRequestParser.MONTH_I, range)
+        ).equalTo(valid);
+        new TestAssert<>(range[0]).equalTo(first);
+        new TestAssert<>(range[1]).equalTo(last);
+    }
+
+    /**
+     * Scanner of a line that is split already.
+     *
+     * @param line Request line.
+     * @return Scanner.
+     */
+    private static FieldScanner scanner(final String line) {
+        final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        final FieldScanner fields = new FieldScanner(
+            ByteBuffer.wrap(bytes), FieldScanner.isAsciiLocale()
+        );
+        fields.split(0, bytes.length);
+        return fields;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link GrossUp}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class GrossUpTest {
+
+    /**
+     * Largest salary of the exhaustive check, above the last bracket bound.
+     */
+    private static final int MAX_SALARY = 200_000;
+
+    /**
+     * Gross-up of the default rules.
+     */
+    private static final GrossUp GROSS =
+        new GrossUp(TaxSchedule.compile(DefaultTaxRuleFactory.DEFAULT));
+
+    /**
+     * Checks against every salary up to {@link GrossUpTest#MAX_SALARY} that
+     * the gross-up is the smallest salary {@link PayslipProcessor} pays at
+     * least the target net income.
+     */
+    @Test
+    public void findsSmallestSalary() {
+        final PayslipProcessor processor = new PayslipProcessor();
+        final List<Integer> smallest = new ArrayList<>();
+        smallest.add(0);
+        for (int salary = 1; salary <= GrossUpTest.MAX_SALARY; ++salary) {
+            final int net = GrossUpTest.net(processor, salary);
+            while (smallest.size() <= net) {
+                smallest.add(salary);
+            }
+        }
+        final List<Integer> gross = new ArrayList<>();
+        gross.add(0);
+        for (int net = 1; net < smallest.size(); ++net) {
+            gross.add(GrossUpTest.GROSS.salary(net).toIntDollars());
+        }
+        new TestAssert<>(gross).equalTo(smallest);
+    }
+
+    /**
+     * Checks the salary of the README example.
+     */
+    @Test
+    public void grossesUpExample() {
+        new TestAssert<>(GrossUpTest.GROSS.salary(4082))
+            .equalTo(Money.ofDollars(60_030L));
+    }
+
+    /**
+     * Checks that targets without salary are rejected.
+     *
+     * @param net Unreachable target.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1, Integer.MAX_VALUE})
+    public void rejectsUnreachable(final int net) {
+        PayslipException exception = null;
+        try {
+            GrossUpTest.GROSS.salary(net);
+        } catch (final PayslipException pex) {
+            exception = pex;
+        }
+        assert exception != null;
+        new TestAssert<>(exception.getCode()).isSame(ErrorCode.NET_INCOME);
+    }
+
+    /**
+     * Checks that a file of targets is answered line by line and that
+     * rejected lines are reported with their number.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void answersFile() throws IOException {
+        final StringWriter output = new StringWriter();
+        final StringWriter errors = new StringWriter();
+        final long answered;
+        try (ErrorSink sink = new ErrorSink(new PrintWriter(errors))) {
+            answered = GrossUpTest.GROSS.run(
+                new BufferedReader(new StringReader("4082\n\n12k\n1\n")),
+                output,
+                sink
+            );
+        }
+        new TestAssert<>(answered).equalTo(2L);
+        new TestAssert<>(output.toString()).equalTo("4082,60030\n1,6\n");
+        new TestAssert<>(errors.toString()).equalTo(
+            String.format(
+                "line 3: %s%n", ErrorCode.NET_INCOME.message("12k")
+            )
+        );
+    }
+
+    /**
+     * Checks that a target whose scaled value overflows is reported as a
+     * salary out of range instead of escaping the run.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void reportsOverflow() throws IOException {
+        final GrossUp gross = new GrossUp(
+            TaxSchedule.compile(
+                Collections.singletonList(
+                    new TaxRule(
+                        Integer.MAX_VALUE, 0, new BigDecimal("0.000000001")
+                    )
+                )
+            )
+        );
+        final String net = Integer.toString(Integer.MAX_VALUE);
+        final StringWriter errors = new StringWriter();
+        final long answered;
+        try (ErrorSink sink = new ErrorSink(new PrintWriter(errors))) {
+            answered = gross.run(
+                new BufferedReader(new StringReader(net)),
+                new StringWriter(),
+                sink
+            );
+        }
+        new TestAssert<>(answered).equalTo(0L);
+        new TestAssert<>(errors.toString()).equalTo(
+            String.format(
+                "line 1: %s%n", ErrorCode.SALARY_RANGE.message(net)
+            )
+        );
+    }
+
+    /**
+     * Net monthly income of {@link PayslipProcessor}.
+     *
+     * @param processor Processor.
+     * @param salary Annual salary.
+     * @return Net monthly income.
+     */
+    private static int net(final PayslipProcessor processor, final int salary) {
+        return processor.process(
+            new PayslipRequest(
+                new Employee("Emma", "Stone", Money.ofDollars(salary)),
+                BigDecimal.TEN,
+                Month.MAY
+            )
+        ).getNetIncome();
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.nio.charset.StandardCharsets;
+import java.time.Month;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link JsonLineEncoder}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class JsonLineEncoderTest {
+
+    /**
+     * Checks the fields, the prefix and the number encoding.
+     */
+    @Test
+    public void encodesFields() {
+        new TestAssert<>(
+            JsonLineEncoderTest.encode(
+                "12\t",
+                new PayslipResult(
+                    "David Rudd",
+                    Month.MARCH,
+                    new FinancialInformation(5004, 922, 450)
+                )
+            )
+        ).equalTo(
+            "12\t{\"name\":\"David Rudd\",\"period\":\"01 March - 31 March\","
+                .concat("\"salary\":5004,\"tax\":922,\"netIncome\":4082,")
+                .concat("\"superannuation\":450}")
+        );
+        new TestAssert<>(
+            JsonLineEncoderTest.encode(
+                "",
+                new PayslipResult(
+                    "A B",
+                    Month.MAY,
+                    new FinancialInformation(0, Integer.MIN_VALUE, -7)
+                )
+            )
+        ).equalTo(
+            "{\"name\":\"A B\",\"period\":\"01 May - 31 May\",\"salary\":0,"
+                .concat("\"tax\":-2147483648,\"netIncome\":-2147483648,")
+                .concat("\"superannuation\":-7}")
+        );
+    }
+
+    /**
+     * Checks that quotes, backslashes and control characters in names are
+     * escaped and other characters are encoded as UTF-8.
+     */
+    @Test
+    public void escapesNames() {
+        new TestAssert<>(
+            JsonLineEncoderTest.name(
+                "\"Q\" \\ \t\n\r\b\f\u0001\u001f \u00e9\u20ac\ud83d\ude00"
+            )
+        ).equalTo(
+            "\\\"Q\\\" \\\\ \\t\\n\\r\\b\\f\\u0001\\u001f \u00e9\u20ac"
+                .concat("\ud83d\ude00")
+        );
+        new TestAssert<>(JsonLineEncoderTest.name("a\ud83db\ude00"))
+            .equalTo("a?b?");
+    }
+
+    /**
+     * Checks that the buffer grows for long names.
+     */
+    @Test
+    public void growsForLongNames() {
+        final StringBuilder name = new StringBuilder();
+        for (int index = 0; index < 1000; ++index) {
+            name.append("\u00e9\"");
+        }
+        final StringBuilder expected = new StringBuilder();
+        for (int index = 0; index < 1000; ++index) {
+            expected.append("\u00e9\\\"");
+        }
+        new TestAssert<>(JsonLineEncoderTest.name(name.toString()))
+            .equalTo(expected.toString());
+    }
+
+    /**
+     * Encoded name value of a result with {@code name}.
+     *
+     * @param name Name.
+     * @return Name value without its quotes.
+     */
+    private static String name(final String name) {
+        final String line = JsonLineEncoderTest.encode(
+            "",
+            new PayslipResult(
+                name, Month.JUNE, new FinancialInformation(1, 1, 1)
+            )
+        );
+        return line.substring(
+            "{\"name\":\"".length(), line.indexOf("\",\"period\":")
+        );
+    }
+
+    /**
+     * Encodes a result with a new encoder.
+     *
+     * @param prefix Line prefix.
+     * @param result Result.
+     * @return Encoded line.
+     */
+    private static String encode(
+        final String prefix,
+        final PayslipResult result) {
+        final JsonLineEncoder encoder = new JsonLineEncoder();
+        final int length = encoder.encode(prefix, result);
+        return new String(
+            encoder.bytes(), 0, length, StandardCharsets.UTF_8
+        );
+    }
+}
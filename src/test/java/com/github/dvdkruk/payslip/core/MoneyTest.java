@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link Money}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class MoneyTest {
+
+    /**
+     * Checks that parsing rounds half up to cents like {@link BigDecimal}.
+     *
+     * @param text Decimal amount.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "0", "7", "+7", "-7", "60050", "60050.5", "60050.50", "0.005",
+        "0.0049999", "-0.005", "12.345", "1.", ".5", "92233720368547758.07",
+    })
+    public void parsesLikeDecimal(final String text) {
+        new TestAssert<>(Money.parse(text).getCents()).equalTo(
+            new BigDecimal(text).setScale(2, RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact()
+        );
+    }
+
+    /**
+     * Checks that text which is not a plain decimal or does not fit is
+     * rejected.
+     *
+     * @param text Invalid amount.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "", "-", ".", "12k", "1.2.3", "1e5", "--1", "92233720368547758.08",
+    })
+    public void rejectsInvalid(final String text) {
+        NumberFormatException exception = null;
+        try {
+            Money.parse(text);
+        } catch (final NumberFormatException nfe) {
+            exception = nfe;
+        }
+        new TestAssert<>(exception == null).isSame(false);
+    }
+
+    /**
+     * Checks divisions and rounding to whole dollars.
+     */
+    @Test
+    public void roundsHalfUp() {
+        new TestAssert<>(Money.parse("60050").divideToDollars(12L))
+            .equalTo(Money.ofDollars(5004L));
+        new TestAssert<>(Money.parse("6").divideToDollars(12L))
+            .equalTo(Money.ofDollars(1L));
+        new TestAssert<>(Money.parse("5.99").divideToDollars(12L))
+            .equalTo(Money.ZERO);
+        new TestAssert<>(Money.parse("-0.50").toDollars()).equalTo(-1L);
+        new TestAssert<>(Money.parse("1").divide(3L))
+            .equalTo(Money.ofCents(33L));
+        new TestAssert<>(Money.parse("2").divide(3L))
+            .equalTo(Money.ofCents(67L));
+    }
+
+    /**
+     * Checks that arithmetic fails instead of overflowing.
+     */
+    @Test
+    public void failsOnOverflow() {
+        ArithmeticException exception = null;
+        try {
+            Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1L));
+        } catch (final ArithmeticException aex) {
+            exception = aex;
+        }
+        new TestAssert<>(exception == null).isSame(false);
+    }
+
+    /**
+     * Checks the plain decimal display.
+     */
+    @Test
+    public void displaysCents() {
+        new TestAssert<>(Money.parse("60050.5").toString())
+            .equalTo("60050.50");
+        new TestAssert<>(Money.ofCents(-5L).toString()).equalTo("-0.05");
+        new TestAssert<>(Money.ZERO.toString()).equalTo("0.00");
+    }
+}
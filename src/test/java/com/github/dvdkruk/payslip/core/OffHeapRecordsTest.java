@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link OffHeapRecords}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class OffHeapRecordsTest {
+
+    /**
+     * Input lines, the last one without line separator.
+     */
+    private static final String INPUT = String.join(
+        "\n",
+        "David,Rudd,60050,9%,March",
+        "Ryan,Chen,120000,10%,May",
+        "Jennifer,Lawrence,1337,10.1%,Peter\r",
+        "Michael,Jackson,18200,1%,December"
+    );
+
+    /**
+     * Checks that blocks end at line boundaries, hold at most the record
+     * capacity and grow for lines longer than the input buffer.
+     *
+     * @throws IOException When reading fails.
+     */
+    @Test
+    public void loadsWholeLines() throws IOException {
+        final Path file = Files.write(
+            Files.createTempFile("records", ".csv"),
+            OffHeapRecordsTest.INPUT.getBytes(StandardCharsets.UTF_8)
+        );
+        new TestAssert<>(OffHeapRecordsTest.blocks(file, 128))
+            .equalTo("[3, 1]");
+        new TestAssert<>(OffHeapRecordsTest.blocks(file, 8))
+            .equalTo("[1, 1, 1, 1]");
+    }
+
+    /**
+     * Checks that only plain valid requests are staged and that amounts
+     * which do not fit the schedule move a record to the object path.
+     *
+     * @throws IOException When reading fails.
+     */
+    @Test
+    public void stagesPlainRequests() throws IOException {
+        final Path file = Files.write(
+            Files.createTempFile("records", ".csv"),
+            OffHeapRecordsTest.INPUT.getBytes(StandardCharsets.UTF_8)
+        );
+        final OffHeapRecords records = new OffHeapRecords(OutputFormat.JSON);
+        final List<Boolean> staged = new ArrayList<>();
+        final List<Boolean> limited = new ArrayList<>();
+        try (
+            FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.READ)
+        ) {
+            records.load(channel, 0L, channel.size());
+            records.calculate(new PayslipProcessor().schedule());
+            for (int index = 0; index < records.size(); ++index) {
+                staged.add(records.isStaged(index));
+            }
+            records.calculate(
+                TaxSchedule.compile(
+                    Collections.singletonList(
+                        new TaxRule(100_000, 0, BigDecimal.ZERO)
+                    )
+                )
+            );
+            for (int index = 0; index < records.size(); ++index) {
+                limited.add(records.isStaged(index));
+            }
+        }
+        new TestAssert<>(staged.toString())
+            .equalTo("[true, true, false, true]");
+        new TestAssert<>(limited.toString())
+            .equalTo("[true, false, false, true]");
+    }
+
+    /**
+     * Loads all lines of {@code file} in blocks of at most three records and
+     * checks that the records hold the lines.
+     *
+     * @param file Input file.
+     * @param block Initial size of the input buffer.
+     * @return Amounts of records of the blocks.
+     * @throws IOException When reading fails.
+     */
+    private static String blocks(final Path file, final int block)
+        throws IOException {
+        final OffHeapRecords records =
+            new OffHeapRecords(OutputFormat.CSV, block, 3);
+        final List<String> lines = new ArrayList<>();
+        final List<Integer> sizes = new ArrayList<>();
+        try (
+            FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.READ)
+        ) {
+            long position = 0L;
+            while (position < channel.size()) {
+                position += records.load(channel, position, channel.size());
+                sizes.add(records.size());
+                for (int index = 0; index < records.size(); ++index) {
+                    lines.add(records.line(index));
+                }
+            }
+        }
+        new TestAssert<>(String.join("\n", lines))
+            .equalTo(OffHeapRecordsTest.INPUT.replace("\r", ""));
+        return sizes.toString();
+    }
+}
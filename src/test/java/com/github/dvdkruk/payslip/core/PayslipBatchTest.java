@@ -0,0 +1,487 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link PayslipBatch}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipBatchTest {
+
+    /**
+     * Input lines.
+     */
+    private static final List<String> INPUT = Arrays.asList(
+        "David,Rudd,60050,9%,March",
+        "Ryan,Chen,120000,10%,May",
+        "Jennifer,Lawrence,1337,10.1%,Peter",
+        "",
+        "Michael,Jackson,18200,1%,December",
+        "Jennifer,Lawrence,180001,50%,November"
+    );
+
+    /**
+     * Expected output lines.
+     */
+    private static final List<String> OUTPUT = Arrays.asList(
+        "David Rudd,01 March - 31 March,5004,922,4082,450",
+        "Ryan Chen,01 May - 31 May,10000,2696,7304,1000",
+        "Michael Jackson,01 December - 31 December,1517,0,1517,15",
+        "Jennifer Lawrence,01 November - 30 November,15000,4546,10454,7500"
+    );
+
+    /**
+     * Input file.
+     */
+    private Path input;
+
+    /**
+     * Output file.
+     */
+    private Path output;
+
+    /**
+     * Creates the input file.
+     *
+     * @throws IOException When the input file cannot be written.
+     */
+    @BeforeEach
+    public void init() throws IOException {
+        final Path dir = Files.createTempDirectory("batch");
+        this.input = Files.write(dir.resolve("in.csv"), PayslipBatchTest.INPUT);
+        this.output = dir.resolve("out.csv");
+    }
+
+    /**
+     * Checks that all valid lines are processed and invalid lines are
+     * reported with their line number.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void processesAllLines() throws IOException {
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        final BatchTotals totals;
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(
+                    new OutputStreamWriter(errors, StandardCharsets.UTF_8)
+                )
+            )
+        ) {
+            totals = new PayslipBatch(
+                new PayslipProcessor(),
+                new BatchSettings(this.input, this.output).withInterval(2),
+                sink
+            ).run();
+        }
+        new TestAssert<>(Files.readAllLines(this.output))
+            .equalTo(PayslipBatchTest.OUTPUT);
+        new TestAssert<>(totals.getFailed()).equalTo(1L);
+        new TestAssert<>(errors.toString(StandardCharsets.UTF_8.name()))
+            .equalTo(String.format("line 3: Peter is an invalid month%n"));
+    }
+
+    /**
+     * Checks that salaries above the tax rules and above the whole dollars
+     * of an {@code int} are rejected rows, and later rows are processed.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void rejectsUncoveredSalaries() throws IOException {
+        Files.write(
+            this.input,
+            Arrays.asList(
+                "David,Rudd,60050,9%,March",
+                "Big,Salary,3000000000,9%,March",
+                "Ryan,Chen,120000,10%,May"
+            )
+        );
+        final TaxSchedule schedule = TaxSchedule.compile(
+            DefaultTaxRuleFactory.DEFAULT.subList(0, 4)
+        );
+        new TestAssert<>(
+            this.report(new BatchSettings(this.input, this.output))
+        ).equalTo(
+            Arrays.asList(
+                String.join(
+                    ", ",
+                    "rows: 2", "failed: 1", "salary: 15004", "tax: 3618",
+                    "net: 11386", "super: 1450"
+                ),
+                String.format(
+                    "line 2: %s",
+                    ErrorCode.SALARY_RANGE.message("3000000000.00")
+                )
+            )
+        );
+        new TestAssert<>(Files.readAllLines(this.output))
+            .equalTo(PayslipBatchTest.OUTPUT.subList(0, 2));
+        String error = null;
+        try {
+            new PayslipProcessor(schedule).process(
+                new PayslipRequestParser("Ann,Lee,180001,9%,May")
+                    .toPayslipRequest()
+            );
+        } catch (final PayslipException pex) {
+            error = pex.getMessage();
+        }
+        new TestAssert<>(error)
+            .equalTo(ErrorCode.SALARY_RANGE.message("180001.00"));
+    }
+
+    /**
+     * Checks that a resumed run truncates output written after the last
+     * checkpoint and continues at the input line of that checkpoint.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void resumesFromCheckpoint() throws IOException {
+        final BatchSettings settings =
+            new BatchSettings(this.input, this.output).withInterval(2);
+        this.run(settings);
+        final long offset = PayslipBatchTest.length(PayslipBatchTest.INPUT, 2);
+        final long written =
+            PayslipBatchTest.length(PayslipBatchTest.OUTPUT, 2);
+        final BatchTotals totals = new BatchTotals();
+        new Checkpoint(offset, written, 2L, totals)
+            .store(settings.getCheckpoint());
+        Files.write(
+            this.output,
+            "garbage of a crashed run".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND
+        );
+        final BatchTotals resumed = this.run(settings.withResume(true));
+        new TestAssert<>(Files.readAllLines(this.output))
+            .equalTo(PayslipBatchTest.OUTPUT);
+        new TestAssert<>(resumed.getRows()).equalTo(2L);
+        new TestAssert<>(Checkpoint.load(settings.getCheckpoint()).getLine())
+            .equalTo((long) PayslipBatchTest.INPUT.size());
+    }
+
+    /**
+     * Checks that sorted output is written in key order.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void sortsOutput() throws IOException {
+        this.run(
+            new BatchSettings(this.input, this.output)
+                .withSort(SortKey.MONTH)
+        );
+        new TestAssert<>(Files.readAllLines(this.output)).equalTo(
+            Arrays.asList(
+                PayslipBatchTest.OUTPUT.get(0),
+                PayslipBatchTest.OUTPUT.get(1),
+                PayslipBatchTest.OUTPUT.get(3),
+                PayslipBatchTest.OUTPUT.get(2)
+            )
+        );
+    }
+
+    /**
+     * Checks that a repeated employee and month is reported and skipped.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void skipsDuplicates() throws IOException {
+        Files.write(
+            this.input,
+            Arrays.asList("David,Rudd,70000,9%,March", "David,Rudd,1,9%,May"),
+            StandardOpenOption.APPEND
+        );
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        final BatchTotals totals;
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(
+                    new OutputStreamWriter(errors, StandardCharsets.UTF_8)
+                )
+            )
+        ) {
+            totals = new PayslipBatch(
+                new PayslipProcessor(),
+                new BatchSettings(this.input, this.output)
+                    .withDuplicates(DuplicatePolicy.SKIP),
+                sink
+            ).run();
+        }
+        new TestAssert<>(Files.readAllLines(this.output)).equalTo(
+            Arrays.asList(
+                PayslipBatchTest.OUTPUT.get(0),
+                PayslipBatchTest.OUTPUT.get(1),
+                PayslipBatchTest.OUTPUT.get(2),
+                PayslipBatchTest.OUTPUT.get(3),
+                "David Rudd,01 May - 31 May,0,0,0,0"
+            )
+        );
+        new TestAssert<>(totals.getFailed()).equalTo(2L);
+        new TestAssert<>(errors.toString(StandardCharsets.UTF_8.name()))
+            .equalTo(
+                String.format(
+                    "line 3: Peter is an invalid month%n"
+                        .concat("line 7: duplicate of the request on line 1%n")
+                )
+            );
+    }
+
+    /**
+     * Checks that a rejected request is not the first occurrence of a later
+     * valid request for the same employee and month.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void keepsRequestAfterRejectedDuplicate() throws IOException {
+        Files.write(
+            this.input,
+            Arrays.asList(
+                "John,Smith,-5,9%,March", "John,Smith,60050,9%,March"
+            )
+        );
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        final BatchTotals totals;
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(
+                    new OutputStreamWriter(errors, StandardCharsets.UTF_8)
+                )
+            )
+        ) {
+            totals = new PayslipBatch(
+                new PayslipProcessor(),
+                new BatchSettings(this.input, this.output)
+                    .withDuplicates(DuplicatePolicy.SKIP),
+                sink
+            ).run();
+        }
+        new TestAssert<>(Files.readAllLines(this.output)).equalTo(
+            Arrays.asList("John Smith,01 March - 31 March,5004,922,4082,450")
+        );
+        new TestAssert<>(totals.getFailed()).equalTo(1L);
+        new TestAssert<>(errors.toString(StandardCharsets.UTF_8.name()))
+            .equalTo(
+                String.format(
+                    "line 1: %s%n", PayslipProcessor.INVAL_SALARY
+                )
+            );
+    }
+
+    /**
+     * Checks that JSON Lines output has the values of the comma separated
+     * output.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void writesJsonLines() throws IOException {
+        this.run(
+            new BatchSettings(this.input, this.output)
+                .withFormat(OutputFormat.JSON)
+        );
+        final List<String> expected = new ArrayList<>();
+        for (final String line : PayslipBatchTest.OUTPUT) {
+            expected.add(
+                String.format(
+                    "{\"name\":\"%s\",\"period\":\"%s\",\"salary\":%s,"
+                        .concat("\"tax\":%s,\"netIncome\":%s,")
+                        .concat("\"superannuation\":%s}"),
+                    (Object[]) line.split(",")
+                )
+            );
+        }
+        new TestAssert<>(Files.readAllLines(this.output)).equalTo(expected);
+    }
+
+    /**
+     * Checks that a run with off-heap staging writes the same output, totals
+     * and errors as a run with objects, for lines that are staged and lines
+     * that take the object path.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void stagesOffHeapLikeObjects() throws IOException {
+        Files.write(
+            this.input,
+            String.join(
+                "\n",
+                "David,Rudd,60050,9%,March",
+                " Ryan , Chen ,120000.50, +10.50% , may - july\r",
+                "Ann,Lee,50000,9.125%,June",
+                "Ann,Lee,50000,9.500%,June",
+                "Zo\u00eb,Saldana,80000,9%,April",
+                "Tab\tbed,Quote\"d,80000,9%,April",
+                "Bad,Rate,80000,51%,April",
+                "Negative,Zero,80000,-0%,April",
+                "Zero,Salary,0,9%,April",
+                "",
+                "   ",
+                "Too,Many,Fields,1,9%,March",
+                "Year,Wrap,50000,.5%,November-February",
+                "Last,Line,70000,5.%,january"
+            ).getBytes(StandardCharsets.UTF_8)
+        );
+        for (final OutputFormat format : OutputFormat.values()) {
+            final BatchSettings settings =
+                new BatchSettings(this.input, this.output).withFormat(format);
+            final List<String> objects = this.report(settings);
+            objects.addAll(Files.readAllLines(this.output));
+            final List<String> staged =
+                this.report(settings.withOffHeap(true));
+            staged.addAll(Files.readAllLines(this.output));
+            new TestAssert<>(staged).equalTo(objects);
+        }
+    }
+
+    /**
+     * Checks that pay-run lines are joined with the employee file and that
+     * unknown employees are rejected with their line number.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void joinsEmployees() throws IOException {
+        final Path employees = Files.write(
+            this.input.resolveSibling("employees.csv"),
+            Arrays.asList("1,David,Rudd,9%", "2,Ryan,Chen,10%")
+        );
+        Files.write(
+            this.input,
+            Arrays.asList("1,60050,March", "3,60050,March", "2,120000,March")
+        );
+        new TestAssert<>(
+            this.report(
+                new BatchSettings(this.input, this.output)
+                    .withEmployees(employees)
+            )
+        ).equalTo(
+            Arrays.asList(
+                String.join(
+                    ", ",
+                    "rows: 2", "failed: 1", "salary: 15004", "tax: 3618",
+                    "net: 11386", "super: 1450"
+                ),
+                "line 2: 3 is an unknown employee id"
+            )
+        );
+        new TestAssert<>(Files.readAllLines(this.output)).equalTo(
+            Arrays.asList(
+                PayslipBatchTest.OUTPUT.get(0),
+                PayslipBatchTest.OUTPUT.get(1).replace("May", "March")
+            )
+        );
+    }
+
+    /**
+     * Checks that the progress counts every line and the rejected rows.
+     *
+     * @throws IOException When the batch fails.
+     */
+    @Test
+    public void countsProgress() throws IOException {
+        final String summary;
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(new ByteArrayOutputStream())
+            );
+            BatchProgress progress = new BatchProgress()
+        ) {
+            new PayslipBatch(
+                new PayslipProcessor(),
+                new BatchSettings(this.input, this.output),
+                sink,
+                progress
+            ).run();
+            summary = progress.summarize();
+        }
+        new TestAssert<>(summary.startsWith("finished: 6 rows, 1 failed"))
+            .equalTo(true);
+    }
+
+    /**
+     * Runs a batch with {@code settings} and reports its totals and errors.
+     *
+     * @param settings Batch settings.
+     * @return Totals followed by the error lines.
+     * @throws IOException When the batch fails.
+     */
+    private List<String> report(final BatchSettings settings)
+        throws IOException {
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        final BatchTotals totals;
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(
+                    new OutputStreamWriter(errors, StandardCharsets.UTF_8)
+                )
+            )
+        ) {
+            totals = new PayslipBatch(new PayslipProcessor(), settings, sink)
+                .run();
+        }
+        final List<String> lines = new ArrayList<>();
+        lines.add(totals.toString());
+        lines.addAll(
+            Arrays.asList(
+                errors.toString(StandardCharsets.UTF_8.name()).split("\n")
+            )
+        );
+        return lines;
+    }
+
+    /**
+     * Runs a batch with {@code settings}, ignoring errors.
+     *
+     * @param settings Batch settings.
+     * @return Batch totals.
+     * @throws IOException When the batch fails.
+     */
+    private BatchTotals run(final BatchSettings settings) throws IOException {
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(new ByteArrayOutputStream())
+            )
+        ) {
+            return new PayslipBatch(new PayslipProcessor(), settings, sink)
+                .run();
+        }
+    }
+
+    /**
+     * Byte length of the first {@code amount} lines of {@code lines}.
+     *
+     * @param lines Lines.
+     * @param amount Amount of lines.
+     * @return Byte length including line separators.
+     */
+    private static long length(final List<String> lines, final int amount) {
+        long length = 0L;
+        for (final String line : lines.subList(0, amount)) {
+            length += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        return length;
+    }
+}
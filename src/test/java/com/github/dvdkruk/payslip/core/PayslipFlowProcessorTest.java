@@ -0,0 +1,440 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link PayslipFlowProcessor}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipFlowProcessorTest {
+
+    /**
+     * Amount of published lines.
+     */
+    private static final int LINES = 300;
+
+    /**
+     * Lines per executor task.
+     */
+    private static final int BATCH = 8;
+
+    /**
+     * Amount of outcomes the slow subscriber requests at a time.
+     */
+    private static final int WINDOW = 4;
+
+    /**
+     * Executor of the processor.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Starts the executor.
+     */
+    @BeforeEach
+    public void init() {
+        this.executor = Executors.newFixedThreadPool(4);
+    }
+
+    /**
+     * Stops the executor.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    @AfterEach
+    public void shutdown() throws InterruptedException {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(1L, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Checks that a slow subscriber receives every outcome in order, that
+     * upstream is never asked for more lines than the subscriber requested
+     * and that the flow completes.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    @Test
+    public void honoursDemandOfSlowSubscriber() throws InterruptedException {
+        final PayslipFlowProcessorTest.Lines lines =
+            new PayslipFlowProcessorTest.Lines();
+        final PayslipFlowProcessorTest.Slow slow =
+            new PayslipFlowProcessorTest.Slow(lines, -1);
+        final PayslipFlowProcessor flow = this.flow();
+        lines.subscribe(flow);
+        flow.subscribe(slow);
+        new TestAssert<>(slow.end.await(1L, TimeUnit.MINUTES)).equalTo(true);
+        new TestAssert<>(slow.outcomes.size())
+            .equalTo(PayslipFlowProcessorTest.LINES);
+        for (int index = 0; index < slow.outcomes.size(); ++index) {
+            final PayslipOutcome outcome = slow.outcomes.get(index);
+            new TestAssert<>(outcome.getLine()).equalTo(index + 1L);
+            new TestAssert<>(outcome.isFailure()).equalTo(index % 3 == 2);
+        }
+        new TestAssert<>(slow.error).equalTo(null);
+        new TestAssert<>(lines.excess.get()).equalTo(0L);
+        new TestAssert<>(lines.requested.get())
+            .equalTo(lines.demand.get());
+    }
+
+    /**
+     * Checks that a cancelled flow sends no more outcomes and cancels
+     * upstream.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    @Test
+    public void stopsWhenCancelled() throws InterruptedException {
+        final PayslipFlowProcessorTest.Lines lines =
+            new PayslipFlowProcessorTest.Lines();
+        final PayslipFlowProcessorTest.Slow slow =
+            new PayslipFlowProcessorTest.Slow(lines, 5);
+        final PayslipFlowProcessor flow = this.flow();
+        lines.subscribe(flow);
+        flow.subscribe(slow);
+        new TestAssert<>(slow.end.await(1L, TimeUnit.MINUTES)).equalTo(true);
+        this.executor.shutdown();
+        new TestAssert<>(this.executor.awaitTermination(1L, TimeUnit.MINUTES))
+            .equalTo(true);
+        new TestAssert<>(slow.outcomes.size()).equalTo(5);
+        new TestAssert<>(lines.cancelled).equalTo(true);
+        new TestAssert<>(lines.excess.get()).equalTo(0L);
+        new TestAssert<>(slow.completed).equalTo(false);
+    }
+
+    /**
+     * Checks that a non-positive request ends the flow with an error and
+     * cancels upstream.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    @Test
+    public void rejectsNonPositiveRequest() throws InterruptedException {
+        final PayslipFlowProcessorTest.Lines lines =
+            new PayslipFlowProcessorTest.Lines();
+        final PayslipFlowProcessorTest.Slow slow =
+            new PayslipFlowProcessorTest.Slow(lines, 0);
+        final PayslipFlowProcessor flow = this.flow();
+        lines.subscribe(flow);
+        flow.subscribe(slow);
+        new TestAssert<>(slow.end.await(1L, TimeUnit.MINUTES)).equalTo(true);
+        new TestAssert<>(slow.error instanceof IllegalArgumentException)
+            .equalTo(true);
+        new TestAssert<>(lines.cancelled).equalTo(true);
+    }
+
+    /**
+     * Checks that a non-positive request ends the flow with an error also
+     * when upstream already completed.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    @Test
+    public void rejectsNonPositiveRequestAfterCompletion()
+        throws InterruptedException {
+        final PayslipFlowProcessorTest.Slow slow =
+            new PayslipFlowProcessorTest.Slow(
+                new PayslipFlowProcessorTest.Lines(), 0
+            );
+        final PayslipFlowProcessor flow = this.flow();
+        flow.onComplete();
+        flow.subscribe(slow);
+        new TestAssert<>(slow.end.await(1L, TimeUnit.MINUTES)).equalTo(true);
+        new TestAssert<>(slow.error instanceof IllegalArgumentException)
+            .equalTo(true);
+        new TestAssert<>(slow.completed).equalTo(false);
+    }
+
+    /**
+     * Checks that an exception of the subscriber ends the flow with that
+     * error, cancels upstream and sends no more outcomes.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     */
+    @Test
+    public void signalsSubscriberFailure() throws InterruptedException {
+        final PayslipFlowProcessorTest.Lines lines =
+            new PayslipFlowProcessorTest.Lines();
+        final PayslipFlowProcessorTest.Slow slow =
+            new PayslipFlowProcessorTest.Slow(lines, -1);
+        final PayslipFlowProcessor flow = this.flow();
+        lines.subscribe(flow);
+        flow.subscribe(new PayslipFlowProcessorTest.Failing(slow, 5));
+        new TestAssert<>(slow.end.await(1L, TimeUnit.MINUTES)).equalTo(true);
+        flow.onNext("David,Rudd,60050,9%,March");
+        this.executor.shutdown();
+        new TestAssert<>(this.executor.awaitTermination(1L, TimeUnit.MINUTES))
+            .equalTo(true);
+        new TestAssert<>(slow.error.getMessage()).equalTo("subscriber failed");
+        new TestAssert<>(slow.outcomes.size()).equalTo(4);
+        new TestAssert<>(lines.cancelled).equalTo(true);
+        new TestAssert<>(slow.completed).equalTo(false);
+    }
+
+    /**
+     * New flow processor on the executor.
+     *
+     * @return Flow processor.
+     */
+    private PayslipFlowProcessor flow() {
+        return new PayslipFlowProcessor(
+            new PayslipProcessor(),
+            this.executor,
+            PayslipFlowProcessorTest.BATCH
+        );
+    }
+
+    /**
+     * Publisher of request lines, every third line invalid, which sends
+     * requested lines on the requesting thread and counts lines that were
+     * requested beyond the demand of the final subscriber.
+     */
+    private static final class Lines
+        implements PayslipFlow.Publisher<String>, PayslipFlow.Subscription {
+
+        /**
+         * Lines requested by the processor.
+         */
+        private final AtomicLong requested = new AtomicLong();
+
+        /**
+         * Lines requested beyond the demand of the final subscriber.
+         */
+        private final AtomicLong excess = new AtomicLong();
+
+        /**
+         * Demand of the final subscriber.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Subscriber.
+         */
+        private PayslipFlow.Subscriber<? super String> subscriber;
+
+        /**
+         * Amount of sent lines.
+         */
+        private int sent;
+
+        /**
+         * Whether the subscription was cancelled.
+         */
+        private volatile boolean cancelled;
+
+        @Override
+        public void subscribe(
+            final PayslipFlow.Subscriber<? super String> sub) {
+            this.subscriber = sub;
+            sub.onSubscribe(this);
+        }
+
+        @Override
+        public synchronized void request(final long amount) {
+            final long total = this.requested.addAndGet(amount);
+            if (total > this.demand.get()) {
+                this.excess.addAndGet(total - this.demand.get());
+            }
+            while (!this.cancelled && this.sent < total
+                && this.sent < PayslipFlowProcessorTest.LINES) {
+                this.sent += 1;
+                if (this.sent % 3 == 0) {
+                    this.subscriber.onNext("Jennifer,Lawrence,1337,10%,Peter");
+                } else {
+                    this.subscriber.onNext(
+                        String.format("David,Rudd,%d,9%%,March", this.sent)
+                    );
+                }
+            }
+            if (this.sent == PayslipFlowProcessorTest.LINES
+                && !this.cancelled) {
+                this.cancelled = true;
+                this.subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+    }
+
+    /**
+     * Subscriber that takes a millisecond per outcome and requests {@link
+     * PayslipFlowProcessorTest#WINDOW} outcomes at a time.
+     */
+    private static final class Slow
+        implements PayslipFlow.Subscriber<PayslipOutcome> {
+
+        /**
+         * Received outcomes.
+         */
+        private final List<PayslipOutcome> outcomes =
+            new CopyOnWriteArrayList<>();
+
+        /**
+         * Released on completion, error or cancellation.
+         */
+        private final CountDownLatch end = new CountDownLatch(1);
+
+        /**
+         * Publisher, which shares the demand.
+         */
+        private final PayslipFlowProcessorTest.Lines lines;
+
+        /**
+         * Outcomes after which to cancel, zero to request nothing, negative
+         * to never cancel.
+         */
+        private final int limit;
+
+        /**
+         * Subscription.
+         */
+        private PayslipFlow.Subscription subscription;
+
+        /**
+         * Received error.
+         */
+        private volatile Throwable error;
+
+        /**
+         * Whether the flow completed.
+         */
+        private volatile boolean completed;
+
+        /**
+         * Subscriber constructor.
+         *
+         * @param lines Publisher, which shares the demand.
+         * @param limit Outcomes after which to cancel, zero to request
+         *  nothing, negative to never cancel.
+         */
+        Slow(final PayslipFlowProcessorTest.Lines lines, final int limit) {
+            this.lines = lines;
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(final PayslipFlow.Subscription sub) {
+            this.subscription = sub;
+            if (this.limit == 0) {
+                sub.request(0L);
+            } else {
+                this.request();
+            }
+        }
+
+        @Override
+        public void onNext(final PayslipOutcome item) {
+            try {
+                Thread.sleep(1L);
+            } catch (final InterruptedException iex) {
+                Thread.currentThread().interrupt();
+            }
+            this.outcomes.add(item);
+            if (this.outcomes.size() == this.limit) {
+                this.subscription.cancel();
+                this.end.countDown();
+            } else if (
+                this.outcomes.size() % PayslipFlowProcessorTest.WINDOW == 0) {
+                this.request();
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+            this.end.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+            this.end.countDown();
+        }
+
+        /**
+         * Requests the next window.
+         */
+        private void request() {
+            this.lines.demand.addAndGet(PayslipFlowProcessorTest.WINDOW);
+            this.subscription.request(PayslipFlowProcessorTest.WINDOW);
+        }
+    }
+
+    /**
+     * Subscriber that throws instead of receiving the outcome with a given
+     * number, and otherwise forwards every call.
+     */
+    private static final class Failing
+        implements PayslipFlow.Subscriber<PayslipOutcome> {
+
+        /**
+         * Forwarded subscriber.
+         */
+        private final PayslipFlow.Subscriber<PayslipOutcome> origin;
+
+        /**
+         * Number of the outcome that fails.
+         */
+        private final int limit;
+
+        /**
+         * Amount of received outcomes.
+         */
+        private int received;
+
+        /**
+         * Subscriber constructor.
+         *
+         * @param origin Forwarded subscriber.
+         * @param limit Number of the outcome that fails.
+         */
+        Failing(
+            final PayslipFlow.Subscriber<PayslipOutcome> origin,
+            final int limit) {
+            this.origin = origin;
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(final PayslipFlow.Subscription sub) {
+            this.origin.onSubscribe(sub);
+        }
+
+        @Override
+        public void onNext(final PayslipOutcome item) {
+            this.received += 1;
+            if (this.received == this.limit) {
+                throw new IllegalStateException("subscriber failed");
+            }
+            this.origin.onNext(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.origin.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.origin.onComplete();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link PayslipPipe}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipPipeTest {
+
+    /**
+     * A valid request line.
+     */
+    private static final String REQUEST = "David,Rudd,60050,9%,March";
+
+    /**
+     * Result of {@link PayslipPipeTest#REQUEST}.
+     */
+    private static final String RESULT =
+        "David Rudd,01 March - 31 March,5004,922,4082,450";
+
+    /**
+     * Checks that every request is answered with its identifier.
+     *
+     * @throws IOException When the pipe fails.
+     */
+    @Test
+    public void answersWithIds() throws IOException {
+        final String input = String.join(
+            "\n",
+            "7 ".concat(PayslipPipeTest.REQUEST),
+            "",
+            "a1 Ryan,Chen,12k,10%,May",
+            "lonely"
+        );
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final long answered = new PayslipPipe(new PayslipProcessor(), 2, 0L)
+            .run(
+                new ByteArrayInputStream(
+                    input.getBytes(StandardCharsets.UTF_8)
+                ),
+                output
+            );
+        new TestAssert<>(answered).equalTo(3L);
+        new TestAssert<>(
+            Arrays.asList(
+                output.toString(StandardCharsets.UTF_8.name()).split("\n")
+            )
+        ).equalTo(
+            Arrays.asList(
+                "7 OK ".concat(PayslipPipeTest.RESULT),
+                String.format(
+                    "a1 ERR SALARY_NUMBER %s",
+                    ErrorCode.SALARY_NUMBER.message("12k")
+                ),
+                "lonely ERR GENERAL missing request"
+            )
+        );
+    }
+
+    /**
+     * Checks that a salary above the tax rules is an error response and the
+     * pipe answers the following requests.
+     *
+     * @throws IOException When the pipe fails.
+     */
+    @Test
+    public void rejectsUncoveredSalary() throws IOException {
+        final String input = String.join(
+            "\n",
+            "1 ".concat(PayslipPipeTest.REQUEST),
+            "2 Big,Salary,3000000000,9%,March",
+            "3 ".concat(PayslipPipeTest.REQUEST)
+        );
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new PayslipPipe(new PayslipProcessor(), 2, 1L).run(
+            new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+            output
+        );
+        new TestAssert<>(
+            Arrays.asList(
+                output.toString(StandardCharsets.UTF_8.name()).split("\n")
+            )
+        ).equalTo(
+            Arrays.asList(
+                "1 OK ".concat(PayslipPipeTest.RESULT),
+                String.format(
+                    "2 ERR SALARY_RANGE %s",
+                    ErrorCode.SALARY_RANGE.message("3000000000.00")
+                ),
+                "3 OK ".concat(PayslipPipeTest.RESULT)
+            )
+        );
+    }
+
+    /**
+     * Checks that the processor is taken once per flush of responses.
+     *
+     * @throws IOException When the pipe fails.
+     */
+    @Test
+    public void takesProcessorPerBatch() throws IOException {
+        final AtomicInteger calls = new AtomicInteger();
+        final String input = String.join(
+            "\n", Collections.nCopies(5, "1 ".concat(PayslipPipeTest.REQUEST))
+        );
+        final long answered = new PayslipPipe(
+            () -> {
+                calls.incrementAndGet();
+                return new PayslipProcessor();
+            },
+            2,
+            60_000L
+        ).run(
+            new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+            new ByteArrayOutputStream()
+        );
+        new TestAssert<>(answered).equalTo(5L);
+        new TestAssert<>(calls.get()).equalTo(3);
+    }
+
+    /**
+     * Checks that a response is flushed by the latency timer before its
+     * batch is complete and before the input ends, and that the next
+     * response takes the processor again.
+     *
+     * @throws Exception When the pipe fails.
+     */
+    @Test
+    public void flushesAfterLatency() throws Exception {
+        final PipedOutputStream requests = new PipedOutputStream();
+        final PipedInputStream input = new PipedInputStream(requests);
+        final PipedOutputStream output = new PipedOutputStream();
+        final BufferedReader responses = new BufferedReader(
+            new InputStreamReader(
+                new PipedInputStream(output), StandardCharsets.UTF_8
+            )
+        );
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            final Future<Long> answered = executor.submit(
+                () -> new PayslipPipe(
+                    () -> {
+                        calls.incrementAndGet();
+                        return new PayslipProcessor();
+                    },
+                    1_000,
+                    1L
+                ).run(input, output)
+            );
+            PayslipPipeTest.send(
+                requests, "1 ".concat(PayslipPipeTest.REQUEST)
+            );
+            new TestAssert<>(responses.readLine())
+                .equalTo("1 OK ".concat(PayslipPipeTest.RESULT));
+            PayslipPipeTest.send(
+                requests, "2 ".concat(PayslipPipeTest.REQUEST)
+            );
+            new TestAssert<>(responses.readLine())
+                .equalTo("2 OK ".concat(PayslipPipeTest.RESULT));
+            requests.close();
+            new TestAssert<>(answered.get()).equalTo(2L);
+            new TestAssert<>(calls.get()).equalTo(2);
+        } catch (final ExecutionException eex) {
+            throw (Exception) eex.getCause();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes a request line.
+     *
+     * @param requests Request stream.
+     * @param line Framed request.
+     * @throws IOException When writing fails.
+     */
+    private static void send(final OutputStream requests, final String line)
+        throws IOException {
+        requests.write(line.concat("\n").getBytes(StandardCharsets.UTF_8));
+        requests.flush();
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.math.BigDecimal;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Concurrency tests for a shared {@link PayslipProcessor}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipProcessorConcurrencyTest {
+
+    /**
+     * Amount of distinct requests.
+     */
+    private static final int REQUESTS = 20_000;
+
+    /**
+     * Amount of threads that share the processor.
+     */
+    private static final int THREADS = 16;
+
+    /**
+     * Passes over the requests per thread.
+     */
+    private static final int PASSES = 5;
+
+    /**
+     * Checks that the injector hands out one processor.
+     */
+    @Test
+    public void injectsSingleton() {
+        final Injector injector = Guice.createInjector();
+        assert injector.getInstance(PayslipProcessor.class)
+            == injector.getInstance(PayslipProcessor.class);
+    }
+
+    /**
+     * Checks that threads which share one processor, started together and
+     * each going through the requests in its own order, get exactly the
+     * results of a single-threaded run, including the rejected requests.
+     *
+     * @throws InterruptedException When interrupted while waiting.
+     * @throws ExecutionException When a thread fails.
+     */
+    @Test
+    public void matchesSingleThreadedRun()
+        throws InterruptedException, ExecutionException {
+        final Random random = new Random(42L);
+        final List<PayslipRequest> requests = new ArrayList<>();
+        for (int index = 0; index < PayslipProcessorConcurrencyTest.REQUESTS;
+            ++index) {
+            requests.add(PayslipProcessorConcurrencyTest.request(random));
+        }
+        final PayslipProcessor single = new PayslipProcessor();
+        final List<String> expected = new ArrayList<>();
+        for (final PayslipRequest request : requests) {
+            expected.add(
+                PayslipProcessorConcurrencyTest.outcome(single, request)
+            );
+        }
+        final PayslipProcessor shared = new PayslipProcessor();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(
+            PayslipProcessorConcurrencyTest.THREADS
+        );
+        final List<Future<Integer>> mismatches = new ArrayList<>();
+        try {
+            for (int thread = 0;
+                thread < PayslipProcessorConcurrencyTest.THREADS; ++thread) {
+                final long seed = thread;
+                mismatches.add(
+                    pool.submit(
+                        PayslipProcessorConcurrencyTest.hammer(
+                            shared, requests, expected, seed, start
+                        )
+                    )
+                );
+            }
+            start.countDown();
+            int total = 0;
+            for (final Future<Integer> mismatch : mismatches) {
+                total += mismatch.get();
+            }
+            new TestAssert<>(total).equalTo(0);
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1L, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Task that processes the requests in a shuffled order several times.
+     *
+     * @param shared Shared processor.
+     * @param requests Requests.
+     * @param expected Outcome of every request.
+     * @param seed Seed of the order.
+     * @param start Released when all threads are submitted.
+     * @return Task counting the outcomes that differ.
+     * @checkstyle ParameterNumberCheck (10 lines)
+     */
+    private static Callable<Integer> hammer(
+        final PayslipProcessor shared,
+        final List<PayslipRequest> requests,
+        final List<String> expected,
+        final long seed,
+        final CountDownLatch start) {
+        return () -> {
+            final List<Integer> order = new ArrayList<>(requests.size());
+            for (int index = 0; index < requests.size(); ++index) {
+                order.add(index);
+            }
+            Collections.shuffle(order, new Random(seed));
+            start.await();
+            int wrong = 0;
+            for (int pass = 0; pass < PayslipProcessorConcurrencyTest.PASSES;
+                ++pass) {
+                for (final int index : order) {
+                    final String outcome = PayslipProcessorConcurrencyTest
+                        .outcome(shared, requests.get(index));
+                    if (!outcome.equals(expected.get(index))) {
+                        wrong += 1;
+                    }
+                }
+            }
+            return wrong;
+        };
+    }
+
+    /**
+     * Results or error of a request.
+     *
+     * @param processor Processor.
+     * @param request Request.
+     * @return Display of the results or the error message.
+     */
+    private static String outcome(
+        final PayslipProcessor processor,
+        final PayslipRequest request) {
+        String outcome;
+        try {
+            outcome = processor.processMonths(request).toString();
+        } catch (final PayslipException pex) {
+            outcome = pex.getMessage();
+        }
+        return outcome;
+    }
+
+    /**
+     * Random request over all tax brackets, with some invalid salaries and
+     * super rates and some month ranges.
+     *
+     * @param random Random source.
+     * @return Request.
+     */
+    private static PayslipRequest request(final Random random) {
+        final Month month = Month.of(random.nextInt(12) + 1);
+        return new PayslipRequest(
+            new Employee(
+                "Emma",
+                String.format("Stone%d", random.nextInt(1000)),
+                Money.ofCents(random.nextInt(25_000_000) - 100_000L)
+            ),
+            BigDecimal.valueOf(random.nextInt(560) - 10, 1),
+            month,
+            month.plus(random.nextInt(3))
+        );
+    }
+}
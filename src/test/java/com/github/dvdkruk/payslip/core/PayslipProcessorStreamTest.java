@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the outcome streams of {@link PayslipProcessor}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipProcessorStreamTest {
+
+    /**
+     * Amount of generated lines, several megabytes.
+     */
+    private static final int LINES = 150_000;
+
+    /**
+     * Checks that a parallel stream over a file, which is split into
+     * blocks, has the outcomes of processing every line on its own, with
+     * the right line numbers.
+     *
+     * @throws IOException When the file cannot be written or read.
+     */
+    @Test
+    public void streamsFileInParallel() throws IOException {
+        final List<String> lines = PayslipProcessorStreamTest.lines();
+        final Path file = Files.createTempFile("requests", ".csv");
+        try {
+            Files.write(
+                file,
+                String.join("\r\n", lines).getBytes(StandardCharsets.UTF_8)
+            );
+            assert Files.size(file) > 4L * FileRequestSpliterator.MIN_BLOCK;
+            try (
+                Stream<PayslipOutcome> outcomes =
+                    new PayslipProcessor().processAll(file)
+            ) {
+                new TestAssert<>(
+                    PayslipProcessorStreamTest.display(outcomes.parallel())
+                ).equalTo(PayslipProcessorStreamTest.expected(lines));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Checks that the halves of a split file get the right line numbers
+     * when the later halves are consumed first, and that a consumed range
+     * is not split anymore.
+     *
+     * @throws IOException When the file cannot be written or read.
+     */
+    @Test
+    public void numbersLinesOutOfOrder() throws IOException {
+        final List<String> lines = PayslipProcessorStreamTest.lines();
+        final Path file = Files.createTempFile("requests", ".csv");
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            try (FileChannel channel = FileChannel.open(file)) {
+                final Spliterator<PayslipOutcome> suffix =
+                    new FileRequestSpliterator(
+                        new PayslipProcessor(), channel, 0L, channel.size(),
+                        0L
+                    );
+                final Spliterator<PayslipOutcome> prefix = suffix.trySplit();
+                final Spliterator<PayslipOutcome> middle = suffix.trySplit();
+                final List<String> later = PayslipProcessorStreamTest.display(
+                    StreamSupport.stream(suffix, false)
+                );
+                new TestAssert<>(suffix.trySplit() == null).equalTo(true);
+                final List<String> between = PayslipProcessorStreamTest
+                    .display(StreamSupport.stream(middle, false));
+                final List<String> outcomes = PayslipProcessorStreamTest
+                    .display(StreamSupport.stream(prefix, false));
+                outcomes.addAll(between);
+                outcomes.addAll(later);
+                new TestAssert<>(outcomes)
+                    .equalTo(PayslipProcessorStreamTest.expected(lines));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Checks that a parallel stream over lines has the outcomes of
+     * processing every line on its own.
+     */
+    @Test
+    public void streamsLinesInParallel() {
+        final List<String> lines = PayslipProcessorStreamTest.lines();
+        new TestAssert<>(
+            PayslipProcessorStreamTest.display(
+                new PayslipProcessor().processAll(lines).parallel()
+            )
+        ).equalTo(PayslipProcessorStreamTest.expected(lines));
+    }
+
+    /**
+     * Checks that rejected lines are outcomes and do not end the stream.
+     */
+    @Test
+    public void keepsFailuresAsValues() {
+        final List<PayslipOutcome> outcomes = new PayslipProcessor()
+            .processAll(
+                new StringReader(
+                    String.join(
+                        "\n",
+                        Arrays.asList(
+                            "David,Rudd,60050,9%,March",
+                            "Jennifer,Lawrence,1337,10.1%,Peter",
+                            "",
+                            "Ryan,Chen,120000,10%,May-June"
+                        )
+                    )
+                )
+            )
+            .collect(Collectors.toList());
+        new TestAssert<>(outcomes.size()).equalTo(3);
+        new TestAssert<>(outcomes.get(1).isFailure()).equalTo(true);
+        new TestAssert<>(outcomes.get(1).toString())
+            .equalTo("line 2: Peter is an invalid month");
+        new TestAssert<>(outcomes.get(2).getLine()).equalTo(4L);
+        new TestAssert<>(outcomes.get(2).getResults().size()).equalTo(2);
+    }
+
+    /**
+     * Display of the outcomes with their line numbers.
+     *
+     * @param outcomes Outcomes.
+     * @return Display lines in encounter order.
+     */
+    private static List<String> display(
+        final Stream<PayslipOutcome> outcomes) {
+        return outcomes
+            .map(outcome -> String.format("%d %s", outcome.getLine(), outcome))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Display of the outcomes of processing every non-blank line on its own.
+     *
+     * @param lines Request lines.
+     * @return Display lines.
+     */
+    private static List<String> expected(final List<String> lines) {
+        final PayslipProcessor processor = new PayslipProcessor();
+        final List<String> expected = new ArrayList<>();
+        for (int index = 0; index < lines.size(); ++index) {
+            final String line = lines.get(index);
+            if (!line.trim().isEmpty()) {
+                String outcome;
+                try {
+                    outcome = processor.processMonths(
+                        new PayslipRequestParser(line).toPayslipRequest()
+                    ).stream().map(Object::toString).collect(
+                        Collectors.joining(System.lineSeparator())
+                    );
+                } catch (final PayslipException pex) {
+                    outcome = String.format(
+                        "line %d: %s", index + 1, pex.getMessage()
+                    );
+                }
+                expected.add(String.format("%d %s", index + 1, outcome));
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Random request lines with blank and invalid lines, month ranges and
+     * non-ASCII names.
+     *
+     * @return Lines.
+     */
+    private static List<String> lines() {
+        final Random random = new Random(7L);
+        final String[] months = {"March", "May-July", "Peter", "december"};
+        final List<String> lines = new ArrayList<>();
+        for (int index = 0; index < PayslipProcessorStreamTest.LINES;
+            ++index) {
+            if (random.nextInt(50) == 0) {
+                lines.add("");
+            } else {
+                lines.add(
+                    String.format(
+                        "Zo\u00eb%d,Stone,%d,%d%%,%s",
+                        index,
+                        random.nextInt(300_000) - 1_000,
+                        random.nextInt(55),
+                        months[random.nextInt(months.length)]
+                    )
+                );
+            }
+        }
+        return lines;
+    }
+}
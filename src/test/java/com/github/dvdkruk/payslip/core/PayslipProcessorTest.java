@@ -7,7 +7,10 @@ import com.github.dvdkruk.payslip.utils.TestAssert;
 import com.google.inject.Guice;
 import java.math.BigDecimal;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -36,7 +39,7 @@ final class PayslipProcessorTest {
     private static final Employee EMPLOYEE = new Employee(
         PayslipProcessorTest.FORENAME,
         PayslipProcessorTest.SURNAME,
-        BigDecimal.TEN
+        Money.ofDollars(10L)
     );
 
     /**
@@ -65,7 +68,7 @@ final class PayslipProcessorTest {
         final Employee emply = new Employee(
             forename,
             PayslipProcessorTest.SURNAME,
-            BigDecimal.TEN
+            Money.ofDollars(10L)
         );
         this.checkPayslipExceptionMsg(PayslipProcessor.INVAL_FORENAME, emply);
     }
@@ -82,7 +85,7 @@ final class PayslipProcessorTest {
         final Employee employee = new Employee(
             PayslipProcessorTest.FORENAME,
             surname,
-            BigDecimal.TEN
+            Money.ofDollars(10L)
         );
         this.checkPayslipExceptionMsg(PayslipProcessor.INVAL_SURNAME, employee);
     }
@@ -99,7 +102,7 @@ final class PayslipProcessorTest {
         final Employee employee =  new Employee(
             PayslipProcessorTest.FORENAME,
             PayslipProcessorTest.SURNAME,
-            new BigDecimal(salary)
+            Money.parse(salary)
         );
         this.checkPayslipExceptionMsg(PayslipProcessor.INVAL_SALARY, employee);
     }
@@ -138,6 +141,58 @@ final class PayslipProcessorTest {
             .equalTo(output);
     }
 
+    /**
+     * Checks that a range of months gives the same results as a request per
+     * month.
+     */
+    @Test
+    public void processMonthsLikeSeparateRequests() {
+        final List<PayslipResult> expected = new ArrayList<>();
+        for (int index = 0; index < Month.values().length; ++index) {
+            expected.add(
+                this.processor.process(
+                    new PayslipRequest(
+                        PayslipProcessorTest.EMPLOYEE,
+                        BigDecimal.TEN,
+                        Month.JULY.plus(index)
+                    )
+                )
+            );
+        }
+        new TestAssert<>(
+            this.processor.processMonths(
+                new PayslipRequest(
+                    PayslipProcessorTest.EMPLOYEE,
+                    BigDecimal.TEN,
+                    Month.JULY,
+                    Month.JUNE
+                )
+            )
+        ).equalTo(expected);
+    }
+
+    /**
+     * Checks that a range of months is not processed into one result.
+     */
+    @Test
+    public void processRejectsMonthRange() {
+        PayslipException exception = null;
+        try {
+            this.processor.process(
+                new PayslipRequest(
+                    PayslipProcessorTest.EMPLOYEE,
+                    BigDecimal.TEN,
+                    Month.JULY,
+                    Month.AUGUST
+                )
+            );
+        } catch (final PayslipException pex) {
+            exception = pex;
+        }
+        assert exception != null;
+        new TestAssert<>(exception.getCode()).isSame(ErrorCode.MONTH_RANGE);
+    }
+
     /**
      * Creates a {@link PayslipRequest} with the given {@code employee} and
      * tries to processes it and check if a {@link PayslipException} is thrown
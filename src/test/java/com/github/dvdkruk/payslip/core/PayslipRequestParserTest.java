@@ -58,7 +58,7 @@ public final class PayslipRequestParserTest {
     @Test
     public void parseAnnualSalary() {
         new TestAssert<>(parse().getEmployee().getAnnualSalary())
-            .isSame(BigDecimal.TEN);
+            .isSame(Money.ofDollars(10L));
     }
 
     /**
@@ -91,6 +91,51 @@ public final class PayslipRequestParserTest {
         );
     }
 
+    /**
+     * Checks that a range of months wrapping around the end of the year is
+     * parsed and displayed again.
+     */
+    @Test
+    public void parseMonthRange() {
+        final PayslipRequest request =
+            new PayslipRequestParser("Jennifer,Lawrence,10,10.1%,July-June")
+                .toPayslipRequest();
+        new TestAssert<>(request.getMonth()).isSame(Month.JULY);
+        new TestAssert<>(request.getLastMonth()).isSame(Month.JUNE);
+        new TestAssert<>(request.getMonths()).equalTo(12);
+        new TestAssert<>(request.toString())
+            .equalTo("Jennifer,Lawrence,10,10.1%,July-June");
+    }
+
+    /**
+     * Tests that an invalid month of a range reports the whole range.
+     */
+    @Test
+    public void parseInvalidMonthRange() {
+        checkPayslipException(
+            "July-Junk is an invalid month",
+            "Jennifer,Lawrence,1337,10.1%,July-Junk"
+        );
+    }
+
+    /**
+     * Tests if the error code and offending field of an invalid salary are
+     * kept by the {@link PayslipException}.
+     */
+    @Test
+    public void keepsErrorCodeAndField() {
+        PayslipException exception = null;
+        try {
+            new PayslipRequestParser("Ryan,Chen,12k,10%,May")
+                .toPayslipRequest();
+        } catch (final PayslipException pex) {
+            exception = pex;
+        }
+        assert exception != null;
+        new TestAssert<>(exception.getCode()).isSame(ErrorCode.SALARY_NUMBER);
+        new TestAssert<>(exception.getField()).equalTo("12k");
+    }
+
     /**
      * Tests if a {@link PayslipException} with {@link
      * PayslipRequestParser#INVAL_ELMNT_AMNT} message is thrown when
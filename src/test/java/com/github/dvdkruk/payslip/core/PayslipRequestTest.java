@@ -83,7 +83,7 @@ public class PayslipRequestTest {
     @Test
     public final void getAnnualSalary() {
         new TestAssert<>(LEONARDO_REQ.getEmployee().getAnnualSalary())
-            .equalTo(BigDecimal.TEN);
+            .equalTo(Money.ofDollars(10L));
     }
 
     /**
@@ -144,6 +144,33 @@ public class PayslipRequestTest {
         request.notEqualTo(PayslipRequestTest.LEONARDO_REQ);
     }
 
+    /**
+     * Tests that equality and hash code compare decimal values regardless of
+     * their scale, and that salaries which only differ in cents are not equal.
+     */
+    @Test
+    public final void equalsByValue() {
+        final PayslipRequest scaled = new PayslipRequest(
+            new Employee(
+                PayslipRequestTest.GEORGE,
+                PayslipRequestTest.SURNAME,
+                Money.parse("10.00")
+            ),
+            new BigDecimal("1.0"),
+            Month.JANUARY
+        );
+        new TestAssert<>(scaled).equalTo(PayslipRequestTest.GEORGE_REQ);
+        new TestAssert<>(scaled.hashCode())
+            .equalTo(PayslipRequestTest.GEORGE_REQ.hashCode());
+        new TestAssert<>(
+            new Employee(
+                PayslipRequestTest.GEORGE,
+                PayslipRequestTest.SURNAME,
+                Money.parse("10.01")
+            )
+        ).notEqualTo(GEORGE_REQ.getEmployee());
+    }
+
     /**
      * Creates a {@link PayslipRequest} for an employee with the given {@code
      * forename}.
@@ -169,7 +196,7 @@ public class PayslipRequestTest {
 
     /**
      * Create a {@link Employee} with the given {@code forename},
-     * {@link PayslipRequestTest#SURNAME} and {@link BigDecimal#TEN} as salary.
+     * {@link PayslipRequestTest#SURNAME} and 10 dollars as salary.
      *
      * @param forename The forename used in the {@link Employee}.
      * @return An {@link Employee}.
@@ -178,7 +205,7 @@ public class PayslipRequestTest {
         return new Employee(
             forename,
             PayslipRequestTest.SURNAME,
-            BigDecimal.TEN
+            Money.ofDollars(10L)
         );
     }
 
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Month;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link PayslipStore}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class PayslipStoreTest {
+
+    /**
+     * July 2017.
+     */
+    private static final int JULY = 201_707;
+
+    /**
+     * August 2017.
+     */
+    private static final int AUGUST = 201_708;
+
+    /**
+     * Store directory.
+     */
+    private Path dir;
+
+    /**
+     * Creates the store directory.
+     *
+     * @throws IOException When creating fails.
+     */
+    @BeforeEach
+    public void createDir() throws IOException {
+        this.dir = Files.createTempDirectory("payslip-store");
+    }
+
+    /**
+     * Deletes the store directory.
+     *
+     * @throws IOException When deleting fails.
+     */
+    @AfterEach
+    public void deleteDir() throws IOException {
+        try (Stream<Path> files = Files.walk(this.dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(
+                file -> file.toFile().delete()
+            );
+        }
+    }
+
+    /**
+     * Checks that the latest result of a key is found, before and after
+     * reopening, and that unknown keys are not.
+     *
+     * @throws IOException When the store fails.
+     */
+    @Test
+    public void findsLatestResult() throws IOException {
+        try (PayslipStore store = PayslipStore.open(this.dir)) {
+            store.append(PayslipStoreTest.JULY, PayslipStoreTest.result(1));
+            store.append(PayslipStoreTest.AUGUST, PayslipStoreTest.result(2));
+            store.append(PayslipStoreTest.JULY, PayslipStoreTest.result(3));
+            store.commit();
+            new TestAssert<>(store.find("Emma Stone", PayslipStoreTest.JULY))
+                .equalTo(PayslipStoreTest.result(3));
+        }
+        try (PayslipStore store = PayslipStore.open(this.dir)) {
+            new TestAssert<>(store.size()).equalTo(2L);
+            new TestAssert<>(store.find("Emma Stone", PayslipStoreTest.JULY))
+                .equalTo(PayslipStoreTest.result(3));
+            new TestAssert<>(store.find("Emma Stone", PayslipStoreTest.AUGUST))
+                .equalTo(PayslipStoreTest.result(2));
+            assert store.find("Ryan Chen", PayslipStoreTest.JULY) == null;
+            assert store.find("Emma Stone", 201_709) == null;
+        }
+    }
+
+    /**
+     * Checks that a store that was not closed is recovered from its
+     * segments, without the torn record at the end.
+     *
+     * @throws IOException When the store fails.
+     */
+    @Test
+    public void recoversAfterCrash() throws IOException {
+        final PayslipStore crashed = PayslipStore.open(this.dir);
+        crashed.append(PayslipStoreTest.JULY, PayslipStoreTest.result(1));
+        crashed.append(PayslipStoreTest.JULY, PayslipStoreTest.result(2));
+        crashed.commit();
+        Files.write(
+            this.dir.resolve("0000000000.seg"), new byte[] {0, 0, 0, 42, 1},
+            StandardOpenOption.APPEND
+        );
+        try (PayslipStore store = PayslipStore.open(this.dir)) {
+            new TestAssert<>(store.size()).equalTo(1L);
+            new TestAssert<>(store.find("Emma Stone", PayslipStoreTest.JULY))
+                .equalTo(PayslipStoreTest.result(2));
+            store.append(PayslipStoreTest.AUGUST, PayslipStoreTest.result(3));
+            new TestAssert<>(store.find("Emma Stone", PayslipStoreTest.AUGUST))
+                .equalTo(PayslipStoreTest.result(3));
+        }
+    }
+
+    /**
+     * Checks that compaction keeps the latest results in fewer segments and
+     * that the store grows its index and rolls segments.
+     *
+     * @throws IOException When the store fails.
+     */
+    @Test
+    public void compactsSuperseded() throws IOException {
+        final int people = 10_000;
+        try (PayslipStore store = PayslipStore.open(this.dir, 64L * 1024L)) {
+            for (int round = 0; round < 3; ++round) {
+                for (int person = 0; person < people; ++person) {
+                    store.append(
+                        PayslipStoreTest.JULY,
+                        PayslipStoreTest.result(person, round)
+                    );
+                }
+            }
+            store.commit();
+            final int before = store.segments();
+            assert before > 2;
+            store.compact();
+            assert store.segments() < before;
+            store.append(PayslipStoreTest.AUGUST, PayslipStoreTest.result(1));
+        }
+        try (PayslipStore store = PayslipStore.open(this.dir)) {
+            new TestAssert<>(store.size()).equalTo(people + 1L);
+            for (int person = 0; person < people; ++person) {
+                new TestAssert<>(
+                    store.find(
+                        String.format("Emma Stone%d", person),
+                        PayslipStoreTest.JULY
+                    )
+                ).equalTo(PayslipStoreTest.result(person, 2));
+            }
+            new TestAssert<>(store.find("Emma Stone", PayslipStoreTest.AUGUST))
+                .equalTo(PayslipStoreTest.result(1));
+        }
+    }
+
+    /**
+     * Result of Emma Stone.
+     *
+     * @param tax Monthly tax.
+     * @return Result.
+     */
+    private static PayslipResult result(final int tax) {
+        return new PayslipResult(
+            "Emma Stone", Month.JULY, new FinancialInformation(5004, tax, 450)
+        );
+    }
+
+    /**
+     * Result of a numbered person.
+     *
+     * @param person Person number.
+     * @param tax Monthly tax.
+     * @return Result.
+     */
+    private static PayslipResult result(final int person, final int tax) {
+        return new PayslipResult(
+            String.format("Emma Stone%d", person), Month.JULY,
+            new FinancialInformation(person, tax, 0)
+        );
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link RequestValidator}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class RequestValidatorTest {
+
+    /**
+     * Field values, valid and invalid, that are combined into lines.
+     */
+    private static final String[][] FIELDS = {
+        {"David", " Ryan ", "", "J\u00f6rg", "  "},
+        {"Rudd", "Chen", "", "M\u00fcller", "\t"},
+        {
+            "60050", "60050.50", "-1", "0", "+1.005", "12k", "", "1.2.3",
+            "99999999999999999", "\u0661\u0662", ".5", "00",
+        },
+        {
+            "9%", "50%", "50.1%", "50.0%", "-0%", "-1%", "%", "9", "1e1%",
+            "5e1%", "9x%", ".%", "0.5%", "+7%", "1,5%", "\u0661%", "", "1e%",
+        },
+        {
+            "March", "march", "MAY", "July-June", "July - June", "Peter",
+            "July-", "-June", "", "M\u00e4rz", "a-b-c",
+        },
+    };
+
+    /**
+     * Checks on random combinations of valid and invalid fields that the
+     * validator rejects exactly the lines that the parser or processor
+     * rejects, with the same error code.
+     */
+    @Test
+    public void agreesWithParserAndProcessor() {
+        final Random random = new Random(7L);
+        final RequestValidator validator = new RequestValidator();
+        final PayslipProcessor processor = new PayslipProcessor();
+        final List<String> expected = new ArrayList<>();
+        final List<String> actual = new ArrayList<>();
+        for (int index = 0; index < 50_000; ++index) {
+            final String line = RequestValidatorTest.line(random);
+            ErrorCode code = null;
+            try {
+                processor.processMonths(
+                    new PayslipRequestParser(line).toPayslipRequest()
+                );
+            } catch (final PayslipException pex) {
+                code = pex.getCode();
+            }
+            expected.add(String.format("%s: %s", line, code));
+            actual.add(String.format("%s: %s", line, validator.check(line)));
+        }
+        new TestAssert<>(actual).equalTo(expected);
+    }
+
+    /**
+     * Checks the counts and samples of a scan over many small chunks,
+     * including blank lines, carriage returns and a last line without line
+     * break.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void scansChunks() throws IOException {
+        final StringBuilder input = new StringBuilder();
+        for (int line = 1; line <= 1000; ++line) {
+            if (line % 100 == 0) {
+                input.append("David,Rudd,60050,9%,Peter\r\n");
+            } else if (line % 250 == 1) {
+                input.append(" \n");
+            } else {
+                input.append("David,Rudd,60050,9%,March\n");
+            }
+        }
+        input.append("David,Rudd,0,9%,March");
+        final Path file = Files.createTempFile("requests", ".csv");
+        Files.write(file, input.toString().getBytes(StandardCharsets.UTF_8));
+        final ValidationReport report = new RequestValidator(100L).scan(file);
+        Files.delete(file);
+        new TestAssert<>(report.getLines()).equalTo(1001L);
+        new TestAssert<>(report.getRequests()).equalTo(997L);
+        new TestAssert<>(report.getRejected(ErrorCode.MONTH)).equalTo(10L);
+        new TestAssert<>(report.toString()).equalTo(
+            String.format(
+                "lines: 1001, requests: 997, valid: 986, rejected: 11%n"
+                    .concat("MONTH: 10 (lines 100, 200, 300, 400, 500, ...)%n")
+                    .concat("SALARY: 1 (lines 1001)")
+            )
+        );
+    }
+
+    /**
+     * Random line of {@link RequestValidatorTest#FIELDS}, sometimes with a
+     * field too few or too many.
+     *
+     * @param random Random source.
+     * @return Line.
+     */
+    private static String line(final Random random) {
+        final StringBuilder line = new StringBuilder();
+        int fields = RequestValidatorTest.FIELDS.length;
+        final int shape = random.nextInt(20);
+        if (shape == 0) {
+            fields -= 1;
+        }
+        for (int field = 0; field < fields; ++field) {
+            final String[] values = RequestValidatorTest.FIELDS[field];
+            if (field > 0) {
+                line.append(',');
+            }
+            line.append(values[random.nextInt(values.length)]);
+        }
+        if (shape == 1) {
+            line.append(",extra");
+        }
+        return line.toString();
+    }
+}
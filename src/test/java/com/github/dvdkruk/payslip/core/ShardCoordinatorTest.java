@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link ShardCoordinator}, which run real worker processes.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class ShardCoordinatorTest {
+
+    /**
+     * Amount of input lines.
+     */
+    private static final int LINES = 40;
+
+    /**
+     * Amount of worker processes.
+     */
+    private static final int SHARDS = 3;
+
+    /**
+     * Checks that a sharded run gives the same output and totals as a
+     * single process run.
+     *
+     * @param strategy Shard strategy name.
+     * @throws IOException When a run fails.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"hash", "range"})
+    public void mergesInInputOrder(final String strategy) throws IOException {
+        final Path dir = Files.createTempDirectory("shards");
+        final Path input = Files.write(
+            dir.resolve("in.csv"), ShardCoordinatorTest.input()
+        );
+        final Path single = dir.resolve("single.csv");
+        final BatchTotals expected;
+        try (
+            ErrorSink sink = new ErrorSink(
+                new PrintWriter(new ByteArrayOutputStream())
+            )
+        ) {
+            expected = new PayslipBatch(
+                new PayslipProcessor(),
+                new BatchSettings(input, single),
+                sink
+            ).run();
+        }
+        final Path sharded = dir.resolve("sharded.csv");
+        final BatchTotals totals = new ShardCoordinator(
+            new BatchSettings(input, sharded),
+            ShardCoordinatorTest.SHARDS,
+            ShardStrategy.parse(strategy)
+        ).run();
+        new TestAssert<>(Files.readAllLines(sharded))
+            .equalTo(Files.readAllLines(single));
+        new TestAssert<>(totals.toString()).equalTo(expected.toString());
+    }
+
+    /**
+     * Checks that the byte ranges of the input start at line starts, cover
+     * the input and know the amount of lines before them.
+     *
+     * @throws IOException When the input cannot be written or read.
+     */
+    @Test
+    public void splitsAtLineStarts() throws IOException {
+        final List<String> lines = ShardCoordinatorTest.input();
+        final Path input = Files.write(
+            Files.createTempFile("ranges", ".csv"), lines
+        );
+        final byte[] bytes = Files.readAllBytes(input);
+        long end = 0L;
+        long before = 0L;
+        for (final long[] range : ShardSplitter.ranges(input, 7)) {
+            new TestAssert<>(range[0]).equalTo(end);
+            new TestAssert<>(range[2]).equalTo(before);
+            new TestAssert<>(
+                range[0] == 0L || bytes[(int) range[0] - 1] == '\n'
+            ).equalTo(true);
+            for (long offset = range[0]; offset < range[1]; ++offset) {
+                if (bytes[(int) offset] == '\n') {
+                    before += 1L;
+                }
+            }
+            end = range[1];
+        }
+        new TestAssert<>(end).equalTo((long) bytes.length);
+        new TestAssert<>(before).equalTo((long) lines.size());
+        Files.delete(input);
+    }
+
+    /**
+     * Input lines for several employees, with one invalid line.
+     *
+     * @return Input lines.
+     */
+    private static List<String> input() {
+        final List<String> lines = new ArrayList<>(ShardCoordinatorTest.LINES);
+        for (int line = 0; line < ShardCoordinatorTest.LINES; ++line) {
+            lines.add(
+                String.format(
+                    "Employee%d,Surname%d,%d,9%%,March",
+                    line % 7,
+                    line,
+                    60_000 + line * 1_000
+                )
+            );
+        }
+        lines.set(ShardCoordinatorTest.SHARDS, "Broken,Line,12,9%,Peter");
+        return lines;
+    }
+}
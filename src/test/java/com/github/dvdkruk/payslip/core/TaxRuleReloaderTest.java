@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TaxRuleReloader}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class TaxRuleReloaderTest {
+
+    /**
+     * A valid request line.
+     */
+    private static final String REQUEST = "David,Rudd,60050,9%,March";
+
+    /**
+     * Checks that a file moved over the rule file is published, while a
+     * processor taken before keeps the previous rules.
+     *
+     * @throws Exception When the file cannot be written or waiting fails.
+     */
+    @Test
+    public void publishesChangedRules() throws Exception {
+        final Path dir = Files.createTempDirectory("rules");
+        final Path file = TaxRuleReloaderTest.rules(dir, "flat", "0.10");
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (
+            TaxRuleReloader reloader = new TaxRuleReloader(
+                file, new PrintStream(log, true, StandardCharsets.UTF_8.name())
+            )
+        ) {
+            final PayslipProcessor before = reloader.get();
+            Files.move(
+                TaxRuleReloaderTest.rules(dir, "next", "0.20"), file,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+            );
+            final long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(30L);
+            while (reloader.getGeneration() == 1L
+                && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            new TestAssert<>(TaxRuleReloaderTest.tax(before)).equalTo(500);
+            new TestAssert<>(TaxRuleReloaderTest.tax(reloader.get()))
+                .equalTo(1001);
+        }
+        new TestAssert<>(log.toString(StandardCharsets.UTF_8.name()))
+            .equalTo(
+                String.format(
+                    "tax rules 2 loaded from %s: 1 brackets%n",
+                    file.toAbsolutePath()
+                )
+            );
+    }
+
+    /**
+     * Checks that invalid rules are reported and the previous processor
+     * stays in use.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    @Test
+    public void keepsRulesOnInvalidFile() throws IOException {
+        final Path file = TaxRuleReloaderTest.rules(
+            Files.createTempDirectory("rules"), "flat", "0.10"
+        );
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (
+            TaxRuleReloader reloader = new TaxRuleReloader(
+                file, new PrintStream(log, true, StandardCharsets.UTF_8.name())
+            )
+        ) {
+            final PayslipProcessor before = reloader.get();
+            Files.write(file, Collections.singletonList("37000,0"));
+            new TestAssert<>(reloader.reload()).equalTo(false);
+            new TestAssert<>(reloader.get() == before).equalTo(true);
+            new TestAssert<>(reloader.getGeneration()).equalTo(1L);
+        }
+        new TestAssert<>(
+            log.toString(StandardCharsets.UTF_8.name()).contains(
+                String.format(
+                    "tax rules of %s rejected, keeping tax rules 1: %s",
+                    file.toAbsolutePath(),
+                    "invalid tax rule on line 1: 37000,0"
+                )
+            )
+        ).equalTo(true);
+    }
+
+    /**
+     * Writes a rule file with one flat rate.
+     *
+     * @param dir Directory of the file.
+     * @param name Name of the file.
+     * @param rate Tax rate.
+     * @return Rule file.
+     * @throws IOException When the file cannot be written.
+     */
+    private static Path rules(
+        final Path dir,
+        final String name,
+        final String rate) throws IOException {
+        return Files.write(
+            dir.resolve(name.concat(".rules")),
+            Collections.singletonList(String.format("2147483647,0,%s", rate))
+        );
+    }
+
+    /**
+     * Monthly tax of {@link #REQUEST}.
+     *
+     * @param processor Processor.
+     * @return Monthly tax.
+     */
+    private static int tax(final PayslipProcessor processor) {
+        return processor.process(
+            new PayslipRequestParser(TaxRuleReloaderTest.REQUEST)
+                .toPayslipRequest()
+        ).getTax();
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TaxScenarios}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class TaxScenariosTest {
+
+    /**
+     * A flat rate of 10%.
+     */
+    private static final List<String> FLAT = Arrays.asList(
+        "# flat rate", "", "2147483647,0,0.10"
+    );
+
+    /**
+     * Checks that the display lines of the default rules parse back into the
+     * same rules.
+     */
+    @Test
+    public void parsesRuleLines() {
+        new TestAssert<>(
+            TaxScenarios.parseRules(
+                DefaultTaxRuleFactory.DEFAULT.stream()
+                    .map(TaxRule::toString)
+                    .collect(Collectors.toList())
+            )
+        ).equalTo(DefaultTaxRuleFactory.DEFAULT);
+    }
+
+    /**
+     * Checks that a malformed rule is rejected with its line number.
+     */
+    @Test
+    public void rejectsMalformedRule() {
+        PayslipException exception = null;
+        try {
+            TaxScenarios.parseRules(Arrays.asList("18200,0,0", "37000,0"));
+        } catch (final PayslipException pex) {
+            exception = pex;
+        }
+        assert exception != null;
+        new TestAssert<>(exception.getMessage())
+            .equalTo("invalid tax rule on line 2: 37000,0");
+    }
+
+    /**
+     * Checks the per-row deltas and totals of a scenario equal to the
+     * baseline and of a flat rate scenario, including more rows than fit in
+     * one block.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void taxesEveryScenario() throws IOException {
+        final TaxScenarios scenarios = new TaxScenarios(
+            Arrays.asList("same", "flat"),
+            Arrays.asList(
+                DefaultTaxRuleFactory.DEFAULT,
+                TaxScenarios.parseRules(TaxScenariosTest.FLAT)
+            )
+        );
+        final int rows = 10_000;
+        final StringBuilder input = new StringBuilder();
+        final List<String> expected = new ArrayList<>();
+        expected.add("name,baseline,same,flat");
+        long baseline = 0L;
+        long flat = 0L;
+        final PayslipProcessor processor = new PayslipProcessor();
+        for (int row = 1; row <= rows; ++row) {
+            final String request = String.format(
+                "Emma,Stone%d,%d.50,9%%,May", row, row * 20
+            );
+            input.append(request).append('\n');
+            final int tax = processor.process(
+                new PayslipRequestParser(request).toPayslipRequest()
+            ).getTax();
+            final long other = Money.halfUp(row * 20 * 10L + 5L, 1_200L);
+            expected.add(
+                String.format("Emma Stone%d,%d,0,%d", row, tax, other - tax)
+            );
+            baseline += tax;
+            flat += other;
+        }
+        input.append("Ryan,Chen,0,10%,May\n");
+        final StringWriter output = new StringWriter();
+        final StringWriter errors = new StringWriter();
+        final long[] totals;
+        try (ErrorSink sink = new ErrorSink(new PrintWriter(errors))) {
+            totals = scenarios.run(
+                new BufferedReader(new StringReader(input.toString())),
+                output,
+                sink
+            );
+        }
+        new TestAssert<>(Arrays.asList(output.toString().split("\n")))
+            .equalTo(expected);
+        new TestAssert<>(Arrays.toString(totals)).equalTo(
+            Arrays.toString(new long[] {baseline, baseline, flat})
+        );
+        new TestAssert<>(errors.toString()).equalTo(
+            String.format(
+                "line %d: %s%n", rows + 1, PayslipProcessor.INVAL_SALARY
+            )
+        );
+        new TestAssert<>(scenarios.summary(totals)).equalTo(
+            String.format(
+                "baseline: tax %d%nsame: tax %d, delta +0%nflat: tax %d, "
+                    .concat("delta %+d"),
+                baseline, baseline, flat, flat - baseline
+            )
+        );
+    }
+
+    /**
+     * Checks that a salary whose tax overflows with a finely scaled rate is
+     * reported as out of range instead of failing the run.
+     *
+     * @throws IOException When reading or writing fails.
+     */
+    @Test
+    public void rejectsOverflowingSalary() throws IOException {
+        final TaxScenarios scenarios = new TaxScenarios(
+            Arrays.asList("fine"),
+            Arrays.asList(
+                TaxScenarios.parseRules(
+                    Arrays.asList("2147483647,0,0.450000001")
+                )
+            )
+        );
+        final StringWriter output = new StringWriter();
+        final StringWriter errors = new StringWriter();
+        try (ErrorSink sink = new ErrorSink(new PrintWriter(errors))) {
+            scenarios.run(
+                new BufferedReader(
+                    new StringReader(
+                        "Ryan,Chen,1000000000,9%,May\nEmma,Stone,60050,9%,May\n"
+                    )
+                ),
+                output,
+                sink
+            );
+        }
+        new TestAssert<>(output.toString().split("\n").length).equalTo(2);
+        new TestAssert<>(errors.toString()).equalTo(
+            String.format(
+                "line 1: %s%n",
+                ErrorCode.SALARY_RANGE.message("1000000000.00")
+            )
+        );
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.core;
+
+import com.github.dvdkruk.payslip.utils.TestAssert;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link TaxSchedule} and {@link ColumnarTaxes}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class TaxScheduleTest {
+
+    /**
+     * Amount of random salaries.
+     */
+    private static final int SALARIES = 10_003;
+
+    /**
+     * Largest random salary.
+     */
+    private static final int MAX_SALARY = 1_000_000;
+
+    /**
+     * The default tax schedule.
+     */
+    private static final TaxSchedule SCHEDULE =
+        TaxSchedule.compile(DefaultTaxRuleFactory.DEFAULT);
+
+    /**
+     * Checks that the schedule calculates the same tax as a {@link
+     * BigDecimal} calculation around every bracket boundary.
+     *
+     * @param salary Annual salary in whole dollars.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {
+        1, 18_199, 18_200, 18_201, 36_999, 37_000, 37_001, 60_050,
+        79_999, 80_000, 80_001, 179_999, 180_000, 180_001, 1_000_000,
+        Integer.MAX_VALUE,
+    })
+    public void equalsDecimalTax(final int salary) {
+        new TestAssert<>(TaxScheduleTest.SCHEDULE.tax(salary))
+            .equalTo(TaxScheduleTest.reference(BigDecimal.valueOf(salary)));
+    }
+
+    /**
+     * Checks that salaries with cents are taxed to the cent, with the same
+     * result as a {@link BigDecimal} calculation.
+     *
+     * @param salary Annual salary with cents.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "0.01", "18200.01", "18200.49", "36999.99", "37000.01", "60050.50",
+        "79999.99", "80000.01", "123456.78", "180000.01", "2147483646.99",
+    })
+    public void taxesCents(final String salary) {
+        new TestAssert<>(TaxScheduleTest.SCHEDULE.tax(Money.parse(salary)))
+            .equalTo(
+                Money.ofDollars(
+                    TaxScheduleTest.reference(new BigDecimal(salary))
+                )
+            );
+    }
+
+    /**
+     * Checks that the default columnar calculation, the scalar columnar
+     * calculation and the single salary calculation agree.
+     */
+    @Test
+    public void columnarEqualsScalar() {
+        final Random random = new Random(SALARIES);
+        final int[] salaries = new int[TaxScheduleTest.SALARIES];
+        final int[] expected = new int[salaries.length];
+        for (int index = 0; index < salaries.length; ++index) {
+            salaries[index] = 1 + random.nextInt(TaxScheduleTest.MAX_SALARY);
+            expected[index] = TaxScheduleTest.SCHEDULE.tax(salaries[index]);
+        }
+        final int[] vector = new int[salaries.length];
+        ColumnarTaxes.of(TaxScheduleTest.SCHEDULE).taxes(salaries, vector);
+        final int[] scalar = new int[salaries.length];
+        ColumnarTaxes.scalar(TaxScheduleTest.SCHEDULE).taxes(salaries, scalar);
+        new TestAssert<>(Arrays.toString(vector))
+            .equalTo(Arrays.toString(expected));
+        new TestAssert<>(Arrays.toString(scalar))
+            .equalTo(Arrays.toString(expected));
+    }
+
+    /**
+     * Checks half up rounding of a rate with a longer scale.
+     */
+    @Test
+    public void roundsHalfUp() {
+        final TaxSchedule schedule = TaxSchedule.compile(
+            Arrays.asList(
+                new TaxRule(Integer.MAX_VALUE, 0, new BigDecimal("0.0025"))
+            )
+        );
+        new TestAssert<>(schedule.tax(2_400)).equalTo(1);
+        new TestAssert<>(schedule.tax(2_399)).equalTo(0);
+    }
+
+    /**
+     * Checks that a salary above the last bracket is rejected.
+     */
+    @Test
+    public void rejectsUncoveredCents() {
+        NoSuchElementException exception = null;
+        try {
+            TaxScheduleTest.SCHEDULE.tax(
+                Money.ofDollars(Integer.MAX_VALUE).plus(Money.ofCents(1L))
+            );
+        } catch (final NoSuchElementException nse) {
+            exception = nse;
+        }
+        assert exception != null;
+        new TestAssert<>(exception.getMessage()).equalTo(
+            "No tax rule found for annual salary '2147483647.01'"
+        );
+    }
+
+    /**
+     * Checks that rules with descending maxima are rejected.
+     */
+    @Test
+    public void rejectsDescendingRules() {
+        PayslipException exception = null;
+        try {
+            TaxSchedule.compile(
+                Arrays.asList(
+                    new TaxRule(2, 0, BigDecimal.ZERO),
+                    new TaxRule(1, 0, BigDecimal.ZERO)
+                )
+            );
+        } catch (final PayslipException pex) {
+            exception = pex;
+        }
+        assert exception != null;
+        new TestAssert<>(exception.getMessage())
+            .equalTo("tax rules must have ascending maxima");
+    }
+
+    /**
+     * Monthly tax of the default rules with {@link BigDecimal} arithmetic.
+     *
+     * @param salary Annual salary.
+     * @return Monthly tax in whole dollars.
+     */
+    private static int reference(final BigDecimal salary) {
+        int previous = 0;
+        TaxRule rule = null;
+        for (final TaxRule candidate : DefaultTaxRuleFactory.DEFAULT) {
+            if (rule == null
+                && salary.compareTo(BigDecimal.valueOf(candidate.getMax()))
+                    <= 0) {
+                rule = candidate;
+            }
+            if (rule == null) {
+                previous = candidate.getMax();
+            }
+        }
+        assert rule != null;
+        return salary.subtract(BigDecimal.valueOf(previous))
+            .multiply(rule.getTax())
+            .add(BigDecimal.valueOf(rule.getBase()))
+            .divide(new BigDecimal("12"), 0, RoundingMode.HALF_UP)
+            .intValueExact();
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2017, Damiaan van der Kruk.
+ */
+package com.github.dvdkruk.payslip.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Unit tests for {@link NameArena}.
+ * @author Damiaan Van Der Kruk (Damiaan.van.der.Kruk@gmail.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class NameArenaTest {
+
+    /**
+     * Amount of distinct names for growing the intern table.
+     */
+    private static final int NAMES = 5_000;
+
+    /**
+     * Length of a name with a two byte header.
+     */
+    private static final int LONG = 300;
+
+    /**
+     * Checks that a stored name is returned, appended and written as UTF-8
+     * unchanged.
+     *
+     * @param name Name.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "", "Rudd", "Zo\u00eb", "\u0141ukasiewicz", "\u5c71\u7530",
+    })
+    public void storesNames(final String name) {
+        final NameArena arena = new NameArena();
+        arena.add("padding");
+        final int handle = arena.add(name);
+        new TestAssert<>(arena.get(handle)).equalTo(name);
+        new TestAssert<>(
+            arena.appendTo(handle, new StringBuilder()).toString()
+        ).equalTo(name);
+        final byte[] utf = new byte[arena.utfLength(handle)];
+        new TestAssert<>(arena.writeUtf(handle, utf, 0)).equalTo(utf.length);
+        new TestAssert<>(Arrays.toString(utf)).equalTo(
+            Arrays.toString(name.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    /**
+     * Checks that Latin-1 names use one byte per character plus a header.
+     */
+    @Test
+    public void storesLatinCompactly() {
+        final NameArena arena = new NameArena();
+        arena.add("Zo\u00eb");
+        new TestAssert<>(arena.size()).equalTo(4);
+    }
+
+    /**
+     * Checks that interned names are stored once, also after the intern
+     * table grew.
+     */
+    @Test
+    public void internsRepeatedNames() {
+        final NameArena arena = new NameArena();
+        final int[] handles = new int[NameArenaTest.NAMES];
+        for (int index = 0; index < NameArenaTest.NAMES; ++index) {
+            handles[index] = arena.intern(String.format("Name%d", index));
+        }
+        final int size = arena.size();
+        for (int index = 0; index < NameArenaTest.NAMES; ++index) {
+            final String name = String.format("Name%d", index);
+            new TestAssert<>(arena.intern(name)).equalTo(handles[index]);
+            new TestAssert<>(arena.get(handles[index])).equalTo(name);
+        }
+        new TestAssert<>(arena.size()).equalTo(size);
+        new TestAssert<>(arena.interned()).equalTo(NameArenaTest.NAMES);
+    }
+
+    /**
+     * Checks that a long name gets a header of several bytes.
+     */
+    @Test
+    public void storesLongNames() {
+        final char[] chars = new char[NameArenaTest.LONG];
+        Arrays.fill(chars, 'a');
+        final String name = new String(chars);
+        final NameArena arena = new NameArena();
+        final int handle = arena.intern(name);
+        new TestAssert<>(arena.get(handle)).equalTo(name);
+        new TestAssert<>(arena.intern(name)).equalTo(handle);
+        new TestAssert<>(arena.size()).equalTo(NameArenaTest.LONG + 2);
+    }
+
+    /**
+     * Checks that the arena doubles its capacity without overflowing past
+     * one gigabyte, and rejects lengths beyond the largest array.
+     */
+    @Test
+    public void growsUpToLargestArray() {
+        final int giga = 1 << 30;
+        new TestAssert<>(NameArena.capacity(1 << 12, 5_000L))
+            .equalTo(1 << 13);
+        new TestAssert<>(NameArena.capacity(1 << 12, 10_000L))
+            .equalTo(10_000);
+        new TestAssert<>(NameArena.capacity(giga + 1, giga + 2L))
+            .equalTo(Integer.MAX_VALUE - 8);
+        String error = null;
+        try {
+            NameArena.capacity(Integer.MAX_VALUE - 8, Integer.MAX_VALUE);
+        } catch (final IllegalStateException ise) {
+            error = ise.getMessage();
+        }
+        new TestAssert<>(error).equalTo(
+            "name arena cannot hold 2147483647 bytes, at most 2147483639"
+        );
+    }
+}